@@ -0,0 +1,491 @@
+package ru.aston.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a Jackson serializer and deserializer for every class annotated with {@code GenerateJson},
+ * writing and reading its properties with straight-line code instead of reflection, and a
+ * {@value #MODULE_NAME} registering all of them.
+ * <p>
+ * The properties of a DTO are its instance fields, in declaration order, accessed through their conventional
+ * getters and setters, which may be generated by lombok. This is how Jackson sees the DTOs of this project, so the
+ * generated code writes the same JSON. Classes Jackson would see differently are reported and left to Jackson:
+ * generic classes, subclasses, classes using Jackson annotations, fields without accessors, getters or setters
+ * without fields and property types other than primitives, strings, DTOs and lists of them. Nested values that
+ * are not generated DTOs themselves are passed to Jackson.
+ */
+@SupportedAnnotationTypes("ru.aston.codegen.GenerateJson")
+public class JsonCodegenProcessor extends AbstractProcessor {
+    /**
+     * The package of the generated module.
+     */
+    public static final String MODULE_PACKAGE = "ru.aston.codegen";
+
+    /**
+     * The simple name of the generated module.
+     */
+    public static final String MODULE_NAME = "GeneratedJsonModule";
+
+    private static final String JACKSON_ANNOTATIONS = "com.fasterxml.jackson.";
+    private static final String GENERATED = "@javax.annotation.processing.Generated(\""
+            + JsonCodegenProcessor.class.getName() + "\")";
+
+    private final Set<String> generated = new HashSet<>();
+    private boolean moduleWritten;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<Property>> models = new LinkedHashMap<>();
+        // The only supported annotation is GenerateJson, which is compiled with the sources it marks
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                try {
+                    models.put(type, properties(type));
+                } catch (UnsupportedTypeException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                            "No JSON code generated, Jackson handles it: " + e.getMessage(), type);
+                }
+            }
+        }
+        for (TypeElement type : models.keySet()) {
+            generated.add(type.getQualifiedName().toString());
+        }
+        try {
+            for (Map.Entry<TypeElement, List<Property>> model : models.entrySet()) {
+                writeSerializer(model.getKey(), model.getValue());
+                writeDeserializer(model.getKey(), model.getValue());
+            }
+            if (!models.isEmpty() && !moduleWritten) {
+                writeModule();
+                moduleWritten = true;
+            }
+        } catch (UncheckedIOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write generated JSON code: " + e.getCause().getMessage());
+        }
+        return true;
+    }
+
+    private List<Property> properties(TypeElement type) throws UnsupportedTypeException {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new UnsupportedTypeException("it is generic");
+        }
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || type.getModifiers().contains(Modifier.ABSTRACT)
+                || type.getNestingKind().isNested()) {
+            throw new UnsupportedTypeException("it is not a public top-level class");
+        }
+        if (!type.getSuperclass().toString().equals(Object.class.getName())) {
+            throw new UnsupportedTypeException("it extends another class");
+        }
+        checkNoJacksonAnnotations(type);
+        boolean lombokGetters = hasAnnotation(type, "lombok.Getter");
+        boolean lombokSetters = hasAnnotation(type, "lombok.Setter");
+        List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+        boolean defaultConstructor = hasAnnotation(type, "lombok.NoArgsConstructor");
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            checkNoJacksonAnnotations(constructor);
+            defaultConstructor |= constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        if (!defaultConstructor) {
+            throw new UnsupportedTypeException("it has no public no-argument constructor");
+        }
+
+        List<Property> properties = new ArrayList<>();
+        Set<String> accessors = new HashSet<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            checkNoJacksonAnnotations(field);
+            String name = field.getSimpleName().toString();
+            if (field.getModifiers().contains(Modifier.PUBLIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                throw new UnsupportedTypeException("field " + name + " is public or transient");
+            }
+            if (name.length() > 1 && Character.isUpperCase(name.charAt(1))) {
+                throw new UnsupportedTypeException("Jackson renames property " + name);
+            }
+            Property property = property(name, field.asType());
+            if (!hasAccessor(methods, property.getter, 0)
+                    && !(lombokGetters || hasAnnotation(field, "lombok.Getter"))) {
+                throw new UnsupportedTypeException("field " + name + " has no getter " + property.getter);
+            }
+            if (!hasAccessor(methods, property.setter, 1)
+                    && !(lombokSetters || hasAnnotation(field, "lombok.Setter"))) {
+                throw new UnsupportedTypeException("field " + name + " has no setter " + property.setter);
+            }
+            accessors.add(property.getter);
+            accessors.add(property.setter);
+            properties.add(property);
+        }
+        for (ExecutableElement method : methods) {
+            checkNoJacksonAnnotations(method);
+            String name = method.getSimpleName().toString();
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+                    || accessors.contains(name)) {
+                continue;
+            }
+            boolean getter = method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID
+                    && (isAccessorName(name, "get")
+                    || isAccessorName(name, "is") && method.getReturnType().getKind() == TypeKind.BOOLEAN);
+            boolean setter = method.getParameters().size() == 1 && isAccessorName(name, "set");
+            if (getter || setter) {
+                throw new UnsupportedTypeException(name + " is not backed by a field");
+            }
+        }
+        return properties;
+    }
+
+    private Property property(String name, TypeMirror type) throws UnsupportedTypeException {
+        switch (type.getKind()) {
+            case INT:
+                return new Property(name, Kind.INT, type, null);
+            case LONG:
+                return new Property(name, Kind.LONG, type, null);
+            case FLOAT:
+                return new Property(name, Kind.FLOAT, type, null);
+            case DOUBLE:
+                return new Property(name, Kind.DOUBLE, type, null);
+            case BOOLEAN:
+                return new Property(name, Kind.BOOLEAN, type, null);
+            case DECLARED:
+                DeclaredType declared = (DeclaredType) type;
+                String rawName = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                if (rawName.equals(String.class.getName())) {
+                    return new Property(name, Kind.STRING, type, null);
+                }
+                if (declared.getTypeArguments().isEmpty()) {
+                    return new Property(name, Kind.OBJECT, type, null);
+                }
+                if (rawName.equals(List.class.getName())) {
+                    TypeMirror element = declared.getTypeArguments().get(0);
+                    if (element.getKind() == TypeKind.DECLARED
+                            && ((DeclaredType) element).getTypeArguments().isEmpty()) {
+                        return new Property(name, Kind.LIST, type, element);
+                    }
+                }
+                throw new UnsupportedTypeException("field " + name + " has the unsupported type " + type);
+            default:
+                throw new UnsupportedTypeException("field " + name + " has the unsupported type " + type);
+        }
+    }
+
+    private void writeSerializer(TypeElement type, List<Property> properties) {
+        String simpleName = type.getSimpleName() + "JsonSerializer";
+        String dto = type.getQualifiedName().toString();
+        try (PrintWriter out = createSource(type, simpleName)) {
+            out.println("package " + packageOf(type) + ";");
+            out.println();
+            out.println("/**");
+            out.println(" * Writes {@link " + dto + "} as JSON without reflection. Generated, do not edit.");
+            out.println(" */");
+            out.println(GENERATED);
+            out.println("public final class " + simpleName
+                    + " extends com.fasterxml.jackson.databind.ser.std.StdSerializer<" + dto + "> {");
+            out.println("    public static final " + simpleName + " INSTANCE = new " + simpleName + "();");
+            out.println();
+            out.println("    private " + simpleName + "() {");
+            out.println("        super(" + dto + ".class);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void serialize(" + dto + " value, com.fasterxml.jackson.core.JsonGenerator gen,");
+            out.println("                          com.fasterxml.jackson.databind.SerializerProvider provider)");
+            out.println("            throws java.io.IOException {");
+            out.println("        gen.writeStartObject(value);");
+            for (Property property : properties) {
+                String getter = "value." + property.getter + "()";
+                String local = property.name + "Value";
+                switch (property.kind) {
+                    case INT:
+                    case LONG:
+                    case FLOAT:
+                    case DOUBLE:
+                        out.println("        gen.writeNumberField(\"" + property.name + "\", " + getter + ");");
+                        break;
+                    case BOOLEAN:
+                        out.println("        gen.writeBooleanField(\"" + property.name + "\", " + getter + ");");
+                        break;
+                    case STRING:
+                        out.println("        gen.writeStringField(\"" + property.name + "\", " + getter + ");");
+                        break;
+                    case OBJECT:
+                        out.println("        gen.writeFieldName(\"" + property.name + "\");");
+                        out.println("        " + property.type + " " + local + " = " + getter + ";");
+                        writeValue(out, "        ", local, property.type);
+                        break;
+                    case LIST:
+                        out.println("        gen.writeFieldName(\"" + property.name + "\");");
+                        out.println("        " + property.type + " " + local + " = " + getter + ";");
+                        out.println("        if (" + local + " == null) {");
+                        out.println("            gen.writeNull();");
+                        out.println("        } else {");
+                        out.println("            gen.writeStartArray(" + local + ", " + local + ".size());");
+                        out.println("            for (" + property.element + " element : " + local + ") {");
+                        writeValue(out, "                ", "element", property.element);
+                        out.println("            }");
+                        out.println("            gen.writeEndArray();");
+                        out.println("        }");
+                        break;
+                    default:
+                        throw new IllegalStateException(property.kind.name());
+                }
+            }
+            out.println("        gen.writeEndObject();");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * Writes a nested value, with the generated serializer of its type if there is one and else with Jackson.
+     */
+    private void writeValue(PrintWriter out, String indent, String local, TypeMirror type) {
+        if (!isGenerated(type)) {
+            out.println(indent + "provider.defaultSerializeValue(" + local + ", gen);");
+            return;
+        }
+        out.println(indent + "if (" + local + " == null) {");
+        out.println(indent + "    gen.writeNull();");
+        out.println(indent + "} else if (" + local + ".getClass() == " + type + ".class) {");
+        out.println(indent + "    " + type + "JsonSerializer.INSTANCE.serialize(" + local + ", gen, provider);");
+        out.println(indent + "} else {");
+        out.println(indent + "    provider.defaultSerializeValue(" + local + ", gen);");
+        out.println(indent + "}");
+    }
+
+    private void writeDeserializer(TypeElement type, List<Property> properties) {
+        String simpleName = type.getSimpleName() + "JsonDeserializer";
+        String dto = type.getQualifiedName().toString();
+        try (PrintWriter out = createSource(type, simpleName)) {
+            out.println("package " + packageOf(type) + ";");
+            out.println();
+            out.println("import com.fasterxml.jackson.core.JsonToken;");
+            out.println();
+            out.println("/**");
+            out.println(" * Reads {@link " + dto + "} from JSON without reflection. Generated, do not edit.");
+            out.println(" */");
+            out.println(GENERATED);
+            out.println("public final class " + simpleName
+                    + " extends com.fasterxml.jackson.databind.deser.std.StdDeserializer<" + dto + "> {");
+            out.println("    public static final " + simpleName + " INSTANCE = new " + simpleName + "();");
+            for (Property property : properties) {
+                if (property.kind == Kind.LIST) {
+                    out.println();
+                    out.println("    private static final com.fasterxml.jackson.databind.JavaType "
+                            + constantOf(property) + " =");
+                    out.println("            com.fasterxml.jackson.databind.type.TypeFactory.defaultInstance()");
+                    out.println("                    .constructCollectionType(java.util.List.class, "
+                            + property.element + ".class);");
+                }
+            }
+            out.println();
+            out.println("    private " + simpleName + "() {");
+            out.println("        super(" + dto + ".class);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + dto + " deserialize(com.fasterxml.jackson.core.JsonParser p,");
+            out.println(" ".repeat(dto.length() + 24)
+                    + "com.fasterxml.jackson.databind.DeserializationContext ctxt) throws java.io.IOException {");
+            out.println("        JsonToken token = p.currentToken();");
+            out.println("        if (token == JsonToken.START_OBJECT) {");
+            out.println("            token = p.nextToken();");
+            out.println("        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {");
+            out.println("            return (" + dto + ") ctxt.handleUnexpectedToken(" + dto + ".class, p);");
+            out.println("        }");
+            out.println("        " + dto + " value = new " + dto + "();");
+            out.println("        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {");
+            out.println("            String name = p.currentName();");
+            out.println("            token = p.nextToken();");
+            out.println("            switch (name) {");
+            for (Property property : properties) {
+                out.println("                case \"" + property.name + "\":");
+                out.println("                    value." + property.setter + "(" + readExpression(property) + ");");
+                out.println("                    break;");
+            }
+            out.println("                default:");
+            out.println("                    handleUnknownProperty(p, ctxt, value, name);");
+            out.println("            }");
+            out.println("        }");
+            out.println("        return value;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private String readExpression(Property property) {
+        switch (property.kind) {
+            case INT:
+                return "_parseIntPrimitive(p, ctxt)";
+            case LONG:
+                return "_parseLongPrimitive(p, ctxt)";
+            case FLOAT:
+                return "_parseFloatPrimitive(p, ctxt)";
+            case DOUBLE:
+                return "_parseDoublePrimitive(p, ctxt)";
+            case BOOLEAN:
+                return "_parseBooleanPrimitive(p, ctxt)";
+            case STRING:
+                return "token == JsonToken.VALUE_NULL ? null : _parseString(p, ctxt)";
+            case OBJECT:
+                return "token == JsonToken.VALUE_NULL ? null : " + (isGenerated(property.type)
+                        ? property.type + "JsonDeserializer.INSTANCE.deserialize(p, ctxt)"
+                        : "ctxt.readValue(p, " + property.type + ".class)");
+            case LIST:
+                return "token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, " + constantOf(property) + ")";
+            default:
+                throw new IllegalStateException(property.kind.name());
+        }
+    }
+
+    private void writeModule() {
+        String qualifiedName = MODULE_PACKAGE + "." + MODULE_NAME;
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName).openWriter())) {
+            out.println("package " + MODULE_PACKAGE + ";");
+            out.println();
+            out.println("/**");
+            out.println(" * Registers the generated JSON serializers and deserializers. Generated, do not edit.");
+            out.println(" */");
+            out.println(GENERATED);
+            out.println("public final class " + MODULE_NAME
+                    + " extends com.fasterxml.jackson.databind.module.SimpleModule {");
+            out.println("    public " + MODULE_NAME + "() {");
+            out.println("        super(\"" + MODULE_NAME + "\");");
+            for (String dto : new TreeSet<>(generated)) {
+                out.println("        addSerializer(" + dto + ".class, " + dto + "JsonSerializer.INSTANCE);");
+                out.println("        addDeserializer(" + dto + ".class, " + dto + "JsonDeserializer.INSTANCE);");
+            }
+            out.println("    }");
+            out.println("}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PrintWriter createSource(TypeElement type, String simpleName) {
+        try {
+            return new PrintWriter(processingEnv.getFiler()
+                    .createSourceFile(packageOf(type) + "." + simpleName, type).openWriter());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isGenerated(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && generated.contains(
+                ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString());
+    }
+
+    private String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private static String constantOf(Property property) {
+        return property.name.replaceAll("([A-Z])", "_$1").toUpperCase() + "_TYPE";
+    }
+
+    private static boolean isAccessorName(String name, String prefix) {
+        return name.length() > prefix.length() && name.startsWith(prefix)
+                && Character.isUpperCase(name.charAt(prefix.length()));
+    }
+
+    private static boolean hasAccessor(List<ExecutableElement> methods, String name, int parameters) {
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkNoJacksonAnnotations(Element element) throws UnsupportedTypeException {
+        List<Element> annotated = new ArrayList<>();
+        annotated.add(element);
+        if (element instanceof ExecutableElement) {
+            annotated.addAll(((ExecutableElement) element).getParameters());
+        }
+        for (Element candidate : annotated) {
+            for (AnnotationMirror mirror : candidate.getAnnotationMirrors()) {
+                if (mirror.getAnnotationType().toString().startsWith(JACKSON_ANNOTATIONS)) {
+                    throw new UnsupportedTypeException(element.getSimpleName() + " is annotated with "
+                            + mirror.getAnnotationType());
+                }
+            }
+        }
+    }
+
+    private enum Kind {
+        INT, LONG, FLOAT, DOUBLE, BOOLEAN, STRING, OBJECT, LIST
+    }
+
+    /**
+     * A property of a DTO with its accessors; {@code element} is the element type of a list.
+     */
+    private static final class Property {
+        private final String name;
+        private final Kind kind;
+        private final TypeMirror type;
+        private final TypeMirror element;
+        private final String getter;
+        private final String setter;
+
+        private Property(String name, Kind kind, TypeMirror type, TypeMirror element) {
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            this.name = name;
+            this.kind = kind;
+            this.type = type;
+            this.element = element;
+            this.getter = (kind == Kind.BOOLEAN ? "is" : "get") + capitalized;
+            this.setter = "set" + capitalized;
+        }
+    }
+
+    /**
+     * Thrown for a DTO whose JSON the generated code could not write exactly as Jackson does.
+     */
+    private static final class UnsupportedTypeException extends Exception {
+        private UnsupportedTypeException(String message) {
+            super(message);
+        }
+    }
+}
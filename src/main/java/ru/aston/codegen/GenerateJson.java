@@ -0,0 +1,16 @@
+package ru.aston.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DTO for which the build-only {@code JsonCodegenProcessor} generates a JSON serializer and deserializer
+ * at compile time. A DTO the processor cannot handle, e.g. one with Jackson annotations, is reported and left to
+ * Jackson.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateJson {
+}
@@ -1,10 +1,20 @@
 package ru.aston.controller.authorController;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
+import ru.aston.dto.PageDto.PageDto;
 import ru.aston.service.authorService.AuthorServiceImpl;
+import ru.aston.service.authorStatsService.AuthorStatsServiceImpl;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.CachedResponse;
+import ru.aston.util.ConditionalGet;
+import ru.aston.util.FieldSelection;
+import ru.aston.util.JsonCodec;
+import ru.aston.util.PageRequest;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -27,26 +37,45 @@ public class AuthorController extends HttpServlet {
     private final AuthorServiceImpl authorServiceImpl;
 
     /**
-     * Constructs a new AuthorController instance with a default AuthorServiceImpl.
+     * The relations of an author that can be expanded.
+     */
+    private static final String[] RELATIONS = {"books"};
+
+    /**
+     * The largest number of authors a batch request may contain.
+     */
+    private static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * The AuthorStatsServiceImpl instance serving the statistics of authors.
+     */
+    private final AuthorStatsServiceImpl authorStatsServiceImpl;
+
+    /**
+     * Constructs a new AuthorController instance with a default AuthorServiceImpl and AuthorStatsServiceImpl.
      */
     public AuthorController() {
         this.authorServiceImpl = new AuthorServiceImpl();
+        this.authorStatsServiceImpl = new AuthorStatsServiceImpl();
     }
 
     /**
      * Constructs a new AuthorController instance
-     * with a provided AuthorServiceImpl for testing purposes.
+     * with a provided AuthorServiceImpl and AuthorStatsServiceImpl for testing purposes.
      *
-     * @param authorServiceImpl The AuthorServiceImpl instance to be used.
+     * @param authorServiceImpl      The AuthorServiceImpl instance to be used.
+     * @param authorStatsServiceImpl The AuthorStatsServiceImpl instance to be used.
      */
-    public AuthorController(AuthorServiceImpl authorServiceImpl) {
+    public AuthorController(AuthorServiceImpl authorServiceImpl, AuthorStatsServiceImpl authorStatsServiceImpl) {
         this.authorServiceImpl = authorServiceImpl;
+        this.authorStatsServiceImpl = authorStatsServiceImpl;
     }
 
     /**
      * Handles HTTP POST requests for creating new authors.
      * Expects a JSON request body containing author name.
      * Responds with the created author's details in JSON format.
+     * {@code POST /authors/batch} creates a JSON array of authors, see {@link #createAuthorsBatch}.
      *
      * @param req  The HttpServletRequest object representing the request.
      * @param resp The HttpServletResponse object representing the response.
@@ -54,6 +83,10 @@ public class AuthorController extends HttpServlet {
      */
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if ("/batch".equals(req.getPathInfo())) {
+            createAuthorsBatch(req, resp);
+            return;
+        }
         Optional<AuthorDtoShort> authorDtoShortOptional = extractRequestBody(req);
         if (authorDtoShortOptional.isPresent()) {
             AuthorDtoShort authorDtoShort = authorDtoShortOptional.get();
@@ -91,7 +124,10 @@ public class AuthorController extends HttpServlet {
 
     /**
      * Handles HTTP GET requests for retrieving authors.
-     * Supports retrieving all authors or a specific author by ID.
+     * Supports retrieving all authors, a page of authors with {@code ?limit=&after=} or a specific author by ID.
+     * {@code ?fields=} limits the serialized properties of the authors and {@code ?expand=books}
+     * controls whether their books are loaded.
+     * {@code /authors/stats} pages through the numbers of books and comments per author, see {@link #getStatsPage}.
      * Responds with author data in JSON format.
      *
      * @param req  The HttpServletRequest object representing the request.
@@ -102,11 +138,33 @@ public class AuthorController extends HttpServlet {
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String pathInfo = req.getPathInfo();
         if (pathInfo == null || pathInfo.equals("/")) {
-            getAllAuthors(resp);
+            PageRequest pageRequest;
+            FieldSelection selection;
+            try {
+                pageRequest = PageRequest.from(req, 1);
+                selection = FieldSelection.from(req, RELATIONS);
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            if (pageRequest == null) {
+                getAllAuthors(resp, selection);
+            } else {
+                getAuthorsPage(resp, pageRequest, selection);
+            }
+        } else if (pathInfo.equals("/stats")) {
+            getStatsPage(req, resp);
         } else {
             String[] pathParts = pathInfo.split("/");
             if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
-                getAuthorById(resp, Integer.parseInt(pathParts[1]));
+                FieldSelection selection;
+                try {
+                    selection = FieldSelection.from(req, RELATIONS);
+                } catch (IllegalArgumentException e) {
+                    resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                    return;
+                }
+                getAuthorById(req, resp, Integer.parseInt(pathParts[1]), selection);
             } else {
                 resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
             }
@@ -116,15 +174,40 @@ public class AuthorController extends HttpServlet {
     /**
      * Retrieves an author by ID and sends it as JSON in the response.
      * If the author is not found, sends a 404 error response.
+     * Responds 304 Not Modified without loading the author if {@code If-None-Match} holds their current ETag.
+     * Otherwise the encoded response of the current version is sent from the response cache. An author read
+     * at another version, e.g. from a replica behind the version lookup, is sent with the ETag of that version.
      *
-     * @param resp   HttpServletResponse object to handle the response
-     * @param authorId ID of the author to retrieve
+     * @param req       HttpServletRequest object carrying the conditional headers
+     * @param resp      HttpServletResponse object to handle the response
+     * @param authorId  ID of the author to retrieve
+     * @param selection The properties and relations to send
      * @throws IOException if an I/O exception occurs
      */
-    private void getAuthorById(HttpServletResponse resp, int authorId) throws IOException {
-        AuthorDto author = authorServiceImpl.getAuthorById(authorId);
+    private void getAuthorById(HttpServletRequest req, HttpServletResponse resp, int authorId,
+                               FieldSelection selection) throws IOException {
+        Long version = authorServiceImpl.getAuthorVersion(authorId);
+        if (version != null && ConditionalGet.notModified(req, resp, version)) {
+            return;
+        }
+        boolean withBooks = selection.includes("books");
+        if (version != null) {
+            String eTag = ConditionalGet.eTag(req, version);
+            CachedResponse response = EntityCaches.getResponse("authors/" + authorId + " " + eTag, key -> {
+                EntityCaches.Versioned<AuthorDto> author =
+                        authorServiceImpl.getAuthorById(authorId, withBooks, version);
+                return author == null || author.getVersion() != version ? null
+                        : CachedResponse.encode(selection, author.getValue(), EntityCaches.tagsOf(author.getValue()));
+            });
+            if (response != null) {
+                response.writeTo(req, resp, eTag);
+                return;
+            }
+        }
+        EntityCaches.Versioned<AuthorDto> author = authorServiceImpl.getAuthorById(authorId, withBooks, 0);
         if (author != null) {
-            sendAsJson(resp, author);
+            resp.setHeader("ETag", ConditionalGet.eTag(req, author.getVersion()));
+            sendAsJson(resp, author.getValue(), selection);
         } else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Author not found");
         }
@@ -133,12 +216,121 @@ public class AuthorController extends HttpServlet {
     /**
      * Retrieves all authors and sends them as JSON in the response.
      *
+     * @param resp      HttpServletResponse object to handle the response
+     * @param selection The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getAllAuthors(HttpServletResponse resp, FieldSelection selection) throws IOException {
+        List<AuthorDto> authors = authorServiceImpl.getAllAuthors(selection.includes("books"));
+        sendAsJson(resp, authors, selection);
+    }
+
+    /**
+     * Retrieves a page of authors ordered by ID and sends it as JSON in the response,
+     * together with the token of the next page.
+     *
+     * @param resp        HttpServletResponse object to handle the response
+     * @param pageRequest The pagination parameters of the request
+     * @param selection   The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getAuthorsPage(HttpServletResponse resp, PageRequest pageRequest, FieldSelection selection)
+            throws IOException {
+        PageDto<AuthorDto> page = authorServiceImpl.getAuthorsPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                selection.includes("books"));
+        sendAsJson(resp, page, selection);
+    }
+
+    /**
+     * Sends a page of author statistics as JSON in the response, together with the token of the next page.
+     * {@code ?sort=} orders by {@code authorId} (the default), or by {@code bookCount} or {@code commentCount}
+     * descending. The statistics are read from a materialized view refreshed in the background,
+     * so they may lag behind recent changes by up to the refresh interval.
+     *
+     * @param req  HttpServletRequest object with the sort and pagination parameters
      * @param resp HttpServletResponse object to handle the response
      * @throws IOException if an I/O exception occurs
      */
-    private void getAllAuthors(HttpServletResponse resp) throws IOException {
-        List<AuthorDto> authors = authorServiceImpl.getAllAuthors();
-        sendAsJson(resp, authors);
+    private void getStatsPage(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String sort = Optional.ofNullable(req.getParameter("sort")).orElse(AuthorStatsServiceImpl.SORT_AUTHOR_ID);
+        int keyLength = AuthorStatsServiceImpl.pageKeyLength(sort);
+        if (keyLength == 0) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown sort " + sort);
+            return;
+        }
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.from(req, keyLength);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (pageRequest == null) {
+            pageRequest = new PageRequest(new int[0], PageRequest.DEFAULT_LIMIT);
+        }
+        PageDto<AuthorStatsDto> page = authorStatsServiceImpl.getStatsPage(sort, pageRequest.getAfter(),
+                pageRequest.getLimit());
+        sendAsJson(resp, page);
+    }
+
+    /**
+     * Creates a JSON array of authors in one database transaction and responds with their generated IDs
+     * in input order. Invalid authors reject the whole batch with 400, unless {@code ?lenient=true} is given;
+     * then invalid and failing authors are reported by index and the others are created.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    private void createAuthorsBatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Optional<List<AuthorDtoShort>> authorsOptional = extractBatchRequestBody(req);
+        if (authorsOptional.isEmpty()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid request body");
+            return;
+        }
+        List<AuthorDtoShort> authors = authorsOptional.get();
+        if (authors.isEmpty() || authors.size() > MAX_BATCH_SIZE) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Batch must contain between 1 and " + MAX_BATCH_SIZE + " authors");
+            return;
+        }
+        boolean lenient = "true".equals(req.getParameter("lenient"));
+        BatchResultDto result = new BatchResultDto(authors.size());
+        for (int i = 0; i < authors.size(); i++) {
+            AuthorDtoShort author = authors.get(i);
+            if (author == null || author.getAuthorName() == null || author.getAuthorName().isBlank()) {
+                result.addError(i, "Author must have a non-null and non-empty authorName");
+            }
+        }
+        if (result.hasErrors() && !lenient) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            sendAsJson(resp, result);
+            return;
+        }
+        try {
+            sendAsJson(resp, authorServiceImpl.createAuthors(authors, result, lenient));
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Batch rejected, no authors were created: "
+                    + cause.getMessage());
+        }
+    }
+
+    /**
+     * Extracts the request body as a list of AuthorDtoShort objects.
+     *
+     * @param req HttpServletRequest object representing the request
+     * @return Optional with the list if extraction is successful, otherwise - empty Optional
+     * @throws IOException if an I/O exception occurs
+     */
+    private Optional<List<AuthorDtoShort>> extractBatchRequestBody(HttpServletRequest req) throws IOException {
+        try (BufferedReader reader = req.getReader()) {
+            List<AuthorDtoShort> authors = JsonCodec.getDefault().read(reader, new TypeReference<List<AuthorDtoShort>>() {
+            });
+            return Optional.ofNullable(authors);
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
     }
 
     /**
@@ -150,8 +342,7 @@ public class AuthorController extends HttpServlet {
      */
     private Optional<AuthorDtoShort> extractRequestBody(HttpServletRequest req) throws IOException {
         try (BufferedReader reader = req.getReader()) {
-            ObjectMapper mapper = new ObjectMapper();
-            AuthorDtoShort authorDtoShort = mapper.readValue(reader, AuthorDtoShort.class);
+            AuthorDtoShort authorDtoShort = JsonCodec.getDefault().read(reader, AuthorDtoShort.class);
             return Optional.of(authorDtoShort);
         } catch (JsonProcessingException e) {
             return Optional.empty();
@@ -166,8 +357,18 @@ public class AuthorController extends HttpServlet {
      * @throws IOException if an I/O exception occurs
      */
     private void sendAsJson(HttpServletResponse response, Object obj) throws IOException {
-        response.setContentType("application/json");
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getWriter(), obj);
+        sendAsJson(response, obj, FieldSelection.ALL);
+    }
+
+    /**
+     * Sends the selected properties of the specified object as JSON in the response.
+     *
+     * @param response  HttpServletResponse object to handle the response
+     * @param obj       Object to be serialized to JSON
+     * @param selection The properties to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void sendAsJson(HttpServletResponse response, Object obj, FieldSelection selection) throws IOException {
+        selection.write(response, obj);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package ru.aston.controller.autocompleteController;
+
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.autocompleteService.AutocompleteServiceImpl;
+import ru.aston.util.JsonCodec;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Servlet implementation for autocompleting book titles and author names.
+ * Suggestions are served from memory, so the endpoint does not touch the database.
+ */
+@WebServlet("/autocomplete")
+public class AutocompleteController extends HttpServlet {
+    /**
+     * The AutocompleteServiceImpl instance associated with this AutocompleteController.
+     */
+    private final AutocompleteServiceImpl autocompleteServiceImpl;
+
+    /**
+     * The number of suggestions returned without {@code limit}.
+     */
+    private static final int DEFAULT_LIMIT = 10;
+
+    /**
+     * Constructs a new AutocompleteController instance with a default AutocompleteServiceImpl.
+     */
+    public AutocompleteController() {
+        this.autocompleteServiceImpl = new AutocompleteServiceImpl();
+    }
+
+    /**
+     * Constructs a new AutocompleteController instance
+     * with a provided AutocompleteServiceImpl for testing purposes.
+     *
+     * @param autocompleteServiceImpl The AutocompleteServiceImpl instance to be used.
+     */
+    public AutocompleteController(AutocompleteServiceImpl autocompleteServiceImpl) {
+        this.autocompleteServiceImpl = autocompleteServiceImpl;
+    }
+
+    /**
+     * Handles HTTP GET requests {@code /autocomplete?prefix=&limit=}.
+     * Responds with the most popular book titles and author names starting with the prefix in JSON format.
+     * The limit defaults to {@value #DEFAULT_LIMIT} and may be at most {@value AutocompleteIndex#MAX_LIMIT}.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String prefix = req.getParameter("prefix");
+        if (prefix == null || prefix.isBlank()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Prefix must not be blank");
+            return;
+        }
+        int limit = DEFAULT_LIMIT;
+        String limitParameter = req.getParameter("limit");
+        if (limitParameter != null) {
+            try {
+                limit = Integer.parseInt(limitParameter);
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                return;
+            }
+            if (limit <= 0 || limit > AutocompleteIndex.MAX_LIMIT) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "Limit must be between 1 and " + AutocompleteIndex.MAX_LIMIT);
+                return;
+            }
+        }
+        JsonCodec.getDefault().write(resp, autocompleteServiceImpl.complete(prefix, limit));
+    }
+}
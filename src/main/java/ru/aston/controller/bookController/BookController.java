@@ -1,10 +1,20 @@
 package ru.aston.controller.bookController;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
+import ru.aston.dto.PageDto.PageDto;
 import ru.aston.service.bookService.BookServiceImpl;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.service.shelfService.ShelfServiceImpl;
+import ru.aston.util.CachedResponse;
+import ru.aston.util.ConditionalGet;
+import ru.aston.util.FieldSelection;
+import ru.aston.util.JsonCodec;
+import ru.aston.util.JsonStreaming;
+import ru.aston.util.PageRequest;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -26,26 +36,55 @@ public class BookController extends HttpServlet {
     private final BookServiceImpl bookServiceImpl;
 
     /**
-     * Constructs a new BookController instance with a default BookServiceImpl.
+     * The relations of a book that can be expanded.
+     */
+    private static final String[] RELATIONS = {"author", "comments"};
+
+    /**
+     * The largest number of books a batch request may contain.
+     */
+    private static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * The largest number of books whose readers may be counted in one request.
+     */
+    private static final int MAX_READERS_COUNT_IDS = 1_000;
+
+    /**
+     * The value of {@code ?sort=} ordering books by their number of comments, most commented first.
+     */
+    private static final String SORT_MOST_COMMENTED = "mostCommented";
+
+    /**
+     * The ShelfServiceImpl instance counting the readers of books.
+     */
+    private final ShelfServiceImpl shelfServiceImpl;
+
+    /**
+     * Constructs a new BookController instance with a default BookServiceImpl and ShelfServiceImpl.
      */
     public BookController() {
         this.bookServiceImpl = new BookServiceImpl();
+        this.shelfServiceImpl = new ShelfServiceImpl();
     }
 
     /**
      * Constructs a new BookController instance
-     * with a provided BookServiceImpl for testing purposes.
+     * with a provided BookServiceImpl and ShelfServiceImpl for testing purposes.
      *
-     * @param bookServiceImpl The BookServiceImpl instance to be used.
+     * @param bookServiceImpl  The BookServiceImpl instance to be used.
+     * @param shelfServiceImpl The ShelfServiceImpl instance to be used.
      */
-    public BookController(BookServiceImpl bookServiceImpl) {
+    public BookController(BookServiceImpl bookServiceImpl, ShelfServiceImpl shelfServiceImpl) {
         this.bookServiceImpl = bookServiceImpl;
+        this.shelfServiceImpl = shelfServiceImpl;
     }
 
     /**
      * Handles HTTP POST requests for creating new book.
      * Expects a JSON request body containing book title and author id.
      * Responds with the created book's details in JSON format.
+     * {@code POST /books/batch} creates a JSON array of books, see {@link #createBooksBatch}.
      *
      * @param req  The HttpServletRequest object representing the request.
      * @param resp The HttpServletResponse object representing the response.
@@ -53,6 +92,10 @@ public class BookController extends HttpServlet {
      */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if ("/batch".equals(req.getPathInfo())) {
+            createBooksBatch(req, resp);
+            return;
+        }
         Optional<BookShortDto> bookShortDtoOptional = extractRequestBody(req);
         if (bookShortDtoOptional.isPresent()) {
            BookShortDto bookShortDto = bookShortDtoOptional.get();
@@ -92,7 +135,14 @@ public class BookController extends HttpServlet {
 
     /**
      * Handles HTTP GET requests for retrieving books.
-     * Supports retrieving all books or a specific book by ID.
+     * Supports retrieving all books, a page of books with {@code ?limit=&after=},
+     * all books streamed from a database cursor with {@code ?stream=true} or a specific book by ID.
+     * {@code ?sort=mostCommented} returns a page of the most commented books, see {@link #getMostCommentedBooksPage}.
+     * {@code ?fields=} limits the serialized properties of the books and {@code ?expand=} the relations
+     * ({@code author}, {@code comments}) loaded for them.
+     * {@code /books/search?q=} searches book titles, see {@link #searchBooks}.
+     * {@code /books/{id}/readers/count} and {@code /books/readers/count?ids=1,2,3} count the users
+     * having the books on their shelves, see {@link #countReaders}.
      * Responds with book data in JSON format.
      *
      * @param req  The HttpServletRequest object representing the request.
@@ -103,30 +153,147 @@ public class BookController extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String pathInfo = req.getPathInfo();
         if (pathInfo == null || pathInfo.equals("/")) {
-            getAllBooks(resp);
+            String sort = req.getParameter("sort");
+            if (sort != null && !sort.equals(SORT_MOST_COMMENTED)) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown sort " + sort);
+                return;
+            }
+            boolean mostCommented = sort != null;
+            PageRequest pageRequest;
+            FieldSelection selection;
+            try {
+                pageRequest = PageRequest.from(req, mostCommented ? 2 : 1);
+                selection = FieldSelection.from(req, RELATIONS);
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            boolean withComments = selection.includes("comments");
+            if (mostCommented) {
+                getMostCommentedBooksPage(resp, pageRequest != null ? pageRequest
+                        : new PageRequest(new int[0], PageRequest.DEFAULT_LIMIT), selection);
+            } else if (pageRequest == null && "true".equals(req.getParameter("stream"))) {
+                JsonStreaming.<BookDto>writeArray(resp,
+                        consumer -> bookServiceImpl.streamAllBooks(consumer, withComments), selection);
+            } else if (pageRequest == null) {
+                getAllBooks(resp, selection);
+            } else {
+                getBooksPage(resp, pageRequest, selection);
+            }
+        } else if (pathInfo.equals("/search")) {
+            searchBooks(req, resp);
+        } else if (pathInfo.equals("/readers/count")) {
+            countReaders(resp, req.getParameter("ids"));
         } else {
             String[] pathParts = pathInfo.split("/");
-            if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
-                getBookById(resp, Integer.parseInt(pathParts[1]));
+            if (pathParts.length == 4 && pathParts[1].matches("\\d+")
+                    && pathParts[2].equals("readers") && pathParts[3].equals("count")) {
+                countReaders(resp, pathParts[1]);
+            } else if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
+                FieldSelection selection;
+                try {
+                    selection = FieldSelection.from(req, RELATIONS);
+                } catch (IllegalArgumentException e) {
+                    resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                    return;
+                }
+                getBookById(req, resp, Integer.parseInt(pathParts[1]), selection);
             } else {
                 resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
             }
         }
     }
 
+    /**
+     * Counts the users having each of the books on their shelves and sends the counts as a JSON object
+     * keyed by book ID, e.g. {@code {"1": 3, "2": 0}}.
+     *
+     * @param resp HttpServletResponse object to handle the response
+     * @param ids  Comma-separated IDs of the books
+     * @throws IOException if an I/O exception occurs
+     */
+    private void countReaders(HttpServletResponse resp, String ids) throws IOException {
+        if (ids == null || !ids.matches("\\d{1,9}(,\\d{1,9})*")) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Book ids must be a comma-separated list of numbers");
+            return;
+        }
+        String[] parts = ids.split(",");
+        if (parts.length > MAX_READERS_COUNT_IDS) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "At most " + MAX_READERS_COUNT_IDS + " book ids can be counted at once");
+            return;
+        }
+        int[] bookIds = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            bookIds[i] = Integer.parseInt(parts[i]);
+        }
+        sendAsJson(resp, shelfServiceImpl.countReaders(bookIds));
+    }
+
+    /**
+     * Searches book titles for the {@code q} parameter and sends a page of hits, best matches first,
+     * as JSON in the response. Further pages are requested with {@code ?limit=&after=} like collection pages.
+     *
+     * @param req  HttpServletRequest object representing the request
+     * @param resp HttpServletResponse object to handle the response
+     * @throws IOException if an I/O exception occurs
+     */
+    private void searchBooks(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String text = req.getParameter("q");
+        if (text == null || text.isBlank()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Search text q must not be blank");
+            return;
+        }
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.from(req, 2);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (pageRequest == null) {
+            pageRequest = new PageRequest(new int[0], PageRequest.DEFAULT_LIMIT);
+        }
+        sendAsJson(resp, bookServiceImpl.searchBooks(text, pageRequest.getAfter(), pageRequest.getLimit()));
+    }
+
     /**
      * Retrieves a book by ID and sends it as JSON in the response.
      * If the book is not found, sends a 404 error response.
+     * Responds 304 Not Modified without loading the book if {@code If-None-Match} holds its current ETag.
+     * Otherwise the encoded response of the current version is sent from the response cache. A book read
+     * at another version, e.g. from a replica behind the version lookup, is sent with the ETag of that version.
      *
-     * @param resp   HttpServletResponse object to handle the response
-     * @param bookId ID of the book to retrieve
+     * @param req       HttpServletRequest object carrying the conditional headers
+     * @param resp      HttpServletResponse object to handle the response
+     * @param bookId    ID of the book to retrieve
+     * @param selection The properties and relations to send
      * @throws IOException if an I/O exception occurs
      */
-    private void getBookById(HttpServletResponse resp, int bookId) throws IOException {
+    private void getBookById(HttpServletRequest req, HttpServletResponse resp, int bookId, FieldSelection selection)
+            throws IOException {
+        Long version = bookServiceImpl.getBookVersion(bookId);
+        if (version != null && ConditionalGet.notModified(req, resp, version)) {
+            return;
+        }
+        boolean withComments = selection.includes("comments");
         try {
-            BookDto book = bookServiceImpl.getBookById(bookId);
+            if (version != null) {
+                String eTag = ConditionalGet.eTag(req, version);
+                CachedResponse response = EntityCaches.getResponse("books/" + bookId + " " + eTag, key -> {
+                    EntityCaches.Versioned<BookDto> book = bookServiceImpl.getBookById(bookId, withComments, version);
+                    return book == null || book.getVersion() != version ? null
+                            : CachedResponse.encode(selection, book.getValue(), EntityCaches.tagsOf(book.getValue()));
+                });
+                if (response != null) {
+                    response.writeTo(req, resp, eTag);
+                    return;
+                }
+            }
+            EntityCaches.Versioned<BookDto> book = bookServiceImpl.getBookById(bookId, withComments, 0);
             if (book != null) {
-                sendAsJson(resp, book);
+                resp.setHeader("ETag", ConditionalGet.eTag(req, book.getVersion()));
+                sendAsJson(resp, book.getValue(), selection);
             } else {
                 resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Book not found");
             }
@@ -138,12 +305,106 @@ public class BookController extends HttpServlet {
     /**
      * Retrieves all books and sends them as JSON in the response.
      *
-     * @param resp HttpServletResponse object to handle the response
+     * @param resp      HttpServletResponse object to handle the response
+     * @param selection The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getAllBooks(HttpServletResponse resp, FieldSelection selection) throws IOException {
+        List<BookDto> books = bookServiceImpl.getAllBooks(selection.includes("comments"));
+        sendAsJson(resp, books, selection);
+    }
+
+    /**
+     * Retrieves a page of books ordered by ID and sends it as JSON in the response,
+     * together with the token of the next page.
+     *
+     * @param resp        HttpServletResponse object to handle the response
+     * @param pageRequest The pagination parameters of the request
+     * @param selection   The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getBooksPage(HttpServletResponse resp, PageRequest pageRequest, FieldSelection selection)
+            throws IOException {
+        PageDto<BookDto> page = bookServiceImpl.getBooksPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                selection.includes("comments"));
+        sendAsJson(resp, page, selection);
+    }
+
+    /**
+     * Retrieves a page of books ordered by their number of comments descending and ID ascending
+     * and sends it as JSON in the response, together with the token of the next page.
+     * The order is served by an index on the denormalized comment count, so no comments are counted.
+     *
+     * @param resp        HttpServletResponse object to handle the response
+     * @param pageRequest The pagination parameters of the request; the token holds a comment count and an ID
+     * @param selection   The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getMostCommentedBooksPage(HttpServletResponse resp, PageRequest pageRequest,
+                                           FieldSelection selection) throws IOException {
+        PageDto<BookDto> page = bookServiceImpl.getMostCommentedBooksPage(pageRequest.getAfter(),
+                pageRequest.getLimit(), selection.includes("comments"));
+        sendAsJson(resp, page, selection);
+    }
+
+    /**
+     * Creates a JSON array of books in one database transaction and responds with their generated IDs
+     * in input order. Invalid books reject the whole batch with 400, unless {@code ?lenient=true} is given;
+     * then invalid and failing books are reported by index and the others are created.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    private void createBooksBatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Optional<List<BookShortDto>> booksOptional = extractBatchRequestBody(req);
+        if (booksOptional.isEmpty()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid request body");
+            return;
+        }
+        List<BookShortDto> books = booksOptional.get();
+        if (books.isEmpty() || books.size() > MAX_BATCH_SIZE) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Batch must contain between 1 and " + MAX_BATCH_SIZE + " books");
+            return;
+        }
+        boolean lenient = "true".equals(req.getParameter("lenient"));
+        BatchResultDto result = new BatchResultDto(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            BookShortDto book = books.get(i);
+            if (book == null || book.getBookTitle() == null || book.getBookTitle().isBlank() || book.getAuthorId() <= 0) {
+                result.addError(i, "Book must have non-null bookTitle and positive authorId");
+            }
+        }
+        if (result.hasErrors() && !lenient) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            sendAsJson(resp, result);
+            return;
+        }
+        try {
+            sendAsJson(resp, bookServiceImpl.createBooks(books, result, lenient));
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Batch rejected, no books were created: "
+                    + cause.getMessage());
+        }
+    }
+
+    /**
+     * Extracts the request body as a list of BookShortDto objects.
+     *
+     * @param req HttpServletRequest object representing the request
+     * @return Optional with the list if extraction is successful, otherwise - empty Optional
      * @throws IOException if an I/O exception occurs
      */
-    private void getAllBooks(HttpServletResponse resp) throws IOException {
-        List<BookDto> books = bookServiceImpl.getAllBooks();
-        sendAsJson(resp, books);
+    private Optional<List<BookShortDto>> extractBatchRequestBody(HttpServletRequest req) throws IOException {
+        try (BufferedReader reader = req.getReader()) {
+            List<BookShortDto> books = JsonCodec.getDefault().read(reader, new TypeReference<List<BookShortDto>>() {
+            });
+            return Optional.ofNullable(books);
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
     }
 
     /**
@@ -155,8 +416,7 @@ public class BookController extends HttpServlet {
      */
     private Optional<BookShortDto> extractRequestBody(HttpServletRequest req) throws IOException {
         try (BufferedReader reader = req.getReader()) {
-            ObjectMapper mapper = new ObjectMapper();
-            BookShortDto bookShortDto = mapper.readValue(reader, BookShortDto.class);
+            BookShortDto bookShortDto = JsonCodec.getDefault().read(reader, BookShortDto.class);
             return Optional.of(bookShortDto);
         } catch (JsonProcessingException e) {
             return Optional.empty();
@@ -171,8 +431,18 @@ public class BookController extends HttpServlet {
      * @throws IOException if an I/O exception occurs
      */
     private void sendAsJson(HttpServletResponse response, Object obj) throws IOException {
-        response.setContentType("application/json");
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getWriter(), obj);
+        sendAsJson(response, obj, FieldSelection.ALL);
+    }
+
+    /**
+     * Sends the selected properties of the specified object as JSON in the response.
+     *
+     * @param response  HttpServletResponse object to handle the response
+     * @param obj       Object to be serialized to JSON
+     * @param selection The properties to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void sendAsJson(HttpServletResponse response, Object obj, FieldSelection selection) throws IOException {
+        selection.write(response, obj);
     }
 }
\ No newline at end of file
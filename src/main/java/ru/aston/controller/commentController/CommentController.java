@@ -1,10 +1,14 @@
 package ru.aston.controller.commentController;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.PageDto.PageDto;
 import ru.aston.service.commentService.CommentServiceImpl;
+import ru.aston.util.JsonStreaming;
+import ru.aston.util.FieldSelection;
+import ru.aston.util.JsonCodec;
+import ru.aston.util.PageRequest;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -26,6 +30,11 @@ public class CommentController extends HttpServlet {
      */
     private final CommentServiceImpl commentServiceImpl;
 
+    /**
+     * The relations of a comment that can be expanded.
+     */
+    private static final String[] RELATIONS = {"user", "book"};
+
     /**
      * Constructs a new CommentController instance with a default CommentServiceImpl.
      */
@@ -93,7 +102,11 @@ public class CommentController extends HttpServlet {
 
     /**
      * Handles HTTP GET requests for retrieving comment.
-     * Supports retrieving all comment or a specific comment by ID.
+     * Supports retrieving all comment, a page of comments with {@code ?limit=&after=},
+     * all comments streamed from a database cursor with {@code ?stream=true} or a specific comment by ID.
+     * {@code ?fields=} limits the serialized properties of the comments and {@code ?expand=}
+     * the relations ({@code user}, {@code book}) loaded for them.
+     * {@code /comments/search?q=} searches comment texts, see {@link #searchComments}.
      * Responds with comment data in JSON format.
      *
      * @param req  The HttpServletRequest object representing the request.
@@ -104,29 +117,84 @@ public class CommentController extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String pathInfo = req.getPathInfo();
         if (pathInfo == null || pathInfo.equals("/")) {
-            getAllComments(resp);
+            PageRequest pageRequest;
+            FieldSelection selection;
+            try {
+                pageRequest = PageRequest.from(req, 1);
+                selection = FieldSelection.from(req, RELATIONS);
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            boolean withUserAndBook = withUserAndBook(selection);
+            if (pageRequest == null && "true".equals(req.getParameter("stream"))) {
+                JsonStreaming.<CommentDto>writeArray(resp,
+                        consumer -> commentServiceImpl.streamAllComments(consumer, withUserAndBook), selection);
+            } else if (pageRequest == null) {
+                getAllComments(resp, selection);
+            } else {
+                getCommentsPage(resp, pageRequest, selection);
+            }
+        } else if (pathInfo.equals("/search")) {
+            searchComments(req, resp);
         } else {
             String[] pathParts = pathInfo.split("/");
             if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
-                getCommentById(resp, Integer.parseInt(pathParts[1]));
+                FieldSelection selection;
+                try {
+                    selection = FieldSelection.from(req, RELATIONS);
+                } catch (IllegalArgumentException e) {
+                    resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                    return;
+                }
+                getCommentById(resp, Integer.parseInt(pathParts[1]), selection);
             } else {
                 resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
             }
         }
     }
 
+    /**
+     * Searches comment texts for the {@code q} parameter and sends a page of hits, best matches first,
+     * as JSON in the response. Further pages are requested with {@code ?limit=&after=} like collection pages.
+     *
+     * @param req  HttpServletRequest object representing the request
+     * @param resp HttpServletResponse object to handle the response
+     * @throws IOException if an I/O exception occurs
+     */
+    private void searchComments(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String text = req.getParameter("q");
+        if (text == null || text.isBlank()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Search text q must not be blank");
+            return;
+        }
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.from(req, 2);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (pageRequest == null) {
+            pageRequest = new PageRequest(new int[0], PageRequest.DEFAULT_LIMIT);
+        }
+        sendAsJson(resp, commentServiceImpl.searchComments(text, pageRequest.getAfter(), pageRequest.getLimit()));
+    }
+
     /**
      * Retrieves a comment by ID and sends it as JSON in the response.
      * If the comment is not found, sends a 404 error response.
      *
-     * @param resp   HttpServletResponse object to handle the response
+     * @param resp      HttpServletResponse object to handle the response
      * @param commentId ID of the comment to retrieve
+     * @param selection The properties and relations to send
      * @throws IOException if an I/O exception occurs
      */
-    private void getCommentById(HttpServletResponse resp, int commentId) throws IOException {
-        CommentDto comment = commentServiceImpl.getCommentById(commentId);
+    private void getCommentById(HttpServletResponse resp, int commentId, FieldSelection selection)
+            throws IOException {
+        CommentDto comment = commentServiceImpl.getCommentById(commentId, withUserAndBook(selection));
         if (comment != null) {
-            sendAsJson(resp, comment);
+            sendAsJson(resp, comment, selection);
         } else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Comment not found");
         }
@@ -135,12 +203,39 @@ public class CommentController extends HttpServlet {
     /**
      * Retrieves all comments and sends them as JSON in the response.
      *
-     * @param resp HttpServletResponse object to handle the response
+     * @param resp      HttpServletResponse object to handle the response
+     * @param selection The properties and relations to send
      * @throws IOException if an I/O exception occurs
      */
-    private void getAllComments(HttpServletResponse resp) throws IOException {
-        List<CommentDto> comments = commentServiceImpl.getAllComments();
-        sendAsJson(resp, comments);
+    private void getAllComments(HttpServletResponse resp, FieldSelection selection) throws IOException {
+        List<CommentDto> comments = commentServiceImpl.getAllComments(withUserAndBook(selection));
+        sendAsJson(resp, comments, selection);
+    }
+
+    /**
+     * Retrieves a page of comments ordered by ID and sends it as JSON in the response,
+     * together with the token of the next page.
+     *
+     * @param resp        HttpServletResponse object to handle the response
+     * @param pageRequest The pagination parameters of the request
+     * @param selection   The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getCommentsPage(HttpServletResponse resp, PageRequest pageRequest, FieldSelection selection)
+            throws IOException {
+        PageDto<CommentDto> page = commentServiceImpl.getCommentsPage(pageRequest.getAfterId(),
+                pageRequest.getLimit(), withUserAndBook(selection));
+        sendAsJson(resp, page, selection);
+    }
+
+    /**
+     * Tells whether the user name or book title of the comments has to be loaded.
+     *
+     * @param selection The properties and relations to send
+     * @return true if the user or the book is expanded
+     */
+    private static boolean withUserAndBook(FieldSelection selection) {
+        return selection.includes("user") || selection.includes("book");
     }
 
     /**
@@ -152,8 +247,7 @@ public class CommentController extends HttpServlet {
      */
     private Optional<CommentShortDto> extractRequestBody(HttpServletRequest req) throws IOException {
         try (BufferedReader reader = req.getReader()) {
-            ObjectMapper mapper = new ObjectMapper();
-            CommentShortDto commentShortDto = mapper.readValue(reader, CommentShortDto.class);
+            CommentShortDto commentShortDto = JsonCodec.getDefault().read(reader, CommentShortDto.class);
             return Optional.of(commentShortDto);
         } catch (JsonProcessingException e) {
             return Optional.empty();
@@ -168,8 +262,18 @@ public class CommentController extends HttpServlet {
      * @throws IOException if an I/O exception occurs
      */
     private void sendAsJson(HttpServletResponse response, Object obj) throws IOException {
-        response.setContentType("application/json");
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getWriter(), obj);
+        sendAsJson(response, obj, FieldSelection.ALL);
+    }
+
+    /**
+     * Sends the selected properties of the specified object as JSON in the response.
+     *
+     * @param response  HttpServletResponse object to handle the response
+     * @param obj       Object to be serialized to JSON
+     * @param selection The properties to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void sendAsJson(HttpServletResponse response, Object obj, FieldSelection selection) throws IOException {
+        selection.write(response, obj);
     }
 }
\ No newline at end of file
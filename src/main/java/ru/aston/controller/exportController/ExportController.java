@@ -0,0 +1,99 @@
+package ru.aston.controller.exportController;
+
+import ru.aston.dao.exportDao.ExportFormat;
+import ru.aston.dao.exportDao.ExportTarget;
+import ru.aston.service.exportService.ExportServiceImpl;
+import ru.aston.util.CachedResponse;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servlet implementation for exporting whole tables.
+ * The rows are piped from the database to the response without being turned into objects.
+ */
+@WebServlet("/export/*")
+public class ExportController extends HttpServlet {
+    /**
+     * The ExportServiceImpl instance associated with this ExportController.
+     */
+    private final ExportServiceImpl exportServiceImpl;
+
+    /**
+     * The size of the buffer between the database rows and the response.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructs a new ExportController instance with a default ExportServiceImpl.
+     */
+    public ExportController() {
+        this.exportServiceImpl = new ExportServiceImpl();
+    }
+
+    /**
+     * Constructs a new ExportController instance
+     * with a provided ExportServiceImpl for testing purposes.
+     *
+     * @param exportServiceImpl The ExportServiceImpl instance to be used.
+     */
+    public ExportController(ExportServiceImpl exportServiceImpl) {
+        this.exportServiceImpl = exportServiceImpl;
+    }
+
+    /**
+     * Handles HTTP GET requests exporting {@code /export/books}, {@code /export/authors},
+     * {@code /export/comments} or {@code /export/users}.
+     * Responds with all rows of the table as CSV with a header line, or in the PostgreSQL binary COPY format
+     * with {@code ?format=binary}. The response is gzip-compressed if the client accepts it.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        ExportTarget target = ExportTarget.fromPath(req.getPathInfo());
+        if (target == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
+            return;
+        }
+        ExportFormat format;
+        try {
+            format = ExportFormat.from(req.getParameter("format"));
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        boolean gzip = CachedResponse.acceptsGzip(req.getHeader("Accept-Encoding"));
+        resp.setContentType(format.getContentType());
+        resp.setHeader("Content-Disposition",
+                "attachment; filename=\"" + target.getName() + "." + format.getExtension() + "\"");
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+
+        OutputStream output = gzip
+                ? new GZIPOutputStream(resp.getOutputStream(), BUFFER_SIZE)
+                : new BufferedOutputStream(resp.getOutputStream(), BUFFER_SIZE);
+        try {
+            exportServiceImpl.export(target, format, output);
+        } catch (RuntimeException e) {
+            if (resp.isCommitted()) {
+                throw e;
+            }
+            resp.reset();
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Export failed");
+            return;
+        }
+        output.close();
+    }
+}
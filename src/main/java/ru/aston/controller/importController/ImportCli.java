@@ -0,0 +1,74 @@
+package ru.aston.controller.importController;
+
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.service.importService.ImportServiceImpl;
+import ru.aston.util.ConnectionManager;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline bulk import into the database configured in {@code db.properties}.
+ * <pre>
+ * java ru.aston.controller.importController.ImportCli &lt;authors|books|comments&gt; &lt;file&gt; [csv|ndjson]
+ * </pre>
+ * The format defaults to NDJSON for {@code .ndjson} and {@code .jsonl} files and to CSV otherwise.
+ */
+public final class ImportCli {
+
+    private ImportCli() {
+    }
+
+    /**
+     * Imports a file and prints the result.
+     *
+     * @param args The entity to import, the file and optionally its format.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: ImportCli <authors|books|comments> <file> [csv|ndjson]");
+            System.exit(2);
+        }
+        ImportTarget target = ImportTarget.fromPath("/" + args[0]);
+        if (target == null) {
+            System.err.println("Unknown import target " + args[0]);
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+        String fileName = file.getFileName().toString();
+        ImportFormat format;
+        try {
+            format = ImportFormat.from(args.length == 3 ? args[2] : null,
+                    fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ? "application/x-ndjson" : null);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        int status = 0;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            ImportResultDto result = new ImportServiceImpl().importFrom(input, target, format);
+            System.out.printf("Imported %d of %d %s (%d rejected) in %d ms, %d rows/s%n",
+                    result.getImported(), result.getReceived(), result.getTarget(), result.getRejected(),
+                    result.getElapsedMillis(), result.getRowsPerSecond());
+            if (result.getRejected() > 0) {
+                System.out.println("Rejected records: " + result.getRejectedRecords()
+                        + (result.getRejected() > result.getRejectedRecords().size() ? " ..." : ""));
+            }
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Import failed, no records were imported: " + cause.getMessage());
+            status = 1;
+        } finally {
+            ConnectionManager.shutdown();
+        }
+        System.exit(status);
+    }
+}
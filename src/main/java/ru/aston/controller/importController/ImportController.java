@@ -0,0 +1,204 @@
+package ru.aston.controller.importController;
+
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportSession;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.service.importService.ImportServiceImpl;
+import ru.aston.util.ConsistencyToken;
+import ru.aston.util.JsonCodec;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Servlet implementation for bulk imports of authors, books and comments.
+ * The request body is read with non-blocking I/O: the container calls back when bytes are available,
+ * so a slow upload does not hold a container thread while it waits for the client.
+ */
+@WebServlet(urlPatterns = "/import/*", asyncSupported = true)
+public class ImportController extends HttpServlet {
+    /**
+     * The ImportServiceImpl instance associated with this ImportController.
+     */
+    private final ImportServiceImpl importServiceImpl;
+
+    /**
+     * The longest an import may take before it is aborted.
+     */
+    private static final long TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * The size of the buffer the request body is read into.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructs a new ImportController instance with a default ImportServiceImpl.
+     */
+    public ImportController() {
+        this.importServiceImpl = new ImportServiceImpl();
+    }
+
+    /**
+     * Constructs a new ImportController instance
+     * with a provided ImportServiceImpl for testing purposes.
+     *
+     * @param importServiceImpl The ImportServiceImpl instance to be used.
+     */
+    public ImportController(ImportServiceImpl importServiceImpl) {
+        this.importServiceImpl = importServiceImpl;
+    }
+
+    /**
+     * Handles HTTP POST requests importing {@code /import/authors}, {@code /import/books} or
+     * {@code /import/comments}. The body is CSV with a header line, or NDJSON with {@code ?format=ndjson}
+     * or an {@code application/x-ndjson} content type.
+     * Responds with the numbers of received, imported and rejected records and the throughput of the import.
+     * Invalid records are rejected and reported; a malformed body rejects the whole import with 400.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        ImportTarget target = ImportTarget.fromPath(req.getPathInfo());
+        if (target == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
+            return;
+        }
+        ImportFormat format;
+        try {
+            format = ImportFormat.from(req.getParameter("format"), req.getContentType());
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        ImportSession session;
+        try {
+            session = importServiceImpl.openSession(target, format);
+        } catch (RuntimeException e) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Unable to start import");
+            return;
+        }
+
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(TIMEOUT_MILLIS);
+        ServletInputStream input = req.getInputStream();
+        ImportReader reader = new ImportReader(importServiceImpl, asyncContext, input, resp, session);
+        asyncContext.addListener(reader);
+        input.setReadListener(reader);
+    }
+
+    /**
+     * Feeds the request body to the import as it arrives and responds once it has been read.
+     */
+    private static class ImportReader implements ReadListener, AsyncListener {
+        private final ImportServiceImpl importServiceImpl;
+        private final AsyncContext asyncContext;
+        private final ServletInputStream input;
+        private final HttpServletResponse response;
+        private final ImportSession session;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private boolean done;
+
+        private ImportReader(ImportServiceImpl importServiceImpl, AsyncContext asyncContext,
+                             ServletInputStream input, HttpServletResponse response, ImportSession session) {
+            this.importServiceImpl = importServiceImpl;
+            this.asyncContext = asyncContext;
+            this.input = input;
+            this.response = response;
+            this.session = session;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            try {
+                while (!done && input.isReady()) {
+                    int read = input.read(buffer);
+                    if (read == -1) {
+                        return;
+                    }
+                    session.write(buffer, 0, read);
+                }
+            } catch (RuntimeException e) {
+                reject(e);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            if (done) {
+                return;
+            }
+            done = true;
+            ConsistencyToken.begin(null, lsn -> response.setHeader(ConsistencyToken.HEADER, lsn));
+            try {
+                ImportResultDto result = importServiceImpl.finish(session);
+                JsonCodec.getDefault().write(response, result);
+            } catch (RuntimeException e) {
+                sendRejection(e);
+            } finally {
+                ConsistencyToken.clear();
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            session.abort();
+            if (!done) {
+                done = true;
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            session.abort();
+            if (!done) {
+                done = true;
+                response.sendError(HttpServletResponse.SC_REQUEST_TIMEOUT, "Import timed out");
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            session.abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void reject(RuntimeException e) throws IOException {
+            done = true;
+            try {
+                sendRejection(e);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        private void sendRejection(RuntimeException e) throws IOException {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Import rejected, no records were imported: "
+                    + cause.getMessage());
+        }
+    }
+}
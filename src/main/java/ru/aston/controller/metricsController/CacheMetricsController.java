@@ -0,0 +1,58 @@
+package ru.aston.controller.metricsController;
+
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.JsonCodec;
+import ru.aston.util.ReadThroughCache;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Servlet exposing the size, hit rate and eviction counters of the entity caches.
+ */
+@WebServlet("/metrics/caches")
+public class CacheMetricsController extends HttpServlet {
+    /**
+     * The caches to report, keyed by cache name.
+     */
+    private final Map<String, ReadThroughCache<?, ?>> caches;
+
+    /**
+     * Constructs a new CacheMetricsController reporting on the entity caches.
+     */
+    public CacheMetricsController() {
+        this.caches = EntityCaches.getCaches();
+    }
+
+    /**
+     * Constructs a new CacheMetricsController
+     * reporting on the provided caches for testing purposes.
+     *
+     * @param caches The caches to report, keyed by cache name.
+     */
+    public CacheMetricsController(Map<String, ReadThroughCache<?, ?>> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * Handles HTTP GET requests for retrieving cache metrics.
+     * Responds with the counters of every cache in JSON format, keyed by cache name.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException      If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (Map.Entry<String, ReadThroughCache<?, ?>> entry : caches.entrySet()) {
+            body.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        JsonCodec.getDefault().write(resp, body);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.aston.controller.metricsController;
+
+import ru.aston.util.ConnectionPoolMetrics;
+import ru.aston.util.ConnectionPoolRegistry;
+import ru.aston.util.JsonCodec;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Servlet exposing connection pool saturation metrics.
+ * The same metrics are available through JMX under {@code ru.aston:type=ConnectionPool}.
+ */
+@WebServlet("/metrics/pool")
+public class PoolMetricsController extends HttpServlet {
+    /**
+     * Metrics of the pools to report, keyed by pool name.
+     */
+    private final Map<String, ConnectionPoolMetrics> metrics;
+
+    /**
+     * Constructs a new PoolMetricsController reporting on all registered pools.
+     */
+    public PoolMetricsController() {
+        this.metrics = ConnectionPoolRegistry.getMetrics();
+    }
+
+    /**
+     * Constructs a new PoolMetricsController
+     * reporting on the provided pool metrics for testing purposes.
+     *
+     * @param metrics Metrics of the pools to report, keyed by pool name.
+     */
+    public PoolMetricsController(Map<String, ConnectionPoolMetrics> metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Handles HTTP GET requests for retrieving pool metrics.
+     * Responds with the metrics of every pool in JSON format, keyed by pool name.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException      If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (Map.Entry<String, ConnectionPoolMetrics> entry : metrics.entrySet()) {
+            body.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        JsonCodec.getDefault().write(resp, body);
+    }
+}
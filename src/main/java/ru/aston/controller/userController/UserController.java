@@ -1,10 +1,16 @@
 package ru.aston.controller.userController;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.service.shelfService.ShelfServiceImpl;
 import ru.aston.service.userService.UserServiceImpl;
+import ru.aston.util.JsonStreaming;
+import ru.aston.util.FieldSelection;
+import ru.aston.util.JsonCodec;
+import ru.aston.util.PageRequest;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -14,6 +20,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Servlet implementation for managing user-related HTTP requests.
@@ -27,20 +35,38 @@ public class UserController extends HttpServlet {
     private final UserServiceImpl userServiceImpl;
 
     /**
-     * Constructs a new UserController instance with a default UserServiceImpl.
+     * The ShelfServiceImpl instance managing the bookshelves of users.
+     */
+    private final ShelfServiceImpl shelfServiceImpl;
+
+    /**
+     * The relations of a user that can be expanded.
+     */
+    private static final String[] RELATIONS = {"comments", "reviewedBooks"};
+
+    /**
+     * Matches {@code /{userId}/books} and {@code /{userId}/books/{bookId}}.
+     */
+    private static final Pattern SHELF_PATH = Pattern.compile("/(\\d+)/books(?:/(\\d+))?/?");
+
+    /**
+     * Constructs a new UserController instance with a default UserServiceImpl and ShelfServiceImpl.
      */
     public UserController() {
         this.userServiceImpl = new UserServiceImpl();
+        this.shelfServiceImpl = new ShelfServiceImpl();
     }
 
     /**
      * Constructs a new UserController instance
-     * with a provided UserServiceImpl for testing purposes.
+     * with a provided UserServiceImpl and ShelfServiceImpl for testing purposes.
      *
-     * @param userServiceImpl The UserServiceImpl instance to be used.
+     * @param userServiceImpl  The UserServiceImpl instance to be used.
+     * @param shelfServiceImpl The ShelfServiceImpl instance to be used.
      */
-    public UserController(UserServiceImpl userServiceImpl) {
+    public UserController(UserServiceImpl userServiceImpl, ShelfServiceImpl shelfServiceImpl) {
         this.userServiceImpl = userServiceImpl;
+        this.shelfServiceImpl = shelfServiceImpl;
     }
 
     /**
@@ -69,10 +95,37 @@ public class UserController extends HttpServlet {
         }
     }
 
+    /**
+     * Handles HTTP PUT requests {@code /users/{userId}/books/{bookId}} putting a book on the shelf of a user.
+     * Responds with a 204 No Content status, also if the book already was on the shelf,
+     * and with 404 if the user or the book does not exist.
+     *
+     * @param req  The HttpServletRequest object representing the request.
+     * @param resp The HttpServletResponse object representing the response.
+     * @throws IOException      If an I/O error occurs while handling the request.
+     */
+    @Override
+    public void doPut(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Matcher matcher = matchShelfPath(req);
+        if (matcher == null || matcher.group(2) == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
+            return;
+        }
+        try {
+            shelfServiceImpl.addBook(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        } catch (RuntimeException e) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "User or book not found");
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
     /**
      * Handles HTTP DELETE requests for deleting users.
      * Expects a user ID in the request URL path.
      * Responds with a 204 No Content status upon successful deletion.
+     * {@code /users/{userId}/books/{bookId}} takes a book off the shelf of a user instead,
+     * responding with 404 if it was not on the shelf.
      *
      * @param req  The HttpServletRequest object representing the request.
      * @param resp The HttpServletResponse object representing the response.
@@ -80,6 +133,15 @@ public class UserController extends HttpServlet {
      */
     @Override
     public void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Matcher matcher = matchShelfPath(req);
+        if (matcher != null && matcher.group(2) != null) {
+            if (shelfServiceImpl.removeBook(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))) {
+                resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            } else {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Book not on shelf");
+            }
+            return;
+        }
         String pathInfo = req.getPathInfo();
         if (pathInfo == null || !pathInfo.matches("/\\d+")) {
             resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
@@ -92,7 +154,12 @@ public class UserController extends HttpServlet {
 
     /**
      * Handles HTTP GET requests for retrieving users.
-     * Supports retrieving all users or a specific user by ID.
+     * Supports retrieving all users, a page of users with {@code ?limit=&after=},
+     * all users streamed from a database cursor with {@code ?stream=true} or a specific user by ID.
+     * {@code ?fields=} limits the serialized properties of the users and {@code ?expand=}
+     * the relations ({@code comments}, {@code reviewedBooks}) loaded for them.
+     * {@code /users/{userId}/books} responds with a page of the books on the shelf of the user and
+     * {@code /users/{userId}/books/{bookId}} with 204 if the book is on the shelf, 404 otherwise.
      * Responds with user data in JSON format.
      *
      * @param req  The HttpServletRequest object representing the request.
@@ -103,11 +170,37 @@ public class UserController extends HttpServlet {
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String pathInfo = req.getPathInfo();
         if (pathInfo == null || pathInfo.equals("/")) {
-            getAllUsers(resp);
+            PageRequest pageRequest;
+            FieldSelection selection;
+            try {
+                pageRequest = PageRequest.from(req, 1);
+                selection = FieldSelection.from(req, RELATIONS);
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            if (pageRequest == null && "true".equals(req.getParameter("stream"))) {
+                JsonStreaming.<UserDto>writeArray(resp, consumer -> userServiceImpl.streamAllUsers(consumer,
+                        selection.includes("comments"), selection.includes("reviewedBooks")), selection);
+            } else if (pageRequest == null) {
+                getAllUsers(resp, selection);
+            } else {
+                getUsersPage(resp, pageRequest, selection);
+            }
         } else {
+            Matcher matcher = matchShelfPath(req);
             String[] pathParts = pathInfo.split("/");
-            if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
-                getUserById(resp, Integer.parseInt(pathParts[1]));
+            if (matcher != null) {
+                getShelf(req, resp, matcher);
+            } else if (pathParts.length == 2 && pathParts[1].matches("\\d+")) {
+                FieldSelection selection;
+                try {
+                    selection = FieldSelection.from(req, RELATIONS);
+                } catch (IllegalArgumentException e) {
+                    resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                    return;
+                }
+                getUserById(resp, Integer.parseInt(pathParts[1]), selection);
             } else {
                 resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
             }
@@ -118,14 +211,16 @@ public class UserController extends HttpServlet {
      * Retrieves a user by ID and sends it as JSON in the response.
      * If the user is not found, sends a 404 error response.
      *
-     * @param resp   HttpServletResponse object to handle the response
-     * @param userId ID of the user to retrieve
+     * @param resp      HttpServletResponse object to handle the response
+     * @param userId    ID of the user to retrieve
+     * @param selection The properties and relations to send
      * @throws IOException if an I/O exception occurs
      */
-    private void getUserById(HttpServletResponse resp, int userId) throws IOException {
-        UserDto user = userServiceImpl.getUserById(userId);
+    private void getUserById(HttpServletResponse resp, int userId, FieldSelection selection) throws IOException {
+        UserDto user = userServiceImpl.getUserById(userId,
+                selection.includes("comments"), selection.includes("reviewedBooks"));
         if (user != null) {
-            sendAsJson(resp, user);
+            sendAsJson(resp, user, selection);
         } else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found");
         }
@@ -134,12 +229,77 @@ public class UserController extends HttpServlet {
     /**
      * Retrieves all users and sends them as JSON in the response.
      *
-     * @param resp HttpServletResponse object to handle the response
+     * @param resp      HttpServletResponse object to handle the response
+     * @param selection The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getAllUsers(HttpServletResponse resp, FieldSelection selection) throws IOException {
+        List<UserDto> users = userServiceImpl.getAllUsers(
+                selection.includes("comments"), selection.includes("reviewedBooks"));
+        sendAsJson(resp, users, selection);
+    }
+
+    /**
+     * Retrieves a page of users ordered by ID and sends it as JSON in the response,
+     * together with the token of the next page.
+     *
+     * @param resp        HttpServletResponse object to handle the response
+     * @param pageRequest The pagination parameters of the request
+     * @param selection   The properties and relations to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void getUsersPage(HttpServletResponse resp, PageRequest pageRequest, FieldSelection selection)
+            throws IOException {
+        PageDto<UserDto> page = userServiceImpl.getUsersPage(pageRequest.getAfterId(), pageRequest.getLimit(),
+                selection.includes("comments"), selection.includes("reviewedBooks"));
+        sendAsJson(resp, page, selection);
+    }
+
+    /**
+     * Sends a page of the books on the shelf of a user, or answers whether a book is on the shelf.
+     *
+     * @param req     HttpServletRequest object representing the request
+     * @param resp    HttpServletResponse object to handle the response
+     * @param matcher The matched shelf path
      * @throws IOException if an I/O exception occurs
      */
-    private void getAllUsers(HttpServletResponse resp) throws IOException {
-        List<UserDto> users = userServiceImpl.getAllUsers();
-        sendAsJson(resp, users);
+    private void getShelf(HttpServletRequest req, HttpServletResponse resp, Matcher matcher) throws IOException {
+        int userId = Integer.parseInt(matcher.group(1));
+        if (matcher.group(2) != null) {
+            if (shelfServiceImpl.isOnShelf(userId, Integer.parseInt(matcher.group(2)))) {
+                resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            } else {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Book not on shelf");
+            }
+            return;
+        }
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.from(req, 1);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (pageRequest == null) {
+            pageRequest = new PageRequest(new int[0], PageRequest.DEFAULT_LIMIT);
+        }
+        PageDto<BookDto> page = shelfServiceImpl.getShelfPage(userId, pageRequest.getAfterId(), pageRequest.getLimit());
+        sendAsJson(resp, page);
+    }
+
+    /**
+     * Matches the path of the request against {@code /{userId}/books[/{bookId}]}.
+     *
+     * @param req HttpServletRequest object representing the request
+     * @return The matcher, or null if the path is not a shelf path
+     */
+    private static Matcher matchShelfPath(HttpServletRequest req) {
+        String pathInfo = req.getPathInfo();
+        if (pathInfo == null) {
+            return null;
+        }
+        Matcher matcher = SHELF_PATH.matcher(pathInfo);
+        return matcher.matches() ? matcher : null;
     }
 
     /**
@@ -151,8 +311,7 @@ public class UserController extends HttpServlet {
      */
     private Optional<UserDtoShort> extractRequestBody(HttpServletRequest req) throws IOException {
         try (BufferedReader reader = req.getReader()) {
-            ObjectMapper mapper = new ObjectMapper();
-            UserDtoShort userDtoShort = mapper.readValue(reader, UserDtoShort.class);
+            UserDtoShort userDtoShort = JsonCodec.getDefault().read(reader, UserDtoShort.class);
             return Optional.of(userDtoShort);
         } catch (JsonProcessingException e) {
             return Optional.empty();
@@ -167,8 +326,18 @@ public class UserController extends HttpServlet {
      * @throws IOException if an I/O exception occurs
      */
     private void sendAsJson(HttpServletResponse response, Object obj) throws IOException {
-        response.setContentType("application/json");
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getWriter(), obj);
+        sendAsJson(response, obj, FieldSelection.ALL);
+    }
+
+    /**
+     * Sends the selected properties of the specified object as JSON in the response.
+     *
+     * @param response  HttpServletResponse object to handle the response
+     * @param obj       Object to be serialized to JSON
+     * @param selection The properties to send
+     * @throws IOException if an I/O exception occurs
+     */
+    private void sendAsJson(HttpServletResponse response, Object obj, FieldSelection selection) throws IOException {
+        selection.write(response, obj);
     }
 }
\ No newline at end of file
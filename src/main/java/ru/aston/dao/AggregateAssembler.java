@@ -0,0 +1,111 @@
+package ru.aston.dao;
+
+import ru.aston.util.IntObjectMap;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Assembles aggregates from the rows of a joined query in a single pass.
+ * Rows are grouped by an integer key column; the first row of each key creates the aggregate
+ * and every row, including the first, contributes its child columns to it.
+ * Aggregates are returned in the order their keys first appear in the result set.
+ *
+ * @param <T> The type of the assembled aggregates.
+ */
+public class AggregateAssembler<T> {
+
+    /**
+     * Creates an aggregate from the root columns of the current row.
+     *
+     * @param <T> The type of the aggregate.
+     */
+    @FunctionalInterface
+    public interface RootMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Adds the child columns of the current row to an aggregate.
+     *
+     * @param <T> The type of the aggregate.
+     */
+    @FunctionalInterface
+    public interface ChildCollector<T> {
+        void collect(T aggregate, ResultSet resultSet) throws SQLException;
+    }
+
+    private final String keyColumn;
+    private final RootMapper<T> rootMapper;
+    private final ChildCollector<T> childCollector;
+
+    /**
+     * Constructs an AggregateAssembler.
+     *
+     * @param keyColumn      The name of the integer column identifying the aggregate.
+     * @param rootMapper     Creates an aggregate from the first row of its key.
+     * @param childCollector Adds the child columns of each row to its aggregate.
+     */
+    public AggregateAssembler(String keyColumn, RootMapper<T> rootMapper, ChildCollector<T> childCollector) {
+        this.keyColumn = keyColumn;
+        this.rootMapper = rootMapper;
+        this.childCollector = childCollector;
+    }
+
+    /**
+     * Reads all remaining rows of the result set and assembles them into aggregates.
+     *
+     * @param resultSet The result set positioned before its first row.
+     * @return The assembled aggregates in order of first appearance.
+     * @throws SQLException If reading the result set fails.
+     */
+    public List<T> assemble(ResultSet resultSet) throws SQLException {
+        List<T> aggregates = new ArrayList<>();
+        IntObjectMap<T> byKey = new IntObjectMap<>();
+        int keyIndex = resultSet.findColumn(keyColumn);
+
+        while (resultSet.next()) {
+            int key = resultSet.getInt(keyIndex);
+            T aggregate = byKey.get(key);
+            if (aggregate == null) {
+                aggregate = rootMapper.map(resultSet);
+                byKey.put(key, aggregate);
+                aggregates.add(aggregate);
+            }
+            childCollector.collect(aggregate, resultSet);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Reads all remaining rows of a result set ordered by the key column and hands each aggregate
+     * to the consumer as soon as its last row has been read, so only one aggregate is held at a time.
+     *
+     * @param resultSet The result set positioned before its first row, ordered by the key column.
+     * @param consumer  Receives the assembled aggregates in result set order.
+     * @throws SQLException If reading the result set fails.
+     */
+    public void stream(ResultSet resultSet, Consumer<T> consumer) throws SQLException {
+        int keyIndex = resultSet.findColumn(keyColumn);
+        T aggregate = null;
+        int currentKey = 0;
+
+        while (resultSet.next()) {
+            int key = resultSet.getInt(keyIndex);
+            if (aggregate == null || key != currentKey) {
+                if (aggregate != null) {
+                    consumer.accept(aggregate);
+                }
+                aggregate = rootMapper.map(resultSet);
+                currentKey = key;
+            }
+            childCollector.collect(aggregate, resultSet);
+        }
+        if (aggregate != null) {
+            consumer.accept(aggregate);
+        }
+    }
+}
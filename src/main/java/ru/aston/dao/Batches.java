@@ -0,0 +1,127 @@
+package ru.aston.dao;
+
+import ru.aston.dto.BatchDto.BatchResultDto;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts many rows with one JDBC batch in a single transaction. With {@code reWriteBatchedInserts}
+ * enabled on the connection, the driver folds the batch into multi-row INSERT statements,
+ * so a batch costs a handful of round trips instead of one per row.
+ */
+public final class Batches {
+    /**
+     * Binds the parameters of one item to the insert statement.
+     *
+     * @param <T> The type of the items.
+     */
+    @FunctionalInterface
+    public interface ParameterBinder<T> {
+        void bind(PreparedStatement preparedStatement, T item) throws SQLException;
+    }
+
+    private Batches() {
+    }
+
+    /**
+     * Inserts the items that have not failed yet and records their generated IDs in the result.
+     * In strict mode the whole batch is rolled back on the first failing row. In lenient mode a failed batch
+     * is rolled back to a savepoint and retried row by row, each row under its own savepoint,
+     * so that only the failing rows are reported and the others are committed.
+     *
+     * @param dataSource The data source to write to.
+     * @param insertSql  The INSERT statement; its first generated key is the ID of the row.
+     * @param items      The items to insert.
+     * @param result     The result to record IDs and errors in; items already failed in it are skipped.
+     * @param lenient    Whether failing rows are reported instead of aborting the batch.
+     * @param binder     Binds the parameters of an item.
+     * @param <T>        The type of the items.
+     * @return The result.
+     * @throws SQLException If the batch fails in strict mode or the transaction cannot be committed.
+     */
+    public static <T> BatchResultDto insert(DataSource dataSource, String insertSql, List<T> items,
+                                            BatchResultDto result, boolean lenient, ParameterBinder<T> binder)
+            throws SQLException {
+        List<Integer> pending = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (!result.isFailed(i)) {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return result;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement =
+                         connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                Savepoint savepoint = lenient ? connection.setSavepoint() : null;
+                try {
+                    insertBatch(preparedStatement, items, pending, result, binder);
+                } catch (BatchUpdateException e) {
+                    if (!lenient) {
+                        throw e;
+                    }
+                    connection.rollback(savepoint);
+                    insertRowByRow(connection, preparedStatement, items, pending, result, binder);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return result;
+    }
+
+    private static <T> void insertBatch(PreparedStatement preparedStatement, List<T> items, List<Integer> pending,
+                                        BatchResultDto result, ParameterBinder<T> binder) throws SQLException {
+        for (int index : pending) {
+            binder.bind(preparedStatement, items.get(index));
+            preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
+        try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+            for (int index : pending) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("No generated key returned for item " + index);
+                }
+                result.setId(index, generatedKeys.getInt(1));
+            }
+        }
+    }
+
+    private static <T> void insertRowByRow(Connection connection, PreparedStatement preparedStatement,
+                                           List<T> items, List<Integer> pending, BatchResultDto result,
+                                           ParameterBinder<T> binder) throws SQLException {
+        preparedStatement.clearBatch();
+        for (int index : pending) {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                binder.bind(preparedStatement, items.get(index));
+                preparedStatement.executeUpdate();
+                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        result.setId(index, generatedKeys.getInt(1));
+                    }
+                }
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                result.addError(index, e.getMessage());
+            }
+        }
+    }
+}
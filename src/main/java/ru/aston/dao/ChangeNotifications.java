@@ -0,0 +1,105 @@
+package ru.aston.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Announces changed rows to all nodes of the cluster with PostgreSQL {@code NOTIFY}, so that they can evict
+ * the values they cached from the rows. A payload is {@code "<node> <type> <id> <lsn>"}; the node ID lets a node
+ * skip its own changes, which its services have already evicted, and the primary's WAL position after the change
+ * lets it reload the evicted values only from replicas that have replayed the change.
+ * <p>
+ * Notifications are published after the write has been committed. Publishing is best effort: a failure is
+ * logged and does not fail the write, and other nodes serve the stale values until they expire.
+ */
+public final class ChangeNotifications {
+    private static final Logger LOGGER = LogManager.getLogger(ChangeNotifications.class);
+
+    /**
+     * The channel the notifications are sent on.
+     */
+    public static final String CHANNEL = "entity_changes";
+
+    public static final String BOOK = "book";
+    public static final String AUTHOR = "author";
+    public static final String USER = "user";
+    public static final String SHELF = "shelf";
+
+    /**
+     * The type of a change too large to announce row by row, e.g. a bulk import; it flushes all caches.
+     */
+    public static final String ALL = "all";
+
+    /**
+     * The ID of this node, random per process.
+     */
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    private static final String NOTIFY_QUERY = "SELECT pg_notify(?, ? || id || ' ' || pg_current_wal_lsn()::text) " +
+            "FROM unnest(string_to_array(?, ',')) AS id";
+
+    private ChangeNotifications() {
+    }
+
+    /**
+     * Announces that rows of a type changed, with one notification per row.
+     *
+     * @param connection The connection the rows were changed on, outside of a transaction.
+     * @param type       {@link #BOOK}, {@link #AUTHOR}, {@link #USER} or {@link #SHELF}.
+     * @param ids        The IDs of the rows; a shelf is identified by its user.
+     */
+    public static void publish(Connection connection, String type, int... ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        String idList = Arrays.stream(ids).distinct().mapToObj(Integer::toString).collect(Collectors.joining(","));
+        try (PreparedStatement preparedStatement = connection.prepareStatement(NOTIFY_QUERY)) {
+            preparedStatement.setString(1, CHANNEL);
+            preparedStatement.setString(2, NODE_ID + " " + type + " ");
+            preparedStatement.setString(3, idList);
+            try (ResultSet ignored = preparedStatement.executeQuery()) {
+                LOGGER.debug("Published changes of {} {}", type, idList);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Publishing changes of {} {} failed, other nodes may serve them stale until they expire",
+                    type, idList, e);
+        }
+    }
+
+    /**
+     * Announces a change of any number of rows, after which the other nodes flush their caches.
+     *
+     * @param connection The connection the rows were changed on, outside of a transaction.
+     */
+    public static void publishAll(Connection connection) {
+        publish(connection, ALL, 0);
+    }
+
+    /**
+     * Announces that rows of a type changed, using a connection of the data source.
+     *
+     * @param dataSource The data source the rows were changed in.
+     * @param type       {@link #BOOK}, {@link #AUTHOR}, {@link #USER} or {@link #SHELF}.
+     * @param ids        The IDs of the rows.
+     */
+    public static void publish(DataSource dataSource, String type, int... ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            publish(connection, type, ids);
+        } catch (SQLException e) {
+            LOGGER.warn("Publishing changes of {} {} failed, other nodes may serve them stale until they expire",
+                    type, Arrays.toString(ids), e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.aston.dao;
+
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Runs queries through server-side cursors so their rows are fetched in bounded batches
+ * instead of being buffered by the driver all at once.
+ */
+public final class Cursors {
+    /**
+     * Number of rows fetched from the server per round trip.
+     */
+    public static final int FETCH_SIZE = 500;
+
+    /**
+     * Handles the rows of a result set.
+     */
+    @FunctionalInterface
+    public interface ResultSetHandler {
+        void handle(ResultSet resultSet) throws SQLException;
+    }
+
+    private Cursors() {
+    }
+
+    /**
+     * Executes a read-only query through a cursor and passes its result set to the handler.
+     * The PostgreSQL driver only uses a cursor inside a transaction, so autocommit is turned off
+     * for the duration of the query and restored before the connection is returned to the pool.
+     *
+     * @param dataSource The data source to read from.
+     * @param query      The query to execute.
+     * @param handler    Consumes the result set.
+     * @throws SQLException If executing the query or reading its rows fails.
+     */
+    public static void stream(DataSource dataSource, String query, ResultSetHandler handler) throws SQLException {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                preparedStatement.setFetchSize(FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    handler.handle(resultSet);
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.aston.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Builds ranked full-text search queries over a generated {@code tsvector} column with a GIN index.
+ * Matches are found through the index and ranked with {@code ts_rank}; only the rows of the requested page
+ * are joined with their relations and get a highlighted snippet, since {@code ts_headline} re-parses the text.
+ * Pages are ordered by rank descending and ID ascending and continue after the rank and ID of the last hit.
+ */
+public final class FullTextSearch {
+    /**
+     * The text search configuration of the search vectors, see the full text search migration.
+     */
+    public static final String CONFIG = "english";
+
+    /**
+     * The largest number of matches ranked per query. Queries with more matches, typically a single
+     * very common word, rank only the matches with the lowest IDs, which keeps their latency bounded.
+     * The subset is the same for every page, so pages continue each other.
+     */
+    public static final int MAX_RANKED_MATCHES = 10_000;
+
+    private FullTextSearch() {
+    }
+
+    /**
+     * Builds the hits query. Its parameters are bound by {@link #bind}.
+     *
+     * @param table        The searched table.
+     * @param idColumn     The primary key column of the table.
+     * @param vectorColumn The tsvector column of the table.
+     * @param select       The select list of the outer query; the hit is {@code h} with {@code rank},
+     *                     the table row is {@code t} and the parsed query is {@code q.query}.
+     * @param joins        Joins of the outer query adding relations of {@code t}, may be empty.
+     * @return The SQL of the query.
+     */
+    public static String query(String table, String idColumn, String vectorColumn, String select, String joins) {
+        return "WITH q AS (SELECT websearch_to_tsquery('" + CONFIG + "', ?) AS query), " +
+                "matches AS (SELECT t." + idColumn + " AS id, ts_rank(t." + vectorColumn + ", q.query) AS rank " +
+                "            FROM " + table + " t, q WHERE t." + vectorColumn + " @@ q.query " +
+                "            ORDER BY t." + idColumn + " LIMIT " + MAX_RANKED_MATCHES + ") " +
+                "SELECT h.rank, " + select + " " +
+                "FROM (SELECT id, rank FROM matches WHERE rank < ? OR (rank = ? AND id > ?) " +
+                "      ORDER BY rank DESC, id LIMIT ?) h " +
+                "JOIN " + table + " t ON t." + idColumn + " = h.id " +
+                joins + " " +
+                "CROSS JOIN q " +
+                "ORDER BY h.rank DESC, h.id";
+    }
+
+    /**
+     * Returns the SQL expression highlighting the query terms in a text column with {@code <mark>} tags.
+     * The text is HTML-escaped first, so the snippet can be rendered as HTML.
+     *
+     * @param column  The text column.
+     * @param options Additional {@code ts_headline} options, e.g. {@code MaxFragments=2}, or an empty string.
+     * @return The SQL expression.
+     */
+    public static String headline(String column, String options) {
+        return "ts_headline('" + CONFIG + "', " +
+                "replace(replace(replace(" + column + ", '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), q.query, " +
+                "'StartSel=<mark>, StopSel=</mark>" + (options.isEmpty() ? "" : ", " + options) + "')";
+    }
+
+    /**
+     * Binds the search text and the page position to a query built by {@link #query}.
+     *
+     * @param preparedStatement The statement of the query.
+     * @param text              The search text in web search syntax: words, "phrases", or, -exclusions.
+     * @param afterRank         The rank of the last hit of the previous page,
+     *                          {@link Float#POSITIVE_INFINITY} for the first page.
+     * @param afterId           The ID of the last hit of the previous page, 0 for the first page.
+     * @param limit             The maximal number of hits.
+     * @throws SQLException If binding fails.
+     */
+    public static void bind(PreparedStatement preparedStatement, String text, float afterRank, int afterId, int limit)
+            throws SQLException {
+        preparedStatement.setString(1, text);
+        preparedStatement.setFloat(2, afterRank);
+        preparedStatement.setFloat(3, afterRank);
+        preparedStatement.setInt(4, afterId);
+        preparedStatement.setInt(5, limit);
+    }
+}
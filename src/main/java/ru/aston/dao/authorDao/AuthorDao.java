@@ -2,8 +2,10 @@ package ru.aston.dao.authorDao;
 
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.BatchDto.BatchResultDto;
 
 import java.util.List;
+import java.util.function.LongConsumer;
 
 /**
  * Interface representing operations for interacting with author data.
@@ -18,6 +20,16 @@ public interface AuthorDao {
      */
     AuthorDto createAuthor(AuthorDtoShort authorDtoShort);
 
+    /**
+     * Creates the authors of a batch in one transaction.
+     *
+     * @param authors The AuthorDtoShort objects containing author data.
+     * @param result  The result to record the generated IDs and errors in; authors already failed in it are skipped.
+     * @param lenient Whether failing authors are reported instead of rolling back the whole batch.
+     * @return The result with the generated IDs in input order.
+     */
+    BatchResultDto createAuthors(List<AuthorDtoShort> authors, BatchResultDto result, boolean lenient);
+
     /**
      * Deletes an author with the specified ID.
      *
@@ -33,10 +45,64 @@ public interface AuthorDao {
      */
     AuthorDto getAuthorById(int authorId);
 
+    /**
+     * Retrieves an author by ID, loading their books only if requested.
+     *
+     * @param authorId  The ID of the author to retrieve.
+     * @param withBooks Whether to load the books of the author.
+     * @return The AuthorDto object representing the retrieved author, or null if not found.
+     */
+    AuthorDto getAuthorById(int authorId, boolean withBooks);
+
+    /**
+     * Retrieves an author by ID together with the version of the row they were read from.
+     *
+     * @param authorId  The ID of the author to retrieve.
+     * @param withBooks Whether to load the books of the author.
+     * @param version   Receives the version of the author.
+     * @return The AuthorDto object representing the retrieved author, or null if not found.
+     */
+    AuthorDto getAuthorById(int authorId, boolean withBooks, LongConsumer version);
+
+    /**
+     * Retrieves the version of an author, which changes whenever the author or their books change.
+     *
+     * @param authorId The ID of the author.
+     * @return The version, or null if the author does not exist.
+     */
+    Long getAuthorVersion(int authorId);
+
     /**
      * Retrieves all authors.
      *
      * @return A list of AuthorDto objects representing all authors.
      */
     List<AuthorDto> getAllAuthors();
+
+    /**
+     * Retrieves all authors, loading their books only if requested.
+     *
+     * @param withBooks Whether to load the books of each author.
+     * @return A list of AuthorDto objects representing all authors.
+     */
+    List<AuthorDto> getAllAuthors(boolean withBooks);
+
+    /**
+     * Retrieves a page of authors ordered by ID.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of authors to retrieve.
+     * @return A list of AuthorDto objects with IDs greater than afterId.
+     */
+    List<AuthorDto> getAuthorsPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of authors ordered by ID, loading their books only if requested.
+     *
+     * @param afterId   The ID the page starts after, 0 for the first page.
+     * @param limit     The maximal number of authors to retrieve.
+     * @param withBooks Whether to load the books of each author.
+     * @return A list of AuthorDto objects with IDs greater than afterId.
+     */
+    List<AuthorDto> getAuthorsPage(int afterId, int limit, boolean withBooks);
 }
\ No newline at end of file
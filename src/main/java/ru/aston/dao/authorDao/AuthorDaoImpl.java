@@ -1,16 +1,18 @@
 package ru.aston.dao.authorDao;
 
+import ru.aston.dao.AggregateAssembler;
+import ru.aston.dao.Batches;
+import ru.aston.dao.ChangeNotifications;
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.util.ConnectionManager;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.LongConsumer;
 
 /**
  * Implementation of AuthorDao interface for performing CRUD operations related to author.
@@ -19,13 +21,47 @@ public class AuthorDaoImpl implements AuthorDao {
     private final DataSource dataSource;
     private final String createAuthorQuery = "INSERT INTO authors (author_name) VALUES(?)";
     private final String deleteAuthorQuery = "DELETE FROM authors WHERE author_id = ?";
-    private final String getAllAuthorsQuery = "SELECT a.author_id, a.author_name, b.book_id, b.book_title " +
+    /**
+     * The version of an author's representation: the version of the author plus those of their books, since
+     * books do not touch their author for changes such as new comments. See the author versions migration.
+     */
+    private static final String AUTHOR_VERSION =
+            "a.version + " +
+            "COALESCE((SELECT sum(bv.version) FROM books bv WHERE bv.author_id = a.author_id)::bigint, 0)";
+    private final String getAuthorVersionQuery = "SELECT " + AUTHOR_VERSION + " AS version " +
+            "FROM authors a WHERE a.author_id = ?";
+    private final String getAllAuthorsQuery = "SELECT a.author_id, a.author_name, " +
+            "b.book_id, b.book_title, b.comment_count " +
             "FROM authors a " +
-            "LEFT JOIN books b ON a.author_id = b.author_id";
-    private final String getAuthorById = "SELECT a.author_id, a.author_name, b.book_id, b.book_title " +
+            "LEFT JOIN books b ON a.author_id = b.author_id " +
+            "ORDER BY a.author_id";
+    private final String getAuthorById = "SELECT a.author_id, a.author_name, " + AUTHOR_VERSION + " AS version, " +
+            "b.book_id, b.book_title, b.comment_count " +
             "FROM authors a " +
             "LEFT JOIN books b ON a.author_id = b.author_id " +
             "WHERE a.author_id = ?";
+    private final String getAuthorsPageQuery = "SELECT a.author_id, a.author_name, " +
+            "b.book_id, b.book_title, b.comment_count " +
+            "FROM (SELECT author_id, author_name FROM authors " +
+            "      WHERE author_id > ? ORDER BY author_id LIMIT ?) a " +
+            "LEFT JOIN books b ON a.author_id = b.author_id " +
+            "ORDER BY a.author_id";
+
+    private final String getAllAuthorsWithoutBooksQuery = "SELECT author_id, author_name, " +
+            "NULL::int AS book_id, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM authors " +
+            "ORDER BY author_id";
+    private final String getAuthorWithoutBooksById = "SELECT a.author_id, a.author_name, " + AUTHOR_VERSION +
+            " AS version, NULL::int AS book_id, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM authors a " +
+            "WHERE a.author_id = ?";
+    private final String getAuthorsWithoutBooksPageQuery = "SELECT author_id, author_name, " +
+            "NULL::int AS book_id, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM authors " +
+            "WHERE author_id > ? ORDER BY author_id LIMIT ?";
+
+    private final AggregateAssembler<AuthorDto> authorAssembler =
+            new AggregateAssembler<>("author_id", AuthorDaoImpl::mapAuthor, AuthorDaoImpl::collectBook);
 
     /**
      * Constructs a AuthorDaoImpl using the default data source.
@@ -75,6 +111,24 @@ public class AuthorDaoImpl implements AuthorDao {
         return null;
     }
 
+    /**
+     * Creates the authors of a batch in one transaction with a single JDBC batch.
+     * Authors already failed in the result are skipped.
+     *
+     * @param authors The AuthorDtoShort objects containing author data.
+     * @param result  The result to record the generated IDs and errors in, indexed like authors.
+     * @param lenient Whether failing authors are reported instead of rolling back the whole batch.
+     * @return The result with the generated IDs in input order.
+     */
+    public BatchResultDto createAuthors(List<AuthorDtoShort> authors, BatchResultDto result, boolean lenient) {
+        try {
+            return Batches.insert(dataSource, createAuthorQuery, authors, result, lenient,
+                    (preparedStatement, author) -> preparedStatement.setString(1, author.getAuthorName()));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Deletes an author with the specified ID.
      *
@@ -88,6 +142,7 @@ public class AuthorDaoImpl implements AuthorDao {
             if (rowsAffected == 0) {
                 throw new SQLException("Author with id = " + authorId + " not found");
             }
+            ChangeNotifications.publish(connection, ChangeNotifications.AUTHOR, authorId);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -99,35 +154,57 @@ public class AuthorDaoImpl implements AuthorDao {
      * @return A list of AuthorDto objects representing all authors, including associated books.
      */
     public List<AuthorDto> getAllAuthors() {
-        Map<Integer, AuthorDto> mapAuthor = new HashMap<>();
+        return getAllAuthors(true);
+    }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getAllAuthorsQuery);
+    /**
+     * Retrieves all authors and, if requested, their books. Without books the books join is left out of the query.
+     *
+     * @param withBooks Whether to load the books of each author.
+     * @return A list of AuthorDto objects representing all authors.
+     */
+    public List<AuthorDto> getAllAuthors(boolean withBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withBooks ? getAllAuthorsQuery : getAllAuthorsWithoutBooksQuery);
              ResultSet resultSet = preparedStatement.executeQuery()) {
+            return authorAssembler.assemble(resultSet);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            while (resultSet.next()) {
-                int authorId = resultSet.getInt("author_id");
-
-                AuthorDto authorDto = mapAuthor.computeIfAbsent(authorId, k -> new AuthorDto());
-
-                if (authorDto.getAuthorId() == 0) {
-                    authorDto.setAuthorId(authorId);
-                    authorDto.setAuthorName(resultSet.getString("author_name"));
-                }
-
-                if (resultSet.getInt("book_id") != 0) {
-                    BookDto bookDto = new BookDto();
-                    bookDto.setBookId(resultSet.getInt("book_id"));
-                    bookDto.setBookTitle(resultSet.getString("book_title"));
+    /**
+     * Retrieves a page of authors ordered by ID, including associated books for each author.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of authors to retrieve.
+     * @return A list of AuthorDto objects with IDs greater than afterId, including associated books.
+     */
+    public List<AuthorDto> getAuthorsPage(int afterId, int limit) {
+        return getAuthorsPage(afterId, limit, true);
+    }
 
-                    authorDto.getBooks().add(bookDto);
-                }
-                mapAuthor.put(authorId, authorDto);
+    /**
+     * Retrieves a page of authors ordered by ID and, if requested, their books.
+     *
+     * @param afterId   The ID the page starts after, 0 for the first page.
+     * @param limit     The maximal number of authors to retrieve.
+     * @param withBooks Whether to load the books of each author.
+     * @return A list of AuthorDto objects with IDs greater than afterId.
+     */
+    public List<AuthorDto> getAuthorsPage(int afterId, int limit, boolean withBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withBooks ? getAuthorsPageQuery : getAuthorsWithoutBooksPageQuery)) {
+            preparedStatement.setInt(1, afterId);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return authorAssembler.assemble(resultSet);
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        return new ArrayList<>(mapAuthor.values());
     }
 
     /**
@@ -137,29 +214,95 @@ public class AuthorDaoImpl implements AuthorDao {
      * @return The AuthorDto object representing the retrieved author, including associated books.
      */
     public AuthorDto getAuthorById(int authorId) {
-        AuthorDto authorDto = null;
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getAuthorById)) {
+        return getAuthorById(authorId, true);
+    }
+
+    /**
+     * Retrieves an author by ID and, if requested, their books.
+     *
+     * @param authorId  The ID of the author to retrieve.
+     * @param withBooks Whether to load the books of the author.
+     * @return The AuthorDto object representing the retrieved author, or null if not found.
+     */
+    public AuthorDto getAuthorById(int authorId, boolean withBooks) {
+        return getAuthorById(authorId, withBooks, version -> { });
+    }
+
+    /**
+     * Retrieves an author by ID together with the version of the row they were read from, so both come from
+     * the same snapshot even if the read connections go to replicas at different replay positions.
+     *
+     * @param authorId  The ID of the author to retrieve.
+     * @param withBooks Whether to load the books of the author.
+     * @param version   Receives the version of the author.
+     * @return The AuthorDto object representing the retrieved author, or null if not found.
+     */
+    public AuthorDto getAuthorById(int authorId, boolean withBooks, LongConsumer version) {
+        AggregateAssembler<AuthorDto> assembler = new AggregateAssembler<>("author_id", resultSet -> {
+            version.accept(resultSet.getLong("version"));
+            return mapAuthor(resultSet);
+        }, AuthorDaoImpl::collectBook);
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withBooks ? getAuthorById : getAuthorWithoutBooksById)) {
             preparedStatement.setInt(1, authorId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if(resultSet.next()) {
-                    authorDto = new AuthorDto();
-                    authorDto.setAuthorId(authorId);
-                    authorDto.setAuthorName(resultSet.getString("author_name"));
-
-                    do {
-                        if (resultSet.getInt("book_id") != 0) {
-                            BookDto bookDto = new BookDto();
-                            bookDto.setBookId(resultSet.getInt("book_id"));
-                            bookDto.setBookTitle(resultSet.getString("book_title"));
-                            authorDto.getBooks().add(bookDto);
-                        }
-                    } while(resultSet.next());
-                }
+                List<AuthorDto> authors = assembler.assemble(resultSet);
+                return authors.isEmpty() ? null : authors.get(0);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Retrieves the version of an author with a primary key lookup and a sum over the author_id index of books,
+     * which is much cheaper than loading the author.
+     *
+     * @param authorId The ID of the author.
+     * @return The version, or null if the author does not exist.
+     */
+    public Long getAuthorVersion(int authorId) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getAuthorVersionQuery)) {
+            preparedStatement.setInt(1, authorId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("version") : null;
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    /**
+     * Maps the author columns of the current row to an AuthorDto without books.
+     *
+     * @param resultSet The result set positioned on a row.
+     * @return The mapped AuthorDto object.
+     * @throws SQLException If reading the row fails.
+     */
+    private static AuthorDto mapAuthor(ResultSet resultSet) throws SQLException {
+        AuthorDto authorDto = new AuthorDto();
+        authorDto.setAuthorId(resultSet.getInt("author_id"));
+        authorDto.setAuthorName(resultSet.getString("author_name"));
         return authorDto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds the book columns of the current row, if any, to the author.
+     *
+     * @param authorDto The author the row belongs to.
+     * @param resultSet The result set positioned on a row.
+     * @throws SQLException If reading the row fails.
+     */
+    private static void collectBook(AuthorDto authorDto, ResultSet resultSet) throws SQLException {
+        int bookId = resultSet.getInt("book_id");
+        if (bookId != 0) {
+            BookDto bookDto = new BookDto();
+            bookDto.setBookId(bookId);
+            bookDto.setBookTitle(resultSet.getString("book_title"));
+            bookDto.setCommentCount(resultSet.getObject("comment_count", Integer.class));
+            authorDto.getBooks().add(bookDto);
+        }
+    }
+}
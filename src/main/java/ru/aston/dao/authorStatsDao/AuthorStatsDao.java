@@ -0,0 +1,51 @@
+package ru.aston.dao.authorStatsDao;
+
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+
+import java.util.List;
+
+/**
+ * Interface defining operations on the {@code author_stats} materialized view.
+ */
+public interface AuthorStatsDao {
+
+    /**
+     * Retrieves a page of author statistics ordered by author ID.
+     *
+     * @param afterId The author ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    List<AuthorStatsDto> getStatsPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of author statistics ordered by the number of books descending and author ID.
+     *
+     * @param afterCount The book count of the last row of the previous page,
+     *                   {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId    The author ID of the last row of the previous page, 0 for the first page.
+     * @param limit      The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    List<AuthorStatsDto> getStatsPageByBookCount(int afterCount, int afterId, int limit);
+
+    /**
+     * Retrieves a page of author statistics ordered by the number of comments descending and author ID.
+     *
+     * @param afterCount The comment count of the last row of the previous page,
+     *                   {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId    The author ID of the last row of the previous page, 0 for the first page.
+     * @param limit      The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    List<AuthorStatsDto> getStatsPageByCommentCount(int afterCount, int afterId, int limit);
+
+    /**
+     * Refreshes the view unless another node is refreshing it or it was refreshed less than
+     * the interval ago.
+     *
+     * @param minIntervalMillis The minimal time between two refreshes by any node.
+     * @return true if the view was refreshed.
+     */
+    boolean refresh(long minIntervalMillis);
+}
@@ -0,0 +1,175 @@
+package ru.aston.dao.authorStatsDao;
+
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of AuthorStatsDao interface for the {@code author_stats} materialized view.
+ * Pages are keyset range scans over the indexes of the view. Refreshes use
+ * {@code REFRESH MATERIALIZED VIEW CONCURRENTLY}, so readers are never blocked, and are serialized
+ * across nodes with a transaction-level advisory lock, which is released even if a node dies mid-refresh.
+ */
+public class AuthorStatsDaoImpl implements AuthorStatsDao {
+    private static final long REFRESH_LOCK_KEY = 0x617574686f727374L;
+
+    private final DataSource dataSource;
+    private final String getStatsPageQuery = "SELECT author_id, author_name, book_count, comment_count " +
+            "FROM author_stats " +
+            "WHERE author_id > ? ORDER BY author_id LIMIT ?";
+    private final String getStatsPageByBookCountQuery = "SELECT author_id, author_name, book_count, comment_count " +
+            "FROM author_stats " +
+            "WHERE book_count <= ? AND (book_count < ? OR author_id > ?) " +
+            "ORDER BY book_count DESC, author_id LIMIT ?";
+    private final String getStatsPageByCommentCountQuery = "SELECT author_id, author_name, book_count, " +
+            "comment_count " +
+            "FROM author_stats " +
+            "WHERE comment_count <= ? AND (comment_count < ? OR author_id > ?) " +
+            "ORDER BY comment_count DESC, author_id LIMIT ?";
+    private final String tryLockQuery = "SELECT pg_try_advisory_xact_lock(" + REFRESH_LOCK_KEY + ")";
+    private final String claimRefreshQuery = "UPDATE materialized_view_refreshes SET refreshed_at = now() " +
+            "WHERE view_name = 'author_stats' AND refreshed_at <= now() - ? * interval '1 millisecond'";
+    private final String refreshQuery = "REFRESH MATERIALIZED VIEW CONCURRENTLY author_stats";
+
+    /**
+     * Constructs a AuthorStatsDaoImpl using the default data source.
+     */
+    public AuthorStatsDaoImpl() {
+        this.dataSource = ConnectionManager.getDataSource();
+    }
+
+    /**
+     * Constructs a AuthorStatsDaoImpl with a specified data source for testing purposes.
+     *
+     * @param dataSource The data source to be used for database operations.
+     */
+    public AuthorStatsDaoImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Retrieves a page of author statistics ordered by author ID.
+     *
+     * @param afterId The author ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    public List<AuthorStatsDto> getStatsPage(int afterId, int limit) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getStatsPageQuery)) {
+            preparedStatement.setInt(1, afterId);
+            preparedStatement.setInt(2, limit);
+            return mapStats(preparedStatement);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Retrieves a page of author statistics ordered by the number of books descending and author ID.
+     *
+     * @param afterCount The book count of the last row of the previous page,
+     *                   {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId    The author ID of the last row of the previous page, 0 for the first page.
+     * @param limit      The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    public List<AuthorStatsDto> getStatsPageByBookCount(int afterCount, int afterId, int limit) {
+        return getStatsPageByCount(getStatsPageByBookCountQuery, afterCount, afterId, limit);
+    }
+
+    /**
+     * Retrieves a page of author statistics ordered by the number of comments descending and author ID.
+     *
+     * @param afterCount The comment count of the last row of the previous page,
+     *                   {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId    The author ID of the last row of the previous page, 0 for the first page.
+     * @param limit      The maximal number of rows to retrieve.
+     * @return The statistics.
+     */
+    public List<AuthorStatsDto> getStatsPageByCommentCount(int afterCount, int afterId, int limit) {
+        return getStatsPageByCount(getStatsPageByCommentCountQuery, afterCount, afterId, limit);
+    }
+
+    /**
+     * Refreshes the view unless another node holds the refresh lock or it was refreshed less than
+     * the interval ago. The refresh time is claimed in the same transaction as the refresh,
+     * so a failed refresh is retried by the next run.
+     *
+     * @param minIntervalMillis The minimal time between two refreshes by any node.
+     * @return true if the view was refreshed.
+     */
+    public boolean refresh(long minIntervalMillis) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean refreshed = false;
+                if (tryLock(connection) && claimRefresh(connection, minIntervalMillis)) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(refreshQuery);
+                    }
+                    refreshed = true;
+                }
+                connection.commit();
+                return refreshed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(tryLockQuery)) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+
+    private boolean claimRefresh(Connection connection, long minIntervalMillis) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(claimRefreshQuery)) {
+            preparedStatement.setLong(1, minIntervalMillis);
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    private List<AuthorStatsDto> getStatsPageByCount(String query, int afterCount, int afterId, int limit) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setInt(1, afterCount);
+            preparedStatement.setInt(2, afterCount);
+            preparedStatement.setInt(3, afterId);
+            preparedStatement.setInt(4, limit);
+            return mapStats(preparedStatement);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<AuthorStatsDto> mapStats(PreparedStatement preparedStatement) throws SQLException {
+        List<AuthorStatsDto> stats = new ArrayList<>();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                AuthorStatsDto authorStats = new AuthorStatsDto();
+                authorStats.setAuthorId(resultSet.getInt("author_id"));
+                authorStats.setAuthorName(resultSet.getString("author_name"));
+                authorStats.setBookCount(resultSet.getInt("book_count"));
+                authorStats.setCommentCount(resultSet.getInt("comment_count"));
+                stats.add(authorStats);
+            }
+        }
+        return stats;
+    }
+}
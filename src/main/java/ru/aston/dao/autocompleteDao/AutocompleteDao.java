@@ -0,0 +1,27 @@
+package ru.aston.dao.autocompleteDao;
+
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+
+import java.util.function.Consumer;
+
+/**
+ * Interface defining the operations loading autocomplete suggestions.
+ */
+public interface AutocompleteDao {
+
+    /**
+     * Passes a suggestion for every book title and every author name to the consumer.
+     *
+     * @param consumer Consumes the suggestions.
+     */
+    void streamSuggestions(Consumer<SuggestionDto> consumer);
+
+    /**
+     * Returns the suggestion for a book title or an author name.
+     *
+     * @param type {@link SuggestionDto#BOOK} or {@link SuggestionDto#AUTHOR}.
+     * @param id   The ID of the book or the author.
+     * @return The suggestion, or null if the book or the author does not exist.
+     */
+    SuggestionDto getSuggestion(String type, int id);
+}
@@ -0,0 +1,93 @@
+package ru.aston.dao.autocompleteDao;
+
+import ru.aston.dao.Cursors;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of AutocompleteDao interface loading book titles and author names with their popularity.
+ * The popularity of a book is its number of comments and the popularity of an author is their number of books.
+ */
+public class AutocompleteDaoImpl implements AutocompleteDao {
+    private final DataSource dataSource;
+    private final String getSuggestionsQuery = "SELECT 'book' AS type, b.book_id AS id, b.book_title AS text, " +
+            "coalesce(c.popularity, 0) AS popularity " +
+            "FROM books b " +
+            "LEFT JOIN (SELECT book_id, count(*) AS popularity FROM comments GROUP BY book_id) c " +
+            "ON c.book_id = b.book_id " +
+            "UNION ALL " +
+            "SELECT 'author', a.author_id, a.author_name, coalesce(b.popularity, 0) " +
+            "FROM authors a " +
+            "LEFT JOIN (SELECT author_id, count(*) AS popularity FROM books GROUP BY author_id) b " +
+            "ON b.author_id = a.author_id";
+    private final String getBookSuggestionQuery = "SELECT b.book_title AS text, " +
+            "(SELECT count(*) FROM comments c WHERE c.book_id = b.book_id) AS popularity " +
+            "FROM books b WHERE b.book_id = ?";
+    private final String getAuthorSuggestionQuery = "SELECT a.author_name AS text, " +
+            "(SELECT count(*) FROM books b WHERE b.author_id = a.author_id) AS popularity " +
+            "FROM authors a WHERE a.author_id = ?";
+
+    /**
+     * Constructs a AutocompleteDaoImpl using the default data source.
+     */
+    public AutocompleteDaoImpl() {
+        this.dataSource = ConnectionManager.getDataSource();
+    }
+
+    /**
+     * Constructs a AutocompleteDaoImpl with a specified data source for testing purposes.
+     *
+     * @param dataSource The data source to be used for database operations.
+     */
+    public AutocompleteDaoImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Streams a suggestion for every book title and every author name through a cursor.
+     *
+     * @param consumer Consumes the suggestions.
+     */
+    public void streamSuggestions(Consumer<SuggestionDto> consumer) {
+        try {
+            Cursors.stream(dataSource, getSuggestionsQuery, resultSet -> {
+                while (resultSet.next()) {
+                    consumer.accept(new SuggestionDto(resultSet.getString("type"), resultSet.getInt("id"),
+                            resultSet.getString("text"), resultSet.getLong("popularity")));
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the suggestion for a single book title or author name.
+     *
+     * @param type {@link SuggestionDto#BOOK} or {@link SuggestionDto#AUTHOR}.
+     * @param id   The ID of the book or the author.
+     * @return The suggestion, or null if the book or the author does not exist.
+     */
+    public SuggestionDto getSuggestion(String type, int id) {
+        String query = SuggestionDto.BOOK.equals(type) ? getBookSuggestionQuery : getAuthorSuggestionQuery;
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setInt(1, id);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new SuggestionDto(type, id, resultSet.getString("text"), resultSet.getLong("popularity"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package ru.aston.dao.bookDao;
 
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * Interface representing operations for interacting with book data.
@@ -18,6 +22,16 @@ public interface BookDao {
      */
     BookShortDto createBook(BookShortDto bookShortDto);
 
+    /**
+     * Creates the books of a batch in one transaction.
+     *
+     * @param books   The BookShortDto objects containing book data.
+     * @param result  The result to record the generated IDs and errors in; books already failed in it are skipped.
+     * @param lenient Whether failing books are reported instead of rolling back the whole batch.
+     * @return The result with the generated IDs in input order.
+     */
+    BatchResultDto createBooks(List<BookShortDto> books, BatchResultDto result, boolean lenient);
+
     /**
      * Deletes a book with the specified ID.
      *
@@ -33,10 +47,102 @@ public interface BookDao {
      */
     BookDto getBookById(int bookId);
 
+    /**
+     * Retrieves a book by ID, loading its comments only if requested.
+     *
+     * @param bookId       The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @return The BookDto object representing the retrieved book, or null if not found.
+     */
+    BookDto getBookById(int bookId, boolean withComments);
+
+    /**
+     * Retrieves a book by ID together with the version of the row it was read from.
+     *
+     * @param bookId       The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @param version      Receives the version of the book.
+     * @return The BookDto object representing the retrieved book, or null if not found.
+     */
+    BookDto getBookById(int bookId, boolean withComments, LongConsumer version);
+
+    /**
+     * Retrieves the version of a book, which changes whenever the book, its author or its comments change.
+     *
+     * @param bookId The ID of the book.
+     * @return The version, or null if the book does not exist.
+     */
+    Long getBookVersion(int bookId);
+
     /**
      * Retrieves all books.
      *
      * @return A list of BookDto objects representing all books.
      */
     List<BookDto> getAllBooks();
-}
\ No newline at end of file
+
+    /**
+     * Retrieves all books, loading their comments only if requested.
+     *
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects representing all books.
+     */
+    List<BookDto> getAllBooks(boolean withComments);
+
+    /**
+     * Streams all books one at a time.
+     *
+     * @param consumer Receives each book in ID order.
+     */
+    void streamAllBooks(Consumer<BookDto> consumer);
+
+    /**
+     * Streams all books one at a time, loading their comments only if requested.
+     *
+     * @param consumer     Receives each book in ID order.
+     * @param withComments Whether to load the comments of each book.
+     */
+    void streamAllBooks(Consumer<BookDto> consumer, boolean withComments);
+
+    /**
+     * Retrieves a page of books ordered by ID.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of books to retrieve.
+     * @return A list of BookDto objects with IDs greater than afterId.
+     */
+    List<BookDto> getBooksPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of books ordered by ID, loading their comments only if requested.
+     *
+     * @param afterId      The ID the page starts after, 0 for the first page.
+     * @param limit        The maximal number of books to retrieve.
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects with IDs greater than afterId.
+     */
+    List<BookDto> getBooksPage(int afterId, int limit, boolean withComments);
+
+    /**
+     * Retrieves a page of books ordered by comment count descending and ID.
+     *
+     * @param afterCount   The comment count of the last book of the previous page,
+     *                     {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId      The ID of the last book of the previous page, 0 for the first page.
+     * @param limit        The maximal number of books to retrieve.
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects following the given position.
+     */
+    List<BookDto> getMostCommentedBooksPage(int afterCount, int afterId, int limit, boolean withComments);
+
+    /**
+     * Searches book titles, best matches first.
+     *
+     * @param text      The search text in web search syntax.
+     * @param afterRank The rank of the last hit of the previous page, {@link Float#POSITIVE_INFINITY} for the first page.
+     * @param afterId   The ID of the last hit of the previous page, 0 for the first page.
+     * @param limit     The maximal number of hits to retrieve.
+     * @return The hits with their authors, ranks and highlighted titles.
+     */
+    List<SearchHitDto<BookDto>> searchBooks(String text, float afterRank, int afterId, int limit);
+}
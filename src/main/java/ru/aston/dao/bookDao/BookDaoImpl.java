@@ -1,16 +1,26 @@
 package ru.aston.dao.bookDao;
 
+import ru.aston.dao.AggregateAssembler;
+import ru.aston.dao.Batches;
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dao.Cursors;
+import ru.aston.dao.FullTextSearch;
 import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
 import ru.aston.dto.CommentDto.CommentDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.util.ConnectionManager;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * Implementation of BookDao interface for performing CRUD operations related to books.
@@ -19,18 +29,74 @@ public class BookDaoImpl implements BookDao {
     private final DataSource dataSource;
     private final String createBookQuery = "INSERT INTO books (book_title, author_id) VALUES(?, ?)";
     private final String deleteBookQuery = "DELETE FROM books WHERE book_id = ?";
-    private final String getBookByIdQuery = "SELECT b.book_id, b.book_title, a.author_id, a.author_name, " +
-            "c.comment_id, c.user_id, c.text " +
+    private final String getBookVersionQuery = "SELECT version FROM books WHERE book_id = ?";
+    private final String getBookByIdQuery = "SELECT b.book_id, b.book_title, b.comment_count, b.version, " +
+            "a.author_id, a.author_name, c.comment_id, c.user_id, c.text " +
             "FROM books b " +
             "LEFT JOIN authors a ON b.author_id = a.author_id " +
             "LEFT JOIN comments c ON b.book_id = c.book_id " +
             "WHERE b.book_id = ?";
 
-    private final String getAllBooksQuery =  "SELECT b.book_id, b.book_title, a.author_id, a.author_name, " +
-            "c.comment_id, c.user_id, c.text " +
+    private final String getAllBooksQuery =  "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name, c.comment_id, c.user_id, c.text " +
             "FROM books b " +
             "LEFT JOIN authors a ON b.author_id = a.author_id " +
-            "LEFT JOIN comments c ON b.book_id = c.book_id ";
+            "LEFT JOIN comments c ON b.book_id = c.book_id " +
+            "ORDER BY b.book_id";
+
+    private final String getBooksPageQuery = "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name, c.comment_id, c.user_id, c.text " +
+            "FROM (SELECT book_id, book_title, author_id, comment_count FROM books " +
+            "      WHERE book_id > ? ORDER BY book_id LIMIT ?) b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "LEFT JOIN comments c ON b.book_id = c.book_id " +
+            "ORDER BY b.book_id";
+
+    private final String getBookWithoutCommentsByIdQuery = "SELECT b.book_id, b.book_title, b.comment_count, b.version, " +
+            "a.author_id, a.author_name, NULL::int AS comment_id, NULL::int AS user_id, NULL AS text " +
+            "FROM books b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "WHERE b.book_id = ?";
+
+    private final String getAllBooksWithoutCommentsQuery = "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name, NULL::int AS comment_id, NULL::int AS user_id, NULL AS text " +
+            "FROM books b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "ORDER BY b.book_id";
+
+    private final String getBooksWithoutCommentsPageQuery = "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name, NULL::int AS comment_id, NULL::int AS user_id, NULL AS text " +
+            "FROM books b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "WHERE b.book_id > ? " +
+            "ORDER BY b.book_id " +
+            "LIMIT ?";
+
+    private final String getMostCommentedPageQuery = "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name, c.comment_id, c.user_id, c.text " +
+            "FROM (SELECT book_id, book_title, author_id, comment_count FROM books " +
+            "      WHERE comment_count <= ? AND (comment_count < ? OR book_id > ?) " +
+            "      ORDER BY comment_count DESC, book_id LIMIT ?) b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "LEFT JOIN comments c ON b.book_id = c.book_id " +
+            "ORDER BY b.comment_count DESC, b.book_id";
+
+    private final String getMostCommentedWithoutCommentsPageQuery = "SELECT b.book_id, b.book_title, " +
+            "b.comment_count, a.author_id, a.author_name, " +
+            "NULL::int AS comment_id, NULL::int AS user_id, NULL AS text " +
+            "FROM books b " +
+            "LEFT JOIN authors a ON b.author_id = a.author_id " +
+            "WHERE b.comment_count <= ? AND (b.comment_count < ? OR b.book_id > ?) " +
+            "ORDER BY b.comment_count DESC, b.book_id " +
+            "LIMIT ?";
+
+    private final String searchBooksQuery = FullTextSearch.query("books", "book_id", "title_tsv",
+            "t.book_id, t.book_title, t.comment_count, a.author_id, a.author_name, " +
+                    FullTextSearch.headline("t.book_title", "HighlightAll=true") + " AS snippet",
+            "LEFT JOIN authors a ON t.author_id = a.author_id");
+
+    private final AggregateAssembler<BookDto> bookAssembler =
+            new AggregateAssembler<>("book_id", BookDaoImpl::mapBook, BookDaoImpl::collectComment);
 
     /**
      * Constructs a BookDaoImpl using the default data source.
@@ -67,6 +133,7 @@ public class BookDaoImpl implements BookDao {
                     if (generatedKeys.next()) {
                         int id = generatedKeys.getInt(1);
                         bookShortDto.setBookId(id);
+                        ChangeNotifications.publish(connection, ChangeNotifications.AUTHOR, bookShortDto.getAuthorId());
                         return bookShortDto;
                     }
                 } catch (SQLException e) {
@@ -79,6 +146,35 @@ public class BookDaoImpl implements BookDao {
         return null;
     }
 
+    /**
+     * Creates the books of a batch in one transaction with a single JDBC batch.
+     * Books already failed in the result are skipped.
+     *
+     * @param books   The BookShortDto objects containing book data.
+     * @param result  The result to record the generated IDs and errors in, indexed like books.
+     * @param lenient Whether failing books are reported instead of rolling back the whole batch.
+     * @return The result with the generated IDs in input order.
+     */
+    public BatchResultDto createBooks(List<BookShortDto> books, BatchResultDto result, boolean lenient) {
+        try {
+            Batches.insert(dataSource, createBookQuery, books, result, lenient, (preparedStatement, book) -> {
+                preparedStatement.setString(1, book.getBookTitle());
+                preparedStatement.setInt(2, book.getAuthorId());
+            });
+            int[] authorIds = new int[books.size()];
+            int count = 0;
+            for (int i = 0; i < books.size(); i++) {
+                if (result.getIds().get(i) != null) {
+                    authorIds[count++] = books.get(i).getAuthorId();
+                }
+            }
+            ChangeNotifications.publish(dataSource, ChangeNotifications.AUTHOR, Arrays.copyOf(authorIds, count));
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Deletes a book with the specified ID.
      *
@@ -92,6 +188,7 @@ public class BookDaoImpl implements BookDao {
             if (rowsAffected == 0) {
                 throw new SQLException("Book with id = " + bookId + " not found");
             }
+            ChangeNotifications.publish(connection, ChangeNotifications.BOOK, bookId);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -103,57 +200,112 @@ public class BookDaoImpl implements BookDao {
      * @return A list of BookDto objects representing all books, including associated comments.
      */
     public List<BookDto> getAllBooks() {
-        List<BookDto> books = new ArrayList<>();
+        return getAllBooks(true);
+    }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getAllBooksQuery);
+    /**
+     * Retrieves all books with their authors and, if requested, their comments.
+     * Without comments the comments join is left out of the query.
+     *
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects representing all books.
+     */
+    public List<BookDto> getAllBooks(boolean withComments) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withComments ? getAllBooksQuery : getAllBooksWithoutCommentsQuery);
              ResultSet resultSet = preparedStatement.executeQuery()) {
+            return bookAssembler.assemble(resultSet);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching books", e);
+        }
+    }
 
-            while (resultSet.next()) {
-                int currentBookId = resultSet.getInt("book_id");
-                BookDto bookDto = null;
-
-                for (BookDto book : books) {
-                    if (book.getBookId() == currentBookId) {
-                        bookDto = book;
-                        break;
-                    }
-                }
-
-                if (bookDto == null) {
-                    bookDto = new BookDto();
-                    bookDto.setBookId(resultSet.getInt("book_id"));
-                    bookDto.setBookTitle(resultSet.getString("book_title"));
-
-                    int authorId = resultSet.getInt("author_id");
-                    if (authorId != 0) {
-                        AuthorDto authorDto = new AuthorDto();
-                        authorDto.setAuthorId(authorId);
-                        authorDto.setAuthorName(resultSet.getString("author_name"));
-                        bookDto.setAuthor(authorDto);
-                    }
+    /**
+     * Streams all books, including associated comments, one at a time through a server-side cursor.
+     * Memory use is bounded by the fetch size rather than by the number of books.
+     *
+     * @param consumer Receives each book in ID order.
+     */
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        streamAllBooks(consumer, true);
+    }
 
-                    bookDto.setComments(new ArrayList<>());
-                    books.add(bookDto);
-                }
+    /**
+     * Streams all books with their authors and, if requested, their comments through a server-side cursor.
+     *
+     * @param consumer     Receives each book in ID order.
+     * @param withComments Whether to load the comments of each book.
+     */
+    public void streamAllBooks(Consumer<BookDto> consumer, boolean withComments) {
+        try {
+            Cursors.stream(dataSource, withComments ? getAllBooksQuery : getAllBooksWithoutCommentsQuery,
+                    resultSet -> bookAssembler.stream(resultSet, consumer));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching books", e);
+        }
+    }
 
-                int commentId = resultSet.getInt("comment_id");
-                if (commentId != 0) {
-                    CommentDto commentDto = new CommentDto();
-                    commentDto.setCommentId(commentId);
-                    commentDto.setText(resultSet.getString("text"));
+    /**
+     * Retrieves a page of books ordered by ID, including associated comments for each book.
+     * Seeks to the first book after afterId through the primary key, so the cost of a page
+     * does not depend on its position.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of books to retrieve.
+     * @return A list of BookDto objects with IDs greater than afterId, including associated comments.
+     */
+    public List<BookDto> getBooksPage(int afterId, int limit) {
+        return getBooksPage(afterId, limit, true);
+    }
 
-                    UserDto userDto = new UserDto();
-                    userDto.setUserId(resultSet.getInt("user_id"));
-                    commentDto.setUser(userDto);
+    /**
+     * Retrieves a page of books ordered by ID with their authors and, if requested, their comments.
+     *
+     * @param afterId      The ID the page starts after, 0 for the first page.
+     * @param limit        The maximal number of books to retrieve.
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects with IDs greater than afterId.
+     */
+    public List<BookDto> getBooksPage(int afterId, int limit, boolean withComments) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withComments ? getBooksPageQuery : getBooksWithoutCommentsPageQuery)) {
+            preparedStatement.setInt(1, afterId);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return bookAssembler.assemble(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching books", e);
+        }
+    }
 
-                    bookDto.getComments().add(commentDto);
-                }
+    /**
+     * Retrieves a page of books ordered by comment count descending and ID, with their authors and,
+     * if requested, their comments. The page is read from the comment count index.
+     *
+     * @param afterCount   The comment count of the last book of the previous page,
+     *                     {@link Integer#MAX_VALUE} for the first page.
+     * @param afterId      The ID of the last book of the previous page, 0 for the first page.
+     * @param limit        The maximal number of books to retrieve.
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of BookDto objects following the given position.
+     */
+    public List<BookDto> getMostCommentedBooksPage(int afterCount, int afterId, int limit, boolean withComments) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withComments ? getMostCommentedPageQuery : getMostCommentedWithoutCommentsPageQuery)) {
+            preparedStatement.setInt(1, afterCount);
+            preparedStatement.setInt(2, afterCount);
+            preparedStatement.setInt(3, afterId);
+            preparedStatement.setInt(4, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return bookAssembler.assemble(resultSet);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error fetching books", e);
         }
-        return books;
     }
 
     /**
@@ -163,48 +315,137 @@ public class BookDaoImpl implements BookDao {
      * @return The BookDto object representing the retrieved book, including associated comments.
      */
     public BookDto getBookById(int bookId) {
-        BookDto bookDto = null;
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getBookByIdQuery)) {
-            preparedStatement.setInt(1, bookId);
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            while (resultSet.next()) {
-                if (bookDto == null) {
-                    bookDto = new BookDto();
-                    bookDto.setBookId(resultSet.getInt("book_id"));
-                    bookDto.setBookTitle(resultSet.getString("book_title"));
-
-                    int authorId = resultSet.getInt("author_id");
-                    if (authorId != 0) {
-                        AuthorDto authorDto = new AuthorDto();
-                        authorDto.setAuthorId(authorId);
-                        authorDto.setAuthorName(resultSet.getString("author_name"));
-                        bookDto.setAuthor(authorDto);
-                    }
+        return getBookById(bookId, true);
+    }
 
-                    bookDto.setComments(new ArrayList<>());
-                }
+    /**
+     * Retrieves a book by ID with its author and, if requested, its comments.
+     *
+     * @param bookId       The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @return The BookDto object representing the retrieved book.
+     */
+    public BookDto getBookById(int bookId, boolean withComments) {
+        return getBookById(bookId, withComments, version -> { });
+    }
 
-                int commentId = resultSet.getInt("comment_id");
-                if (commentId != 0) {
-                    CommentDto commentDto = new CommentDto();
-                    commentDto.setCommentId(commentId);
-                    commentDto.setText(resultSet.getString("text"));
+    /**
+     * Retrieves a book by ID together with the version of the row it was read from, so both come from
+     * the same snapshot even if the read connections go to replicas at different replay positions.
+     *
+     * @param bookId       The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @param version      Receives the version of the book.
+     * @return The BookDto object representing the retrieved book.
+     */
+    public BookDto getBookById(int bookId, boolean withComments, LongConsumer version) {
+        AggregateAssembler<BookDto> assembler = new AggregateAssembler<>("book_id", resultSet -> {
+            version.accept(resultSet.getLong("version"));
+            return mapBook(resultSet);
+        }, BookDaoImpl::collectComment);
+        List<BookDto> books;
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withComments ? getBookByIdQuery : getBookWithoutCommentsByIdQuery)) {
+            preparedStatement.setInt(1, bookId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                books = assembler.assemble(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error while retrieving book with ID: " + bookId, e);
+        }
+        if (books.isEmpty()) {
+            throw new RuntimeException("Book with ID " + bookId + " not found");
+        }
+        return books.get(0);
+    }
 
-                    UserDto userDto = new UserDto();
-                    userDto.setUserId(resultSet.getInt("user_id"));
-                    commentDto.setUser(userDto);
+    /**
+     * Retrieves the version of a book with a primary key lookup, which is much cheaper than loading the book.
+     *
+     * @param bookId The ID of the book.
+     * @return The version, or null if the book does not exist.
+     */
+    public Long getBookVersion(int bookId) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getBookVersionQuery)) {
+            preparedStatement.setInt(1, bookId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("version") : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                    bookDto.getComments().add(commentDto);
+    /**
+     * Searches book titles through the GIN index on their search vectors, best matches first.
+     *
+     * @param text      The search text in web search syntax.
+     * @param afterRank The rank of the last hit of the previous page, {@link Float#POSITIVE_INFINITY} for the first page.
+     * @param afterId   The ID of the last hit of the previous page, 0 for the first page.
+     * @param limit     The maximal number of hits to retrieve.
+     * @return The hits with their authors, ranks and highlighted titles.
+     */
+    public List<SearchHitDto<BookDto>> searchBooks(String text, float afterRank, int afterId, int limit) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(searchBooksQuery)) {
+            FullTextSearch.bind(preparedStatement, text, afterRank, afterId, limit);
+            List<SearchHitDto<BookDto>> hits = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    hits.add(new SearchHitDto<>(mapBook(resultSet), resultSet.getFloat("rank"),
+                            resultSet.getString("snippet")));
                 }
             }
+            return hits;
         } catch (SQLException e) {
-            throw new RuntimeException("Error while retrieving book with ID: " + bookId, e);
+            throw new RuntimeException("Error searching books", e);
         }
-        if (bookDto == null) {
-            throw new RuntimeException("Book with ID " + bookId + " not found");
+    }
+
+    /**
+     * Maps the book and author columns of the current row to a BookDto without comments.
+     *
+     * @param resultSet The result set positioned on a row.
+     * @return The mapped BookDto object.
+     * @throws SQLException If reading the row fails.
+     */
+    private static BookDto mapBook(ResultSet resultSet) throws SQLException {
+        BookDto bookDto = new BookDto();
+        bookDto.setBookId(resultSet.getInt("book_id"));
+        bookDto.setBookTitle(resultSet.getString("book_title"));
+        bookDto.setCommentCount(resultSet.getInt("comment_count"));
+
+        int authorId = resultSet.getInt("author_id");
+        if (authorId != 0) {
+            AuthorDto authorDto = new AuthorDto();
+            authorDto.setAuthorId(authorId);
+            authorDto.setAuthorName(resultSet.getString("author_name"));
+            bookDto.setAuthor(authorDto);
         }
         return bookDto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds the comment columns of the current row, if any, to the book.
+     *
+     * @param bookDto   The book the row belongs to.
+     * @param resultSet The result set positioned on a row.
+     * @throws SQLException If reading the row fails.
+     */
+    private static void collectComment(BookDto bookDto, ResultSet resultSet) throws SQLException {
+        int commentId = resultSet.getInt("comment_id");
+        if (commentId != 0) {
+            CommentDto commentDto = new CommentDto();
+            commentDto.setCommentId(commentId);
+            commentDto.setText(resultSet.getString("text"));
+
+            UserDto userDto = new UserDto();
+            userDto.setUserId(resultSet.getInt("user_id"));
+            commentDto.setUser(userDto);
+
+            bookDto.getComments().add(commentDto);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ru.aston.dao.commentDao;
 
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface representing operations for interacting with comment data.
@@ -22,8 +24,9 @@ public interface CommentDao {
      * Deletes a comment with the specified ID.
      *
      * @param commentId The ID of the comment to delete.
+     * @return The deleted comment without its text.
      */
-    void deleteComment(int commentId);
+    CommentShortDto deleteComment(int commentId);
 
     /**
      * Retrieves a comment by ID.
@@ -33,10 +36,72 @@ public interface CommentDao {
      */
     CommentDto getCommentById(int commentId);
 
+    /**
+     * Retrieves a comment by ID, loading the name of its user and the title of its book only if requested.
+     *
+     * @param commentId       The ID of the comment to retrieve.
+     * @param withUserAndBook Whether to load the user name and book title.
+     * @return The CommentDto object representing the retrieved comment, or null if not found.
+     */
+    CommentDto getCommentById(int commentId, boolean withUserAndBook);
+
     /**
      * Retrieves all comments.
      *
      * @return A list of CommentDto objects representing all comments.
      */
     List<CommentDto> getAllComments();
-}
\ No newline at end of file
+
+    /**
+     * Retrieves all comments, loading user names and book titles only if requested.
+     *
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     * @return A list of CommentDto objects representing all comments.
+     */
+    List<CommentDto> getAllComments(boolean withUserAndBook);
+
+    /**
+     * Streams all comments one at a time.
+     *
+     * @param consumer Receives each comment in ID order.
+     */
+    void streamAllComments(Consumer<CommentDto> consumer);
+
+    /**
+     * Streams all comments one at a time, loading user names and book titles only if requested.
+     *
+     * @param consumer        Receives each comment in ID order.
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     */
+    void streamAllComments(Consumer<CommentDto> consumer, boolean withUserAndBook);
+
+    /**
+     * Retrieves a page of comments ordered by ID.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of comments to retrieve.
+     * @return A list of CommentDto objects with IDs greater than afterId.
+     */
+    List<CommentDto> getCommentsPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of comments ordered by ID, loading user names and book titles only if requested.
+     *
+     * @param afterId         The ID the page starts after, 0 for the first page.
+     * @param limit           The maximal number of comments to retrieve.
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     * @return A list of CommentDto objects with IDs greater than afterId.
+     */
+    List<CommentDto> getCommentsPage(int afterId, int limit, boolean withUserAndBook);
+
+    /**
+     * Searches comment texts, best matches first.
+     *
+     * @param text      The search text in web search syntax.
+     * @param afterRank The rank of the last hit of the previous page, {@link Float#POSITIVE_INFINITY} for the first page.
+     * @param afterId   The ID of the last hit of the previous page, 0 for the first page.
+     * @param limit     The maximal number of hits to retrieve.
+     * @return The hits with their users, books, ranks and highlighted snippets.
+     */
+    List<SearchHitDto<CommentDto>> searchComments(String text, float afterRank, int afterId, int limit);
+}
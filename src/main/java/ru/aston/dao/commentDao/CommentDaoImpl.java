@@ -1,8 +1,12 @@
 package ru.aston.dao.commentDao;
 
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dao.Cursors;
+import ru.aston.dao.FullTextSearch;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.util.ConnectionManager;
 
@@ -10,6 +14,7 @@ import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of CommentDao interface for performing CRUD operations related to comments.
@@ -17,20 +22,49 @@ import java.util.List;
 public class CommentDaoImpl implements CommentDao {
     private final DataSource dataSource;
     private final String getAllCommentsQuery = "SELECT c.comment_id, c.user_id, c.book_id, " +
-            "c.text, u.user_name, b.book_title " +
+            "c.text, u.user_name, b.book_title, b.comment_count " +
             "FROM comments c " +
             "LEFT JOIN users u ON c.user_id = u.user_id " +
-            "LEFT JOIN books b ON c.book_id = b.book_id ";
+            "LEFT JOIN books b ON c.book_id = b.book_id " +
+            "ORDER BY c.comment_id";
+    private final String getCommentsPageQuery = "SELECT c.comment_id, c.user_id, c.book_id, " +
+            "c.text, u.user_name, b.book_title, b.comment_count " +
+            "FROM comments c " +
+            "LEFT JOIN users u ON c.user_id = u.user_id " +
+            "LEFT JOIN books b ON c.book_id = b.book_id " +
+            "WHERE c.comment_id > ? " +
+            "ORDER BY c.comment_id " +
+            "LIMIT ?";
     private final String getCommentByIdQuery = "SELECT c.comment_id, c.user_id, c.book_id, " +
-            "c.text, u.user_name, b.book_title " +
+            "c.text, u.user_name, b.book_title, b.comment_count " +
             "FROM comments c " +
             "LEFT JOIN users u ON c.user_id = u.user_id " +
             "LEFT JOIN books b ON c.book_id = b.book_id " +
             "WHERE c.comment_id = ?";
+    private final String getAllCommentsWithoutUserAndBookQuery = "SELECT comment_id, user_id, book_id, text, " +
+            "NULL AS user_name, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM comments " +
+            "ORDER BY comment_id";
+    private final String getCommentsWithoutUserAndBookPageQuery = "SELECT comment_id, user_id, book_id, text, " +
+            "NULL AS user_name, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM comments " +
+            "WHERE comment_id > ? " +
+            "ORDER BY comment_id " +
+            "LIMIT ?";
+    private final String getCommentWithoutUserAndBookByIdQuery = "SELECT comment_id, user_id, book_id, text, " +
+            "NULL AS user_name, NULL AS book_title, NULL::int AS comment_count " +
+            "FROM comments " +
+            "WHERE comment_id = ?";
 
     private final String postCommentQuery = "INSERT INTO comments (user_id, book_id, text) VALUES (?, ?, ?) ";
     private final String deleteCommentQuery = "DELETE FROM comments " +
-            "WHERE comment_id = ? ";
+            "WHERE comment_id = ? " +
+            "RETURNING user_id, book_id";
+    private final String searchCommentsQuery = FullTextSearch.query("comments", "comment_id", "text_tsv",
+            "t.comment_id, t.user_id, t.book_id, t.text, u.user_name, b.book_title, b.comment_count, " +
+                    FullTextSearch.headline("t.text", "MaxFragments=2, MaxWords=20, MinWords=5") + " AS snippet",
+            "LEFT JOIN users u ON t.user_id = u.user_id " +
+                    "LEFT JOIN books b ON t.book_id = b.book_id");
 
     /**
      * Constructs a CommentDaoImpl using the default data source.
@@ -67,6 +101,8 @@ public class CommentDaoImpl implements CommentDao {
                     if (generatedKeys.next()) {
                         int commentId = generatedKeys.getInt(1);
                         commentShortDto.setCommentId(commentId);
+                        ChangeNotifications.publish(connection, ChangeNotifications.BOOK, commentShortDto.getBookId());
+                        ChangeNotifications.publish(connection, ChangeNotifications.USER, commentShortDto.getUserId());
                         return commentShortDto;
                     }
                 }
@@ -81,14 +117,23 @@ public class CommentDaoImpl implements CommentDao {
      * Deletes a comment with the specified ID.
      *
      * @param commentId The ID of the comment to delete.
+     * @return The deleted comment without its text.
      */
-    public void deleteComment(int commentId) {
+    public CommentShortDto deleteComment(int commentId) {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(deleteCommentQuery)) {
             preparedStatement.setInt(1, commentId);
-            int rowsAffected = preparedStatement.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new RuntimeException("Comment with id = " + commentId + " not found");
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new RuntimeException("Comment with id = " + commentId + " not found");
+                }
+                CommentShortDto deleted = new CommentShortDto();
+                deleted.setCommentId(commentId);
+                deleted.setUserId(resultSet.getInt("user_id"));
+                deleted.setBookId(resultSet.getInt("book_id"));
+                ChangeNotifications.publish(connection, ChangeNotifications.BOOK, deleted.getBookId());
+                ChangeNotifications.publish(connection, ChangeNotifications.USER, deleted.getUserId());
+                return deleted;
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error deleting comment with id = " + commentId, e);
@@ -101,26 +146,91 @@ public class CommentDaoImpl implements CommentDao {
      * @return A list of CommentDto objects representing all comments, including associated user and book.
      */
     public List<CommentDto> getAllComments() {
+        return getAllComments(true);
+    }
+
+    /**
+     * Retrieves all comments. The user name and book title are joined in only if requested;
+     * otherwise the user and book of each comment carry just their IDs.
+     *
+     * @param withUserAndBook Whether to load the name of the user and the title of the book of each comment.
+     * @return A list of CommentDto objects representing all comments.
+     */
+    public List<CommentDto> getAllComments(boolean withUserAndBook) {
         List<CommentDto> comments = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getAllCommentsQuery);
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withUserAndBook ? getAllCommentsQuery : getAllCommentsWithoutUserAndBookQuery);
              ResultSet resultSet = preparedStatement.executeQuery()) {
             while (resultSet.next()) {
-                CommentDto comment = new CommentDto();
-                comment.setCommentId(resultSet.getInt("comment_id"));
-                comment.setText(resultSet.getString("text"));
+                comments.add(mapComment(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching comments", e);
+        }
+        return comments;
+    }
+
+    /**
+     * Streams all comments, including associated user and book, one at a time through a server-side cursor.
+     * Memory use is bounded by the fetch size rather than by the number of comments.
+     *
+     * @param consumer Receives each comment in ID order.
+     */
+    public void streamAllComments(Consumer<CommentDto> consumer) {
+        streamAllComments(consumer, true);
+    }
 
-                UserDto user = new UserDto();
-                user.setUserId(resultSet.getInt("user_id"));
-                user.setUserName(resultSet.getString("user_name"));
-                comment.setUser(user);
+    /**
+     * Streams all comments one at a time through a server-side cursor,
+     * joining in the user name and book title only if requested.
+     *
+     * @param consumer        Receives each comment in ID order.
+     * @param withUserAndBook Whether to load the name of the user and the title of the book of each comment.
+     */
+    public void streamAllComments(Consumer<CommentDto> consumer, boolean withUserAndBook) {
+        try {
+            Cursors.stream(dataSource,
+                    withUserAndBook ? getAllCommentsQuery : getAllCommentsWithoutUserAndBookQuery, resultSet -> {
+                while (resultSet.next()) {
+                    consumer.accept(mapComment(resultSet));
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching comments", e);
+        }
+    }
 
-                BookDto book = new BookDto();
-                book.setBookId(resultSet.getInt("book_id"));
-                book.setBookTitle(resultSet.getString("book_title"));
-                comment.setBook(book);
+    /**
+     * Retrieves a page of comments ordered by ID, including associated user and book for each comment.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of comments to retrieve.
+     * @return A list of CommentDto objects with IDs greater than afterId, including associated user and book.
+     */
+    public List<CommentDto> getCommentsPage(int afterId, int limit) {
+        return getCommentsPage(afterId, limit, true);
+    }
 
-                comments.add(comment);
+    /**
+     * Retrieves a page of comments ordered by ID, joining in the user name and book title only if requested.
+     *
+     * @param afterId         The ID the page starts after, 0 for the first page.
+     * @param limit           The maximal number of comments to retrieve.
+     * @param withUserAndBook Whether to load the name of the user and the title of the book of each comment.
+     * @return A list of CommentDto objects with IDs greater than afterId.
+     */
+    public List<CommentDto> getCommentsPage(int afterId, int limit, boolean withUserAndBook) {
+        List<CommentDto> comments = new ArrayList<>();
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withUserAndBook ? getCommentsPageQuery : getCommentsWithoutUserAndBookPageQuery)) {
+            preparedStatement.setInt(1, afterId);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    comments.add(mapComment(resultSet));
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error fetching comments", e);
@@ -135,25 +245,25 @@ public class CommentDaoImpl implements CommentDao {
      * @return The CommentDto object representing the retrieved comment, including associated user and book.
      */
     public CommentDto getCommentById(int commentId) {
+        return getCommentById(commentId, true);
+    }
+
+    /**
+     * Retrieves a comment by ID, joining in the user name and book title only if requested.
+     *
+     * @param commentId       The ID of the comment to retrieve.
+     * @param withUserAndBook Whether to load the name of the user and the title of the book of the comment.
+     * @return The CommentDto object representing the retrieved comment, or null if not found.
+     */
+    public CommentDto getCommentById(int commentId, boolean withUserAndBook) {
         CommentDto comment = null;
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(getCommentByIdQuery)) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     withUserAndBook ? getCommentByIdQuery : getCommentWithoutUserAndBookByIdQuery)) {
             preparedStatement.setInt(1, commentId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    comment = new CommentDto();
-                    comment.setCommentId(resultSet.getInt("comment_id"));
-                    comment.setText(resultSet.getString("text"));
-
-                    UserDto user = new UserDto();
-                    user.setUserId(resultSet.getInt("user_id"));
-                    user.setUserName(resultSet.getString("user_name"));
-                    comment.setUser(user);
-
-                    BookDto book = new BookDto();
-                    book.setBookId(resultSet.getInt("book_id"));
-                    book.setBookTitle(resultSet.getString("book_title"));
-                    comment.setBook(book);
+                    comment = mapComment(resultSet);
                 }
             }
         } catch (SQLException e) {
@@ -161,4 +271,55 @@ public class CommentDaoImpl implements CommentDao {
         }
         return comment;
     }
-}
\ No newline at end of file
+
+    /**
+     * Searches comment texts through the GIN index on their search vectors, best matches first.
+     *
+     * @param text      The search text in web search syntax.
+     * @param afterRank The rank of the last hit of the previous page, {@link Float#POSITIVE_INFINITY} for the first page.
+     * @param afterId   The ID of the last hit of the previous page, 0 for the first page.
+     * @param limit     The maximal number of hits to retrieve.
+     * @return The hits with their users, books, ranks and highlighted snippets.
+     */
+    public List<SearchHitDto<CommentDto>> searchComments(String text, float afterRank, int afterId, int limit) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(searchCommentsQuery)) {
+            FullTextSearch.bind(preparedStatement, text, afterRank, afterId, limit);
+            List<SearchHitDto<CommentDto>> hits = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    hits.add(new SearchHitDto<>(mapComment(resultSet), resultSet.getFloat("rank"),
+                            resultSet.getString("snippet")));
+                }
+            }
+            return hits;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error searching comments", e);
+        }
+    }
+
+    /**
+     * Maps the current row to a CommentDto with its user and book.
+     *
+     * @param resultSet The result set positioned on a row.
+     * @return The mapped CommentDto object.
+     * @throws SQLException If reading the row fails.
+     */
+    private static CommentDto mapComment(ResultSet resultSet) throws SQLException {
+        CommentDto comment = new CommentDto();
+        comment.setCommentId(resultSet.getInt("comment_id"));
+        comment.setText(resultSet.getString("text"));
+
+        UserDto user = new UserDto();
+        user.setUserId(resultSet.getInt("user_id"));
+        user.setUserName(resultSet.getString("user_name"));
+        comment.setUser(user);
+
+        BookDto book = new BookDto();
+        book.setBookId(resultSet.getInt("book_id"));
+        book.setBookTitle(resultSet.getString("book_title"));
+        book.setCommentCount(resultSet.getObject("comment_count", Integer.class));
+        comment.setBook(book);
+        return comment;
+    }
+}
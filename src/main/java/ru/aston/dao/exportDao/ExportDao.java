@@ -0,0 +1,19 @@
+package ru.aston.dao.exportDao;
+
+import java.io.OutputStream;
+
+/**
+ * Interface defining export operations.
+ */
+public interface ExportDao {
+
+    /**
+     * Writes all rows of a table to the output stream.
+     *
+     * @param target The table to export.
+     * @param format The format to write.
+     * @param output The stream to write to; it is not closed.
+     * @return The number of exported rows.
+     */
+    long export(ExportTarget target, ExportFormat format, OutputStream output);
+}
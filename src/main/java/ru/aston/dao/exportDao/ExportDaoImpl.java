@@ -0,0 +1,47 @@
+package ru.aston.dao.exportDao;
+
+import org.postgresql.PGConnection;
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Implementation of ExportDao interface streaming tables with {@code COPY ... TO STDOUT}.
+ * The driver passes the rows to the output stream as the server sends them,
+ * so no row is turned into a Java object and memory use does not grow with the table.
+ */
+public class ExportDaoImpl implements ExportDao {
+    private final DataSource dataSource;
+
+    /**
+     * Constructs an ExportDaoImpl using the default data source.
+     */
+    public ExportDaoImpl() {
+        this.dataSource = ConnectionManager.getDataSource();
+    }
+
+    /**
+     * Constructs an ExportDaoImpl with a specified data source for testing purposes.
+     *
+     * @param dataSource The data source to be used.
+     */
+    public ExportDaoImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public long export(ExportTarget target, ExportFormat format, OutputStream output) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource)) {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(target.getCopySql(format), output);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
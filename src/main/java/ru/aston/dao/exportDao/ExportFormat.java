@@ -0,0 +1,67 @@
+package ru.aston.dao.exportDao;
+
+/**
+ * The formats exports are written in.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values with a header line.
+     */
+    CSV("FORMAT csv, HEADER true", "text/csv; charset=UTF-8", "csv"),
+
+    /**
+     * The PostgreSQL binary COPY format, loadable with {@code COPY ... FROM ... WITH (FORMAT binary)}.
+     */
+    BINARY("FORMAT binary", "application/octet-stream", "bin");
+
+    private final String copyOptions;
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String copyOptions, String contentType, String extension) {
+        this.copyOptions = copyOptions;
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Resolves the format from the {@code format} request parameter. Defaults to CSV.
+     *
+     * @param parameter The value of the {@code format} parameter, or null.
+     * @return The format.
+     * @throws IllegalArgumentException If the parameter names an unknown format.
+     */
+    public static ExportFormat from(String parameter) {
+        if (parameter == null) {
+            return CSV;
+        }
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(parameter.trim())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format " + parameter);
+    }
+
+    /**
+     * Returns the content type of exports in this format.
+     *
+     * @return The content type.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the file name extension of exports in this format.
+     *
+     * @return The extension without the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    String getCopyOptions() {
+        return copyOptions;
+    }
+}
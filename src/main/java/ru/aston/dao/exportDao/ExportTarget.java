@@ -0,0 +1,50 @@
+package ru.aston.dao.exportDao;
+
+/**
+ * The tables that can be exported, with the columns written for each of them.
+ */
+public enum ExportTarget {
+    AUTHORS("authors", "author_id, author_name"),
+    BOOKS("books", "book_id, book_title, author_id"),
+    COMMENTS("comments", "comment_id, user_id, book_id, text"),
+    USERS("users", "user_id, user_name");
+
+    private final String table;
+    private final String columns;
+
+    ExportTarget(String table, String columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    /**
+     * Resolves the target from the path of an export request, e.g. {@code /books}.
+     *
+     * @param pathInfo The path info of the request.
+     * @return The target, or null if the path names none.
+     */
+    public static ExportTarget fromPath(String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        for (ExportTarget target : values()) {
+            if (pathInfo.equals("/" + target.getName())) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the target as used in URLs and file names.
+     *
+     * @return The lower-case name.
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    String getCopySql(ExportFormat format) {
+        return "COPY " + table + " (" + columns + ") TO STDOUT WITH (" + format.getCopyOptions() + ")";
+    }
+}
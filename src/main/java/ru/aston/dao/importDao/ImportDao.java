@@ -0,0 +1,30 @@
+package ru.aston.dao.importDao;
+
+import ru.aston.dto.ImportDto.ImportResultDto;
+
+import java.io.InputStream;
+
+/**
+ * Interface defining bulk import operations.
+ */
+public interface ImportDao {
+
+    /**
+     * Starts an import whose input is written to the returned session piece by piece.
+     *
+     * @param target The entity to import.
+     * @param format The format of the input.
+     * @return The running import.
+     */
+    ImportSession openSession(ImportTarget target, ImportFormat format);
+
+    /**
+     * Imports everything readable from the input stream.
+     *
+     * @param input  The input to import.
+     * @param target The entity to import.
+     * @param format The format of the input.
+     * @return The result of the import.
+     */
+    ImportResultDto importFrom(InputStream input, ImportTarget target, ImportFormat format);
+}
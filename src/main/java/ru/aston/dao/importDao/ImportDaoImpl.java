@@ -0,0 +1,72 @@
+package ru.aston.dao.importDao;
+
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Implementation of ImportDao interface loading CSV and NDJSON input through the PostgreSQL COPY protocol.
+ */
+public class ImportDaoImpl implements ImportDao {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+
+    /**
+     * Constructs an ImportDaoImpl using the default data source.
+     */
+    public ImportDaoImpl() {
+        this.dataSource = ConnectionManager.getDataSource();
+    }
+
+    /**
+     * Constructs an ImportDaoImpl with a specified data source for testing purposes.
+     *
+     * @param dataSource The data source to be used.
+     */
+    public ImportDaoImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public ImportSession openSession(ImportTarget target, ImportFormat format) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            return new ImportSession(connection, target, format);
+        } catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                    connection.close();
+                } catch (SQLException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ImportResultDto importFrom(InputStream input, ImportTarget target, ImportFormat format) {
+        ImportSession session = openSession(target, format);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                session.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            session.abort();
+            throw new UncheckedIOException(e);
+        }
+        return session.finish();
+    }
+}
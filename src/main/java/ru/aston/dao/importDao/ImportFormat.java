@@ -0,0 +1,41 @@
+package ru.aston.dao.importDao;
+
+/**
+ * The formats accepted by bulk imports.
+ */
+public enum ImportFormat {
+    /**
+     * Comma-separated values with a header line, passed to COPY as is.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line, with the property names of the DTOs; transcoded to CSV while it is read.
+     */
+    NDJSON;
+
+    /**
+     * Resolves the format from the {@code format} request parameter or, if it is absent, the content type.
+     * Defaults to CSV.
+     *
+     * @param parameter   The value of the {@code format} parameter, or null.
+     * @param contentType The content type of the request body, or null.
+     * @return The format.
+     * @throws IllegalArgumentException If the parameter names an unknown format.
+     */
+    public static ImportFormat from(String parameter, String contentType) {
+        if (parameter != null) {
+            for (ImportFormat format : values()) {
+                if (format.name().equalsIgnoreCase(parameter.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown import format " + parameter);
+        }
+        if (contentType != null && (contentType.startsWith("application/x-ndjson")
+                || contentType.startsWith("application/jsonl"))) {
+            return NDJSON;
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,252 @@
+package ru.aston.dao.importDao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dto.ImportDto.ImportResultDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One running bulk import. Bytes written to the session are streamed with COPY into a temporary staging table
+ * of the session's own transaction; {@link #finish()} rejects invalid records, merges the rest into the entity
+ * tables with set-based SQL and commits. Until then nothing is visible to other transactions,
+ * and {@link #abort()} discards everything.
+ * A failing {@link #write} or {@link #finish()} aborts the session before rethrowing.
+ */
+public class ImportSession {
+    private static final Logger LOGGER = LogManager.getLogger(ImportSession.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The largest number of rejected record numbers returned in a result.
+     */
+    public static final int MAX_REJECTED_RECORDS = 100;
+
+    /**
+     * The longest NDJSON record accepted, in bytes.
+     */
+    public static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Connection connection;
+    private final ImportTarget target;
+    private final ImportFormat format;
+    private final CopyIn copyIn;
+    private final long startNanos = System.nanoTime();
+    private final ByteArrayOutputStream pendingRecord = new ByteArrayOutputStream();
+    private final StringBuilder csvRecord = new StringBuilder();
+    private boolean closed;
+
+    /**
+     * Starts an import on the given connection: opens a transaction, creates the staging table
+     * and starts the COPY into it.
+     *
+     * @param connection The connection to import through; the session closes it when it ends.
+     * @param target     The entity to import.
+     * @param format     The format of the bytes that will be written.
+     * @throws SQLException If the import cannot be started.
+     */
+    ImportSession(Connection connection, ImportTarget target, ImportFormat format) throws SQLException {
+        this.connection = connection;
+        this.target = target;
+        this.format = format;
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(target.getCreateStagingTableSql());
+        }
+        this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(target.getCopySql(format == ImportFormat.CSV));
+    }
+
+    /**
+     * Writes the next bytes of the input.
+     *
+     * @param buffer The buffer holding the bytes.
+     * @param offset The offset of the first byte.
+     * @param length The number of bytes.
+     * @throws RuntimeException If the bytes cannot be staged; the session is aborted.
+     */
+    public synchronized void write(byte[] buffer, int offset, int length) {
+        checkOpen();
+        try {
+            if (format == ImportFormat.CSV) {
+                copyIn.writeToCopy(buffer, offset, length);
+            } else {
+                transcode(buffer, offset, length);
+            }
+        } catch (SQLException | RuntimeException e) {
+            abort();
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Ends the input, rejects invalid records, merges the valid ones and commits.
+     *
+     * @return The result of the import.
+     * @throws RuntimeException If the records cannot be merged; the session is aborted and nothing is imported.
+     */
+    public synchronized ImportResultDto finish() {
+        checkOpen();
+        try {
+            if (pendingRecord.size() > 0) {
+                transcodeRecord(pendingRecord.toByteArray(), 0, pendingRecord.size());
+                pendingRecord.reset();
+            }
+            ImportResultDto result = new ImportResultDto();
+            result.setTarget(target.getName());
+            result.setReceived(copyIn.endCopy());
+            rejectInvalidRecords(result);
+
+            long imported = 0;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE import_staging");
+                for (String mergeStatement : target.getMergeStatements()) {
+                    imported = statement.executeUpdate(mergeStatement);
+                }
+            }
+            connection.commit();
+            result.setImported(imported);
+            if (imported > 0) {
+                connection.setAutoCommit(true);
+                ChangeNotifications.publishAll(connection);
+            }
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+            result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            result.setRowsPerSecond(elapsedNanos == 0 ? 0 : result.getReceived() * 1_000_000_000L / elapsedNanos);
+            LOGGER.info("Imported {}: {} received, {} imported, {} rejected in {} ms ({} rows/s)",
+                    result.getTarget(), result.getReceived(), result.getImported(), result.getRejected(),
+                    result.getElapsedMillis(), result.getRowsPerSecond());
+            close();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            abort();
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Cancels the import and discards everything staged so far. Does nothing if the session has already ended.
+     */
+    public synchronized void abort() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.warn("Error aborting import of {}: {}", target.getName(), e.getMessage());
+        }
+        close();
+    }
+
+    private void rejectInvalidRecords(ImportResultDto result) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(target.getRejectSql())) {
+            preparedStatement.setInt(1, MAX_REJECTED_RECORDS);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                result.setRejected(resultSet.getLong(1));
+                Array records = resultSet.getArray(2);
+                if (records != null) {
+                    result.setRejectedRecords(Arrays.asList((Long[]) records.getArray()));
+                }
+            }
+        }
+    }
+
+    private void transcode(byte[] buffer, int offset, int length) throws SQLException {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (buffer[i] != '\n') {
+                continue;
+            }
+            if (pendingRecord.size() == 0) {
+                transcodeRecord(buffer, start, i - start);
+            } else {
+                appendPending(buffer, start, i - start);
+                transcodeRecord(pendingRecord.toByteArray(), 0, pendingRecord.size());
+                pendingRecord.reset();
+            }
+            start = i + 1;
+        }
+        appendPending(buffer, start, end - start);
+    }
+
+    private void appendPending(byte[] buffer, int offset, int length) {
+        if (pendingRecord.size() + length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("NDJSON record exceeds " + MAX_RECORD_BYTES + " bytes");
+        }
+        pendingRecord.write(buffer, offset, length);
+    }
+
+    /**
+     * Writes one NDJSON record to the COPY as a CSV record. Blank lines are skipped; records that are not
+     * JSON objects are staged with all columns empty, so they are rejected and reported with their number.
+     */
+    private void transcodeRecord(byte[] buffer, int offset, int length) throws SQLException {
+        String line = new String(buffer, offset, length, StandardCharsets.UTF_8);
+        if (line.isBlank()) {
+            return;
+        }
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(line);
+        } catch (IOException e) {
+            node = null;
+        }
+        csvRecord.setLength(0);
+        List<String> properties = target.getProperties();
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                csvRecord.append(',');
+            }
+            JsonNode value = node != null && node.isObject() ? node.get(properties.get(i)) : null;
+            if (value != null && value.isValueNode() && !value.isNull()) {
+                csvRecord.append('"').append(value.asText().replace("\"", "\"\"")).append('"');
+            }
+        }
+        csvRecord.append('\n');
+        byte[] bytes = csvRecord.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Import of " + target.getName() + " has already ended");
+        }
+    }
+
+    private void close() {
+        closed = true;
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            LOGGER.warn("Error restoring autocommit after import: {}", e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Error closing import connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.aston.dao.importDao;
+
+import java.util.List;
+
+/**
+ * The entities that can be bulk imported, with the staging table layout and the set-based SQL
+ * that validates staged records and merges them into the entity tables.
+ * Staging columns are untyped text, so malformed values never fail the COPY itself;
+ * records that fail validation are deleted from the staging table and reported as rejected.
+ */
+public enum ImportTarget {
+    /**
+     * Authors, one {@code author_name} per record.
+     */
+    AUTHORS("author_name text", "author_name", List.of("authorName"),
+            "NOT COALESCE(NULLIF(btrim(s.author_name), '') IS NOT NULL AND length(s.author_name) <= 255, false)",
+            List.of("INSERT INTO authors (author_name) " +
+                    "SELECT s.author_name FROM import_staging s ORDER BY s.line_no")),
+
+    /**
+     * Books with the name of their author, {@code book_title,author_name} per record.
+     * Authors are matched by name; missing authors are created.
+     */
+    BOOKS("book_title text, author_name text", "book_title, author_name", List.of("bookTitle", "authorName"),
+            "NOT COALESCE(NULLIF(btrim(s.book_title), '') IS NOT NULL AND length(s.book_title) <= 255 " +
+                    "AND NULLIF(btrim(s.author_name), '') IS NOT NULL AND length(s.author_name) <= 255, false)",
+            List.of("INSERT INTO authors (author_name) " +
+                            "SELECT DISTINCT s.author_name FROM import_staging s " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM authors a WHERE a.author_name = s.author_name)",
+                    "INSERT INTO books (book_title, author_id) " +
+                            "SELECT s.book_title, a.author_id FROM import_staging s " +
+                            "JOIN (SELECT author_name, min(author_id) AS author_id FROM authors " +
+                            "      WHERE author_name IN (SELECT author_name FROM import_staging) " +
+                            "      GROUP BY author_name) a ON a.author_name = s.author_name " +
+                            "ORDER BY s.line_no")),
+
+    /**
+     * Comments, {@code user_id,book_id,text} per record. The user and the book must exist.
+     */
+    COMMENTS("user_id text, book_id text, text text", "user_id, book_id, text",
+            List.of("userId", "bookId", "text"),
+            "NOT COALESCE(CASE WHEN s.user_id ~ '^\\s*[0-9]{1,9}\\s*$' AND s.book_id ~ '^\\s*[0-9]{1,9}\\s*$' " +
+                    "THEN NULLIF(btrim(s.text), '') IS NOT NULL AND length(s.text) <= 500 " +
+                    "AND EXISTS (SELECT 1 FROM users u WHERE u.user_id = s.user_id::int) " +
+                    "AND EXISTS (SELECT 1 FROM books b WHERE b.book_id = s.book_id::int) END, false)",
+            List.of("INSERT INTO comments (user_id, book_id, text) " +
+                    "SELECT s.user_id::int, s.book_id::int, s.text FROM import_staging s ORDER BY s.line_no"));
+
+    private final String stagingColumns;
+    private final String copyColumns;
+    private final List<String> properties;
+    private final String rejectCondition;
+    private final List<String> mergeStatements;
+
+    ImportTarget(String stagingColumns, String copyColumns, List<String> properties, String rejectCondition,
+                 List<String> mergeStatements) {
+        this.stagingColumns = stagingColumns;
+        this.copyColumns = copyColumns;
+        this.properties = properties;
+        this.rejectCondition = rejectCondition;
+        this.mergeStatements = mergeStatements;
+    }
+
+    /**
+     * Resolves the target from the path of an import request, e.g. {@code /books}.
+     *
+     * @param pathInfo The path info of the request.
+     * @return The target, or null if the path names none.
+     */
+    public static ImportTarget fromPath(String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        for (ImportTarget target : values()) {
+            if (pathInfo.equals("/" + target.getName())) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the target as used in URLs and reports.
+     *
+     * @return The lower-case name.
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    String getCreateStagingTableSql() {
+        return "CREATE TEMP TABLE import_staging (line_no bigserial, " + stagingColumns + ") ON COMMIT DROP";
+    }
+
+    String getCopySql(boolean header) {
+        return "COPY import_staging (" + copyColumns + ") FROM STDIN WITH (FORMAT csv, HEADER " + header + ")";
+    }
+
+    String getRejectSql() {
+        return "WITH rejected AS (DELETE FROM import_staging s WHERE " + rejectCondition + " RETURNING s.line_no) " +
+                "SELECT count(*), (array_agg(line_no ORDER BY line_no))[1:?] FROM rejected";
+    }
+
+    List<String> getProperties() {
+        return properties;
+    }
+
+    List<String> getMergeStatements() {
+        return mergeStatements;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.aston.dao.shelfDao;
+
+import ru.aston.dto.BookDto.BookDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface defining operations on the bookshelves of users, the {@code user_books} table.
+ */
+public interface ShelfDao {
+
+    /**
+     * Puts a book on the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was added, false if it already was on the shelf.
+     */
+    boolean addBook(int userId, int bookId);
+
+    /**
+     * Takes a book off the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was removed, false if it was not on the shelf.
+     */
+    boolean removeBook(int userId, int bookId);
+
+    /**
+     * Retrieves the IDs of all books on the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The book IDs in ascending order.
+     */
+    int[] getBookIds(int userId);
+
+    /**
+     * Retrieves a page of the books on the shelf of a user ordered by ID, with their authors.
+     *
+     * @param userId  The ID of the user.
+     * @param afterId The book ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of books to retrieve.
+     * @return The books.
+     */
+    List<BookDto> getBooksPage(int userId, int afterId, int limit);
+
+    /**
+     * Counts the users having each of the books on their shelves.
+     *
+     * @param bookIds The IDs of the books.
+     * @return The number of readers by book ID; books without readers are left out.
+     */
+    Map<Integer, Long> countReaders(int[] bookIds);
+}
@@ -0,0 +1,179 @@
+package ru.aston.dao.shelfDao;
+
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of ShelfDao interface for the {@code user_books} table.
+ * Lookups by user use the primary key {@code (user_id, book_id)}, counts by book the index on {@code book_id}.
+ */
+public class ShelfDaoImpl implements ShelfDao {
+    private final DataSource dataSource;
+    private final String addBookQuery = "INSERT INTO user_books (user_id, book_id) VALUES (?, ?) " +
+            "ON CONFLICT DO NOTHING";
+    private final String removeBookQuery = "DELETE FROM user_books WHERE user_id = ? AND book_id = ?";
+    private final String getBookIdsQuery = "SELECT book_id FROM user_books WHERE user_id = ? ORDER BY book_id";
+    private final String getBooksPageQuery = "SELECT b.book_id, b.book_title, b.comment_count, " +
+            "a.author_id, a.author_name " +
+            "FROM (SELECT book_id FROM user_books WHERE user_id = ? AND book_id > ? " +
+            "      ORDER BY book_id LIMIT ?) ub " +
+            "JOIN books b ON b.book_id = ub.book_id " +
+            "LEFT JOIN authors a ON a.author_id = b.author_id " +
+            "ORDER BY b.book_id";
+    private final String countReadersQuery = "SELECT book_id, count(*) AS readers FROM user_books " +
+            "WHERE book_id = ANY(?) GROUP BY book_id";
+
+    /**
+     * Constructs a ShelfDaoImpl using the default data source.
+     */
+    public ShelfDaoImpl() {
+        this.dataSource = ConnectionManager.getDataSource();
+    }
+
+    /**
+     * Constructs a ShelfDaoImpl with a specified data source for testing purposes.
+     *
+     * @param dataSource The data source to be used for database operations.
+     */
+    public ShelfDaoImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Puts a book on the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was added, false if it already was on the shelf.
+     * @throws RuntimeException If the user or the book does not exist.
+     */
+    public boolean addBook(int userId, int bookId) {
+        return update(addBookQuery, userId, bookId);
+    }
+
+    /**
+     * Takes a book off the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was removed, false if it was not on the shelf.
+     */
+    public boolean removeBook(int userId, int bookId) {
+        return update(removeBookQuery, userId, bookId);
+    }
+
+    /**
+     * Retrieves the IDs of all books on the shelf of a user from the primary database, since they are cached
+     * and a lagging replica would leave the cache behind the writes.
+     *
+     * @param userId The ID of the user.
+     * @return The book IDs in ascending order.
+     */
+    public int[] getBookIds(int userId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(getBookIdsQuery)) {
+            preparedStatement.setInt(1, userId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                int[] bookIds = new int[16];
+                int count = 0;
+                while (resultSet.next()) {
+                    if (count == bookIds.length) {
+                        bookIds = Arrays.copyOf(bookIds, count * 2);
+                    }
+                    bookIds[count++] = resultSet.getInt(1);
+                }
+                return Arrays.copyOf(bookIds, count);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Retrieves a page of the books on the shelf of a user ordered by ID, with their authors.
+     *
+     * @param userId  The ID of the user.
+     * @param afterId The book ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of books to retrieve.
+     * @return The books.
+     */
+    public List<BookDto> getBooksPage(int userId, int afterId, int limit) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getBooksPageQuery)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, afterId);
+            preparedStatement.setInt(3, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<BookDto> books = new ArrayList<>();
+                while (resultSet.next()) {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setBookId(resultSet.getInt("book_id"));
+                    bookDto.setBookTitle(resultSet.getString("book_title"));
+                    bookDto.setCommentCount(resultSet.getInt("comment_count"));
+                    AuthorDto authorDto = new AuthorDto();
+                    authorDto.setAuthorId(resultSet.getInt("author_id"));
+                    authorDto.setAuthorName(resultSet.getString("author_name"));
+                    bookDto.setAuthor(authorDto);
+                    books.add(bookDto);
+                }
+                return books;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Counts the users having each of the books on their shelves with one grouped query.
+     *
+     * @param bookIds The IDs of the books.
+     * @return The number of readers by book ID; books without readers are left out.
+     */
+    public Map<Integer, Long> countReaders(int[] bookIds) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(countReadersQuery)) {
+            Integer[] ids = new Integer[bookIds.length];
+            for (int i = 0; i < bookIds.length; i++) {
+                ids[i] = bookIds[i];
+            }
+            preparedStatement.setArray(1, connection.createArrayOf("integer", ids));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Map<Integer, Long> readers = new HashMap<>();
+                while (resultSet.next()) {
+                    readers.put(resultSet.getInt("book_id"), resultSet.getLong("readers"));
+                }
+                return readers;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean update(String query, int userId, int bookId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, bookId);
+            boolean changed = preparedStatement.executeUpdate() > 0;
+            if (changed) {
+                ChangeNotifications.publish(connection, ChangeNotifications.SHELF, userId);
+            }
+            return changed;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface representing operations for interacting with user data.
@@ -33,10 +34,65 @@ public interface UserDao {
      */
     UserDto getUserById(int userId);
 
+    /**
+     * Retrieves a user by ID, loading their comments and reviewed books only if requested.
+     *
+     * @param userId            The ID of the user to retrieve.
+     * @param withComments      Whether to load the comments of the user.
+     * @param withReviewedBooks Whether to load the reviewed books of the user.
+     * @return The UserDto object representing the retrieved user, or null if not found.
+     */
+    UserDto getUserById(int userId, boolean withComments, boolean withReviewedBooks);
+
     /**
      * Retrieves all users.
      *
      * @return A list of UserDto objects representing all users.
      */
     List<UserDto> getAllUsers();
+
+    /**
+     * Retrieves all users, loading their comments and reviewed books only if requested.
+     *
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return A list of UserDto objects representing all users.
+     */
+    List<UserDto> getAllUsers(boolean withComments, boolean withReviewedBooks);
+
+    /**
+     * Streams all users one at a time.
+     *
+     * @param consumer Receives each user in ID order.
+     */
+    void streamAllUsers(Consumer<UserDto> consumer);
+
+    /**
+     * Streams all users one at a time, loading their comments and reviewed books only if requested.
+     *
+     * @param consumer          Receives each user in ID order.
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     */
+    void streamAllUsers(Consumer<UserDto> consumer, boolean withComments, boolean withReviewedBooks);
+
+    /**
+     * Retrieves a page of users ordered by ID.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of users to retrieve.
+     * @return A list of UserDto objects with IDs greater than afterId.
+     */
+    List<UserDto> getUsersPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of users ordered by ID, loading their comments and reviewed books only if requested.
+     *
+     * @param afterId           The ID the page starts after, 0 for the first page.
+     * @param limit             The maximal number of users to retrieve.
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return A list of UserDto objects with IDs greater than afterId.
+     */
+    List<UserDto> getUsersPage(int afterId, int limit, boolean withComments, boolean withReviewedBooks);
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package ru.aston.dao.userDao;
 
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dao.Cursors;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
 import ru.aston.util.ConnectionManager;
+import ru.aston.util.IntObjectMap;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
@@ -14,9 +17,10 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Implementation of UserDao interface for performing CRUD operations related to users.
@@ -25,19 +29,14 @@ public class UserDaoImpl implements UserDao {
     private final DataSource dataSource;
     private final String postUserQuery = "INSERT INTO users (user_name) VALUES(?)";
     private final String deleteUserQuery = "DELETE FROM users WHERE user_id = ?";
-    private final String getUserByIdQuery = "SELECT u.user_id, u.user_name, " +
-            "       c.comment_id AS comment_id, c.text AS comment_text, " +
-            "       b.book_id AS book_id, b.book_title AS book_title " +
-            "FROM users u " +
-            "LEFT JOIN comments c ON u.user_id = c.user_id " +
-            "LEFT JOIN books b ON c.book_id = b.book_id " +
-            "WHERE u.user_id = ?";
-    private final String getAllUsersQuery = "SELECT u.user_id, u.user_name, " +
-            "       c.comment_id AS comment_id, c.text AS comment_text, " +
-            "       b.book_id AS book_id, b.book_title AS book_title " +
-            "FROM users u " +
-            "LEFT JOIN comments c ON u.user_id = c.user_id " +
-            "LEFT JOIN books b ON c.book_id = b.book_id";
+    private final String getUserByIdQuery = "SELECT user_id, user_name FROM users WHERE user_id = ?";
+    private final String getAllUsersQuery = "SELECT user_id, user_name FROM users ORDER BY user_id";
+    private final String getUsersPageQuery = "SELECT user_id, user_name FROM users " +
+            "WHERE user_id > ? ORDER BY user_id LIMIT ?";
+    private final String getCommentsOfUsersQuery = "SELECT comment_id, user_id, book_id, text FROM comments " +
+            "WHERE user_id = ANY(?) ORDER BY comment_id";
+    private final String getBooksByIdsQuery = "SELECT book_id, book_title, comment_count FROM books " +
+            "WHERE book_id = ANY(?)";
 
     /**
      * Constructs a UserDaoImpl using the default data source.
@@ -100,6 +99,7 @@ public class UserDaoImpl implements UserDao {
             if (rowsAffected == 0) {
                 throw new SQLException("User wit id = " + userId + " not found!");
             }
+            ChangeNotifications.publish(connection, ChangeNotifications.USER, userId);
         } catch (SQLException e) {
             throw new RuntimeException("Error executing SQL query", e);
         }
@@ -111,46 +111,97 @@ public class UserDaoImpl implements UserDao {
      * @return A list of UserDto objects representing all users, including associated comments and reviewed books.
      */
     public List<UserDto> getAllUsers() {
-        Map<Integer, UserDto> userMap;
-        try (Connection connection = dataSource.getConnection();
+        return getAllUsers(true, true);
+    }
+
+    /**
+     * Retrieves all users and, if requested, their comments and reviewed books.
+     * The child queries of relations that are not requested are skipped.
+     *
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return A list of UserDto objects representing all users.
+     */
+    public List<UserDto> getAllUsers(boolean withComments, boolean withReviewedBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(getAllUsersQuery);
              ResultSet resultSet = preparedStatement.executeQuery()) {
-            userMap = new HashMap<>();
+            return loadCommentsAndBooks(connection, mapUsers(resultSet), withComments, withReviewedBooks);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error executing SQL query", e);
+        }
+    }
 
-            while (resultSet.next()) {
-                int userId = resultSet.getInt("user_id");
+    /**
+     * Streams all users, including associated comments and reviewed books, one at a time.
+     * Users are read in keyset pages of {@link Cursors#FETCH_SIZE} on a single connection and the children
+     * of each page are loaded in one batch, so memory use is bounded by the page size rather than by the number of users.
+     *
+     * @param consumer Receives each user in ID order.
+     */
+    public void streamAllUsers(Consumer<UserDto> consumer) {
+        streamAllUsers(consumer, true, true);
+    }
 
-                if (!userMap.containsKey(userId)) {
-                    UserDto user = new UserDto();
-                    user.setUserId(userId);
-                    user.setUserName(resultSet.getString("user_name"));
-                    if (user.getComments() == null) {
-                        user.setComments(new ArrayList<>());
-                    }
-                    if (user.getReviewedBooks() == null) {
-                        user.setReviewedBooks(new ArrayList<>());
-                    }
-                    userMap.put(userId, user);
+    /**
+     * Streams all users one at a time and, if requested, their comments and reviewed books.
+     *
+     * @param consumer          Receives each user in ID order.
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     */
+    public void streamAllUsers(Consumer<UserDto> consumer, boolean withComments, boolean withReviewedBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getUsersPageQuery)) {
+            int afterId = 0;
+            List<UserDto> users;
+            do {
+                preparedStatement.setInt(1, afterId);
+                preparedStatement.setInt(2, Cursors.FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    users = loadCommentsAndBooks(connection, mapUsers(resultSet), withComments, withReviewedBooks);
                 }
-
-                if (resultSet.getInt("comment_id") != 0) {
-                    CommentDto commentDto = new CommentDto();
-                    commentDto.setCommentId(resultSet.getInt("comment_id"));
-                    commentDto.setText(resultSet.getString("comment_text"));
-                    userMap.get(userId).getComments().add(commentDto);
+                users.forEach(consumer);
+                if (!users.isEmpty()) {
+                    afterId = users.get(users.size() - 1).getUserId();
                 }
+            } while (users.size() == Cursors.FETCH_SIZE);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error executing SQL query", e);
+        }
+    }
 
-                if (resultSet.getInt("book_id") != 0) {
-                    BookDto bookDto = new BookDto();
-                    bookDto.setBookId(resultSet.getInt("book_id"));
-                    bookDto.setBookTitle(resultSet.getString("book_title"));
-                    userMap.get(userId).getReviewedBooks().add(bookDto);
-                }
+    /**
+     * Retrieves a page of users ordered by ID, including associated comments and reviewed books for each user.
+     *
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of users to retrieve.
+     * @return A list of UserDto objects with IDs greater than afterId, including comments and reviewed books.
+     */
+    public List<UserDto> getUsersPage(int afterId, int limit) {
+        return getUsersPage(afterId, limit, true, true);
+    }
+
+    /**
+     * Retrieves a page of users ordered by ID and, if requested, their comments and reviewed books.
+     *
+     * @param afterId           The ID the page starts after, 0 for the first page.
+     * @param limit             The maximal number of users to retrieve.
+     * @param withComments      Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return A list of UserDto objects with IDs greater than afterId.
+     */
+    public List<UserDto> getUsersPage(int afterId, int limit, boolean withComments, boolean withReviewedBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(getUsersPageQuery)) {
+            preparedStatement.setInt(1, afterId);
+            preparedStatement.setInt(2, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return loadCommentsAndBooks(connection, mapUsers(resultSet), withComments, withReviewedBooks);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error executing SQL query", e);
         }
-        return new ArrayList<>(userMap.values());
     }
 
     /**
@@ -160,41 +211,114 @@ public class UserDaoImpl implements UserDao {
      * @return The UserDto object representing the retrieved user, including associated comments and reviewed books.
      */
     public UserDto getUserById(int userId) {
-        UserDto user = null;
-        List<CommentDto> comments = new ArrayList<>();
-        List<BookDto> reviewedBooks = new ArrayList<>();
+        return getUserById(userId, true, true);
+    }
 
-        try (Connection connection = dataSource.getConnection();
+    /**
+     * Retrieves a user by ID and, if requested, their comments and reviewed books.
+     *
+     * @param userId            The ID of the user to retrieve.
+     * @param withComments      Whether to load the comments of the user.
+     * @param withReviewedBooks Whether to load the reviewed books of the user.
+     * @return The UserDto object representing the retrieved user, or null if not found.
+     */
+    public UserDto getUserById(int userId, boolean withComments, boolean withReviewedBooks) {
+        try (Connection connection = ConnectionManager.getReadConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(getUserByIdQuery)) {
-            preparedStatement.setInt(1, userId); // Set the user ID parameter
+            preparedStatement.setInt(1, userId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<UserDto> users = loadCommentsAndBooks(connection, mapUsers(resultSet),
+                        withComments, withReviewedBooks);
+                return users.isEmpty() ? null : users.get(0);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error executing SQL query", e);
+        }
+    }
+
+    /**
+     * Loads the comments of the given users with one query and the books they reviewed with another,
+     * and attaches them to the users. Each book is fetched once and appears once in a user's reviewed books,
+     * however many comments the user left on it.
+     *
+     * @param connection        The connection the users were read on.
+     * @param users             The users to complete.
+     * @param withComments      Whether to attach the comments.
+     * @param withReviewedBooks Whether to load and attach the reviewed books.
+     * @return The same list of users.
+     * @throws SQLException If loading comments or books fails.
+     */
+    private List<UserDto> loadCommentsAndBooks(Connection connection, List<UserDto> users,
+                                               boolean withComments, boolean withReviewedBooks) throws SQLException {
+        if (users.isEmpty() || !withComments && !withReviewedBooks) {
+            return users;
+        }
+        IntObjectMap<UserDto> usersById = new IntObjectMap<>(users.size());
+        Integer[] userIds = new Integer[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            usersById.put(users.get(i).getUserId(), users.get(i));
+            userIds[i] = users.get(i).getUserId();
+        }
+
+        IntObjectMap<BookDto> booksById = new IntObjectMap<>();
+        Set<Long> reviews = new HashSet<>();
+        List<Integer> bookIds = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(getCommentsOfUsersQuery)) {
+            preparedStatement.setArray(1, connection.createArrayOf("integer", userIds));
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 while (resultSet.next()) {
-                    if (user == null) {
-                        user = new UserDto();
-                        user.setUserId(resultSet.getInt("user_id"));
-                        user.setUserName(resultSet.getString("user_name"));
+                    UserDto user = usersById.get(resultSet.getInt("user_id"));
+                    if (withComments) {
+                        CommentDto commentDto = new CommentDto();
+                        commentDto.setCommentId(resultSet.getInt("comment_id"));
+                        commentDto.setText(resultSet.getString("text"));
+                        user.getComments().add(commentDto);
                     }
 
-                    if (resultSet.getInt("comment_id") != 0) {
-                        CommentDto comment = new CommentDto();
-                        comment.setCommentId(resultSet.getInt("comment_id"));
-                        comment.setText(resultSet.getString("comment_text"));
-                        comments.add(comment);
-                        user.getComments().add(comment);
+                    int bookId = resultSet.getInt("book_id");
+                    if (withReviewedBooks && bookId != 0 && reviews.add((long) user.getUserId() << 32 | bookId)) {
+                        if (!booksById.containsKey(bookId)) {
+                            booksById.put(bookId, new BookDto());
+                            bookIds.add(bookId);
+                        }
+                        user.getReviewedBooks().add(booksById.get(bookId));
                     }
+                }
+            }
+        }
+        if (bookIds.isEmpty()) {
+            return users;
+        }
 
-                    if (resultSet.getInt("book_id") != 0) {
-                        BookDto book = new BookDto();
-                        book.setBookId(resultSet.getInt("book_id"));
-                        book.setBookTitle(resultSet.getString("book_title"));
-                        reviewedBooks.add(book);
-                        user.getReviewedBooks().add(book);
-                    }
+        try (PreparedStatement preparedStatement = connection.prepareStatement(getBooksByIdsQuery)) {
+            preparedStatement.setArray(1, connection.createArrayOf("integer", bookIds.toArray()));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    BookDto bookDto = booksById.get(resultSet.getInt("book_id"));
+                    bookDto.setBookId(resultSet.getInt("book_id"));
+                    bookDto.setBookTitle(resultSet.getString("book_title"));
+                    bookDto.setCommentCount(resultSet.getInt("comment_count"));
                 }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error executing SQL query", e);
         }
-        return user;
+        return users;
+    }
+
+    /**
+     * Maps the user rows of a result set to UserDto objects without comments and books.
+     *
+     * @param resultSet The result set to read.
+     * @return The mapped UserDto objects in row order.
+     * @throws SQLException If reading the rows fails.
+     */
+    private static List<UserDto> mapUsers(ResultSet resultSet) throws SQLException {
+        List<UserDto> users = new ArrayList<>();
+        while (resultSet.next()) {
+            UserDto user = new UserDto();
+            user.setUserId(resultSet.getInt("user_id"));
+            user.setUserName(resultSet.getString("user_name"));
+            users.add(user);
+        }
+        return users;
     }
-}
\ No newline at end of file
+}
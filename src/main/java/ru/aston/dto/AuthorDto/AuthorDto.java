@@ -3,6 +3,7 @@ package ru.aston.dto.AuthorDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 import ru.aston.dto.BookDto.BookDto;
 
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import java.util.List;
 /**
  * Class defines the properties and behavior of an author DTO object.
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
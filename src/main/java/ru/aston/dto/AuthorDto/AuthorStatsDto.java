@@ -0,0 +1,53 @@
+package ru.aston.dto.AuthorDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
+
+/**
+ * Represents the number of books of an author and the number of comments on them,
+ * as of the last refresh of the {@code author_stats} materialized view.
+ */
+@GenerateJson
+@Getter
+@Setter
+@NoArgsConstructor
+public class AuthorStatsDto {
+    private int authorId;
+    private String authorName;
+    private int bookCount;
+    private int commentCount;
+
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(int authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public void setBookCount(int bookCount) {
+        this.bookCount = bookCount;
+    }
+
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.aston.dto.AutocompleteDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
+
+/**
+ * Represents one autocomplete suggestion: a book title or an author name with its popularity.
+ */
+@GenerateJson
+@Getter
+@Setter
+@NoArgsConstructor
+public class SuggestionDto {
+    /**
+     * The type of suggestions for book titles.
+     */
+    public static final String BOOK = "book";
+
+    /**
+     * The type of suggestions for author names.
+     */
+    public static final String AUTHOR = "author";
+
+    private String type;
+    private int id;
+    private String text;
+    private long popularity;
+
+    /**
+     * Constructs a new SuggestionDto.
+     *
+     * @param type       {@link #BOOK} or {@link #AUTHOR}.
+     * @param id         The ID of the book or the author.
+     * @param text       The book title or the author name.
+     * @param popularity The number of comments of a book or of books of an author.
+     */
+    public SuggestionDto(String type, int id, String text, long popularity) {
+        this.type = type;
+        this.id = id;
+        this.text = text;
+        this.popularity = popularity;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public long getPopularity() {
+        return popularity;
+    }
+
+    public void setPopularity(long popularity) {
+        this.popularity = popularity;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.aston.dto.BatchDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
+
+/**
+ * Represents the failure of one item of a batch request.
+ */
+@GenerateJson
+@Getter
+@Setter
+@NoArgsConstructor
+public class BatchErrorDto {
+    private int index;
+    private String message;
+
+    /**
+     * Constructs a new BatchErrorDto.
+     *
+     * @param index   The position of the failed item in the request.
+     * @param message The reason the item failed.
+     */
+    public BatchErrorDto(int index, String message) {
+        this.index = index;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
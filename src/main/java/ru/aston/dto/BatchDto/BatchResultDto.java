@@ -0,0 +1,92 @@
+package ru.aston.dto.BatchDto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the outcome of a batch create request: the generated ID of every item in input order,
+ * null for items that were not created, and the errors of the failed items.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class BatchResultDto {
+    private List<Integer> ids = new ArrayList<>();
+    private List<BatchErrorDto> errors = new ArrayList<>();
+    @JsonIgnore
+    private BitSet failed = new BitSet();
+
+    /**
+     * Constructs a new BatchResultDto for a batch of the given size with no item created yet.
+     *
+     * @param size The number of items in the batch.
+     */
+    public BatchResultDto(int size) {
+        this.ids = new ArrayList<>(Collections.nCopies(size, null));
+    }
+
+    /**
+     * Records the generated ID of an item.
+     *
+     * @param index The position of the item in the request.
+     * @param id    The generated ID.
+     */
+    public void setId(int index, int id) {
+        ids.set(index, id);
+    }
+
+    /**
+     * Records the failure of an item.
+     *
+     * @param index   The position of the item in the request.
+     * @param message The reason the item failed.
+     */
+    public void addError(int index, String message) {
+        ids.set(index, null);
+        errors.add(new BatchErrorDto(index, message));
+        failed.set(index);
+    }
+
+    /**
+     * Tells whether an item has failed.
+     *
+     * @param index The position of the item in the request.
+     * @return true if an error was recorded for the item.
+     */
+    public boolean isFailed(int index) {
+        return failed.get(index);
+    }
+
+    /**
+     * Tells whether any item has failed.
+     *
+     * @return true if at least one error was recorded.
+     */
+    @JsonIgnore
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Integer> ids) {
+        this.ids = ids;
+    }
+
+    public List<BatchErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BatchErrorDto> errors) {
+        this.errors = errors;
+    }
+}
@@ -3,6 +3,7 @@ package ru.aston.dto.BookDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.CommentDto.CommentDto;
 
@@ -12,12 +13,14 @@ import java.util.List;
 /**
  * Represents and defines parameters of a book DTO object.
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
 public class BookDto {
     private int bookId;
     private String bookTitle;
+    private Integer commentCount;
     private AuthorDto author;
     private List<CommentDto> comments = new ArrayList<>();
 
@@ -37,6 +40,19 @@ public class BookDto {
         this.bookTitle = bookTitle;
     }
 
+    /**
+     * Returns the number of comments on the book.
+     *
+     * @return The count, or null if it was not loaded, e.g. for books embedded in comments or authors.
+     */
+    public Integer getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Integer commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public AuthorDto getAuthor() {
         return author;
     }
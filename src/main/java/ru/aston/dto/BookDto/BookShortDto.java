@@ -3,10 +3,12 @@ package ru.aston.dto.BookDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 
 /**
  * Represents and defines parameters of a short book DTO object.
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
@@ -3,12 +3,14 @@ package ru.aston.dto.CommentDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.UserDto.UserDto;
 
 /**
  * Represents and defines a parameters of a comment DTO object.
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
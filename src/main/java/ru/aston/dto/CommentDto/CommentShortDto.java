@@ -3,11 +3,13 @@ package ru.aston.dto.CommentDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 
 /**
  * Represents and defines a parameters of a short comment DTO
  * object to return for client
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,83 @@
+package ru.aston.dto.ImportDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk import: how many records were received, imported and rejected,
+ * the numbers of the first rejected records and the throughput of the job.
+ */
+@GenerateJson
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportResultDto {
+    private String target;
+    private long received;
+    private long imported;
+    private long rejected;
+    private List<Long> rejectedRecords = new ArrayList<>();
+    private long elapsedMillis;
+    private long rowsPerSecond;
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<Long> getRejectedRecords() {
+        return rejectedRecords;
+    }
+
+    public void setRejectedRecords(List<Long> rejectedRecords) {
+        this.rejectedRecords = rejectedRecords;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
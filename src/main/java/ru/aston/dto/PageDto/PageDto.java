@@ -0,0 +1,48 @@
+package ru.aston.dto.PageDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents one page of a collection and the token to request the next page with.
+ *
+ * @param <T> The type of the page items.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PageDto<T> {
+    private List<T> items = new ArrayList<>();
+    private String nextPageToken;
+
+    /**
+     * Constructs a new PageDto.
+     *
+     * @param items         The items of the page.
+     * @param nextPageToken The token of the next page, or null if this page is the last one.
+     */
+    public PageDto(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+}
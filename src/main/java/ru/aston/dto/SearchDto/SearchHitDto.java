@@ -0,0 +1,57 @@
+package ru.aston.dto.SearchDto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Represents one full-text search hit: the matching item, its rank and a snippet
+ * of the matching text with the query terms wrapped in {@code <mark>} tags.
+ *
+ * @param <T> The type of the matching item.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class SearchHitDto<T> {
+    private T item;
+    private float rank;
+    private String snippet;
+
+    /**
+     * Constructs a new SearchHitDto.
+     *
+     * @param item    The matching item.
+     * @param rank    The rank of the item for the query; higher ranks match better.
+     * @param snippet The highlighted snippet of the matching text.
+     */
+    public SearchHitDto(T item, float rank, String snippet) {
+        this.item = item;
+        this.rank = rank;
+        this.snippet = snippet;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public void setItem(T item) {
+        this.item = item;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    public void setRank(float rank) {
+        this.rank = rank;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
@@ -3,6 +3,7 @@ package ru.aston.dto.UserDto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ru.aston.codegen.GenerateJson;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.CommentDto.CommentDto;
 
@@ -12,6 +13,7 @@ import java.util.List;
 /**
  * Class defines the properties and behavior of a user DTO object.
  */
+@GenerateJson
 @Getter
 @Setter
 @NoArgsConstructor
@@ -2,6 +2,9 @@ package ru.aston.service.authorService;
 
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.BatchDto.BatchResultDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.service.cacheService.EntityCaches;
 
 import java.util.List;
 
@@ -18,6 +21,16 @@ public interface AuthorService {
      */
     AuthorDto createAuthor(AuthorDtoShort authorDtoShort);
 
+    /**
+     * Creates a batch of authors.
+     *
+     * @param authors The AuthorDtoShort objects containing information about the new authors.
+     * @param result  The result to record the generated IDs and errors in; authors already failed in it are skipped.
+     * @param lenient Whether failing authors are reported instead of rolling back the whole batch.
+     * @return The generated IDs in input order and the errors of the failed authors.
+     */
+    BatchResultDto createAuthors(List<AuthorDtoShort> authors, BatchResultDto result, boolean lenient);
+
     /**
      * Deletes an author by their ID.
      *
@@ -32,6 +45,14 @@ public interface AuthorService {
      */
     List<AuthorDto> getAllAuthors();
 
+    /**
+     * Retrieves a list of all authors, loading their books only if requested.
+     *
+     * @param withBooks Whether to load the books of each author.
+     * @return A list of AuthorDto objects representing all authors.
+     */
+    List<AuthorDto> getAllAuthors(boolean withBooks);
+
     /**
      * Retrieves an author by their ID.
      *
@@ -39,4 +60,48 @@ public interface AuthorService {
      * @return The AuthorDto object representing the author with the specified ID.
      */
     AuthorDto getAuthorById(int authorId);
+
+    /**
+     * Retrieves an author by their ID, loading their books only if requested.
+     *
+     * @param authorId  The ID of the author to retrieve.
+     * @param withBooks Whether to load the books of the author.
+     * @return The AuthorDto object representing the author with the specified ID.
+     */
+    AuthorDto getAuthorById(int authorId, boolean withBooks);
+
+    /**
+     * Retrieves an author by their ID from the cache, reloading them if the cached author is older than the version.
+     *
+     * @param authorId   The ID of the author to retrieve.
+     * @param withBooks  Whether to load the books of the author.
+     * @param minVersion The least acceptable version of the author, 0 for any.
+     * @return The author with the version of the row they were read from, or null if not found.
+     */
+    EntityCaches.Versioned<AuthorDto> getAuthorById(int authorId, boolean withBooks, long minVersion);
+
+    /**
+     * Retrieves the version of an author, which changes whenever the author or their books change.
+     *
+     * @param authorId The ID of the author.
+     * @return The version, or null if the author does not exist.
+     */
+    Long getAuthorVersion(int authorId);
+
+    /**
+     * Retrieves a page of authors ordered by ID.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @return The page of author DTOs with the token of the next page.
+     */
+    PageDto<AuthorDto> getAuthorsPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of authors ordered by ID, loading their books only if requested.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @param withBooks Whether to load the books of each author.
+     * @return The page of author DTOs with the token of the next page.
+     */
+    PageDto<AuthorDto> getAuthorsPage(int afterId, int limit, boolean withBooks);
 }
\ No newline at end of file
@@ -3,6 +3,12 @@ package ru.aston.service.authorService;
 import ru.aston.dao.authorDao.AuthorDaoImpl;
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.PageToken;
 
 import java.util.List;
 
@@ -34,18 +40,67 @@ public class AuthorServiceImpl implements AuthorService {
 
     public void deleteAuthor(int authorId) {
         authorDaoImpl.deleteAuthor(authorId);
+        EntityCaches.authorChanged(authorId);
+        AutocompleteIndex.remove(SuggestionDto.AUTHOR, authorId);
     }
 
     public List<AuthorDto> getAllAuthors() {
         return authorDaoImpl.getAllAuthors();
     }
 
+    public List<AuthorDto> getAllAuthors(boolean withBooks) {
+        return authorDaoImpl.getAllAuthors(withBooks);
+    }
+
     public AuthorDto createAuthor(AuthorDtoShort authorDtoShort) {
-        return authorDaoImpl.createAuthor(authorDtoShort);
+        AuthorDto created = authorDaoImpl.createAuthor(authorDtoShort);
+        if (created != null) {
+            AutocompleteIndex.add(
+                    new SuggestionDto(SuggestionDto.AUTHOR, created.getAuthorId(), created.getAuthorName(), 0));
+        }
+        return created;
+    }
+
+    public BatchResultDto createAuthors(List<AuthorDtoShort> authors, BatchResultDto result, boolean lenient) {
+        BatchResultDto created = authorDaoImpl.createAuthors(authors, result, lenient);
+        for (int i = 0; i < authors.size(); i++) {
+            Integer id = created.getIds().get(i);
+            if (id != null) {
+                AutocompleteIndex.add(
+                        new SuggestionDto(SuggestionDto.AUTHOR, id, authors.get(i).getAuthorName(), 0));
+            }
+        }
+        return created;
     }
 
     public AuthorDto getAuthorById(int authorId) {
 
         return authorDaoImpl.getAuthorById(authorId);
     }
-}
\ No newline at end of file
+
+    public AuthorDto getAuthorById(int authorId, boolean withBooks) {
+        EntityCaches.Versioned<AuthorDto> author = getAuthorById(authorId, withBooks, 0);
+        return author == null ? null : author.getValue();
+    }
+
+    public EntityCaches.Versioned<AuthorDto> getAuthorById(int authorId, boolean withBooks, long minVersion) {
+        return EntityCaches.getAuthor(authorId, withBooks, minVersion, key -> {
+            long[] version = new long[1];
+            AuthorDto author = authorDaoImpl.getAuthorById(authorId, withBooks, v -> version[0] = v);
+            return author == null ? null : new EntityCaches.Versioned<>(author, version[0]);
+        });
+    }
+
+    public Long getAuthorVersion(int authorId) {
+        return authorDaoImpl.getAuthorVersion(authorId);
+    }
+
+    public PageDto<AuthorDto> getAuthorsPage(int afterId, int limit) {
+        return getAuthorsPage(afterId, limit, true);
+    }
+
+    public PageDto<AuthorDto> getAuthorsPage(int afterId, int limit, boolean withBooks) {
+        List<AuthorDto> authors = authorDaoImpl.getAuthorsPage(afterId, limit + 1, withBooks);
+        return PageToken.toPage(authors, limit, author -> new int[]{author.getAuthorId()});
+    }
+}
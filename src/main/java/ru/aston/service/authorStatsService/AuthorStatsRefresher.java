@@ -0,0 +1,60 @@
+package ru.aston.service.authorStatsService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide scheduler refreshing the author statistics in the background.
+ * Every node runs it; the refresh itself makes sure that one node refreshes per interval,
+ * so adding nodes does not add refreshes. Failed refreshes are logged and retried at the next run.
+ */
+public final class AuthorStatsRefresher {
+    private static final Logger LOGGER = LogManager.getLogger(AuthorStatsRefresher.class);
+
+    private static ScheduledExecutorService scheduler;
+
+    private AuthorStatsRefresher() {
+    }
+
+    /**
+     * Starts refreshing the statistics every interval, replacing a running schedule.
+     *
+     * @param authorStatsService The service refreshing the statistics.
+     * @param intervalMillis     The time between two refreshes, at least 1.
+     */
+    public static synchronized void start(AuthorStatsService authorStatsService, long intervalMillis) {
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "author-stats-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> refresh(authorStatsService, intervalMillis),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops refreshing the statistics, interrupting a running refresh.
+     */
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static void refresh(AuthorStatsService authorStatsService, long minIntervalMillis) {
+        long start = System.nanoTime();
+        try {
+            if (authorStatsService.refresh(minIntervalMillis)) {
+                LOGGER.info("Refreshed author statistics in {} ms", (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Refreshing author statistics failed", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.aston.service.authorStatsService;
+
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+import ru.aston.dto.PageDto.PageDto;
+
+/**
+ * The interface defining operations on the statistics of authors.
+ */
+public interface AuthorStatsService {
+
+    /**
+     * Retrieves a page of author statistics.
+     * @param sort  {@link AuthorStatsServiceImpl#SORT_AUTHOR_ID}, {@link AuthorStatsServiceImpl#SORT_BOOK_COUNT}
+     *              or {@link AuthorStatsServiceImpl#SORT_COMMENT_COUNT}.
+     * @param after The decoded page token, empty for the first page.
+     * @param limit The maximal number of rows on the page.
+     * @return The page with the token of the next page.
+     */
+    PageDto<AuthorStatsDto> getStatsPage(String sort, int[] after, int limit);
+
+    /**
+     * Refreshes the statistics unless another node has refreshed them less than the interval ago.
+     * @param minIntervalMillis The minimal time between two refreshes by any node.
+     * @return true if the statistics were refreshed.
+     */
+    boolean refresh(long minIntervalMillis);
+}
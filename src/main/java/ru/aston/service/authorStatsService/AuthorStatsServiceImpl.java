@@ -0,0 +1,95 @@
+package ru.aston.service.authorStatsService;
+
+import ru.aston.dao.authorStatsDao.AuthorStatsDaoImpl;
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.util.PageToken;
+
+import java.util.List;
+
+/**
+ * Implementation of interface defining operations on the statistics of authors.
+ * The statistics are read from a materialized view and are as old as its last refresh,
+ * see {@link AuthorStatsRefresher}.
+ */
+public class AuthorStatsServiceImpl implements AuthorStatsService {
+
+    /**
+     * Orders statistics by author ID; page tokens hold the ID.
+     */
+    public static final String SORT_AUTHOR_ID = "authorId";
+
+    /**
+     * Orders statistics by the number of books descending; page tokens hold the count and the ID.
+     */
+    public static final String SORT_BOOK_COUNT = "bookCount";
+
+    /**
+     * Orders statistics by the number of comments descending; page tokens hold the count and the ID.
+     */
+    public static final String SORT_COMMENT_COUNT = "commentCount";
+
+    /**
+     * The data access object for reading the statistics from the database.
+     */
+    private final AuthorStatsDaoImpl authorStatsDaoImpl;
+
+    /**
+     * Constructs a new AuthorStatsServiceImpl instance for regular application use.
+     */
+    public AuthorStatsServiceImpl() {
+        this.authorStatsDaoImpl = new AuthorStatsDaoImpl();
+    }
+
+    /**
+     * Constructs a new AuthorStatsServiceImpl instance for testing purposes.
+     *
+     * @param authorStatsDaoImpl The AuthorStatsDaoImpl instance to be used.
+     */
+    public AuthorStatsServiceImpl(AuthorStatsDaoImpl authorStatsDaoImpl) {
+        this.authorStatsDaoImpl = authorStatsDaoImpl;
+    }
+
+    /**
+     * Returns the number of ints in the page tokens of a sort order.
+     *
+     * @param sort The sort order.
+     * @return The key length, or 0 if the sort order is unknown.
+     */
+    public static int pageKeyLength(String sort) {
+        switch (sort) {
+            case SORT_AUTHOR_ID:
+                return 1;
+            case SORT_BOOK_COUNT:
+            case SORT_COMMENT_COUNT:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    public PageDto<AuthorStatsDto> getStatsPage(String sort, int[] after, int limit) {
+        if (sort.equals(SORT_AUTHOR_ID)) {
+            List<AuthorStatsDto> stats = authorStatsDaoImpl.getStatsPage(after.length == 0 ? 0 : after[0], limit + 1);
+            return PageToken.toPage(stats, limit, authorStats -> new int[]{authorStats.getAuthorId()});
+        }
+        int afterCount = after.length == 0 ? Integer.MAX_VALUE : after[0];
+        int afterId = after.length == 0 ? 0 : after[1];
+        List<AuthorStatsDto> stats;
+        if (sort.equals(SORT_BOOK_COUNT)) {
+            stats = authorStatsDaoImpl.getStatsPageByBookCount(afterCount, afterId, limit + 1);
+            return PageToken.toPage(stats, limit,
+                    authorStats -> new int[]{authorStats.getBookCount(), authorStats.getAuthorId()});
+        }
+        if (sort.equals(SORT_COMMENT_COUNT)) {
+            stats = authorStatsDaoImpl.getStatsPageByCommentCount(afterCount, afterId, limit + 1);
+            return PageToken.toPage(stats, limit,
+                    authorStats -> new int[]{authorStats.getCommentCount(), authorStats.getAuthorId()});
+        }
+        throw new IllegalArgumentException("Unknown sort " + sort);
+    }
+
+    public boolean refresh(long minIntervalMillis) {
+        return authorStatsDaoImpl.refresh(minIntervalMillis);
+    }
+}
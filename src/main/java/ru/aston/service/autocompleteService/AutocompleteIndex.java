@@ -0,0 +1,281 @@
+package ru.aston.service.autocompleteService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.aston.dao.autocompleteDao.AutocompleteDao;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.util.ConsistencyToken;
+import ru.aston.util.RadixTrie;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide in-memory index of book titles and author names for prefix autocompletion.
+ * Lookups read the current immutable {@link RadixTrie} without locking. Changes are serialized
+ * and publish a new trie sharing all unchanged nodes with the previous one.
+ * The index is loaded at startup and kept current by the book and author services of this node; books and
+ * authors changed on other nodes are {@linkplain #refreshAsync refreshed} in the background when their change
+ * notifications arrive. Popularity is measured when a suggestion is read from the database; suggestions added
+ * by the services start at 0.
+ */
+public final class AutocompleteIndex {
+    private static final Logger LOGGER = LogManager.getLogger(AutocompleteIndex.class);
+
+    /**
+     * The largest number of suggestions a lookup can return.
+     */
+    public static final int MAX_LIMIT = 20;
+
+    private static final Comparator<SuggestionDto> RANKING = Comparator
+            .comparingLong(SuggestionDto::getPopularity).reversed()
+            .thenComparing(SuggestionDto::getText, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(SuggestionDto::getType)
+            .thenComparingInt(SuggestionDto::getId);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Object LOCK = new Object();
+    private static final AtomicBoolean RELOAD_PENDING = new AtomicBoolean();
+    private static final AtomicReference<String> RELOAD_LSN = new AtomicReference<>();
+
+    /**
+     * The WAL position each pending refresh must observe by the type and ID of its row, empty for none.
+     */
+    private static final ConcurrentMap<String, String> PENDING_REFRESHES = new ConcurrentHashMap<>();
+    private static final ExecutorService RELOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile RadixTrie<SuggestionDto> trie = RadixTrie.empty(RANKING, MAX_LIMIT);
+
+    /**
+     * The normalized key of every indexed suggestion by {@link #id}, needed to remove it. Guarded by LOCK.
+     */
+    private static Map<String, String> keys = new HashMap<>();
+
+    /**
+     * Changes made while a reload reads the database, replayed on the reloaded index. Guarded by LOCK.
+     */
+    private static List<Runnable> changesDuringReload;
+
+    private static volatile AutocompleteDao source;
+
+    private AutocompleteIndex() {
+    }
+
+    /**
+     * Returns the most popular suggestions whose normalized text starts with the normalized prefix.
+     *
+     * @param prefix The typed prefix; case and runs of whitespace are ignored.
+     * @param limit  The maximal number of suggestions, at most {@link #MAX_LIMIT}.
+     * @return The suggestions, most popular first.
+     */
+    public static List<SuggestionDto> complete(String prefix, int limit) {
+        return trie.complete(WHITESPACE.matcher(prefix.toLowerCase(Locale.ROOT)).replaceAll(" ").stripLeading(),
+                limit);
+    }
+
+    /**
+     * Returns the number of indexed suggestions.
+     *
+     * @return The number of suggestions.
+     */
+    public static int size() {
+        return trie.size();
+    }
+
+    /**
+     * Replaces the index with all titles and names read from the DAO, which is also used by later reloads.
+     *
+     * @param autocompleteDao The DAO to read the suggestions from.
+     */
+    public static void load(AutocompleteDao autocompleteDao) {
+        source = autocompleteDao;
+        reload();
+    }
+
+    /**
+     * Schedules a reload in the background, e.g. after a bulk import. Reloads requested while one is pending
+     * are coalesced and observe the latest position requested. Does nothing if the index has never been loaded.
+     *
+     * @param requiredLsn The primary's WAL position after the change, which the reload must observe, or null.
+     */
+    public static void reloadAsync(String requiredLsn) {
+        if (source == null) {
+            return;
+        }
+        if (requiredLsn != null) {
+            RELOAD_LSN.set(requiredLsn);
+        }
+        if (RELOAD_PENDING.compareAndSet(false, true)) {
+            try {
+                RELOADER.execute(() -> {
+                    RELOAD_PENDING.set(false);
+                    ConsistencyToken.begin(RELOAD_LSN.getAndSet(null), null);
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Reloading the autocomplete index failed, keeping the current index", e);
+                    } finally {
+                        ConsistencyToken.clear();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                RELOAD_PENDING.set(false);
+            }
+        }
+    }
+
+    /**
+     * Schedules the suggestion of a book or an author changed on another node to be read again in the
+     * background: it is removed if the row is gone and added if it is not indexed yet. Refreshes of the same
+     * row requested while one is pending are coalesced. Does nothing if the index has never been loaded.
+     *
+     * @param type        {@link SuggestionDto#BOOK} or {@link SuggestionDto#AUTHOR}.
+     * @param id          The ID of the book or the author.
+     * @param requiredLsn The primary's WAL position after the change, which the read must observe, or null.
+     */
+    public static void refreshAsync(String type, int id, String requiredLsn) {
+        if (source == null) {
+            return;
+        }
+        String key = id(type, id);
+        if (PENDING_REFRESHES.put(key, requiredLsn == null ? "" : requiredLsn) == null) {
+            try {
+                RELOADER.execute(() -> refresh(type, id, PENDING_REFRESHES.remove(key)));
+            } catch (RejectedExecutionException e) {
+                PENDING_REFRESHES.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Stops the background reloads when the application is stopped, interrupting a running one.
+     * Later reload requests are ignored.
+     */
+    public static void shutdown() {
+        RELOADER.shutdownNow();
+    }
+
+    /**
+     * Adds a suggestion, or replaces the suggestion with the same type and ID.
+     *
+     * @param suggestion The suggestion.
+     */
+    public static void add(SuggestionDto suggestion) {
+        synchronized (LOCK) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(() -> applyAdd(suggestion));
+            }
+            applyAdd(suggestion);
+        }
+    }
+
+    /**
+     * Removes the suggestion with the type and ID, if it is indexed.
+     *
+     * @param type {@link SuggestionDto#BOOK} or {@link SuggestionDto#AUTHOR}.
+     * @param id   The ID of the book or the author.
+     */
+    public static void remove(String type, int id) {
+        synchronized (LOCK) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(() -> applyRemove(type, id));
+            }
+            applyRemove(type, id);
+        }
+    }
+
+    private static void refresh(String type, int id, String requiredLsn) {
+        SuggestionDto suggestion;
+        ConsistencyToken.begin(requiredLsn, null);
+        try {
+            suggestion = source.getSuggestion(type, id);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Refreshing the autocomplete suggestion of {} {} failed", type, id, e);
+            return;
+        } finally {
+            ConsistencyToken.clear();
+        }
+        synchronized (LOCK) {
+            Runnable change = suggestion == null ? () -> applyRemove(type, id) : () -> {
+                if (!keys.containsKey(id(type, id))) {
+                    applyAdd(suggestion);
+                }
+            };
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+            change.run();
+        }
+    }
+
+    private static synchronized void reload() {
+        long start = System.nanoTime();
+        synchronized (LOCK) {
+            changesDuringReload = new ArrayList<>();
+        }
+        List<Map.Entry<String, SuggestionDto>> entries = new ArrayList<>();
+        Map<String, String> loadedKeys = new HashMap<>();
+        try {
+            source.streamSuggestions(suggestion -> {
+                String key = normalize(suggestion.getText());
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(key, suggestion));
+                loadedKeys.put(id(suggestion.getType(), suggestion.getId()), key);
+            });
+        } catch (RuntimeException e) {
+            synchronized (LOCK) {
+                changesDuringReload = null;
+            }
+            throw e;
+        }
+        RadixTrie<SuggestionDto> loaded = RadixTrie.build(entries, RANKING, MAX_LIMIT);
+        synchronized (LOCK) {
+            trie = loaded;
+            keys = loadedKeys;
+            for (Runnable change : changesDuringReload) {
+                change.run();
+            }
+            changesDuringReload = null;
+        }
+        LOGGER.info("Loaded {} autocomplete suggestions in {} ms", entries.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void applyAdd(SuggestionDto suggestion) {
+        applyRemove(suggestion.getType(), suggestion.getId());
+        String key = normalize(suggestion.getText());
+        keys.put(id(suggestion.getType(), suggestion.getId()), key);
+        trie = trie.with(key, suggestion);
+    }
+
+    private static void applyRemove(String type, int id) {
+        String key = keys.remove(id(type, id));
+        if (key != null) {
+            trie = trie.without(key, suggestion -> suggestion.getId() == id && suggestion.getType().equals(type));
+        }
+    }
+
+    private static String normalize(String text) {
+        return WHITESPACE.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    private static String id(String type, int id) {
+        return type + ":" + id;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.aston.service.autocompleteService;
+
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+
+import java.util.List;
+
+/**
+ * The interface defining autocomplete operations.
+ */
+public interface AutocompleteService {
+
+    /**
+     * Returns the most popular book titles and author names starting with the prefix.
+     *
+     * @param prefix The typed prefix; case and runs of whitespace are ignored.
+     * @param limit  The maximal number of suggestions.
+     * @return The suggestions, most popular first.
+     */
+    List<SuggestionDto> complete(String prefix, int limit);
+
+    /**
+     * Loads the index from the database, replacing its current content.
+     */
+    void load();
+}
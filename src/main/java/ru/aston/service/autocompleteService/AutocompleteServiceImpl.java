@@ -0,0 +1,41 @@
+package ru.aston.service.autocompleteService;
+
+import ru.aston.dao.autocompleteDao.AutocompleteDaoImpl;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+
+import java.util.List;
+
+/**
+ * Implementation of interface defining autocomplete operations, backed by the {@link AutocompleteIndex}.
+ */
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    /**
+     * The data access object loading the suggestions from the database.
+     */
+    private final AutocompleteDaoImpl autocompleteDaoImpl;
+
+    /**
+     * Constructs a new AutocompleteServiceImpl instance for regular application use.
+     */
+    public AutocompleteServiceImpl() {
+        this.autocompleteDaoImpl = new AutocompleteDaoImpl();
+    }
+
+    /**
+     * Constructs a new AutocompleteServiceImpl instance for testing purposes.
+     *
+     * @param autocompleteDaoImpl The AutocompleteDaoImpl instance to be used.
+     */
+    public AutocompleteServiceImpl(AutocompleteDaoImpl autocompleteDaoImpl) {
+        this.autocompleteDaoImpl = autocompleteDaoImpl;
+    }
+
+    public List<SuggestionDto> complete(String prefix, int limit) {
+        return AutocompleteIndex.complete(prefix, limit);
+    }
+
+    public void load() {
+        AutocompleteIndex.load(autocompleteDaoImpl);
+    }
+}
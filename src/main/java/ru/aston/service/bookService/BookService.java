@@ -1,9 +1,14 @@
 package ru.aston.service.bookService;
 
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
+import ru.aston.service.cacheService.EntityCaches;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The interface defining operations related to book management.
@@ -17,6 +22,15 @@ public interface BookService {
      */
     BookShortDto createBook(BookShortDto bookShortDto);
 
+    /**
+     * Creates a batch of books.
+     * @param books The book data.
+     * @param result The result to record the generated IDs and errors in; books already failed in it are skipped.
+     * @param lenient Whether failing books are reported instead of rolling back the whole batch.
+     * @return The generated IDs in input order and the errors of the failed books.
+     */
+    BatchResultDto createBooks(List<BookShortDto> books, BatchResultDto result, boolean lenient);
+
     /**
      * Deletes book with the specified ID.
      * @param bookId The ID of the book to delete.
@@ -29,10 +43,89 @@ public interface BookService {
      */
     List<BookDto> getAllBooks();
 
+    /**
+     * Retrieves a list of all books, loading their comments only if requested.
+     * @param withComments Whether to load the comments of each book.
+     * @return A list of book DTOs.
+     */
+    List<BookDto> getAllBooks(boolean withComments);
+
     /**
      * Retrieves a book by their ID.
      * @param bookId The ID of the book to retrieve.
      * @return The book DTO.
      */
     BookDto getBookById(int bookId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves a book by their ID, loading its comments only if requested.
+     * @param bookId The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @return The book DTO.
+     */
+    BookDto getBookById(int bookId, boolean withComments);
+
+    /**
+     * Retrieves a book by their ID from the cache, reloading it if the cached book is older than the version.
+     * @param bookId The ID of the book to retrieve.
+     * @param withComments Whether to load the comments of the book.
+     * @param minVersion The least acceptable version of the book, 0 for any.
+     * @return The book with the version of the row it was read from, or null if not found.
+     */
+    EntityCaches.Versioned<BookDto> getBookById(int bookId, boolean withComments, long minVersion);
+
+    /**
+     * Retrieves the version of a book, which changes whenever the book, its author or its comments change.
+     * @param bookId The ID of the book.
+     * @return The version, or null if the book does not exist.
+     */
+    Long getBookVersion(int bookId);
+
+    /**
+     * Retrieves a page of books ordered by ID.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @return The page of book DTOs with the token of the next page.
+     */
+    PageDto<BookDto> getBooksPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of books ordered by ID, loading their comments only if requested.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @param withComments Whether to load the comments of each book.
+     * @return The page of book DTOs with the token of the next page.
+     */
+    PageDto<BookDto> getBooksPage(int afterId, int limit, boolean withComments);
+
+    /**
+     * Retrieves a page of books ordered by comment count descending, ties by ID.
+     * @param after The sort key the page starts after, as decoded from a page token, or an empty array.
+     * @param limit The page size.
+     * @param withComments Whether to load the comments of each book.
+     * @return The page of book DTOs with the token of the next page.
+     */
+    PageDto<BookDto> getMostCommentedBooksPage(int[] after, int limit, boolean withComments);
+
+    /**
+     * Streams all books one at a time without materializing the whole list.
+     * @param consumer Receives each book DTO in ID order.
+     */
+    void streamAllBooks(Consumer<BookDto> consumer);
+
+    /**
+     * Streams all books one at a time, loading their comments only if requested.
+     * @param consumer Receives each book DTO in ID order.
+     * @param withComments Whether to load the comments of each book.
+     */
+    void streamAllBooks(Consumer<BookDto> consumer, boolean withComments);
+
+    /**
+     * Searches books by text, best matches first.
+     * @param text The search text in web search syntax: words, "phrases", or, -exclusions.
+     * @param after The sort key the page starts after, as decoded from a page token, or an empty array.
+     * @param limit The page size.
+     * @return The page of hits with the token of the next page.
+     */
+    PageDto<SearchHitDto<BookDto>> searchBooks(String text, int[] after, int limit);
+}
@@ -1,10 +1,18 @@
 package ru.aston.service.bookService;
 
 import ru.aston.dao.bookDao.BookDaoImpl;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.PageToken;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of interface defining operations related to book management.
@@ -36,15 +44,87 @@ public class BookServiceImpl implements BookService {
         return bookDaoImpl.getAllBooks();
     }
 
+    public List<BookDto> getAllBooks(boolean withComments) {
+        return bookDaoImpl.getAllBooks(withComments);
+    }
+
     public BookDto getBookById(int bookId) {
         return bookDaoImpl.getBookById(bookId);
     }
 
+    public BookDto getBookById(int bookId, boolean withComments) {
+        EntityCaches.Versioned<BookDto> book = getBookById(bookId, withComments, 0);
+        return book == null ? null : book.getValue();
+    }
+
+    public EntityCaches.Versioned<BookDto> getBookById(int bookId, boolean withComments, long minVersion) {
+        return EntityCaches.getBook(bookId, withComments, minVersion, key -> {
+            long[] version = new long[1];
+            BookDto book = bookDaoImpl.getBookById(bookId, withComments, v -> version[0] = v);
+            return book == null ? null : new EntityCaches.Versioned<>(book, version[0]);
+        });
+    }
+
+    public Long getBookVersion(int bookId) {
+        return bookDaoImpl.getBookVersion(bookId);
+    }
+
     public BookShortDto createBook(BookShortDto bookShortDto) {
-        return bookDaoImpl.createBook(bookShortDto);
+        BookShortDto created = bookDaoImpl.createBook(bookShortDto);
+        if (created != null) {
+            EntityCaches.authorChanged(created.getAuthorId());
+            AutocompleteIndex.add(new SuggestionDto(SuggestionDto.BOOK, created.getBookId(), created.getBookTitle(), 0));
+        }
+        return created;
+    }
+
+    public BatchResultDto createBooks(List<BookShortDto> books, BatchResultDto result, boolean lenient) {
+        BatchResultDto created = bookDaoImpl.createBooks(books, result, lenient);
+        for (int i = 0; i < books.size(); i++) {
+            Integer id = created.getIds().get(i);
+            if (id != null) {
+                EntityCaches.authorChanged(books.get(i).getAuthorId());
+                AutocompleteIndex.add(new SuggestionDto(SuggestionDto.BOOK, id, books.get(i).getBookTitle(), 0));
+            }
+        }
+        return created;
     }
 
     public void deleteBook(int bookId) {
         bookDaoImpl.deleteBook(bookId);
+        EntityCaches.bookChanged(bookId);
+        AutocompleteIndex.remove(SuggestionDto.BOOK, bookId);
+    }
+
+    public PageDto<BookDto> getBooksPage(int afterId, int limit) {
+        return getBooksPage(afterId, limit, true);
+    }
+
+    public PageDto<BookDto> getBooksPage(int afterId, int limit, boolean withComments) {
+        List<BookDto> books = bookDaoImpl.getBooksPage(afterId, limit + 1, withComments);
+        return PageToken.toPage(books, limit, book -> new int[]{book.getBookId()});
+    }
+
+    public PageDto<BookDto> getMostCommentedBooksPage(int[] after, int limit, boolean withComments) {
+        int afterCount = after.length == 0 ? Integer.MAX_VALUE : after[0];
+        int afterId = after.length == 0 ? 0 : after[1];
+        List<BookDto> books = bookDaoImpl.getMostCommentedBooksPage(afterCount, afterId, limit + 1, withComments);
+        return PageToken.toPage(books, limit, book -> new int[]{book.getCommentCount(), book.getBookId()});
+    }
+
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        bookDaoImpl.streamAllBooks(consumer);
+    }
+
+    public void streamAllBooks(Consumer<BookDto> consumer, boolean withComments) {
+        bookDaoImpl.streamAllBooks(consumer, withComments);
+    }
+
+    public PageDto<SearchHitDto<BookDto>> searchBooks(String text, int[] after, int limit) {
+        float afterRank = after.length == 0 ? Float.POSITIVE_INFINITY : Float.intBitsToFloat(after[0]);
+        int afterId = after.length == 0 ? 0 : after[1];
+        List<SearchHitDto<BookDto>> hits = bookDaoImpl.searchBooks(text, afterRank, afterId, limit + 1);
+        return PageToken.toPage(hits, limit,
+                hit -> new int[]{Float.floatToIntBits(hit.getRank()), hit.getItem().getBookId()});
     }
-}
\ No newline at end of file
+}
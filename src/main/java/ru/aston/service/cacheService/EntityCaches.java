@@ -0,0 +1,464 @@
+package ru.aston.service.cacheService;
+
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.UserDto.UserDto;
+import ru.aston.util.CachedResponse;
+import ru.aston.util.ConsistencyToken;
+import ru.aston.util.PropertiesLoader;
+import ru.aston.util.ReadThroughCache;
+import ru.aston.util.RoutingDataSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Process-wide read-through caches of single books, authors and users, as returned by the by-ID lookups
+ * of their services. Sizes and times are read from {@value #PROPERTIES_FILE}.
+ * <p>
+ * Cached values are filed under the rows they embed, and the services report every write through
+ * {@link #bookChanged}, {@link #authorChanged} and {@link #userChanged}, which evict exactly the values
+ * embedding the row: a comment evicts its book, the authors listing the book with its comment count
+ * and the users having reviewed it. Bulk imports bypass the services and {@link #clear} the caches.
+ * <p>
+ * An eviction for a change with a known WAL position of the primary, e.g. announced by another node, files
+ * that position under the evicted tag for {@code cache.replayWindowMillis}. Loads of values filed under the tag
+ * in that time only read from replicas that have replayed the position, while unrelated reads keep using any
+ * replica. Flushing the caches at a position applies it to all loads in that time. Writes of this node file the
+ * consistency token they issued.
+ * <p>
+ * A request carrying a consistency token beyond the position up to which the changes of all nodes are
+ * {@linkplain #changesSeenThrough known to have been evicted} bypasses the caches, so a client reading its
+ * writes on another node is not served a value cached before the change notification arrived.
+ * <p>
+ * Books and authors are cached with the version of the row they were read from, so lookups answering
+ * a conditional request can demand a value at least as new as the version its ETag is built from.
+ * <p>
+ * The encoded responses of books and authors are cached as well, bounded by their total size in bytes
+ * and keyed by their ETag, so a cached response is never stale; writes evict them to free the memory early.
+ */
+public final class EntityCaches {
+    /**
+     * The classpath properties file configuring the caches.
+     */
+    public static final String PROPERTIES_FILE = "application.properties";
+
+    private static final int BOOK = 1;
+    private static final int AUTHOR = 2;
+    private static final int USER = 3;
+
+    /**
+     * The number of tags with a WAL position beyond which the positions are merged into one for all loads.
+     */
+    private static final int MAX_REQUIREMENTS = 100_000;
+
+    private static final ReadThroughCache<Long, Versioned<BookDto>> BOOKS;
+    private static final ReadThroughCache<Long, Versioned<AuthorDto>> AUTHORS;
+    private static final ReadThroughCache<Long, UserDto> USERS;
+    private static final ReadThroughCache<String, CachedResponse> RESPONSES;
+    private static final long REPLAY_WINDOW_NANOS;
+
+    /**
+     * The WAL position the loads of the values filed under a tag must observe.
+     */
+    private static final ConcurrentMap<Long, Requirement> REQUIREMENTS = new ConcurrentHashMap<>();
+
+    /**
+     * The WAL position all loads must observe after a flush, or null.
+     */
+    private static volatile Requirement flushRequirement;
+
+    /**
+     * The WAL position up to which the changes of all nodes have been evicted.
+     */
+    private static final AtomicLong SEEN_THROUGH = new AtomicLong();
+
+    static {
+        Properties properties = PropertiesLoader.load(PROPERTIES_FILE);
+        long ttlMillis = PropertiesLoader.getLong(properties, "cache.ttlMillis", 300_000);
+        long refreshAheadMillis = PropertiesLoader.getLong(properties, "cache.refreshAheadMillis", 240_000);
+        BOOKS = new ReadThroughCache<>(PropertiesLoader.getInt(properties, "cache.books.maxSize", 10_000),
+                ttlMillis, refreshAheadMillis, book -> tagsOf(book.getValue()));
+        AUTHORS = new ReadThroughCache<>(PropertiesLoader.getInt(properties, "cache.authors.maxSize", 5_000),
+                ttlMillis, refreshAheadMillis, author -> tagsOf(author.getValue()));
+        USERS = new ReadThroughCache<>(PropertiesLoader.getInt(properties, "cache.users.maxSize", 10_000),
+                ttlMillis, refreshAheadMillis, EntityCaches::tagsOf);
+        RESPONSES = new ReadThroughCache<>(PropertiesLoader.getLong(properties, "cache.responses.maxBytes", 32 << 20),
+                CachedResponse::weight, ttlMillis, ttlMillis, CachedResponse::getTags);
+        REPLAY_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(
+                PropertiesLoader.getLong(properties, "cache.replayWindowMillis", 60_000));
+    }
+
+    private EntityCaches() {
+    }
+
+    /**
+     * Returns a book from the cache, loading it on a miss or if the cached book is older than the version.
+     *
+     * @param bookId       The ID of the book.
+     * @param withComments Whether the book is loaded with its comments.
+     * @param minVersion   The least acceptable version, 0 for any.
+     * @param loader       Loads the book with the version of its row, or returns null if it does not exist.
+     * @return The book with the version of the row it was read from, or null if it does not exist.
+     */
+    public static Versioned<BookDto> getBook(int bookId, boolean withComments, long minVersion,
+                                  Function<Long, Versioned<BookDto>> loader) {
+        return getAtLeast(BOOKS, ((long) bookId << 1) | (withComments ? 1 : 0), minVersion,
+                observingChanges(tag(BOOK, bookId), loader, book -> tagsOf(book.getValue())));
+    }
+
+    /**
+     * Returns an author from the cache, loading them on a miss or if the cached author is older than the version.
+     *
+     * @param authorId   The ID of the author.
+     * @param withBooks  Whether the author is loaded with their books.
+     * @param minVersion The least acceptable version, 0 for any.
+     * @param loader     Loads the author with the version of their row, or returns null if they do not exist.
+     * @return The author with the version of the row they were read from, or null if they do not exist.
+     */
+    public static Versioned<AuthorDto> getAuthor(int authorId, boolean withBooks, long minVersion,
+                                      Function<Long, Versioned<AuthorDto>> loader) {
+        return getAtLeast(AUTHORS, ((long) authorId << 1) | (withBooks ? 1 : 0), minVersion,
+                observingChanges(tag(AUTHOR, authorId), loader, author -> tagsOf(author.getValue())));
+    }
+
+    /**
+     * Returns a user from the cache, loading them on a miss.
+     *
+     * @param userId            The ID of the user.
+     * @param withComments      Whether the user is loaded with their comments.
+     * @param withReviewedBooks Whether the user is loaded with the books they reviewed.
+     * @param loader            Loads the user, or returns null if they do not exist.
+     * @return The user, or null if they do not exist.
+     */
+    public static UserDto getUser(int userId, boolean withComments, boolean withReviewedBooks,
+                                  Function<Long, UserDto> loader) {
+        long key = ((long) userId << 2) | (withComments ? 2 : 0) | (withReviewedBooks ? 1 : 0);
+        Function<Long, UserDto> observingLoader = observingChanges(tag(USER, userId), loader, EntityCaches::tagsOf);
+        return isCurrentForToken() ? USERS.get(key, observingLoader) : observingLoader.apply(key);
+    }
+
+    /**
+     * Returns an encoded response from the cache, loading it on a miss.
+     *
+     * @param key    The resource and the ETag of the representation, e.g. {@code "books/1 \"5\""}.
+     * @param loader Loads and encodes the representation, or returns null if the resource does not exist
+     *               or no longer has, or does not yet have on the replica it was read from, the version of the ETag.
+     * @return The response, or null if the loader returned null.
+     */
+    public static CachedResponse getResponse(String key, Function<String, CachedResponse> loader) {
+        return RESPONSES.get(key, loader);
+    }
+
+    /**
+     * Returns the tags a book is cached under, to be given to its cached responses.
+     *
+     * @param book The book.
+     * @return The tags.
+     */
+    public static long[] tagsOf(BookDto book) {
+        return new long[]{tag(BOOK, book.getBookId())};
+    }
+
+    /**
+     * Returns the tags an author is cached under, to be given to their cached responses.
+     *
+     * @param author The author.
+     * @return The tags of the author and of their books.
+     */
+    public static long[] tagsOf(AuthorDto author) {
+        long[] tags = new long[author.getBooks().size() + 1];
+        tags[0] = tag(AUTHOR, author.getAuthorId());
+        for (int i = 1; i < tags.length; i++) {
+            tags[i] = tag(BOOK, author.getBooks().get(i - 1).getBookId());
+        }
+        return tags;
+    }
+
+    /**
+     * Evicts the book and every author and user embedding it after a write of the current thread, which are
+     * reloaded only from replicas that have replayed the consistency token the write issued.
+     *
+     * @param bookId The ID of the created, changed or deleted book, or of the book of a changed comment.
+     */
+    public static void bookChanged(int bookId) {
+        bookChanged(bookId, ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Evicts the book and every author and user embedding it, which are reloaded only from replicas
+     * that have replayed the change.
+     *
+     * @param bookId The ID of the created, changed or deleted book, or of the book of a changed comment.
+     * @param lsn    The primary's WAL position after the change, or null if unknown.
+     */
+    public static void bookChanged(int bookId, String lsn) {
+        long tag = tag(BOOK, bookId);
+        require(tag, lsn);
+        BOOKS.invalidateTag(tag);
+        AUTHORS.invalidateTag(tag);
+        USERS.invalidateTag(tag);
+        RESPONSES.invalidateTag(tag);
+    }
+
+    /**
+     * Evicts the author after a write of the current thread, who is reloaded only from replicas that have
+     * replayed the consistency token the write issued.
+     *
+     * @param authorId The ID of the changed or deleted author, or of the author of a created book.
+     */
+    public static void authorChanged(int authorId) {
+        authorChanged(authorId, ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Evicts the author, who is reloaded only from replicas that have replayed the change.
+     *
+     * @param authorId The ID of the changed or deleted author, or of the author of a created book.
+     * @param lsn      The primary's WAL position after the change, or null if unknown.
+     */
+    public static void authorChanged(int authorId, String lsn) {
+        long tag = tag(AUTHOR, authorId);
+        require(tag, lsn);
+        AUTHORS.invalidateTag(tag);
+        RESPONSES.invalidateTag(tag);
+    }
+
+    /**
+     * Evicts the user after a write of the current thread, who is reloaded only from replicas that have
+     * replayed the consistency token the write issued.
+     *
+     * @param userId The ID of the changed or deleted user, or of the user of a changed comment.
+     */
+    public static void userChanged(int userId) {
+        userChanged(userId, ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Evicts the user, who is reloaded only from replicas that have replayed the change.
+     *
+     * @param userId The ID of the changed or deleted user, or of the user of a changed comment.
+     * @param lsn    The primary's WAL position after the change, or null if unknown.
+     */
+    public static void userChanged(int userId, String lsn) {
+        long tag = tag(USER, userId);
+        require(tag, lsn);
+        USERS.invalidateTag(tag);
+    }
+
+    /**
+     * Evicts everything after a write of the current thread, e.g. a bulk import; everything is reloaded only
+     * from replicas that have replayed the consistency token the write issued.
+     */
+    public static void clear() {
+        clear(ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Evicts everything, e.g. after missing change notifications; everything is reloaded only from replicas
+     * that have replayed the position.
+     *
+     * @param lsn The primary's WAL position all changes to be dropped precede, or null if unknown.
+     */
+    public static void clear(String lsn) {
+        requireForAll(RoutingDataSource.parseLsn(lsn));
+        BOOKS.clear();
+        AUTHORS.clear();
+        USERS.clear();
+        RESPONSES.clear();
+    }
+
+    /**
+     * Records that the changes of all nodes up to a WAL position have been evicted, e.g. because their
+     * notifications have been applied, so requests carrying consistency tokens up to it may use the caches.
+     *
+     * @param lsn The WAL position; a malformed position is ignored.
+     */
+    public static void changesSeenThrough(String lsn) {
+        SEEN_THROUGH.accumulateAndGet(RoutingDataSource.parseLsn(lsn), Math::max);
+    }
+
+    /**
+     * Drops the WAL positions loads have to observe, for testing purposes.
+     */
+    static void clearRequirements() {
+        REQUIREMENTS.clear();
+        flushRequirement = null;
+        SEEN_THROUGH.set(0);
+    }
+
+    /**
+     * Returns the caches keyed by name, e.g. to report their counters.
+     *
+     * @return The caches in a fixed order.
+     */
+    public static Map<String, ReadThroughCache<?, ?>> getCaches() {
+        Map<String, ReadThroughCache<?, ?>> caches = new LinkedHashMap<>();
+        caches.put("books", BOOKS);
+        caches.put("authors", AUTHORS);
+        caches.put("users", USERS);
+        caches.put("responses", RESPONSES);
+        return caches;
+    }
+
+    /**
+     * Returns the cached value if it is at least as new as the version. A stale value is evicted
+     * and reloaded; if the reload joined a load that started before the version was read,
+     * the value is loaded once more without caching it. A replica behind the version may still yield an older value.
+     */
+    private static <T> Versioned<T> getAtLeast(ReadThroughCache<Long, Versioned<T>> cache, long key, long minVersion,
+                                    Function<Long, Versioned<T>> loader) {
+        if (!isCurrentForToken()) {
+            return loader.apply(key);
+        }
+        Versioned<T> cached = cache.get(key, loader);
+        if (cached != null && cached.getVersion() < minVersion) {
+            cache.invalidate(key);
+            cached = cache.get(key, loader);
+            if (cached != null && cached.getVersion() < minVersion) {
+                cached = loader.apply(key);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Wraps a loader so that it reads only from replicas that have replayed the changes evicting the tag
+     * of the value, or any tag of the value it loaded, within the replay window.
+     */
+    private static <V> Function<Long, V> observingChanges(long tag, Function<Long, V> loader,
+                                                          Function<V, long[]> tagger) {
+        return key -> {
+            long required = requiredLsn(new long[]{tag});
+            V value = load(loader, key, required);
+            if (value != null) {
+                long embedded = requiredLsn(tagger.apply(value));
+                if (embedded > required) {
+                    value = load(loader, key, embedded);
+                }
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Tells whether the caches hold every change the consistency token of the current thread requires.
+     */
+    private static boolean isCurrentForToken() {
+        String token = ConsistencyToken.getRequired();
+        return token == null || RoutingDataSource.parseLsn(token) <= SEEN_THROUGH.get();
+    }
+
+    private static <V> V load(Function<Long, V> loader, long key, long lsn) {
+        if (lsn == 0) {
+            return loader.apply(key);
+        }
+        return ConsistencyToken.observing(RoutingDataSource.formatLsn(lsn), () -> loader.apply(key));
+    }
+
+    private static void require(long tag, String lsn) {
+        long position = RoutingDataSource.parseLsn(lsn);
+        if (position <= 0) {
+            return;
+        }
+        REQUIREMENTS.merge(tag, new Requirement(position),
+                (previous, next) -> new Requirement(Math.max(previous.lsn, next.lsn)));
+        if (REQUIREMENTS.size() > MAX_REQUIREMENTS) {
+            long now = System.nanoTime();
+            REQUIREMENTS.values().removeIf(requirement -> !requirement.isActive(now));
+            if (REQUIREMENTS.size() > MAX_REQUIREMENTS) {
+                requireForAll(REQUIREMENTS.values().stream().mapToLong(requirement -> requirement.lsn).max().orElse(0));
+                REQUIREMENTS.clear();
+            }
+        }
+    }
+
+    private static synchronized void requireForAll(long position) {
+        if (position > 0) {
+            Requirement flush = flushRequirement;
+            flushRequirement = new Requirement(Math.max(position, flush == null ? 0 : flush.lsn));
+        }
+    }
+
+    private static long requiredLsn(long[] tags) {
+        long now = System.nanoTime();
+        Requirement flush = flushRequirement;
+        long required = flush != null && flush.isActive(now) ? flush.lsn : 0;
+        for (long tag : tags) {
+            Requirement requirement = REQUIREMENTS.get(tag);
+            if (requirement == null) {
+                continue;
+            }
+            if (requirement.isActive(now)) {
+                required = Math.max(required, requirement.lsn);
+            } else {
+                REQUIREMENTS.remove(tag, requirement);
+            }
+        }
+        return required;
+    }
+
+    private static long[] tagsOf(UserDto user) {
+        long[] tags = new long[user.getReviewedBooks().size() + 1];
+        tags[0] = tag(USER, user.getUserId());
+        for (int i = 1; i < tags.length; i++) {
+            tags[i] = tag(BOOK, user.getReviewedBooks().get(i - 1).getBookId());
+        }
+        return tags;
+    }
+
+    private static long tag(int type, int id) {
+        return ((long) type << 32) | (id & 0xffffffffL);
+    }
+
+    /**
+     * A WAL position loads must observe until the replay window has passed.
+     */
+    private static final class Requirement {
+        private final long lsn;
+        private final long expiresAt = System.nanoTime() + REPLAY_WINDOW_NANOS;
+
+        private Requirement(long lsn) {
+            this.lsn = lsn;
+        }
+
+        private boolean isActive(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+
+    /**
+     * A cached value with the version of the row it was read from.
+     *
+     * @param <T> The type of the value.
+     */
+    public static final class Versioned<T> {
+        private final T value;
+        private final long version;
+
+        /**
+         * Constructs a Versioned value.
+         *
+         * @param value   The value.
+         * @param version The version of the row the value was read from.
+         */
+        public Versioned(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ru.aston.service.cacheService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.shelfService.ShelfCache;
+import ru.aston.util.RoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Process-wide listener applying the {@link ChangeNotifications} of other nodes to the caches and the
+ * {@link AutocompleteIndex} of this node.
+ * It holds one dedicated connection to the primary outside of the pool, so it neither takes a pooled
+ * connection for good nor is cut by the evictor of the pool.
+ * <p>
+ * The primary's WAL position carried by a notification is passed on with the eviction, so the evicted values,
+ * and only those, are not reloaded from a replica that has not replayed the change yet. Notifications without
+ * a position, sent by nodes of an older version, are applied without it.
+ * <p>
+ * Notifications arriving together are deduplicated and applied as one burst; a burst of more than
+ * {@value #MAX_BURST} distinct changes flushes the caches instead. Notifications sent while the listener is
+ * not connected are lost, so the caches are flushed whenever it (re)connects. An idle connection is checked
+ * every poll interval, so a silently dropped connection is noticed.
+ */
+public final class InvalidationListener {
+    private static final Logger LOGGER = LogManager.getLogger(InvalidationListener.class);
+
+    /**
+     * The largest number of distinct changes applied one by one.
+     */
+    static final int MAX_BURST = 1000;
+
+    private static final int POLL_MILLIS = 10_000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+    private static final String CURRENT_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+
+    private static Thread thread;
+    private static volatile boolean listening;
+
+    private InvalidationListener() {
+    }
+
+    /**
+     * Starts listening in the background, replacing a running listener.
+     *
+     * @param url                  The JDBC URL of the primary.
+     * @param connectionProperties The properties of the connection, e.g. {@code user} and {@code password}.
+     * @param reconnectDelayMillis The time to wait before the first attempt to reconnect, doubled on every
+     *                             failed attempt up to 30 seconds.
+     */
+    public static synchronized void start(String url, Properties connectionProperties, long reconnectDelayMillis) {
+        stop();
+        thread = new Thread(() -> listen(url, connectionProperties, reconnectDelayMillis), "cache-invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops listening. The connection is closed within the poll interval.
+     */
+    public static synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Tells whether the listener is connected and receiving notifications.
+     *
+     * @return true if notifications sent from now on are applied.
+     */
+    public static boolean isListening() {
+        return listening;
+    }
+
+    private static void listen(String url, Properties connectionProperties, long reconnectDelayMillis) {
+        long delay = reconnectDelayMillis;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = DriverManager.getConnection(url, connectionProperties);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + ChangeNotifications.CHANNEL);
+                String lsn = null;
+                try (ResultSet resultSet = statement.executeQuery(CURRENT_LSN_QUERY)) {
+                    if (resultSet.next()) {
+                        lsn = resultSet.getString(1);
+                    }
+                }
+                flush(lsn);
+                EntityCaches.changesSeenThrough(lsn);
+                listening = true;
+                LOGGER.info("Listening for cache invalidations on {}", ChangeNotifications.CHANNEL);
+                delay = reconnectDelayMillis;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null || notifications.length == 0) {
+                        statement.execute("SELECT 1");
+                        continue;
+                    }
+                    Set<String> burst = new LinkedHashSet<>();
+                    do {
+                        for (PGNotification notification : notifications) {
+                            burst.add(notification.getParameter());
+                        }
+                        notifications = pgConnection.getNotifications();
+                    } while (notifications != null && notifications.length > 0 && burst.size() <= MAX_BURST);
+                    apply(burst);
+                }
+            } catch (SQLException | RuntimeException e) {
+                listening = false;
+                LOGGER.warn("Cache invalidation listener lost its connection, reconnecting in {} ms", delay, e);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MILLIS);
+            }
+        }
+        listening = false;
+    }
+
+    /**
+     * Applies a burst of change notifications, skipping those of this node, whose changes the services of this
+     * node have already evicted. Afterwards the changes are known to be evicted up to the latest position.
+     *
+     * @param payloads The distinct payloads of the notifications.
+     */
+    static void apply(Set<String> payloads) {
+        String latest = null;
+        for (String payload : payloads) {
+            String[] parts = payload.split(" ");
+            if (parts.length == 4 && RoutingDataSource.parseLsn(parts[3]) > RoutingDataSource.parseLsn(latest)) {
+                latest = parts[3];
+            }
+        }
+        if (payloads.size() > MAX_BURST) {
+            LOGGER.info("Flushing caches after a burst of more than {} changes", MAX_BURST);
+            flush(latest);
+        } else {
+            applyEach(payloads);
+        }
+        EntityCaches.changesSeenThrough(latest);
+    }
+
+    private static void applyEach(Set<String> payloads) {
+        for (String payload : payloads) {
+            String[] parts = payload.split(" ");
+            if (parts.length < 3 || parts.length > 4 || parts[0].equals(ChangeNotifications.NODE_ID)) {
+                continue;
+            }
+            int id;
+            try {
+                id = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignoring malformed change notification {}", payload);
+                continue;
+            }
+            String lsn = parts.length == 4 ? parts[3] : null;
+            switch (parts[1]) {
+                case ChangeNotifications.BOOK:
+                    EntityCaches.bookChanged(id, lsn);
+                    AutocompleteIndex.refreshAsync(SuggestionDto.BOOK, id, lsn);
+                    break;
+                case ChangeNotifications.AUTHOR:
+                    EntityCaches.authorChanged(id, lsn);
+                    AutocompleteIndex.refreshAsync(SuggestionDto.AUTHOR, id, lsn);
+                    break;
+                case ChangeNotifications.USER:
+                    EntityCaches.userChanged(id, lsn);
+                    break;
+                case ChangeNotifications.SHELF:
+                    ShelfCache.invalidate(id);
+                    break;
+                case ChangeNotifications.ALL:
+                    LOGGER.info("Flushing caches after a bulk change on another node");
+                    flush(lsn);
+                    break;
+                default:
+                    LOGGER.warn("Ignoring change notification of unknown type {}", payload);
+            }
+        }
+    }
+
+    private static void flush(String lsn) {
+        EntityCaches.clear(lsn);
+        ShelfCache.clear();
+        AutocompleteIndex.reloadAsync(lsn);
+    }
+}
@@ -2,8 +2,11 @@ package ru.aston.service.commentService;
 
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The interface defining operations related to comment management.
@@ -29,10 +32,64 @@ public interface CommentService {
      */
     List<CommentDto> getAllComments();
 
+    /**
+     * Retrieves a list of all comments, loading user names and book titles only if requested.
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     * @return A list of comment DTOs.
+     */
+    List<CommentDto> getAllComments(boolean withUserAndBook);
+
     /**
      * Retrieves a comment by their ID.
      * @param commentId The ID of the comment to retrieve.
      * @return The comment DTO.
      */
     CommentDto getCommentById(int commentId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves a comment by their ID, loading the user name and book title only if requested.
+     * @param commentId The ID of the comment to retrieve.
+     * @param withUserAndBook Whether to load the user name and book title.
+     * @return The comment DTO.
+     */
+    CommentDto getCommentById(int commentId, boolean withUserAndBook);
+
+    /**
+     * Retrieves a page of comments ordered by ID.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @return The page of comment DTOs with the token of the next page.
+     */
+    PageDto<CommentDto> getCommentsPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of comments ordered by ID, loading user names and book titles only if requested.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     * @return The page of comment DTOs with the token of the next page.
+     */
+    PageDto<CommentDto> getCommentsPage(int afterId, int limit, boolean withUserAndBook);
+
+    /**
+     * Streams all comments one at a time without materializing the whole list.
+     * @param consumer Receives each comment DTO in ID order.
+     */
+    void streamAllComments(Consumer<CommentDto> consumer);
+
+    /**
+     * Streams all comments one at a time, loading user names and book titles only if requested.
+     * @param consumer Receives each comment DTO in ID order.
+     * @param withUserAndBook Whether to load the user name and book title of each comment.
+     */
+    void streamAllComments(Consumer<CommentDto> consumer, boolean withUserAndBook);
+
+    /**
+     * Searches comments by text, best matches first.
+     * @param text The search text in web search syntax: words, "phrases", or, -exclusions.
+     * @param after The sort key the page starts after, as decoded from a page token, or an empty array.
+     * @param limit The page size.
+     * @return The page of hits with the token of the next page.
+     */
+    PageDto<SearchHitDto<CommentDto>> searchComments(String text, int[] after, int limit);
+}
@@ -3,8 +3,13 @@ package ru.aston.service.commentService;
 import ru.aston.dao.commentDao.CommentDaoImpl;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.PageToken;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of interface defining operations related to comment management.
@@ -33,18 +38,58 @@ public class CommentServiceImpl implements CommentService {
     }
 
     public void deleteComment(int commentId) {
-        commentDaoImpl.deleteComment(commentId);
+        CommentShortDto deleted = commentDaoImpl.deleteComment(commentId);
+        EntityCaches.bookChanged(deleted.getBookId());
+        EntityCaches.userChanged(deleted.getUserId());
     }
 
     public CommentShortDto createComment(CommentShortDto commentShortDto) {
-        return commentDaoImpl.postComment(commentShortDto);
+        CommentShortDto created = commentDaoImpl.postComment(commentShortDto);
+        if (created != null) {
+            EntityCaches.bookChanged(created.getBookId());
+            EntityCaches.userChanged(created.getUserId());
+        }
+        return created;
     }
 
     public CommentDto getCommentById(int commentId) {
         return commentDaoImpl.getCommentById(commentId);
     }
 
+    public CommentDto getCommentById(int commentId, boolean withUserAndBook) {
+        return commentDaoImpl.getCommentById(commentId, withUserAndBook);
+    }
+
     public List<CommentDto> getAllComments() {
         return commentDaoImpl.getAllComments();
     }
-}
\ No newline at end of file
+
+    public List<CommentDto> getAllComments(boolean withUserAndBook) {
+        return commentDaoImpl.getAllComments(withUserAndBook);
+    }
+
+    public PageDto<CommentDto> getCommentsPage(int afterId, int limit) {
+        return getCommentsPage(afterId, limit, true);
+    }
+
+    public PageDto<CommentDto> getCommentsPage(int afterId, int limit, boolean withUserAndBook) {
+        List<CommentDto> comments = commentDaoImpl.getCommentsPage(afterId, limit + 1, withUserAndBook);
+        return PageToken.toPage(comments, limit, comment -> new int[]{comment.getCommentId()});
+    }
+
+    public void streamAllComments(Consumer<CommentDto> consumer) {
+        commentDaoImpl.streamAllComments(consumer);
+    }
+
+    public void streamAllComments(Consumer<CommentDto> consumer, boolean withUserAndBook) {
+        commentDaoImpl.streamAllComments(consumer, withUserAndBook);
+    }
+
+    public PageDto<SearchHitDto<CommentDto>> searchComments(String text, int[] after, int limit) {
+        float afterRank = after.length == 0 ? Float.POSITIVE_INFINITY : Float.intBitsToFloat(after[0]);
+        int afterId = after.length == 0 ? 0 : after[1];
+        List<SearchHitDto<CommentDto>> hits = commentDaoImpl.searchComments(text, afterRank, afterId, limit + 1);
+        return PageToken.toPage(hits, limit,
+                hit -> new int[]{Float.floatToIntBits(hit.getRank()), hit.getItem().getCommentId()});
+    }
+}
@@ -0,0 +1,21 @@
+package ru.aston.service.exportService;
+
+import ru.aston.dao.exportDao.ExportFormat;
+import ru.aston.dao.exportDao.ExportTarget;
+
+import java.io.OutputStream;
+
+/**
+ * The interface defining export operations.
+ */
+public interface ExportService {
+
+    /**
+     * Writes all rows of a table to the output stream.
+     * @param target The table to export.
+     * @param format The format to write.
+     * @param output The stream to write to; it is not closed.
+     * @return The number of exported rows.
+     */
+    long export(ExportTarget target, ExportFormat format, OutputStream output);
+}
@@ -0,0 +1,38 @@
+package ru.aston.service.exportService;
+
+import ru.aston.dao.exportDao.ExportDaoImpl;
+import ru.aston.dao.exportDao.ExportFormat;
+import ru.aston.dao.exportDao.ExportTarget;
+
+import java.io.OutputStream;
+
+/**
+ * Implementation of interface defining export operations.
+ */
+public class ExportServiceImpl implements ExportService {
+
+    /**
+     * The data access object streaming tables out of the database.
+     */
+    private final ExportDaoImpl exportDaoImpl;
+
+    /**
+     * Constructs a new ExportServiceImpl instance for regular application use.
+     */
+    public ExportServiceImpl() {
+        this.exportDaoImpl = new ExportDaoImpl();
+    }
+
+    /**
+     * Constructs a new ExportServiceImpl instance for testing purposes.
+     *
+     * @param exportDaoImpl The ExportDaoImpl instance to be used.
+     */
+    public ExportServiceImpl(ExportDaoImpl exportDaoImpl) {
+        this.exportDaoImpl = exportDaoImpl;
+    }
+
+    public long export(ExportTarget target, ExportFormat format, OutputStream output) {
+        return exportDaoImpl.export(target, format, output);
+    }
+}
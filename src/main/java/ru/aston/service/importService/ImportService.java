@@ -0,0 +1,38 @@
+package ru.aston.service.importService;
+
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportSession;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dto.ImportDto.ImportResultDto;
+
+import java.io.InputStream;
+
+/**
+ * The interface defining bulk import operations.
+ */
+public interface ImportService {
+
+    /**
+     * Starts an import whose input is written to the returned session piece by piece.
+     * @param target The entity to import.
+     * @param format The format of the input.
+     * @return The running import.
+     */
+    ImportSession openSession(ImportTarget target, ImportFormat format);
+
+    /**
+     * Completes an import started with {@link #openSession} and drops the cached values it made stale.
+     * @param session The running import whose input has been written completely.
+     * @return The numbers of received, imported and rejected records and the throughput.
+     */
+    ImportResultDto finish(ImportSession session);
+
+    /**
+     * Imports everything readable from the input stream.
+     * @param input The input to import.
+     * @param target The entity to import.
+     * @param format The format of the input.
+     * @return The numbers of received, imported and rejected records and the throughput.
+     */
+    ImportResultDto importFrom(InputStream input, ImportTarget target, ImportFormat format);
+}
@@ -0,0 +1,66 @@
+package ru.aston.service.importService;
+
+import ru.aston.dao.importDao.ImportDaoImpl;
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportSession;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.ConsistencyToken;
+
+import java.io.InputStream;
+
+/**
+ * Implementation of interface defining bulk import operations.
+ */
+public class ImportServiceImpl implements ImportService {
+
+    /**
+     * The data access object loading imports into the database.
+     */
+    private final ImportDaoImpl importDaoImpl;
+
+    /**
+     * Constructs a new ImportServiceImpl instance for regular application use.
+     */
+    public ImportServiceImpl() {
+        this.importDaoImpl = new ImportDaoImpl();
+    }
+
+    /**
+     * Constructs a new ImportServiceImpl instance for testing purposes.
+     *
+     * @param importDaoImpl The ImportDaoImpl instance to be used.
+     */
+    public ImportServiceImpl(ImportDaoImpl importDaoImpl) {
+        this.importDaoImpl = importDaoImpl;
+    }
+
+    public ImportSession openSession(ImportTarget target, ImportFormat format) {
+        return importDaoImpl.openSession(target, format);
+    }
+
+    public ImportResultDto finish(ImportSession session) {
+        return imported(session.finish());
+    }
+
+    public ImportResultDto importFrom(InputStream input, ImportTarget target, ImportFormat format) {
+        return imported(importDaoImpl.importFrom(input, target, format));
+    }
+
+    /**
+     * Drops the values cached by this node after records were imported; the other nodes flush theirs
+     * when the import announces itself.
+     *
+     * @param result The result of the import.
+     * @return The result.
+     */
+    private ImportResultDto imported(ImportResultDto result) {
+        if (result.getImported() > 0) {
+            EntityCaches.clear();
+            AutocompleteIndex.reloadAsync(ConsistencyToken.getRequired());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package ru.aston.service.shelfService;
+
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.CompressedBitmap;
+import ru.aston.util.PropertiesLoader;
+import ru.aston.util.StripedLocks;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide cache of the book IDs on the shelves of users as compressed bitmaps.
+ * Readers get the current immutable bitmap of a user without locking. Loads and updates of a shelf
+ * hold the lock of the user's stripe, so a shelf is changed in the database and in the cache atomically
+ * with respect to other writers of the same user, while writers of other users rarely contend.
+ * Shelves changed by other nodes are {@link #invalidate invalidated} when their change notification arrives;
+ * users and books with shelf entries cannot be deleted, so cached shelves never refer to deleted rows.
+ * A shelf is loaded again {@code cache.shelves.ttlMillis} of {@value EntityCaches#PROPERTIES_FILE} after it was
+ * loaded, so a lost notification is corrected in bounded time; applying a write keeps the time of the load.
+ */
+public final class ShelfCache {
+    /**
+     * The largest number of cached shelves. Beyond it, arbitrary shelves are evicted.
+     */
+    public static final int MAX_SHELVES = 100_000;
+
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(PropertiesLoader.getLong(
+            PropertiesLoader.load(EntityCaches.PROPERTIES_FILE), "cache.shelves.ttlMillis", 300_000));
+
+    private static final Map<Integer, Shelf> SHELVES = new ConcurrentHashMap<>();
+    private static final StripedLocks LOCKS = new StripedLocks(64);
+
+    private ShelfCache() {
+    }
+
+    /**
+     * Returns the cached shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The book IDs on the shelf, or null if the shelf is not cached or has expired.
+     */
+    static CompressedBitmap get(int userId) {
+        Shelf shelf = SHELVES.get(userId);
+        if (shelf == null || System.nanoTime() - shelf.loadedNanos > TTL_NANOS) {
+            return null;
+        }
+        return shelf.bookIds;
+    }
+
+    /**
+     * Caches the shelf of a user just loaded from the database. The caller must hold the user's {@link #lock}.
+     *
+     * @param userId The ID of the user.
+     * @param shelf  The book IDs on the shelf.
+     */
+    static void put(int userId, CompressedBitmap shelf) {
+        store(userId, new Shelf(shelf, System.nanoTime()));
+    }
+
+    /**
+     * Replaces a cached shelf after a write of this node, keeping the time it was loaded.
+     * The caller must hold the user's {@link #lock}.
+     *
+     * @param userId The ID of the user.
+     * @param shelf  The book IDs on the shelf after the write.
+     */
+    static void update(int userId, CompressedBitmap shelf) {
+        Shelf cached = SHELVES.get(userId);
+        if (cached != null) {
+            store(userId, new Shelf(shelf, cached.loadedNanos));
+        }
+    }
+
+    private static void store(int userId, Shelf shelf) {
+        SHELVES.put(userId, shelf);
+        if (SHELVES.size() > MAX_SHELVES) {
+            Iterator<Integer> iterator = SHELVES.keySet().iterator();
+            while (SHELVES.size() > MAX_SHELVES && iterator.hasNext()) {
+                if (iterator.next() != userId) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the lock serializing loads and updates of the shelf of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The lock of the user's stripe.
+     */
+    static ReentrantLock lock(int userId) {
+        return LOCKS.get(userId);
+    }
+
+    /**
+     * Removes the cached shelf of a user, e.g. after another node changed it. Holds the user's lock,
+     * so a load that read the shelf before the change cannot cache it after the removal.
+     *
+     * @param userId The ID of the user.
+     */
+    public static void invalidate(int userId) {
+        ReentrantLock lock = lock(userId);
+        lock.lock();
+        try {
+            SHELVES.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached shelves.
+     */
+    public static void clear() {
+        SHELVES.clear();
+    }
+
+    /**
+     * A cached shelf with the time it was loaded.
+     */
+    private static final class Shelf {
+        private final CompressedBitmap bookIds;
+        private final long loadedNanos;
+
+        Shelf(CompressedBitmap bookIds, long loadedNanos) {
+            this.bookIds = bookIds;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
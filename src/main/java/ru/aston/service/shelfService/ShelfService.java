@@ -0,0 +1,52 @@
+package ru.aston.service.shelfService;
+
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.PageDto.PageDto;
+
+import java.util.Map;
+
+/**
+ * The interface defining operations on the bookshelves of users.
+ */
+public interface ShelfService {
+
+    /**
+     * Puts a book on the shelf of a user.
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was added, false if it already was on the shelf.
+     */
+    boolean addBook(int userId, int bookId);
+
+    /**
+     * Takes a book off the shelf of a user.
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book was removed, false if it was not on the shelf.
+     */
+    boolean removeBook(int userId, int bookId);
+
+    /**
+     * Tells whether a book is on the shelf of a user.
+     * @param userId The ID of the user.
+     * @param bookId The ID of the book.
+     * @return true if the book is on the shelf.
+     */
+    boolean isOnShelf(int userId, int bookId);
+
+    /**
+     * Retrieves a page of the books on the shelf of a user ordered by ID.
+     * @param userId  The ID of the user.
+     * @param afterId The book ID the page starts after, 0 for the first page.
+     * @param limit   The maximal number of books on the page.
+     * @return The page with the token of the next page.
+     */
+    PageDto<BookDto> getShelfPage(int userId, int afterId, int limit);
+
+    /**
+     * Counts the users having each of the books on their shelves.
+     * @param bookIds The IDs of the books.
+     * @return The number of readers by book ID in the order of the IDs, including books without readers.
+     */
+    Map<Integer, Long> countReaders(int[] bookIds);
+}
@@ -0,0 +1,112 @@
+package ru.aston.service.shelfService;
+
+import ru.aston.dao.shelfDao.ShelfDaoImpl;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.util.CompressedBitmap;
+import ru.aston.util.PageToken;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of interface defining operations on the bookshelves of users.
+ * Membership checks are answered from the {@link ShelfCache}, which is loaded from the primary database.
+ * Adding and removing books always run their statement, whose outcome is then applied to the cached shelf,
+ * so a cached shelf never decides whether the database is changed.
+ */
+public class ShelfServiceImpl implements ShelfService {
+
+    /**
+     * The data access object for interacting with shelf data in the database.
+     */
+    private final ShelfDaoImpl shelfDaoImpl;
+
+    /**
+     * Constructs a new ShelfServiceImpl instance for regular application use.
+     */
+    public ShelfServiceImpl() {
+        this.shelfDaoImpl = new ShelfDaoImpl();
+    }
+
+    /**
+     * Constructs a new ShelfServiceImpl instance for testing purposes.
+     *
+     * @param shelfDaoImpl The ShelfDaoImpl instance to be used.
+     */
+    public ShelfServiceImpl(ShelfDaoImpl shelfDaoImpl) {
+        this.shelfDaoImpl = shelfDaoImpl;
+    }
+
+    public boolean addBook(int userId, int bookId) {
+        ReentrantLock lock = ShelfCache.lock(userId);
+        lock.lock();
+        try {
+            boolean added = shelfDaoImpl.addBook(userId, bookId);
+            CompressedBitmap shelf = ShelfCache.get(userId);
+            if (shelf != null) {
+                ShelfCache.update(userId, shelf.with(bookId));
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean removeBook(int userId, int bookId) {
+        ReentrantLock lock = ShelfCache.lock(userId);
+        lock.lock();
+        try {
+            boolean removed = shelfDaoImpl.removeBook(userId, bookId);
+            CompressedBitmap shelf = ShelfCache.get(userId);
+            if (shelf != null) {
+                ShelfCache.update(userId, shelf.without(bookId));
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isOnShelf(int userId, int bookId) {
+        return getShelf(userId).contains(bookId);
+    }
+
+    public PageDto<BookDto> getShelfPage(int userId, int afterId, int limit) {
+        List<BookDto> books = shelfDaoImpl.getBooksPage(userId, afterId, limit + 1);
+        return PageToken.toPage(books, limit, book -> new int[]{book.getBookId()});
+    }
+
+    public Map<Integer, Long> countReaders(int[] bookIds) {
+        Map<Integer, Long> counted = shelfDaoImpl.countReaders(bookIds);
+        Map<Integer, Long> readers = new LinkedHashMap<>();
+        for (int bookId : bookIds) {
+            readers.put(bookId, counted.getOrDefault(bookId, 0L));
+        }
+        return readers;
+    }
+
+    /**
+     * Returns the cached shelf of a user, loading it under the user's lock on a miss.
+     */
+    private CompressedBitmap getShelf(int userId) {
+        CompressedBitmap shelf = ShelfCache.get(userId);
+        if (shelf != null) {
+            return shelf;
+        }
+        ReentrantLock lock = ShelfCache.lock(userId);
+        lock.lock();
+        try {
+            shelf = ShelfCache.get(userId);
+            if (shelf == null) {
+                shelf = CompressedBitmap.of(shelfDaoImpl.getBookIds(userId));
+                ShelfCache.put(userId, shelf);
+            }
+            return shelf;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ru.aston.service.userService;
 
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
+import ru.aston.dto.PageDto.PageDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The interface defining operations related to user management.
@@ -29,10 +31,59 @@ public interface UserService {
      */
     List<UserDto> getAllUsers();
 
+    /**
+     * Retrieves a list of all users, loading their comments and reviewed books only if requested.
+     * @param withComments Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return A list of user DTOs.
+     */
+    List<UserDto> getAllUsers(boolean withComments, boolean withReviewedBooks);
+
     /**
      * Retrieves a user by their ID.
      * @param userId The ID of the user to retrieve.
      * @return The user DTO.
      */
     UserDto getUserById(int userId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves a user by their ID, loading their comments and reviewed books only if requested.
+     * @param userId The ID of the user to retrieve.
+     * @param withComments Whether to load the comments of the user.
+     * @param withReviewedBooks Whether to load the reviewed books of the user.
+     * @return The user DTO.
+     */
+    UserDto getUserById(int userId, boolean withComments, boolean withReviewedBooks);
+
+    /**
+     * Retrieves a page of users ordered by ID.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @return The page of user DTOs with the token of the next page.
+     */
+    PageDto<UserDto> getUsersPage(int afterId, int limit);
+
+    /**
+     * Retrieves a page of users ordered by ID, loading their comments and reviewed books only if requested.
+     * @param afterId The ID the page starts after, 0 for the first page.
+     * @param limit The page size.
+     * @param withComments Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     * @return The page of user DTOs with the token of the next page.
+     */
+    PageDto<UserDto> getUsersPage(int afterId, int limit, boolean withComments, boolean withReviewedBooks);
+
+    /**
+     * Streams all users one at a time without materializing the whole list.
+     * @param consumer Receives each user DTO in ID order.
+     */
+    void streamAllUsers(Consumer<UserDto> consumer);
+
+    /**
+     * Streams all users one at a time, loading their comments and reviewed books only if requested.
+     * @param consumer Receives each user DTO in ID order.
+     * @param withComments Whether to load the comments of each user.
+     * @param withReviewedBooks Whether to load the reviewed books of each user.
+     */
+    void streamAllUsers(Consumer<UserDto> consumer, boolean withComments, boolean withReviewedBooks);
+}
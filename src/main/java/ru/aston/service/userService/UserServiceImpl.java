@@ -3,8 +3,12 @@ package ru.aston.service.userService;
 import ru.aston.dao.userDao.UserDaoImpl;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.PageToken;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of interface defining operations related to user management.
@@ -38,13 +42,40 @@ public class UserServiceImpl implements UserService {
 
     public void deleteUser(int userId) {
         userDaoImpl.deleteUser(userId);
+        EntityCaches.userChanged(userId);
     }
 
     public List<UserDto> getAllUsers() {
         return userDaoImpl.getAllUsers();
     }
 
+    public List<UserDto> getAllUsers(boolean withComments, boolean withReviewedBooks) {
+        return userDaoImpl.getAllUsers(withComments, withReviewedBooks);
+    }
+
     public UserDto getUserById(int userId) {
         return userDaoImpl.getUserById(userId);
     }
-}
\ No newline at end of file
+
+    public UserDto getUserById(int userId, boolean withComments, boolean withReviewedBooks) {
+        return EntityCaches.getUser(userId, withComments, withReviewedBooks,
+                key -> userDaoImpl.getUserById(userId, withComments, withReviewedBooks));
+    }
+
+    public PageDto<UserDto> getUsersPage(int afterId, int limit) {
+        return getUsersPage(afterId, limit, true, true);
+    }
+
+    public PageDto<UserDto> getUsersPage(int afterId, int limit, boolean withComments, boolean withReviewedBooks) {
+        List<UserDto> users = userDaoImpl.getUsersPage(afterId, limit + 1, withComments, withReviewedBooks);
+        return PageToken.toPage(users, limit, user -> new int[]{user.getUserId()});
+    }
+
+    public void streamAllUsers(Consumer<UserDto> consumer) {
+        userDaoImpl.streamAllUsers(consumer);
+    }
+
+    public void streamAllUsers(Consumer<UserDto> consumer, boolean withComments, boolean withReviewedBooks) {
+        userDaoImpl.streamAllUsers(consumer, withComments, withReviewedBooks);
+    }
+}
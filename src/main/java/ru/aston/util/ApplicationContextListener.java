@@ -0,0 +1,67 @@
+package ru.aston.util;
+
+import ru.aston.service.authorStatsService.AuthorStatsRefresher;
+import ru.aston.service.authorStatsService.AuthorStatsServiceImpl;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.autocompleteService.AutocompleteServiceImpl;
+import ru.aston.service.cacheService.InvalidationListener;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Manages application-wide resources over the lifecycle of the web application.
+ */
+@WebListener
+public class ApplicationContextListener implements ServletContextListener {
+
+    /**
+     * Brings the database schema up to date when the web application is started,
+     * unless {@code migrations.enabled} is false, loads the autocomplete index, schedules the refresh
+     * of the author statistics every {@code authorStats.refreshIntervalMillis}, unless it is 0,
+     * and listens for the cache invalidations of other nodes, unless {@code cacheInvalidation.enabled} is false.
+     * A failing migration stops the application.
+     *
+     * @param sce The servlet context event.
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        Properties properties = ConnectionPoolRegistry.getProperties();
+        if (PropertiesLoader.getBoolean(properties, "migrations.enabled", true)) {
+            DataSource dataSource = ConnectionManager.getDataSource();
+            if (dataSource instanceof RoutingDataSource) {
+                dataSource = ((RoutingDataSource) dataSource).getPrimary();
+            }
+            new MigrationRunner(dataSource).migrate();
+        }
+        new AutocompleteServiceImpl().load();
+        long refreshIntervalMillis = PropertiesLoader.getLong(properties, "authorStats.refreshIntervalMillis", 60_000);
+        if (refreshIntervalMillis > 0) {
+            AuthorStatsRefresher.start(new AuthorStatsServiceImpl(), refreshIntervalMillis);
+        }
+        if (PropertiesLoader.getBoolean(properties, "cacheInvalidation.enabled", true)) {
+            Properties connectionProperties = new Properties();
+            connectionProperties.setProperty("user", properties.getProperty("jdbc.username"));
+            connectionProperties.setProperty("password", properties.getProperty("jdbc.password"));
+            InvalidationListener.start(properties.getProperty("jdbc.url"), connectionProperties,
+                    PropertiesLoader.getLong(properties, "cacheInvalidation.reconnectDelayMillis", 1000));
+        }
+    }
+
+    /**
+     * Releases shared resources when the web application is stopped.
+     *
+     * @param sce The servlet context event.
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        AuthorStatsRefresher.stop();
+        InvalidationListener.stop();
+        AutocompleteIndex.shutdown();
+        ReadThroughCache.shutdown();
+        ConnectionManager.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.aston.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Checksum;
+
+/**
+ * The encoded JSON body of a response, kept as is and compressed, so a cached representation is sent
+ * without serializing or compressing it again. The raw deflate data is kept once with the checksums of both
+ * content codings and framed as gzip or deflate when it is sent. Bodies shorter than {@value #MIN_GZIP_LENGTH}
+ * bytes and bodies that do not shrink are not compressed. Instances are immutable and may be shared between
+ * threads.
+ */
+public final class CachedResponse {
+    /**
+     * The shortest body that is compressed; below it the gzip header outweighs the savings.
+     */
+    public static final int MIN_GZIP_LENGTH = 256;
+
+    /**
+     * The estimated memory held by an instance apart from its bodies and tags.
+     */
+    private static final int OVERHEAD = 64;
+
+    private final byte[] body;
+    private final byte[] deflated;
+    private final long[] checksums;
+    private final long[] tags;
+
+    private CachedResponse(byte[] body, byte[] deflated, long[] checksums, long[] tags) {
+        this.body = body;
+        this.deflated = deflated;
+        this.checksums = checksums;
+        this.tags = tags;
+    }
+
+    /**
+     * Creates a response from its JSON body, compressing it if it is worth it.
+     *
+     * @param body The UTF-8 encoded JSON body.
+     * @param tags The tags the response is cached under.
+     * @return The response.
+     */
+    public static CachedResponse of(byte[] body, long[] tags) {
+        if (body.length >= MIN_GZIP_LENGTH) {
+            byte[] deflated = DeflaterPool.getDefault().deflate(body);
+            if (deflated.length + ContentCoding.GZIP.framingLength() < body.length) {
+                long[] checksums = new long[ContentCoding.values().length];
+                for (ContentCoding coding : ContentCoding.values()) {
+                    Checksum checksum = coding.newChecksum();
+                    checksum.update(body, 0, body.length);
+                    checksums[coding.ordinal()] = checksum.getValue();
+                }
+                return new CachedResponse(body, deflated, checksums, tags);
+            }
+        }
+        return new CachedResponse(body, null, null, tags);
+    }
+
+    /**
+     * Encodes the selected properties of a value as a JSON response.
+     *
+     * @param selection The properties and relations to write.
+     * @param value     The value.
+     * @param tags      The tags the response is cached under.
+     * @return The response.
+     * @throws UncheckedIOException If the value cannot be serialized.
+     */
+    public static CachedResponse encode(FieldSelection selection, Object value, long[] tags) {
+        try {
+            return of(selection.writeAsBytes(value), tags);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long[] getTags() {
+        return tags;
+    }
+
+    /**
+     * Estimates the memory held by the response.
+     *
+     * @return The estimated size in bytes.
+     */
+    public int weight() {
+        return OVERHEAD + body.length + (deflated == null ? 0 : deflated.length) + 8 * tags.length;
+    }
+
+    /**
+     * Writes the response with its Content-Length, compressed if the request accepts gzip or deflate.
+     * A compressed body is a different representation, so its ETag gets the name of the coding as a suffix.
+     *
+     * @param req  The request.
+     * @param resp The response.
+     * @param eTag The quoted ETag of the uncompressed body.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(HttpServletRequest req, HttpServletResponse resp, String eTag) throws IOException {
+        ContentCoding coding = deflated == null ? null : ContentCoding.negotiate(req.getHeader("Accept-Encoding"));
+        resp.setContentType("application/json");
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (coding == null) {
+            resp.setContentLength(body.length);
+            resp.getOutputStream().write(body);
+            return;
+        }
+        resp.setHeader("Content-Encoding", coding.getName());
+        resp.setHeader("ETag", coding.eTag(eTag));
+        resp.setContentLength(coding.framingLength() + deflated.length);
+        ServletOutputStream out = resp.getOutputStream();
+        coding.writeHeader(out);
+        out.write(deflated);
+        coding.writeTrailer(out, checksums[coding.ordinal()], body.length);
+    }
+
+    /**
+     * Tells whether an Accept-Encoding header allows a gzip-compressed response.
+     *
+     * @param acceptEncoding The value of the header, or null.
+     * @return true if gzip, or {@code *} in its place, is listed without a zero quality.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        return ContentCoding.GZIP.quality(acceptEncoding) > 0;
+    }
+}
@@ -0,0 +1,274 @@
+package ru.aston.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed set of ints in the layout of roaring bitmaps. Values are grouped by their upper 16 bits;
+ * each group is stored as a sorted array of the lower 16 bits while it holds at most {@value #ARRAY_MAX_SIZE}
+ * values, and as a 65536-bit bitmap beyond that. A sparse set therefore costs about 2 bytes per value
+ * and a dense one about 1 bit, and membership is two binary searches or a bit test.
+ * Updates return a new set sharing the unchanged groups, so sets can be read without locking.
+ */
+public final class CompressedBitmap {
+    /**
+     * The largest number of values of a group stored as a sorted array.
+     */
+    public static final int ARRAY_MAX_SIZE = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /**
+     * The empty set.
+     */
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Object[0], new int[0], 0);
+
+    /**
+     * The upper 16 bits of the groups in ascending order.
+     */
+    private final char[] keys;
+
+    /**
+     * The lower 16 bits of the values of every group, a sorted {@code char[]} or a {@code long[]} bitmap.
+     */
+    private final Object[] containers;
+    private final int[] cardinalities;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Object[] containers, int[] cardinalities, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinalities = cardinalities;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Creates a set of the values.
+     *
+     * @param values The values in any order; duplicates are ignored.
+     * @return The set.
+     */
+    public static CompressedBitmap of(int... values) {
+        int[] sorted = values.clone();
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] ^= Integer.MIN_VALUE;
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] ^= Integer.MIN_VALUE;
+        }
+        char[] keys = new char[sorted.length];
+        Object[] containers = new Object[sorted.length];
+        int[] cardinalities = new int[sorted.length];
+        int groups = 0;
+        int total = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            char key = high(sorted[i]);
+            char[] lows = new char[Math.min(sorted.length - i, 1 << 16)];
+            int size = 0;
+            for (; i < sorted.length && high(sorted[i]) == key; i++) {
+                char low = (char) sorted[i];
+                if (size == 0 || lows[size - 1] != low) {
+                    lows[size++] = low;
+                }
+            }
+            keys[groups] = key;
+            containers[groups] = size > ARRAY_MAX_SIZE ? toBitmap(lows, size) : Arrays.copyOf(lows, size);
+            cardinalities[groups] = size;
+            groups++;
+            total += size;
+        }
+        return new CompressedBitmap(Arrays.copyOf(keys, groups), Arrays.copyOf(containers, groups),
+                Arrays.copyOf(cardinalities, groups), total);
+    }
+
+    /**
+     * Tells whether the set contains the value.
+     *
+     * @param value The value.
+     * @return true if the value is in the set.
+     */
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        if (index < 0) {
+            return false;
+        }
+        Object container = containers[index];
+        char low = (char) value;
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * Returns the set with the value added.
+     *
+     * @param value The value.
+     * @return The new set, or this set if it already contains the value.
+     */
+    public CompressedBitmap with(int value) {
+        if (contains(value)) {
+            return this;
+        }
+        char key = high(value);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            int position = -index - 1;
+            return new CompressedBitmap(insert(keys, position, key),
+                    insert(containers, position, new char[]{low}),
+                    insert(cardinalities, position, 1), cardinality + 1);
+        }
+        Object container = containers[index];
+        Object updated;
+        if (container instanceof char[]) {
+            char[] lows = (char[]) container;
+            int position = -Arrays.binarySearch(lows, low) - 1;
+            char[] added = new char[lows.length + 1];
+            System.arraycopy(lows, 0, added, 0, position);
+            added[position] = low;
+            System.arraycopy(lows, position, added, position + 1, lows.length - position);
+            updated = added.length > ARRAY_MAX_SIZE ? toBitmap(added, added.length) : added;
+        } else {
+            long[] bits = ((long[]) container).clone();
+            bits[low >>> 6] |= 1L << low;
+            updated = bits;
+        }
+        return replace(index, updated, cardinalities[index] + 1, cardinality + 1);
+    }
+
+    /**
+     * Returns the set with the value removed.
+     *
+     * @param value The value.
+     * @return The new set, or this set if it does not contain the value.
+     */
+    public CompressedBitmap without(int value) {
+        if (!contains(value)) {
+            return this;
+        }
+        int index = Arrays.binarySearch(keys, high(value));
+        int size = cardinalities[index] - 1;
+        if (size == 0) {
+            return new CompressedBitmap(remove(keys, index), remove(containers, index),
+                    remove(cardinalities, index), cardinality - 1);
+        }
+        Object container = containers[index];
+        char low = (char) value;
+        Object updated;
+        if (container instanceof char[]) {
+            char[] lows = (char[]) container;
+            int position = Arrays.binarySearch(lows, low);
+            char[] removed = new char[lows.length - 1];
+            System.arraycopy(lows, 0, removed, 0, position);
+            System.arraycopy(lows, position + 1, removed, position, lows.length - position - 1);
+            updated = removed;
+        } else {
+            long[] bits = ((long[]) container).clone();
+            bits[low >>> 6] &= ~(1L << low);
+            updated = size > ARRAY_MAX_SIZE ? bits : toArray(bits, size);
+        }
+        return replace(index, updated, size, cardinality - 1);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return The number of values.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Estimates the memory held by the set, ignoring object headers.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long sizeInBytes() {
+        long size = keys.length * (2L + 4L + 8L);
+        for (Object container : containers) {
+            size += container instanceof char[] ? 2L * ((char[]) container).length : 8L * BITMAP_WORDS;
+        }
+        return size;
+    }
+
+    private CompressedBitmap replace(int index, Object container, int groupCardinality, int newCardinality) {
+        Object[] newContainers = containers.clone();
+        newContainers[index] = container;
+        int[] newCardinalities = cardinalities.clone();
+        newCardinalities[index] = groupCardinality;
+        return new CompressedBitmap(keys, newContainers, newCardinalities, newCardinality);
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static long[] toBitmap(char[] lows, int size) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) {
+            bits[lows[i] >>> 6] |= 1L << lows[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int size) {
+        char[] lows = new char[size];
+        int count = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                lows[count++] = (char) (word * 64 + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return lows;
+    }
+
+    private static char[] insert(char[] array, int position, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static Object[] insert(Object[] array, int position, Object value) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static int[] insert(int[] array, int position, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static char[] remove(char[] array, int position) {
+        char[] result = new char[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    private static Object[] remove(Object[] array, int position) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    private static int[] remove(int[] array, int position) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.aston.util;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses a response body in a content coding while it is written, with a Deflater borrowed from a pool.
+ * Flushing sends everything written so far, so streamed responses reach the client in chunks.
+ * The Deflater is returned to the pool by {@link #finish()} or {@link #abort()}.
+ */
+final class CompressingOutputStream extends ServletOutputStream {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ServletOutputStream out;
+    private final ContentCoding coding;
+    private final DeflaterPool pool;
+    private final Deflater deflater;
+    private final DeflaterOutputStream deflating;
+    private final Checksum checksum;
+    private long length;
+    private boolean finished;
+
+    /**
+     * Constructs the stream and writes the header of the coding.
+     *
+     * @param out    The stream of the response.
+     * @param coding The content coding.
+     * @param pool   The pool to borrow the Deflater from.
+     * @throws IOException If writing the header fails.
+     */
+    CompressingOutputStream(ServletOutputStream out, ContentCoding coding, DeflaterPool pool) throws IOException {
+        this.out = out;
+        this.coding = coding;
+        this.pool = pool;
+        this.deflater = pool.borrow();
+        this.deflating = new DeflaterOutputStream(out, deflater, BUFFER_SIZE, true);
+        this.checksum = coding.newChecksum();
+        try {
+            coding.writeHeader(out);
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        checksum.update(b);
+        length++;
+        deflating.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        checksum.update(b, off, len);
+        length += len;
+        deflating.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!finished) {
+            deflating.flush();
+        }
+    }
+
+    /**
+     * Writes the rest of the compressed body and the trailer of the coding and returns the Deflater.
+     * Does nothing if the stream is already finished.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            deflating.finish();
+            coding.writeTrailer(out, checksum.getValue(), length);
+        } finally {
+            finished = true;
+            pool.release(deflater);
+        }
+    }
+
+    /**
+     * Returns the Deflater without completing the body, e.g. after the request failed.
+     */
+    public void abort() {
+        if (!finished) {
+            finished = true;
+            pool.release(deflater);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    @Override
+    public boolean isReady() {
+        return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        out.setWriteListener(writeListener);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("The compressed body is already finished");
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package ru.aston.util;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Compresses response bodies in the content coding negotiated from the request's Accept-Encoding header,
+ * gzip or deflate, while they are written. Only the first {@code compression.minBytes} bytes of
+ * {@value JsonCodec#PROPERTIES_FILE} are held back: a body that ends or declares a Content-Length below them
+ * is sent uncompressed, as the framing and the work would outweigh the savings, and a longer body is compressed
+ * from then on without being buffered. Flushes reach the client, so streamed lists keep streaming.
+ * <p>
+ * Responses that already have a Content-Encoding, e.g. the pre-compressed bodies of {@link CachedResponse},
+ * are passed through, as are HEAD requests, errors, bodies of types that do not compress and responses
+ * whose body is written asynchronously before the first bytes are compressed.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class CompressionFilter implements Filter {
+    private final int minBytes;
+    private final DeflaterPool pool;
+
+    public CompressionFilter() {
+        Properties properties = PropertiesLoader.load(JsonCodec.PROPERTIES_FILE);
+        this.minBytes = Math.max(0, PropertiesLoader.getInt(properties, "compression.minBytes", 1024));
+        this.pool = DeflaterPool.getDefault();
+    }
+
+    // Constructor for testing
+    public CompressionFilter(int minBytes, DeflaterPool pool) {
+        this.minBytes = minBytes;
+        this.pool = pool;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        ContentCoding coding = "HEAD".equals(httpRequest.getMethod())
+                ? null : ContentCoding.negotiate(httpRequest.getHeader("Accept-Encoding"));
+        if (coding == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse((HttpServletResponse) response, coding);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, compressing);
+            completed = true;
+        } finally {
+            if (!completed) {
+                compressing.abort();
+            }
+        }
+        if (request.isAsyncStarted()) {
+            compressing.continueAsync(request.getAsyncContext());
+        } else {
+            compressing.finish();
+        }
+    }
+
+    /**
+     * Tells whether bodies of a content type are worth compressing: text and JSON are, images and archives
+     * are compressed already.
+     *
+     * @param contentType The Content-Type header, may be null.
+     * @return true if the type compresses.
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.split(";")[0].trim().toLowerCase();
+        return type.startsWith("text/") || type.equals("application/json") || type.endsWith("+json")
+                || type.equals("application/xml") || type.endsWith("+xml") || type.equals("application/javascript");
+    }
+
+    private enum State {
+        UNDECIDED, PASS_THROUGH, COMPRESSING
+    }
+
+    /**
+     * The response seen by the servlet. It holds back the start of the body until it is long enough to
+     * decide, and intercepts the headers which depend on the decision.
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+        private final ContentCoding coding;
+        private State state = State.UNDECIDED;
+        private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private long contentLength = -1;
+        private String eTag;
+        private String vary;
+        private CompressingOutputStream compressor;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response, ContentCoding coding) {
+            super(response);
+            this.coding = coding;
+        }
+
+        private HttpServletResponse response() {
+            return (HttpServletResponse) getResponse();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return body();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                String encoding = getCharacterEncoding();
+                writer = new PrintWriter(new OutputStreamWriter(body(),
+                        encoding == null ? StandardCharsets.ISO_8859_1.name() : encoding));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (state == State.PASS_THROUGH) {
+                super.setContentLengthLong(len);
+            } else if (state == State.UNDECIDED) {
+                contentLength = len;
+                if (len < minBytes) {
+                    passThrough();
+                }
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (intercept(name, value, false)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (intercept(name, value, true)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (intercept(name, Integer.toString(value), false)) {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (intercept(name, Integer.toString(value), true)) {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            super.setStatus(sc);
+            if (sc == SC_NO_CONTENT || sc == SC_NOT_MODIFIED) {
+                passThrough();
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            discard();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            discard();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            discard();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (state == State.UNDECIDED) {
+                pending.reset();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (state == State.COMPRESSING) {
+                compressor.abort();
+                compressor = null;
+            }
+            state = State.UNDECIDED;
+            pending = new ByteArrayOutputStream();
+            contentLength = -1;
+            eTag = null;
+            vary = null;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (state == State.COMPRESSING) {
+                compressor.flush();
+            } else if (state == State.PASS_THROUGH) {
+                super.flushBuffer();
+            }
+        }
+
+        /**
+         * Handles a header set by the servlet.
+         *
+         * @return true if the header is to be set on the response as is.
+         */
+        private boolean intercept(String name, String value, boolean add) {
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    setContentLengthLong(Long.parseLong(value.trim()));
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+                return false;
+            }
+            if (name.equalsIgnoreCase("Content-Encoding")) {
+                if (state == State.COMPRESSING) {
+                    return false;
+                }
+                passThrough();
+            } else if (name.equalsIgnoreCase("ETag")) {
+                eTag = value;
+                if (state == State.COMPRESSING) {
+                    super.setHeader(name, codedETag(value));
+                    return false;
+                }
+            } else if (name.equalsIgnoreCase("Vary")) {
+                vary = add && vary != null ? vary + ", " + value : value;
+                if (state == State.COMPRESSING) {
+                    super.setHeader(name, varyByEncoding());
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ServletOutputStream body() {
+            if (stream == null) {
+                stream = new BodyStream();
+            }
+            return stream;
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            switch (state) {
+                case COMPRESSING:
+                    compressor.write(b, off, len);
+                    break;
+                case PASS_THROUGH:
+                    response().getOutputStream().write(b, off, len);
+                    break;
+                default:
+                    pending.write(b, off, len);
+                    if (pending.size() >= minBytes) {
+                        decide();
+                    }
+            }
+        }
+
+        private void flush() throws IOException {
+            if (state == State.COMPRESSING) {
+                compressor.flush();
+            } else if (state == State.PASS_THROUGH) {
+                response().getOutputStream().flush();
+            }
+        }
+
+        private void decide() throws IOException {
+            if (isCompressible(getContentType()) && !isCommitted()) {
+                startCompressing();
+            } else {
+                passThrough();
+            }
+        }
+
+        private void startCompressing() throws IOException {
+            super.setHeader("Content-Encoding", coding.getName());
+            super.setHeader("Vary", varyByEncoding());
+            if (eTag != null) {
+                super.setHeader("ETag", codedETag(eTag));
+            }
+            compressor = new CompressingOutputStream(response().getOutputStream(), coding, pool);
+            state = State.COMPRESSING;
+            pending.writeTo(compressor);
+            pending = null;
+        }
+
+        /**
+         * Sends the body uncompressed from now on, with the held back bytes and the declared Content-Length.
+         */
+        private void passThrough() {
+            if (state != State.UNDECIDED) {
+                return;
+            }
+            state = State.PASS_THROUGH;
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            if (pending.size() > 0) {
+                try {
+                    pending.writeTo(response().getOutputStream());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot write the response body", e);
+                }
+            }
+            pending = null;
+        }
+
+        /**
+         * Drops the body before an error or a redirect. A compressed body which is not committed yet
+         * is reset with its headers, so the error page is not sent with the Content-Encoding of the body.
+         */
+        private void discard() {
+            if (state == State.COMPRESSING && !isCommitted()) {
+                reset();
+            }
+            if (state == State.UNDECIDED) {
+                state = State.PASS_THROUGH;
+                pending = null;
+            }
+        }
+
+        private String codedETag(String value) {
+            return value.endsWith("\"") ? coding.eTag(value) : value;
+        }
+
+        private String varyByEncoding() {
+            if (vary == null || vary.isBlank()) {
+                return "Accept-Encoding";
+            }
+            for (String field : vary.split(",")) {
+                if (field.trim().equalsIgnoreCase("Accept-Encoding") || field.trim().equals("*")) {
+                    return vary;
+                }
+            }
+            return vary + ", Accept-Encoding";
+        }
+
+        /**
+         * Completes the body after the servlet returned: a short body is sent as is with its length,
+         * a compressed one gets the trailer of the coding.
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (state == State.UNDECIDED) {
+                if (contentLength < 0 && !isCommitted()) {
+                    contentLength = pending.size();
+                }
+                passThrough();
+            } else if (state == State.COMPRESSING) {
+                compressor.finish();
+            }
+        }
+
+        /**
+         * Continues a response whose body is written asynchronously. The held back bytes are sent uncompressed
+         * and so is the rest; a body that is already compressed is completed when the request completes.
+         */
+        void continueAsync(AsyncContext asyncContext) {
+            if (state == State.UNDECIDED) {
+                passThrough();
+            } else if (state == State.COMPRESSING) {
+                asyncContext.addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        finish();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        abort();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        }
+
+        /**
+         * Returns the Deflater of a body that will not be completed.
+         */
+        void abort() {
+            if (compressor != null) {
+                compressor.abort();
+            }
+        }
+
+        /**
+         * The stream the servlet writes the body to.
+         */
+        private final class BodyStream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                CompressingResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                CompressingResponse.this.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+                response().getOutputStream().close();
+            }
+
+            @Override
+            public boolean isReady() {
+                try {
+                    return response().getOutputStream().isReady();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                try {
+                    response().getOutputStream().setWriteListener(writeListener);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
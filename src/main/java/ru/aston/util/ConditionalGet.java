@@ -0,0 +1,123 @@
+package ru.aston.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Answers conditional GET requests from the version of a resource, so unchanged resources are neither
+ * loaded nor serialized. The ETag is strong: it is derived from the version and from the {@code fields}
+ * and {@code expand} parameters, which select the representation, so equal ETags mean equal bodies.
+ * A compressed body has the ETag of the uncompressed body with the name of its content coding as a suffix,
+ * e.g. {@code -gzip}. A 304 carries the ETag of the body the client holds, as required for caches to update
+ * the stored response from it, so a compressed body only matches if the client would get its coding now.
+ */
+public final class ConditionalGet {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Sets the ETag of the requested representation and answers 304 Not Modified
+     * if the request's {@code If-None-Match} header matches it. A body sent afterwards must have this version,
+     * or else replace the ETag with the one of the version it was read at.
+     *
+     * @param req     The request.
+     * @param resp    The response.
+     * @param version The version of the resource.
+     * @return true if 304 was sent and nothing else must be written.
+     */
+    public static boolean notModified(HttpServletRequest req, HttpServletResponse resp, long version) {
+        String eTag = eTag(req, version);
+        String matched = match(req.getHeader("If-None-Match"), eTag,
+                ContentCoding.negotiate(req.getHeader("Accept-Encoding")));
+        resp.setHeader("ETag", matched == null ? eTag : matched);
+        resp.setHeader("Cache-Control", "no-cache");
+        if (matched == null) {
+            return false;
+        }
+        resp.setHeader("Vary", "Accept-Encoding");
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Builds the ETag of the uncompressed representation a request selects.
+     *
+     * @param req     The request.
+     * @param version The version of the resource.
+     * @return The quoted ETag.
+     */
+    public static String eTag(HttpServletRequest req, long version) {
+        return eTag(version, req.getParameter("fields"), req.getParameter("expand"));
+    }
+
+    /**
+     * Returns the ETag of the gzip-compressed body of a representation.
+     *
+     * @param eTag The quoted ETag of the uncompressed body.
+     * @return The quoted ETag with a {@code -gzip} suffix.
+     */
+    public static String gzipETag(String eTag) {
+        return codedETag(eTag, ContentCoding.GZIP.getName());
+    }
+
+    /**
+     * Returns the ETag of the body of a representation compressed with a content coding.
+     *
+     * @param eTag   The quoted ETag of the uncompressed body.
+     * @param coding The name of the content coding, e.g. {@code deflate}.
+     * @return The quoted ETag with the name of the coding as a suffix.
+     */
+    public static String codedETag(String eTag, String coding) {
+        return eTag.substring(0, eTag.length() - 1) + "-" + coding + "\"";
+    }
+
+    /**
+     * Builds the ETag of a representation.
+     *
+     * @param version The version of the resource.
+     * @param fields  The {@code fields} parameter, may be null.
+     * @param expand  The {@code expand} parameter, may be null.
+     * @return The quoted ETag.
+     */
+    static String eTag(long version, String fields, String expand) {
+        if (fields == null && expand == null) {
+            return "\"" + version + "\"";
+        }
+        String selection = (fields == null ? "" : "f" + fields) + "\n" + (expand == null ? "" : "e" + expand);
+        return "\"" + version + "." + ENCODER.encodeToString(selection.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Compares an {@code If-None-Match} header with the ETags of the current body using the weak comparison
+     * required for it, which ignores the {@code W/} prefix. The current body is the uncompressed one or,
+     * if the client accepts a coding, the one compressed with it.
+     *
+     * @param ifNoneMatch The header value: {@code *} or a comma-separated list of ETags, may be null.
+     * @param eTag        The ETag of the current uncompressed body.
+     * @param coding      The content coding the client would get, or null if it accepts none.
+     * @return The matching ETag to send with the 304, or null if the header does not match.
+     */
+    static String match(String ifNoneMatch, String eTag, ContentCoding coding) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String codedETag = coding == null ? null : coding.eTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*")) {
+                return codedETag == null ? eTag : codedETag;
+            }
+            if (trimmed.equals(eTag) || trimmed.equals(codedETag)) {
+                return trimmed;
+            }
+        }
+        return null;
+    }
+}
@@ -1,49 +1,82 @@
 package ru.aston.util;
 
-import org.apache.commons.dbcp2.BasicDataSource;
-
 import javax.sql.DataSource;
-import java.io.IOException;
-import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * Manages database connections and provides a data source for accessing the database.
  */
 public class ConnectionManager {
-    /**
-     * The name of the properties file containing database connection configuration.
-     */
-    private static final String PROPERTIES_FILE = "db.properties";
+    private static volatile RoutingDataSource dataSource;
+    private static volatile SlowQueryLog slowQueryLog;
 
     /**
-     * Retrieves a data source configured with database connection properties.
+     * Retrieves the shared data source configured with database connection properties.
+     * Connections returned by it go to the primary database; read-only work should obtain
+     * connections through {@link #getReadConnection(DataSource)} so it can be served by replicas.
      *
      * @return Configured data source.
      */
     public static DataSource getDataSource() {
-        BasicDataSource dataSource = new BasicDataSource();
-        Properties properties = new Properties();
-
-        try (InputStream inputStream =
-                     ConnectionManager.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
-            if (inputStream == null) {
-                throw new IOException("Properties file '" + PROPERTIES_FILE + "' not found");
+        RoutingDataSource routingDataSource = dataSource;
+        if (routingDataSource == null) {
+            synchronized (ConnectionManager.class) {
+                routingDataSource = dataSource;
+                if (routingDataSource == null) {
+                    routingDataSource = createDataSource();
+                    dataSource = routingDataSource;
+                }
             }
-            properties.load(inputStream);
-        } catch (IOException e) {
-            System.err.println("Error loading properties file: " + e.getMessage());
         }
+        return routingDataSource;
+    }
 
-        String jdbcUrl = properties.getProperty("jdbc.url");
-        String username = properties.getProperty("jdbc.username");
-        String password = properties.getProperty("jdbc.password");
+    /**
+     * Obtains a connection for read-only work from the given data source.
+     * A routing data source serves it from a replica, any other data source from itself.
+     *
+     * @param dataSource The data source to obtain the connection from.
+     * @return A connection suitable for reads.
+     * @throws SQLException If a connection cannot be obtained.
+     */
+    public static Connection getReadConnection(DataSource dataSource) throws SQLException {
+        if (dataSource instanceof RoutingDataSource) {
+            return ((RoutingDataSource) dataSource).getReadConnection();
+        }
+        return dataSource.getConnection();
+    }
 
-        dataSource.setUrl(jdbcUrl);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        dataSource.setDriverClassName("org.postgresql.Driver");
+    /**
+     * Releases the shared data source and all connection pools. Intended to be called on application shutdown.
+     */
+    public static synchronized void shutdown() {
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+            slowQueryLog = null;
+        }
+        dataSource = null;
+        ConnectionPoolRegistry.closeAll();
+    }
+
+    private static RoutingDataSource createDataSource() {
+        Properties properties = ConnectionPoolRegistry.getProperties();
+        slowQueryLog = SlowQueryLog.fromProperties(properties);
+
+        List<DataSource> replicas = new ArrayList<>();
+        String replicaNames = properties.getProperty("replicas", "");
+        for (String name : replicaNames.split(",")) {
+            if (!name.isBlank()) {
+                replicas.add(timed(ConnectionPoolRegistry.getPool(name.trim() + ".")));
+            }
+        }
+        return new RoutingDataSource(timed(ConnectionPoolRegistry.getPool(ConnectionPoolRegistry.PRIMARY)), replicas);
+    }
 
-        return dataSource;
+    private static DataSource timed(DataSource pool) {
+        return slowQueryLog == null ? pool : new TimingDataSource(pool, slowQueryLog);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Saturation metrics of a single connection pool, exposed through JMX and the pool metrics endpoint.
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolMetricsMXBean {
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPoolMetrics.class);
+
+    private final InstrumentedDataSource pool;
+    private long lastCreatedCount;
+    private long lastSampleNanos = System.nanoTime();
+    private double creationRate;
+
+    /**
+     * Constructs ConnectionPoolMetrics for the given pool.
+     *
+     * @param pool The pool to report on.
+     */
+    public ConnectionPoolMetrics(InstrumentedDataSource pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server
+     * under {@code ru.aston:type=ConnectionPool,name=<pool name>}.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("ru.aston:type=ConnectionPool,name=" + pool.getName());
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register pool metrics for '{}': {}", pool.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("ru.aston:type=ConnectionPool,name=" + pool.getName());
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister pool metrics for '{}': {}", pool.getName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        return pool.getNumActive();
+    }
+
+    @Override
+    public int getNumIdle() {
+        return pool.getNumIdle();
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return pool.getMaxTotal();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return pool.getBorrowWait().getCount();
+    }
+
+    @Override
+    public long getBorrowTimeouts() {
+        return pool.getBorrowTimeouts();
+    }
+
+    @Override
+    public double getMeanBorrowWaitMillis() {
+        return pool.getBorrowWait().getMeanMillis();
+    }
+
+    @Override
+    public Map<String, Long> getBorrowWaitHistogram() {
+        return pool.getBorrowWait().getBuckets();
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return pool.getCreatedCount();
+    }
+
+    /**
+     * Returns the rate of physical connection creation since the previous sample.
+     * Samples closer than a second to the previous one return the last computed rate.
+     *
+     * @return Connections created per second.
+     */
+    @Override
+    public synchronized double getCreationRatePerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed >= 1_000_000_000L) {
+            long created = pool.getCreatedCount();
+            creationRate = (created - lastCreatedCount) * 1_000_000_000.0 / elapsed;
+            lastCreatedCount = created;
+            lastSampleNanos = now;
+        }
+        return creationRate;
+    }
+
+    @Override
+    public long getEvictedCount() {
+        return pool.getEvictedCount();
+    }
+
+    /**
+     * Returns all metrics as an ordered map suitable for JSON serialization.
+     *
+     * @return The current metric values.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("numActive", getNumActive());
+        snapshot.put("numIdle", getNumIdle());
+        snapshot.put("maxTotal", getMaxTotal());
+        snapshot.put("borrowCount", getBorrowCount());
+        snapshot.put("borrowTimeouts", getBorrowTimeouts());
+        snapshot.put("meanBorrowWaitMillis", getMeanBorrowWaitMillis());
+        snapshot.put("borrowWaitHistogram", getBorrowWaitHistogram());
+        snapshot.put("createdCount", getCreatedCount());
+        snapshot.put("creationRatePerSecond", getCreationRatePerSecond());
+        snapshot.put("evictedCount", getEvictedCount());
+        return snapshot;
+    }
+}
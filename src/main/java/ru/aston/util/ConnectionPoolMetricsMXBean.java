@@ -0,0 +1,59 @@
+package ru.aston.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of connection pool saturation metrics.
+ */
+public interface ConnectionPoolMetricsMXBean {
+
+    /**
+     * @return The number of connections currently borrowed from the pool.
+     */
+    int getNumActive();
+
+    /**
+     * @return The number of idle connections in the pool.
+     */
+    int getNumIdle();
+
+    /**
+     * @return The maximum number of connections the pool may hold.
+     */
+    int getMaxTotal();
+
+    /**
+     * @return The number of borrow attempts since the pool was started.
+     */
+    long getBorrowCount();
+
+    /**
+     * @return The number of borrow attempts that timed out waiting for a connection.
+     */
+    long getBorrowTimeouts();
+
+    /**
+     * @return The mean time callers waited to borrow a connection, in milliseconds.
+     */
+    double getMeanBorrowWaitMillis();
+
+    /**
+     * @return Borrow wait time bucket counts keyed by bucket upper bound.
+     */
+    Map<String, Long> getBorrowWaitHistogram();
+
+    /**
+     * @return The number of physical connections created since the pool was started.
+     */
+    long getCreatedCount();
+
+    /**
+     * @return The number of physical connections created per second since the previous sample.
+     */
+    double getCreationRatePerSecond();
+
+    /**
+     * @return The number of idle connections closed by the evictor.
+     */
+    long getEvictedCount();
+}
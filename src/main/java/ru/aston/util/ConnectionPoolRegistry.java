@@ -0,0 +1,134 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of connection pools.
+ * Every pool is created once per configuration prefix and shared by all DAOs,
+ * so the total number of database connections of the node is bounded by the pool settings
+ * in {@code db.properties}.
+ */
+public final class ConnectionPoolRegistry {
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPoolRegistry.class);
+
+    /**
+     * The name of the properties file containing database connection configuration.
+     */
+    private static final String PROPERTIES_FILE = "db.properties";
+
+    /**
+     * Configuration prefix of the primary database pool.
+     */
+    public static final String PRIMARY = "";
+
+    private static final Map<String, InstrumentedDataSource> POOLS = new ConcurrentHashMap<>();
+    private static final Map<String, ConnectionPoolMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private static volatile Properties properties;
+
+    private ConnectionPoolRegistry() {
+    }
+
+    /**
+     * Returns the shared pool for the given configuration prefix, creating it on first use.
+     * Connection settings are read from {@code <prefix>jdbc.url}, {@code <prefix>jdbc.username}
+     * and {@code <prefix>jdbc.password}; pool sizing is read from the {@code pool.*} properties.
+     *
+     * @param prefix The configuration prefix, {@link #PRIMARY} for the primary database.
+     * @return The shared pool.
+     */
+    public static InstrumentedDataSource getPool(String prefix) {
+        return POOLS.computeIfAbsent(prefix, ConnectionPoolRegistry::createPool);
+    }
+
+    /**
+     * Returns the metrics of all pools created so far, keyed by pool name.
+     *
+     * @return Pool metrics by pool name.
+     */
+    public static Map<String, ConnectionPoolMetrics> getMetrics() {
+        return Collections.unmodifiableMap(METRICS);
+    }
+
+    /**
+     * Returns the properties the pools are configured from.
+     *
+     * @return Database properties.
+     */
+    public static Properties getProperties() {
+        Properties loaded = properties;
+        if (loaded == null) {
+            synchronized (ConnectionPoolRegistry.class) {
+                loaded = properties;
+                if (loaded == null) {
+                    loaded = PropertiesLoader.load(PROPERTIES_FILE);
+                    properties = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Closes all registered pools. Intended to be called on application shutdown.
+     */
+    public static void closeAll() {
+        METRICS.values().forEach(ConnectionPoolMetrics::unregister);
+        METRICS.clear();
+        for (Map.Entry<String, InstrumentedDataSource> entry : POOLS.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (SQLException e) {
+                LOGGER.error("Error closing connection pool '{}'", entry.getKey(), e);
+            }
+        }
+        POOLS.clear();
+    }
+
+    private static InstrumentedDataSource createPool(String prefix) {
+        Properties props = getProperties();
+        String name = prefix.isEmpty() ? "primary" : prefix.substring(0, prefix.length() - 1);
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(name);
+
+        dataSource.setUrl(props.getProperty(prefix + "jdbc.url"));
+        dataSource.setUsername(props.getProperty(prefix + "jdbc.username"));
+        dataSource.setPassword(props.getProperty(prefix + "jdbc.password"));
+        dataSource.setDriverClassName("org.postgresql.Driver");
+        dataSource.addConnectionProperty("reWriteBatchedInserts",
+                String.valueOf(PropertiesLoader.getBoolean(props, "jdbc.reWriteBatchedInserts", true)));
+
+        dataSource.setInitialSize(PropertiesLoader.getInt(props, "pool.initialSize", 0));
+        dataSource.setMinIdle(PropertiesLoader.getInt(props, "pool.minIdle", 0));
+        dataSource.setMaxIdle(PropertiesLoader.getInt(props, "pool.maxIdle", 8));
+        dataSource.setMaxTotal(PropertiesLoader.getInt(props, "pool.maxTotal", 8));
+        dataSource.setMaxWaitMillis(PropertiesLoader.getLong(props, "pool.maxWaitMillis", -1));
+
+        String validationQuery = props.getProperty("pool.validationQuery");
+        if (validationQuery != null && !validationQuery.isBlank()) {
+            dataSource.setValidationQuery(validationQuery);
+            dataSource.setTestOnBorrow(PropertiesLoader.getBoolean(props, "pool.testOnBorrow", false));
+            dataSource.setTestWhileIdle(PropertiesLoader.getBoolean(props, "pool.testWhileIdle", true));
+        }
+        dataSource.setTimeBetweenEvictionRunsMillis(
+                PropertiesLoader.getLong(props, "pool.timeBetweenEvictionRunsMillis", -1));
+        dataSource.setMinEvictableIdleTimeMillis(
+                PropertiesLoader.getLong(props, "pool.minEvictableIdleTimeMillis", 1000L * 60 * 30));
+
+        dataSource.setPoolPreparedStatements(
+                PropertiesLoader.getBoolean(props, "pool.poolPreparedStatements", false));
+        dataSource.setMaxOpenPreparedStatements(
+                PropertiesLoader.getInt(props, "pool.maxOpenPreparedStatements", -1));
+
+        ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(dataSource);
+        metrics.register();
+        METRICS.put(name, metrics);
+        return dataSource;
+    }
+}
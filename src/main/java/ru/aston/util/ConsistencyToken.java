@@ -0,0 +1,98 @@
+package ru.aston.util;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Holds read-your-writes consistency state of the current request thread.
+ * A token is the primary's WAL position (LSN) observed after a write; a read that carries
+ * a token may only be served by a replica that has replayed at least up to that position.
+ */
+public final class ConsistencyToken {
+    /**
+     * The HTTP header used to pass the token between the client and the server.
+     */
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final ThreadLocal<String> REQUIRED = new ThreadLocal<>();
+    private static final ThreadLocal<Consumer<String>> SINK = new ThreadLocal<>();
+
+    private ConsistencyToken() {
+    }
+
+    /**
+     * Binds consistency state to the current thread.
+     *
+     * @param requiredLsn The LSN the client has already observed, or null.
+     * @param sink        Receives the LSN issued after each write, or null to discard it.
+     */
+    public static void begin(String requiredLsn, Consumer<String> sink) {
+        if (requiredLsn != null && !requiredLsn.isBlank()) {
+            REQUIRED.set(requiredLsn.trim());
+        }
+        if (sink != null) {
+            SINK.set(sink);
+        }
+    }
+
+    /**
+     * Returns the LSN reads of the current thread must observe.
+     *
+     * @return The required LSN, or null if any replica may serve the read.
+     */
+    public static String getRequired() {
+        return REQUIRED.get();
+    }
+
+    /**
+     * Runs an action whose reads must also observe an LSN, e.g. a reload of cached values evicted after a change
+     * at that position, and restores the requirement of the current thread afterwards.
+     *
+     * @param lsn    The LSN to observe, or null.
+     * @param action The action, which must not write.
+     * @param <T>    The type of the result.
+     * @return The result of the action.
+     */
+    public static <T> T observing(String lsn, Supplier<T> action) {
+        String previous = REQUIRED.get();
+        if (lsn == null || (previous != null
+                && RoutingDataSource.parseLsn(previous) >= RoutingDataSource.parseLsn(lsn))) {
+            return action.get();
+        }
+        REQUIRED.set(lsn);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                REQUIRED.remove();
+            } else {
+                REQUIRED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Records the LSN reached by a write of the current thread.
+     * Subsequent reads of the same thread are bound to it and the sink is notified.
+     *
+     * @param lsn The primary's WAL position after the write.
+     */
+    public static void issue(String lsn) {
+        if (lsn == null) {
+            return;
+        }
+        REQUIRED.set(lsn);
+        Consumer<String> sink = SINK.get();
+        if (sink != null) {
+            sink.accept(lsn);
+        }
+    }
+
+    /**
+     * Removes the consistency state from the current thread.
+     */
+    public static void clear() {
+        REQUIRED.remove();
+        SINK.remove();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.aston.util;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Propagates read-your-writes consistency tokens between HTTP clients and the routing data source.
+ * The token sent by the client in the {@value ConsistencyToken#HEADER} header is bound to the request
+ * thread, and the token issued after a write is returned to the client in the same header.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class ConsistencyTokenFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        ConsistencyToken.begin(httpRequest.getHeader(ConsistencyToken.HEADER),
+                lsn -> httpResponse.setHeader(ConsistencyToken.HEADER, lsn));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ConsistencyToken.clear();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.aston.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * The compressed content codings of HTTP responses. Both wrap the same raw deflate data, so one compressed
+ * body can be sent in either coding by writing the header and trailer of the coding around it.
+ */
+public enum ContentCoding {
+    /**
+     * The gzip format of RFC 1952, with a CRC-32 and the length of the uncompressed body in the trailer.
+     */
+    GZIP("gzip", new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff}, 8) {
+        @Override
+        public Checksum newChecksum() {
+            return new CRC32();
+        }
+
+        @Override
+        public void writeTrailer(OutputStream out, long checksum, long length) throws IOException {
+            writeLittleEndian(out, checksum);
+            writeLittleEndian(out, length);
+        }
+    },
+    /**
+     * The zlib format of RFC 1950, which HTTP calls deflate, with an Adler-32 in the trailer.
+     */
+    DEFLATE("deflate", new byte[]{0x78, (byte) 0x9c}, 4) {
+        @Override
+        public Checksum newChecksum() {
+            return new Adler32();
+        }
+
+        @Override
+        public void writeTrailer(OutputStream out, long checksum, long length) throws IOException {
+            out.write((int) (checksum >>> 24));
+            out.write((int) (checksum >>> 16));
+            out.write((int) (checksum >>> 8));
+            out.write((int) checksum);
+        }
+    };
+
+    private final String name;
+    private final byte[] header;
+    private final int trailerLength;
+
+    ContentCoding(String name, byte[] header, int trailerLength) {
+        this.name = name;
+        this.header = header;
+        this.trailerLength = trailerLength;
+    }
+
+    /**
+     * Chooses the coding of a response from the Accept-Encoding header of the request: the accepted coding
+     * with the highest quality, gzip on a tie. A {@code *} accepts the codings not listed.
+     *
+     * @param acceptEncoding The value of the header, or null.
+     * @return The coding, or null if the body must be sent uncompressed.
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        double gzip = GZIP.quality(acceptEncoding);
+        double deflate = DEFLATE.quality(acceptEncoding);
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * Returns the quality an Accept-Encoding header gives this coding.
+     *
+     * @param acceptEncoding The value of the header, or null.
+     * @return The quality between 0 and 1, 0 if the coding is not accepted.
+     */
+    public double quality(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double wildcard = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String codingName = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (codingName.equalsIgnoreCase(name)) {
+                return quality;
+            }
+            if (codingName.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Returns the name of the coding, as sent in the Content-Encoding header.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the ETag of the body in this coding, which differs from the uncompressed body.
+     *
+     * @param eTag The quoted ETag of the uncompressed body.
+     * @return The quoted ETag with the name of the coding as a suffix.
+     */
+    public String eTag(String eTag) {
+        return ConditionalGet.codedETag(eTag, name);
+    }
+
+    /**
+     * Returns the number of bytes the coding adds to the raw deflate data.
+     *
+     * @return The length of the header and the trailer.
+     */
+    public int framingLength() {
+        return header.length + trailerLength;
+    }
+
+    /**
+     * Writes the header preceding the raw deflate data.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeHeader(OutputStream out) throws IOException {
+        out.write(header);
+    }
+
+    /**
+     * Creates the checksum of the uncompressed body that goes into the trailer.
+     *
+     * @return A new checksum.
+     */
+    public abstract Checksum newChecksum();
+
+    /**
+     * Writes the trailer following the raw deflate data.
+     *
+     * @param out      The stream to write to.
+     * @param checksum The value of the {@link #newChecksum() checksum} of the uncompressed body.
+     * @param length   The length of the uncompressed body.
+     * @throws IOException If writing fails.
+     */
+    public abstract void writeTrailer(OutputStream out, long checksum, long length) throws IOException;
+
+    private static void writeLittleEndian(OutputStream out, long value) throws IOException {
+        out.write((int) value);
+        out.write((int) (value >>> 8));
+        out.write((int) (value >>> 16));
+        out.write((int) (value >>> 24));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.aston.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of Deflaters producing raw deflate data, which {@link ContentCoding} frames as gzip or deflate.
+ * A Deflater holds native memory of several hundred kilobytes, so creating one per response costs more than
+ * compressing a small body. Deflaters beyond the pool size are ended when returned. Instances are thread-safe.
+ * <p>
+ * The default pool is configured from {@value JsonCodec#PROPERTIES_FILE}: {@code compression.level} is the
+ * deflate level and {@code compression.poolSize} the number of idle Deflaters kept.
+ */
+public final class DeflaterPool {
+    private static final DeflaterPool DEFAULT = fromProperties(PropertiesLoader.load(JsonCodec.PROPERTIES_FILE));
+
+    private final int level;
+    private final BlockingQueue<Deflater> idle;
+
+    /**
+     * Constructs a pool.
+     *
+     * @param level The deflate level from 1 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param size  The maximal number of idle Deflaters kept, at least 1.
+     */
+    public DeflaterPool(int level, int size) {
+        this.level = level;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Returns the pool configured from {@value JsonCodec#PROPERTIES_FILE}.
+     *
+     * @return The default pool.
+     */
+    public static DeflaterPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Constructs a pool from the {@code compression.*} properties.
+     *
+     * @param properties The properties to read from.
+     * @return The pool.
+     */
+    public static DeflaterPool fromProperties(Properties properties) {
+        return new DeflaterPool(
+                PropertiesLoader.getInt(properties, "compression.level", Deflater.DEFAULT_COMPRESSION),
+                Math.max(1, PropertiesLoader.getInt(properties, "compression.poolSize", 32)));
+    }
+
+    /**
+     * Takes an idle Deflater, or creates one if none is idle. It must be given back with {@link #release}.
+     *
+     * @return A Deflater in its initial state.
+     */
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        return deflater == null ? new Deflater(level, true) : deflater;
+    }
+
+    /**
+     * Gives back a borrowed Deflater, which is reset for the next use or ended if the pool is full.
+     *
+     * @param deflater The Deflater, must not be used afterwards.
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses a whole body.
+     *
+     * @param body The uncompressed body.
+     * @return The raw deflate data.
+     */
+    public byte[] deflate(byte[] body) {
+        Deflater deflater = borrow();
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            release(deflater);
+        }
+    }
+}
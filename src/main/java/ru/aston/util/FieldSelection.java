@@ -0,0 +1,203 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import ru.aston.dto.PageDto.PageDto;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Field projection and relation expansion parameters of a GET request: {@code ?fields=&expand=}.
+ * {@code fields} lists the properties of the requested entities to serialize, {@code expand} lists the relations
+ * to load. Without {@code expand} every relation is loaded, so requests without parameters behave as before.
+ * A relation is loaded only if it is expanded and, when {@code fields} is given, also listed there.
+ */
+public final class FieldSelection {
+    private static final String FILTER_ID = "fieldSelection";
+    private static final String ROOTS_ATTRIBUTE = "fieldSelection.roots";
+    private static final JsonCodec CODEC = JsonCodec.getDefault();
+    private static final ObjectMapper FILTERED_MAPPER = CODEC.copyMapper().addMixIn(Object.class, Filtered.class);
+
+    /**
+     * Selection of a request without {@code fields} and {@code expand}: everything is loaded and serialized.
+     */
+    public static final FieldSelection ALL = new FieldSelection(null, Collections.emptySet(), null);
+
+    private final Set<String> fields;
+    private final Set<String> relations;
+    private final Set<String> expand;
+    private final ObjectWriter writer;
+
+    @JsonFilter(FILTER_ID)
+    private static class Filtered {
+    }
+
+    private FieldSelection(Set<String> fields, Set<String> relations, Set<String> expand) {
+        this.fields = fields;
+        this.relations = relations;
+        this.expand = expand;
+        this.writer = fields == null && expand == null ? null : FILTERED_MAPPER
+                .writer(new SimpleFilterProvider().addFilter(FILTER_ID, new RootPropertyFilter()))
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Reads field projection and expansion parameters from the request.
+     *
+     * @param req       The HttpServletRequest object representing the request.
+     * @param relations The relations of the requested entity that may be expanded.
+     * @return The selection, {@link #ALL} if the request has neither parameter.
+     * @throws IllegalArgumentException If {@code expand} names a relation the entity does not have.
+     */
+    public static FieldSelection from(HttpServletRequest req, String... relations) {
+        String fieldsParameter = req.getParameter("fields");
+        String expandParameter = req.getParameter("expand");
+        if (fieldsParameter == null && expandParameter == null) {
+            return ALL;
+        }
+        Set<String> relationSet = new LinkedHashSet<>(Arrays.asList(relations));
+        Set<String> expand = expandParameter == null ? null : split(expandParameter);
+        if (expand != null) {
+            for (String relation : expand) {
+                if (!relationSet.contains(relation)) {
+                    throw new IllegalArgumentException("Cannot expand " + relation);
+                }
+            }
+        }
+        return new FieldSelection(fieldsParameter == null ? null : split(fieldsParameter), relationSet, expand);
+    }
+
+    /**
+     * Tells whether a relation has to be loaded.
+     *
+     * @param relation The name of the relation property.
+     * @return true if the relation is expanded and requested.
+     */
+    public boolean includes(String relation) {
+        return (expand == null || expand.contains(relation)) && (fields == null || fields.contains(relation));
+    }
+
+    /**
+     * Serializes a value as JSON, writing only the selected properties of the requested entities.
+     * The entities are the value itself, the elements of a collection or the items of a page;
+     * objects nested in them are written in full.
+     *
+     * @param out   The writer to write to.
+     * @param value The value to serialize.
+     * @throws IOException If writing fails.
+     */
+    public void write(Writer out, Object value) throws IOException {
+        writerFor(value).writeValue(out, value);
+    }
+
+    /**
+     * Serializes a value as UTF-8 encoded JSON, writing only the selected properties of the requested entities.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to serialize.
+     * @throws IOException If writing fails.
+     * @see #write(Writer, Object)
+     */
+    public void write(OutputStream out, Object value) throws IOException {
+        writerFor(value).writeValue(out, value);
+    }
+
+    /**
+     * Serializes a value as the UTF-8 encoded JSON body of a response,
+     * writing only the selected properties of the requested entities.
+     *
+     * @param response The response to write to.
+     * @param value    The value to serialize.
+     * @throws IOException If writing fails.
+     * @see #write(Writer, Object)
+     */
+    public void write(HttpServletResponse response, Object value) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        write(response.getOutputStream(), value);
+    }
+
+    /**
+     * Serializes a value as UTF-8 encoded JSON, writing only the selected properties of the requested entities.
+     *
+     * @param value The value to serialize.
+     * @return The JSON bytes.
+     * @throws IOException If serializing fails.
+     * @see #write(Writer, Object)
+     */
+    public byte[] writeAsBytes(Object value) throws IOException {
+        return writerFor(value).writeValueAsBytes(value);
+    }
+
+    /**
+     * Serializes a value as JSON to a generator, writing only the selected properties of the requested entities.
+     *
+     * @param generator The generator to write to.
+     * @param value     The value to serialize.
+     * @throws IOException If writing fails.
+     * @see #write(Writer, Object)
+     */
+    public void write(JsonGenerator generator, Object value) throws IOException {
+        writerFor(value).writeValue(generator, value);
+    }
+
+    private ObjectWriter writerFor(Object value) {
+        if (writer == null) {
+            return value == null ? CODEC.writerFor(Object.class) : CODEC.writerFor(value.getClass());
+        }
+        Set<Object> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (value instanceof PageDto) {
+            roots.addAll(((PageDto<?>) value).getItems());
+        } else if (value instanceof Collection) {
+            roots.addAll((Collection<?>) value);
+        } else {
+            roots.add(value);
+        }
+        return writer.withAttribute(ROOTS_ATTRIBUTE, roots);
+    }
+
+    private boolean writesProperty(String property) {
+        return relations.contains(property) ? includes(property) : fields == null || fields.contains(property);
+    }
+
+    private static Set<String> split(String parameter) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : parameter.split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Skips the unselected properties of the requested entities and passes everything else through.
+     */
+    private class RootPropertyFilter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider,
+                                     PropertyWriter propertyWriter) throws Exception {
+            Set<?> roots = (Set<?>) provider.getAttribute(ROOTS_ATTRIBUTE);
+            if (roots == null || !roots.contains(pojo) || writesProperty(propertyWriter.getName())) {
+                propertyWriter.serializeAsField(pojo, generator, provider);
+            }
+        }
+    }
+}
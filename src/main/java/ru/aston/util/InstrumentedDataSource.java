@@ -0,0 +1,97 @@
+package ru.aston.util;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.PoolableConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DBCP2 connection pool that records how long callers wait to borrow connections
+ * and how often borrowing times out.
+ */
+public class InstrumentedDataSource extends BasicDataSource {
+    private final String name;
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LongAdder borrowTimeouts = new LongAdder();
+
+    /**
+     * Constructs an InstrumentedDataSource.
+     *
+     * @param name The name the pool is reported under.
+     */
+    public InstrumentedDataSource(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Borrows a connection from the pool, recording the wait time.
+     *
+     * @return A pooled connection.
+     * @throws SQLException If a connection cannot be obtained, including a borrow timeout.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            if (e.getCause() instanceof NoSuchElementException) {
+                borrowTimeouts.increment();
+            }
+            throw e;
+        } finally {
+            borrowWait.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the name the pool is reported under.
+     *
+     * @return The pool name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the histogram of connection borrow wait times.
+     *
+     * @return The borrow wait histogram.
+     */
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * Returns the number of borrow attempts that timed out waiting for a connection.
+     *
+     * @return The number of borrow timeouts.
+     */
+    public long getBorrowTimeouts() {
+        return borrowTimeouts.sum();
+    }
+
+    /**
+     * Returns the number of physical connections created since the pool was started.
+     *
+     * @return The number of created connections.
+     */
+    public long getCreatedCount() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getCreatedCount();
+    }
+
+    /**
+     * Returns the number of idle connections closed by the evictor since the pool was started.
+     *
+     * @return The number of evicted connections.
+     */
+    public long getEvictedCount() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getDestroyedByEvictorCount();
+    }
+}
@@ -0,0 +1,224 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The shared JSON reader and writer of the application. It holds one configured ObjectMapper and builds
+ * an ObjectReader or ObjectWriter per type once, with its root (de)serializer resolved, so requests neither
+ * introspect the DTOs nor warm up serializer caches again. Instances are thread-safe.
+ * <p>
+ * The default codec is configured from {@value #PROPERTIES_FILE}: {@code json.inclusion} names the
+ * {@link JsonInclude.Include} of properties, e.g. {@code NON_EMPTY}, and {@code json.failOnUnknownProperties}
+ * tells whether request bodies with unknown properties are rejected. With {@code json.generated=true} it reads and
+ * writes the DTOs annotated with {@link ru.aston.codegen.GenerateJson} with the code generated for them at
+ * compile time; the generated code always includes every property, so it is used only with the inclusion
+ * {@code ALWAYS}. Everything else is left to Jackson.
+ */
+public final class JsonCodec {
+    /**
+     * The classpath properties file configuring the default codec.
+     */
+    public static final String PROPERTIES_FILE = "application.properties";
+
+    /**
+     * The module generated by the build-only {@code ru.aston.codegen.JsonCodegenProcessor}.
+     */
+    private static final String GENERATED_MODULE = "ru.aston.codegen.GeneratedJsonModule";
+
+    private static final JsonCodec DEFAULT = fromProperties(PropertiesLoader.load(PROPERTIES_FILE));
+
+    private final ObjectMapper baseMapper;
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ObjectWriter untypedWriter;
+
+    /**
+     * Constructs a codec using a copy of the mapper, so later changes to the mapper do not affect it.
+     *
+     * @param mapper The configured mapper.
+     */
+    public JsonCodec(ObjectMapper mapper) {
+        this(mapper, null);
+    }
+
+    /**
+     * Constructs a codec using a copy of the mapper with a module registered, e.g. the generated one.
+     *
+     * @param mapper The configured mapper.
+     * @param module The module, or null for none.
+     */
+    public JsonCodec(ObjectMapper mapper, Module module) {
+        this.baseMapper = mapper.copy();
+        this.mapper = module == null ? baseMapper : mapper.copy().registerModule(module);
+        this.untypedWriter = writer(this.mapper.writer());
+    }
+
+    /**
+     * Returns the codec configured from {@value #PROPERTIES_FILE}.
+     *
+     * @return The default codec.
+     */
+    public static JsonCodec getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Constructs a codec from the {@code json.*} properties.
+     *
+     * @param properties The properties to read from.
+     * @return The codec.
+     * @throws IllegalArgumentException If {@code json.inclusion} is not an inclusion.
+     */
+    public static JsonCodec fromProperties(Properties properties) {
+        JsonInclude.Include inclusion = JsonInclude.Include.valueOf(
+                properties.getProperty("json.inclusion", JsonInclude.Include.ALWAYS.name()).trim());
+        ObjectMapper mapper = new ObjectMapper()
+                .setSerializationInclusion(inclusion)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+                        PropertiesLoader.getBoolean(properties, "json.failOnUnknownProperties", true));
+        boolean generated = PropertiesLoader.getBoolean(properties, "json.generated", false)
+                && inclusion == JsonInclude.Include.ALWAYS;
+        return new JsonCodec(mapper, generated ? generatedModule() : null);
+    }
+
+    /**
+     * Returns the module of the JSON code generated at compile time.
+     *
+     * @return The module, or null if the code was not generated, e.g. in a build without annotation processing.
+     */
+    public static Module generatedModule() {
+        try {
+            return (Module) Class.forName(GENERATED_MODULE).getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load " + GENERATED_MODULE, e);
+        }
+    }
+
+    /**
+     * Returns a copy of the mapper of the codec without the registered module, e.g. to add mix-ins
+     * for a special purpose which the generated code would ignore.
+     *
+     * @return A new mapper with the configuration of the codec.
+     */
+    public ObjectMapper copyMapper() {
+        return baseMapper.copy();
+    }
+
+    /**
+     * Returns the reader of a type.
+     *
+     * @param type The type of the values to read.
+     * @return The reader, built on first use.
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, key -> mapper.readerFor(type));
+    }
+
+    /**
+     * Returns the reader of a generic type.
+     *
+     * @param type The type of the values to read, e.g. a list of DTOs.
+     * @return The reader, built on first use.
+     */
+    public ObjectReader readerFor(TypeReference<?> type) {
+        return readers.computeIfAbsent(type.getType(), key -> mapper.readerFor(type));
+    }
+
+    /**
+     * Returns the writer of a type.
+     *
+     * @param type The runtime type of the values to write.
+     * @return The writer, built on first use.
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, key -> writer(mapper.writerFor(type)));
+    }
+
+    /**
+     * Reads a value from JSON.
+     *
+     * @param reader The reader to read from.
+     * @param type   The type of the value.
+     * @param <T>    The type of the value.
+     * @return The value.
+     * @throws IOException If reading fails or the JSON does not match the type.
+     */
+    public <T> T read(Reader reader, Class<T> type) throws IOException {
+        return readerFor(type).readValue(reader);
+    }
+
+    /**
+     * Reads a value of a generic type from JSON.
+     *
+     * @param reader The reader to read from.
+     * @param type   The type of the value.
+     * @param <T>    The type of the value.
+     * @return The value.
+     * @throws IOException If reading fails or the JSON does not match the type.
+     */
+    public <T> T read(Reader reader, TypeReference<T> type) throws IOException {
+        return readerFor(type).readValue(reader);
+    }
+
+    /**
+     * Writes a value as UTF-8 encoded JSON.
+     *
+     * @param out   The stream to write to.
+     * @param value The value, may be null.
+     * @throws IOException If writing fails.
+     */
+    public void write(OutputStream out, Object value) throws IOException {
+        writerOf(value).writeValue(out, value);
+    }
+
+    /**
+     * Writes a value as the UTF-8 encoded JSON body of a response.
+     *
+     * @param response The response to write to.
+     * @param value    The value, may be null.
+     * @throws IOException If writing fails.
+     */
+    public void write(HttpServletResponse response, Object value) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        write(response.getOutputStream(), value);
+    }
+
+    /**
+     * Serializes a value as UTF-8 encoded JSON.
+     *
+     * @param value The value, may be null.
+     * @return The JSON bytes.
+     * @throws IOException If serializing fails.
+     */
+    public byte[] writeAsBytes(Object value) throws IOException {
+        return writerOf(value).writeValueAsBytes(value);
+    }
+
+    private ObjectWriter writerOf(Object value) {
+        return value == null ? untypedWriter : writerFor(value.getClass());
+    }
+
+    private static ObjectWriter writer(ObjectWriter writer) {
+        return writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+}
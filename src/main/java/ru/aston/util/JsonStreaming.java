@@ -0,0 +1,81 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes JSON arrays to servlet responses element by element as the elements are produced.
+ */
+public final class JsonStreaming {
+    /**
+     * Number of elements written between two flushes of the response.
+     */
+    public static final int FLUSH_INTERVAL = 100;
+
+    /**
+     * Leaves open arrays and objects unclosed when a failed stream closes the generator, so a truncated list
+     * reaches the client as invalid JSON instead of a valid, shorter one.
+     */
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
+    private JsonStreaming() {
+    }
+
+    /**
+     * Writes the elements produced by the source as a JSON array to the response output stream.
+     * Each element is serialized as soon as it is produced and the response is flushed every
+     * {@value #FLUSH_INTERVAL} elements, so the whole array is never held in memory.
+     *
+     * @param response The HttpServletResponse object to write to.
+     * @param source   Produces the elements by passing each one to the given consumer.
+     * @param <T>      The type of the elements.
+     * @throws IOException If writing to the response fails.
+     */
+    public static <T> void writeArray(HttpServletResponse response, Consumer<Consumer<T>> source)
+            throws IOException {
+        writeArray(response, source, FieldSelection.ALL);
+    }
+
+    /**
+     * Writes the elements produced by the source as a JSON array to the response output stream,
+     * serializing only the selected properties of each element.
+     *
+     * @param response  The HttpServletResponse object to write to.
+     * @param source    Produces the elements by passing each one to the given consumer.
+     * @param selection The properties of the elements to write.
+     * @param <T>       The type of the elements.
+     * @throws IOException If writing to the response fails.
+     * @see #writeArray(HttpServletResponse, Consumer)
+     */
+    public static <T> void writeArray(HttpServletResponse response, Consumer<Consumer<T>> source,
+                                      FieldSelection selection) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonGenerator generator = FACTORY.createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            int[] written = {0};
+            try {
+                source.accept(element -> {
+                    try {
+                        selection.write(generator, element);
+                        if (++written[0] % FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
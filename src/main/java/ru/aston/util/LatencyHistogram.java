@@ -0,0 +1,88 @@
+package ru.aston.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations with fixed bucket boundaries.
+ */
+public class LatencyHistogram {
+    /**
+     * Upper bounds of the buckets in microseconds; the last bucket is unbounded.
+     */
+    private static final long[] BOUNDS_MICROS =
+            {100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        int index = 0;
+        while (index < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return The count of recorded durations.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     *
+     * @return The mean duration in milliseconds, or 0 if nothing was recorded.
+     */
+    public double getMeanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0 : sumNanos.sum() / 1_000_000.0 / total;
+    }
+
+    /**
+     * Returns the bucket counts keyed by their upper bound, such as {@code le_1ms} or {@code le_inf}.
+     *
+     * @return Bucket counts in ascending order of bounds.
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            result.put("le_" + formatBound(BOUNDS_MICROS[i]), buckets[i].sum());
+        }
+        result.put("le_inf", buckets[BOUNDS_MICROS.length].sum());
+        return result;
+    }
+
+    private static String formatBound(long micros) {
+        if (micros < 1_000) {
+            return micros + "us";
+        }
+        if (micros < 1_000_000) {
+            return micros / 1_000 + "ms";
+        }
+        return micros / 1_000_000 + "s";
+    }
+}
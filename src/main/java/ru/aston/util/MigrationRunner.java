@@ -0,0 +1,259 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned SQL scripts listed in {@value #INDEX} in order and records them in the
+ * {@code schema_migrations} table, so every script runs once per database.
+ * The checksum of every applied script is verified on each run; an edited script stops the application.
+ * A script is run in one transaction unless its first line is {@value #NO_TRANSACTION_DIRECTIVE},
+ * which is needed for statements such as {@code CREATE INDEX CONCURRENTLY}.
+ * Concurrent runners, e.g. several nodes starting at once, are serialized with an advisory lock. A runner waits
+ * for the lock by polling {@code pg_try_advisory_lock} between sleeps rather than blocking in
+ * {@code pg_advisory_lock}, because a blocked statement keeps its snapshot open and a {@code CONCURRENTLY} index
+ * build of the runner holding the lock would wait for it, which PostgreSQL breaks as a deadlock.
+ */
+public class MigrationRunner {
+    private static final Logger LOGGER = LogManager.getLogger(MigrationRunner.class);
+
+    /**
+     * The classpath directory holding the migration scripts.
+     */
+    public static final String LOCATION = "db/migration/";
+
+    /**
+     * The classpath resource listing the migration scripts in the order they are applied.
+     */
+    public static final String INDEX = LOCATION + "index.txt";
+
+    /**
+     * The first line of scripts that must run outside a transaction.
+     */
+    public static final String NO_TRANSACTION_DIRECTIVE = "-- migration: no-transaction";
+
+    /**
+     * The key of the advisory lock serializing the runners.
+     */
+    public static final long LOCK_KEY = 0x6d6967726174696fL;
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final long LOCK_POLL_MILLIS = 200;
+    private static final String CREATE_HISTORY_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version integer PRIMARY KEY, " +
+            "description varchar(255) NOT NULL, " +
+            "checksum bigint NOT NULL, " +
+            "execution_millis bigint NOT NULL, " +
+            "installed_at timestamptz NOT NULL DEFAULT now())";
+    private static final String GET_APPLIED_QUERY = "SELECT version, checksum FROM schema_migrations";
+    private static final String RECORD_QUERY =
+            "INSERT INTO schema_migrations (version, description, checksum, execution_millis) VALUES (?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+
+    /**
+     * Constructs a MigrationRunner.
+     *
+     * @param dataSource The data source of the database to migrate; it must connect to the primary.
+     */
+    public MigrationRunner(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Applies all pending migrations.
+     *
+     * @return The number of migrations applied.
+     * @throws IllegalStateException If an applied script has been changed.
+     * @throws RuntimeException      If the scripts cannot be read or a migration fails.
+     */
+    public int migrate() {
+        List<Migration> migrations = loadMigrations();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            lock(connection);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_HISTORY_TABLE_QUERY);
+                }
+                Map<Integer, Long> applied = getApplied(connection);
+                int count = 0;
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version);
+                    if (checksum == null) {
+                        apply(connection, migration);
+                        count++;
+                    } else if (checksum != migration.checksum) {
+                        throw new IllegalStateException("Migration " + migration.fileName
+                                + " has changed since it was applied");
+                    }
+                }
+                return count;
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits until the advisory lock is taken, without a statement running meanwhile.
+     */
+    private static void lock(Connection connection) throws SQLException {
+        boolean waiting = false;
+        while (true) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+                resultSet.next();
+                if (resultSet.getBoolean(1)) {
+                    return;
+                }
+            }
+            if (!waiting) {
+                LOGGER.info("Waiting for another node to finish migrating");
+                waiting = true;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the migration lock", e);
+            }
+        }
+    }
+
+    private Map<Integer, Long> getApplied(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(GET_APPLIED_QUERY)) {
+            while (resultSet.next()) {
+                applied.put(resultSet.getInt("version"), resultSet.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        connection.setAutoCommit(!migration.transactional);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SqlScript.split(migration.script)) {
+                    statement.execute(sql);
+                }
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            try (PreparedStatement preparedStatement = connection.prepareStatement(RECORD_QUERY)) {
+                preparedStatement.setInt(1, migration.version);
+                preparedStatement.setString(2, migration.description);
+                preparedStatement.setLong(3, migration.checksum);
+                preparedStatement.setLong(4, millis);
+                preparedStatement.executeUpdate();
+            }
+            if (migration.transactional) {
+                connection.commit();
+            }
+            LOGGER.info("Applied migration {} in {} ms", migration.fileName, millis);
+        } catch (SQLException e) {
+            if (migration.transactional) {
+                connection.rollback();
+            }
+            throw new SQLException("Migration " + migration.fileName + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        int lastVersion = 0;
+        for (String fileName : readIndex()) {
+            Matcher matcher = FILE_NAME.matcher(fileName);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration file name " + fileName);
+            }
+            int version = Integer.parseInt(matcher.group(1));
+            if (version <= lastVersion) {
+                throw new IllegalStateException("Migration " + fileName + " is out of order");
+            }
+            lastVersion = version;
+            String script = String.join("\n", readLines(LOCATION + fileName));
+            migrations.add(new Migration(fileName, version, matcher.group(2).replace('_', ' '), script));
+        }
+        return migrations;
+    }
+
+    private static List<String> readIndex() {
+        List<String> lines = new ArrayList<>();
+        for (String line : readLines(INDEX)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                lines.add(trimmed);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> readLines(String resource) {
+        InputStream inputStream = MigrationRunner.class.getClassLoader().getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IllegalStateException("Migration resource " + resource + " not found");
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read " + resource, e);
+        }
+        return lines;
+    }
+
+    /**
+     * A migration script with its version and checksum. Lines are joined with {@code \n} before the checksum
+     * is computed, so it does not depend on the line endings of the checkout.
+     */
+    private static final class Migration {
+        private final String fileName;
+        private final int version;
+        private final String description;
+        private final String script;
+        private final long checksum;
+        private final boolean transactional;
+
+        private Migration(String fileName, int version, String description, String script) {
+            this.fileName = fileName;
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+            this.transactional = !script.stripLeading().toLowerCase().startsWith(NO_TRANSACTION_DIRECTIVE);
+        }
+    }
+}
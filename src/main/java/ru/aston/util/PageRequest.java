@@ -0,0 +1,89 @@
+package ru.aston.util;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Keyset pagination parameters of a collection request: {@code ?limit=&after=}.
+ */
+public class PageRequest {
+    /**
+     * Page size used when only {@code after} is given.
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Largest page size a client may request.
+     */
+    public static final int MAX_LIMIT = 500;
+
+    private final int[] after;
+    private final int limit;
+
+    /**
+     * Constructs a PageRequest.
+     *
+     * @param after The sort key the page starts after, or an empty array for the first page.
+     * @param limit The page size.
+     */
+    public PageRequest(int[] after, int limit) {
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * Reads pagination parameters from the request.
+     *
+     * @param req       The HttpServletRequest object representing the request.
+     * @param keyLength The number of components of the sort key.
+     * @return The pagination parameters, or null if the request asks for no pagination.
+     * @throws IllegalArgumentException If {@code limit} or {@code after} is malformed.
+     */
+    public static PageRequest from(HttpServletRequest req, int keyLength) {
+        String limitParameter = req.getParameter("limit");
+        String afterParameter = req.getParameter("after");
+        if (limitParameter == null && afterParameter == null) {
+            return null;
+        }
+        int limit = DEFAULT_LIMIT;
+        if (limitParameter != null) {
+            try {
+                limit = Integer.parseInt(limitParameter);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid limit");
+            }
+            if (limit <= 0 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+            }
+        }
+        int[] after = afterParameter == null || afterParameter.isEmpty()
+                ? new int[0] : PageToken.decode(afterParameter, keyLength);
+        return new PageRequest(after, limit);
+    }
+
+    /**
+     * Returns the sort key the page starts after.
+     *
+     * @return The sort key components, empty for the first page.
+     */
+    public int[] getAfter() {
+        return after;
+    }
+
+    /**
+     * Returns the primary key the page starts after, for pages ordered by primary key.
+     *
+     * @return The primary key, or 0 for the first page.
+     */
+    public int getAfterId() {
+        return after.length == 0 ? 0 : after[0];
+    }
+
+    /**
+     * Returns the page size.
+     *
+     * @return The page size.
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.aston.util;
+
+import ru.aston.dto.PageDto.PageDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Encodes and decodes opaque keyset pagination tokens.
+ * A token carries the sort key of the last item of a page; the next page starts strictly after it.
+ */
+public final class PageToken {
+    private static final String VERSION = "v1:";
+
+    private PageToken() {
+    }
+
+    /**
+     * Encodes a sort key into a token.
+     *
+     * @param key The components of the sort key of the last item of a page.
+     * @return The opaque token.
+     */
+    public static String encode(int... key) {
+        StringBuilder builder = new StringBuilder(VERSION);
+        for (int i = 0; i < key.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(key[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token into the sort key it carries.
+     *
+     * @param token        The opaque token.
+     * @param keyLength    The expected number of sort key components.
+     * @return The components of the sort key.
+     * @throws IllegalArgumentException If the token is malformed.
+     */
+    public static int[] decode(String token, int keyLength) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        if (!decoded.startsWith(VERSION)) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        String[] parts = decoded.substring(VERSION.length()).split(",");
+        if (parts.length != keyLength) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        int[] key = new int[keyLength];
+        try {
+            for (int i = 0; i < keyLength; i++) {
+                key[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        return key;
+    }
+
+    /**
+     * Builds a page from items fetched with one extra item beyond the limit.
+     * The extra item only signals that a next page exists and is not returned.
+     *
+     * @param items  The fetched items, at most {@code limit + 1}.
+     * @param limit  The page size.
+     * @param keyOf  Extracts the sort key of an item.
+     * @param <T>    The type of the items.
+     * @return The page with a next page token if more items exist.
+     */
+    public static <T> PageDto<T> toPage(List<T> items, int limit, Function<T, int[]> keyOf) {
+        if (items.size() <= limit) {
+            return new PageDto<>(items, null);
+        }
+        List<T> pageItems = items.subList(0, limit);
+        return new PageDto<>(pageItems, encode(keyOf.apply(pageItems.get(limit - 1))));
+    }
+}
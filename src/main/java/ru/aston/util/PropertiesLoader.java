@@ -0,0 +1,88 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Loads properties files from the classpath and provides typed access to their values.
+ */
+public final class PropertiesLoader {
+    private static final Logger LOGGER = LogManager.getLogger(PropertiesLoader.class);
+
+    private PropertiesLoader() {
+    }
+
+    /**
+     * Loads the properties file with the given name from the classpath.
+     * If the file cannot be read, an error is reported and empty properties are returned.
+     *
+     * @param fileName The name of the properties file.
+     * @return Loaded properties.
+     */
+    public static Properties load(String fileName) {
+        Properties properties = new Properties();
+        try (InputStream inputStream =
+                     PropertiesLoader.class.getClassLoader().getResourceAsStream(fileName)) {
+            if (inputStream == null) {
+                throw new IOException("Properties file '" + fileName + "' not found");
+            }
+            properties.load(inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Error loading properties file '{}'", fileName, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Reads an integer property, falling back to the default value if it is absent or malformed.
+     *
+     * @param properties   The properties to read from.
+     * @param key          The property key.
+     * @param defaultValue The value to use if the property is absent.
+     * @return The integer value of the property.
+     */
+    public static int getInt(Properties properties, String key, int defaultValue) {
+        return (int) getLong(properties, key, defaultValue);
+    }
+
+    /**
+     * Reads a long property, falling back to the default value if it is absent or malformed.
+     *
+     * @param properties   The properties to read from.
+     * @param key          The property key.
+     * @param defaultValue The value to use if the property is absent.
+     * @return The long value of the property.
+     */
+    public static long getLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value '{}' for property {}", value, key);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a boolean property, falling back to the default value if it is absent.
+     *
+     * @param properties   The properties to read from.
+     * @param key          The property key.
+     * @param defaultValue The value to use if the property is absent.
+     * @return The boolean value of the property.
+     */
+    public static boolean getBoolean(Properties properties, String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+}
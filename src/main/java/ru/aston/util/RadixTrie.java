@@ -0,0 +1,333 @@
+package ru.aston.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable compressed prefix tree mapping string keys to values, answering top-k prefix queries.
+ * Every node keeps the best {@code topK} values of its subtree by the ranking, so a lookup costs
+ * the length of the prefix plus the size of the answer, independent of the number of keys.
+ * Updates copy only the path from the root to the changed node and return a new trie,
+ * so a trie can be read by any number of threads without locking while a new version is built.
+ *
+ * @param <T> The type of the values.
+ */
+public final class RadixTrie<T> {
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final Node root;
+    private final Comparator<? super T> ranking;
+    private final int topK;
+    private final int size;
+
+    private RadixTrie(Node root, Comparator<? super T> ranking, int topK, int size) {
+        this.root = root;
+        this.ranking = ranking;
+        this.topK = topK;
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty trie.
+     *
+     * @param ranking Orders values from best to worst.
+     * @param topK    The number of best values kept per node, the largest limit a lookup can use.
+     * @param <T>     The type of the values.
+     * @return The empty trie.
+     */
+    public static <T> RadixTrie<T> empty(Comparator<? super T> ranking, int topK) {
+        return new RadixTrie<>(new Node("", new Node[0], NO_VALUES, NO_VALUES), ranking, topK, 0);
+    }
+
+    /**
+     * Builds a trie from many entries at once, which is much cheaper than adding them one by one.
+     *
+     * @param entries The keys and values; a key may occur more than once.
+     * @param ranking Orders values from best to worst.
+     * @param topK    The number of best values kept per node.
+     * @param <T>     The type of the values.
+     * @return The trie.
+     */
+    public static <T> RadixTrie<T> build(List<Map.Entry<String, T>> entries, Comparator<? super T> ranking,
+                                         int topK) {
+        List<Map.Entry<String, T>> sorted = new ArrayList<>(entries);
+        sorted.sort(Map.Entry.comparingByKey());
+        Node root = RadixTrie.<T>empty(ranking, topK).buildNode("", sorted, 0, sorted.size(), 0);
+        return new RadixTrie<>(root, ranking, topK, sorted.size());
+    }
+
+    /**
+     * Returns the number of values in the trie.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the best values whose keys start with the prefix.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximal number of values, at most {@code topK}.
+     * @return The values from best to worst.
+     */
+    public List<T> complete(String prefix, int limit) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            Node child = node.child(prefix.charAt(offset));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            int remaining = prefix.length() - offset;
+            String label = child.label;
+            if (remaining <= label.length()) {
+                if (!label.regionMatches(0, prefix, offset, remaining)) {
+                    return Collections.emptyList();
+                }
+                node = child;
+                break;
+            }
+            if (!prefix.regionMatches(offset, label, 0, label.length())) {
+                return Collections.emptyList();
+            }
+            offset += label.length();
+            node = child;
+        }
+        return node.top(Math.min(limit, node.top.length));
+    }
+
+    /**
+     * Returns a trie that also maps the key to the value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return The new trie; this trie is unchanged.
+     */
+    public RadixTrie<T> with(String key, T value) {
+        return new RadixTrie<>(insert(root, key, 0, value), ranking, topK, size + 1);
+    }
+
+    /**
+     * Returns a trie without the values of the key that match the predicate.
+     *
+     * @param key   The key.
+     * @param match Selects the values to remove.
+     * @return The new trie, or this trie if nothing matched.
+     */
+    public RadixTrie<T> without(String key, Predicate<? super T> match) {
+        int[] removed = {0};
+        Node newRoot = remove(root, key, 0, match, removed);
+        if (removed[0] == 0) {
+            return this;
+        }
+        return new RadixTrie<>(newRoot == null ? empty(ranking, topK).root : newRoot, ranking, topK,
+                size - removed[0]);
+    }
+
+    private Node buildNode(String label, List<Map.Entry<String, T>> entries, int from, int to, int depth) {
+        int i = from;
+        List<Object> values = new ArrayList<>();
+        while (i < to && entries.get(i).getKey().length() == depth) {
+            values.add(entries.get(i).getValue());
+            i++;
+        }
+        List<Node> children = new ArrayList<>();
+        while (i < to) {
+            char first = entries.get(i).getKey().charAt(depth);
+            int groupEnd = i + 1;
+            while (groupEnd < to && entries.get(groupEnd).getKey().charAt(depth) == first) {
+                groupEnd++;
+            }
+            String firstKey = entries.get(i).getKey();
+            String lastKey = entries.get(groupEnd - 1).getKey();
+            int common = depth + 1;
+            while (common < firstKey.length() && common < lastKey.length()
+                    && firstKey.charAt(common) == lastKey.charAt(common)) {
+                common++;
+            }
+            children.add(buildNode(firstKey.substring(depth, common), entries, i, groupEnd, common));
+            i = groupEnd;
+        }
+        return node(label, children.toArray(new Node[0]), values.toArray());
+    }
+
+    private Node insert(Node node, String key, int offset, T value) {
+        if (offset == key.length()) {
+            Object[] values = Arrays.copyOf(node.values, node.values.length + 1);
+            values[node.values.length] = value;
+            return node(node.label, node.children, values);
+        }
+        int index = node.childIndex(key.charAt(offset));
+        if (index < 0) {
+            Node leaf = node(key.substring(offset), new Node[0], new Object[]{value});
+            return node(node.label, insertChild(node.children, -index - 1, leaf), node.values);
+        }
+        Node child = node.children[index];
+        int common = commonPrefix(child.label, key, offset);
+        Node newChild;
+        if (common == child.label.length()) {
+            newChild = insert(child, key, offset + common, value);
+        } else {
+            Node tail = node(child.label.substring(common), child.children, child.values, child.top);
+            if (offset + common == key.length()) {
+                newChild = node(child.label.substring(0, common), new Node[]{tail}, new Object[]{value});
+            } else {
+                Node leaf = node(key.substring(offset + common), new Node[0], new Object[]{value});
+                Node[] children = tail.label.charAt(0) < leaf.label.charAt(0)
+                        ? new Node[]{tail, leaf} : new Node[]{leaf, tail};
+                newChild = node(child.label.substring(0, common), children, NO_VALUES);
+            }
+        }
+        Node[] children = node.children.clone();
+        children[index] = newChild;
+        return node(node.label, children, node.values);
+    }
+
+    /**
+     * Removes matching values below the node. Returns null if the node becomes empty, and merges a node
+     * left with a single child and no values into that child, so the tree stays compressed.
+     */
+    private Node remove(Node node, String key, int offset, Predicate<? super T> match, int[] removed) {
+        Object[] values = node.values;
+        Node[] children = node.children;
+        if (offset == key.length()) {
+            List<Object> kept = new ArrayList<>(values.length);
+            for (Object value : values) {
+                @SuppressWarnings("unchecked")
+                T typed = (T) value;
+                if (match.test(typed)) {
+                    removed[0]++;
+                } else {
+                    kept.add(value);
+                }
+            }
+            if (kept.size() == values.length) {
+                return node;
+            }
+            values = kept.toArray();
+        } else {
+            int index = node.childIndex(key.charAt(offset));
+            if (index < 0) {
+                return node;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, offset)) {
+                return node;
+            }
+            Node newChild = remove(child, key, offset + child.label.length(), match, removed);
+            if (newChild == child) {
+                return node;
+            }
+            if (newChild == null) {
+                children = removeChild(children, index);
+            } else {
+                children = children.clone();
+                children[index] = newChild;
+            }
+        }
+        if (node != root && values.length == 0) {
+            if (children.length == 0) {
+                return null;
+            }
+            if (children.length == 1) {
+                Node only = children[0];
+                return node(node.label + only.label, only.children, only.values, only.top);
+            }
+        }
+        return node(node.label, children, values);
+    }
+
+    private Node node(String label, Node[] children, Object[] values) {
+        List<Object> candidates = new ArrayList<>(Arrays.asList(values));
+        for (Node child : children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        @SuppressWarnings("unchecked")
+        Comparator<Object> comparator = (Comparator<Object>) ranking;
+        candidates.sort(comparator);
+        Object[] top = candidates.subList(0, Math.min(topK, candidates.size())).toArray();
+        return node(label, children, values, top);
+    }
+
+    private static Node node(String label, Node[] children, Object[] values, Object[] top) {
+        return new Node(label, children, values, top);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Node[] insertChild(Node[] children, int position, Node child) {
+        Node[] result = new Node[children.length + 1];
+        System.arraycopy(children, 0, result, 0, position);
+        result[position] = child;
+        System.arraycopy(children, position, result, position + 1, children.length - position);
+        return result;
+    }
+
+    private static Node[] removeChild(Node[] children, int position) {
+        Node[] result = new Node[children.length - 1];
+        System.arraycopy(children, 0, result, 0, position);
+        System.arraycopy(children, position + 1, result, position, children.length - position - 1);
+        return result;
+    }
+
+    /**
+     * A node reached through its edge label. Children are sorted by the first character of their labels.
+     */
+    private static final class Node {
+        private final String label;
+        private final Node[] children;
+        private final Object[] values;
+        private final Object[] top;
+
+        private Node(String label, Node[] children, Object[] values, Object[] top) {
+            this.label = label;
+            this.children = children;
+            this.values = values;
+            this.top = top;
+        }
+
+        private Node child(char first) {
+            int index = childIndex(first);
+            return index < 0 ? null : children[index];
+        }
+
+        /**
+         * Finds the child whose label starts with the character, like {@link Arrays#binarySearch}.
+         */
+        private int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = children[middle].label.charAt(0);
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> List<T> top(int limit) {
+            return (List<T>) Collections.unmodifiableList(Arrays.asList(top).subList(0, limit));
+        }
+    }
+}
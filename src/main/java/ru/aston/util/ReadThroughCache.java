@@ -0,0 +1,401 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-process cache loading missing values on demand.
+ * <ul>
+ *     <li>Hits read a concurrent map without locking.</li>
+ *     <li>Concurrent misses of a key wait for a single load of it, so a hot key that expires does not send
+ *     a stampede of identical queries to the database.</li>
+ *     <li>Values expire after the time to live. Values read after the refresh-ahead time are still returned,
+ *     but reloaded once in the background, so hot keys are not missed when they expire.</li>
+ *     <li>Values are weighed, by default as 1 each; beyond the maximal weight values are evicted with the CLOCK
+ *     algorithm, which approximates LRU. Weighing values by their size in bytes bounds the memory held.</li>
+ *     <li>Every value is filed under tags, e.g. the rows it was read from, and invalidating a tag evicts
+ *     all values filed under it. A load overlapping the invalidation of one of its tags is returned
+ *     but not cached, so a write can never be overwritten by a value read before it.</li>
+ * </ul>
+ * Null values are not cached. Cached values are shared between threads and must not be modified.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class ReadThroughCache<K, V> {
+    private static final Logger LOGGER = LogManager.getLogger(ReadThroughCache.class);
+
+    /**
+     * The number of recent invalidations remembered to check loads against; a load overlapping
+     * more invalidations than that is not cached.
+     */
+    private static final int RECENT_INVALIDATIONS = 64;
+
+    private static final AtomicInteger REFRESHER_THREADS = new AtomicInteger();
+    private static final ExecutorService REFRESHER = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "cache-refresh-" + REFRESHER_THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long maxWeight;
+    private final ToIntFunction<? super V> weigher;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Function<? super V, long[]> tagger;
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the fields below, which change only when values are stored or evicted.
+     */
+    private final Object lock = new Object();
+    private final Map<Long, Set<Entry<K, V>>> entriesByTag = new HashMap<>();
+    private final ConcurrentLinkedQueue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final long[] recentInvalidations = new long[RECENT_INVALIDATIONS];
+    private long invalidationCount;
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs an empty cache bounded by the number of values.
+     *
+     * @param maxSize            The maximal number of cached values; 0 disables caching.
+     * @param ttlMillis          The time a value is served after it was loaded.
+     * @param refreshAfterMillis The age after which a value that is read is reloaded in the background;
+     *                           not less than the time to live disables refresh-ahead.
+     * @param tagger             Returns the tags a value is filed under.
+     */
+    public ReadThroughCache(int maxSize, long ttlMillis, long refreshAfterMillis, Function<? super V, long[]> tagger) {
+        this(maxSize, value -> 1, ttlMillis, refreshAfterMillis, tagger);
+    }
+
+    /**
+     * Constructs an empty cache bounded by the total weight of the values.
+     *
+     * @param maxWeight          The maximal total weight of the cached values; 0 disables caching.
+     * @param weigher            Returns the weight of a value, e.g. its size in bytes.
+     * @param ttlMillis          The time a value is served after it was loaded.
+     * @param refreshAfterMillis The age after which a value that is read is reloaded in the background;
+     *                           not less than the time to live disables refresh-ahead.
+     * @param tagger             Returns the tags a value is filed under.
+     */
+    public ReadThroughCache(long maxWeight, ToIntFunction<? super V> weigher, long ttlMillis, long refreshAfterMillis,
+                            Function<? super V, long[]> tagger) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(refreshAfterMillis, ttlMillis));
+        this.tagger = tagger;
+    }
+
+    /**
+     * Returns the cached value of the key, loading it if it is missing or expired.
+     *
+     * @param key    The key.
+     * @param loader Loads the value of the key; it is also used to refresh the value.
+     * @return The value, or null if the loader returned null.
+     * @throws RuntimeException Thrown by the loader.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null) {
+            long age = System.nanoTime() - entry.loadedAt;
+            if (age < ttlNanos) {
+                hits.increment();
+                entry.accessed = true;
+                if (age >= refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+                    refreshAsync(entry, loader);
+                }
+                return entry.value;
+            }
+        }
+        misses.increment();
+        if (maxWeight == 0) {
+            return loader.apply(key);
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            V value = load(key, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Evicts the value of a key.
+     *
+     * @param key The key.
+     */
+    public void invalidate(K key) {
+        synchronized (lock) {
+            Entry<K, V> entry = entries.get(key);
+            if (entry != null) {
+                remove(entry);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Evicts all values filed under a tag, and keeps values being loaded from being cached if they are filed
+     * under the tag.
+     *
+     * @param tag The tag.
+     */
+    public void invalidateTag(long tag) {
+        synchronized (lock) {
+            recentInvalidations[(int) (invalidationCount++ % RECENT_INVALIDATIONS)] = tag;
+            Set<Entry<K, V>> tagged = entriesByTag.get(tag);
+            if (tagged != null) {
+                for (Entry<K, V> entry : new ArrayList<>(tagged)) {
+                    remove(entry);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts all values and keeps values being loaded from being cached.
+     */
+    public void clear() {
+        synchronized (lock) {
+            invalidationCount += RECENT_INVALIDATIONS + 1;
+            invalidations.add(entries.size());
+            entries.clear();
+            entriesByTag.clear();
+            clock.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Returns the number of cached values, including expired values that have not been evicted yet.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached values.
+     *
+     * @return The weight.
+     */
+    public long weight() {
+        synchronized (lock) {
+            return weight;
+        }
+    }
+
+    /**
+     * Returns the counters of the cache as an ordered map suitable for JSON serialization.
+     *
+     * @return The current counter values.
+     */
+    public Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", size());
+        snapshot.put("weight", weight());
+        snapshot.put("maxWeight", maxWeight);
+        snapshot.put("hits", hitCount);
+        snapshot.put("misses", missCount);
+        snapshot.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        snapshot.put("loadFailures", loadFailures.sum());
+        snapshot.put("refreshes", refreshes.sum());
+        snapshot.put("evictions", evictions.sum());
+        snapshot.put("invalidations", invalidations.sum());
+        return snapshot;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long generation;
+        synchronized (lock) {
+            generation = invalidationCount;
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        }
+        if (value != null) {
+            store(key, value, generation);
+        }
+        return value;
+    }
+
+    private void refreshAsync(Entry<K, V> entry, Function<? super K, ? extends V> loader) {
+        try {
+            REFRESHER.execute(() -> {
+                try {
+                    refreshes.increment();
+                    V value = load(entry.key, loader);
+                    if (value == null) {
+                        invalidate(entry.key);
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Refreshing the cached value of {} failed", entry.key, e);
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Stops the background refreshes of all caches when the application is stopped. Values are then
+     * reloaded only when they expire.
+     */
+    public static void shutdown() {
+        REFRESHER.shutdownNow();
+    }
+
+    /**
+     * Caches a value unless one of its tags was invalidated since the load started at the generation.
+     */
+    private void store(K key, V value, long generation) {
+        long[] tags = tagger.apply(value);
+        int valueWeight = weigher.applyAsInt(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        synchronized (lock) {
+            if (invalidationCount - generation > RECENT_INVALIDATIONS) {
+                return;
+            }
+            for (long i = generation; i < invalidationCount; i++) {
+                long invalidated = recentInvalidations[(int) (i % RECENT_INVALIDATIONS)];
+                for (long tag : tags) {
+                    if (tag == invalidated) {
+                        return;
+                    }
+                }
+            }
+            Entry<K, V> entry = new Entry<>(key, value, tags, valueWeight, System.nanoTime());
+            Entry<K, V> previous = entries.put(key, entry);
+            if (previous != null) {
+                untag(previous);
+                weight -= previous.weight;
+                previous.removed = true;
+            }
+            weight += valueWeight;
+            for (long tag : tags) {
+                entriesByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(entry);
+            }
+            clock.add(entry);
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Evicts values until the cache fits its maximal weight. The CLOCK hand gives values read since it last
+     * passed them a second chance.
+     */
+    private void evictOverflow() {
+        while (weight > maxWeight) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.accessed) {
+                entry.accessed = false;
+                clock.add(entry);
+            } else {
+                remove(entry);
+                evictions.increment();
+            }
+        }
+        if (clock.size() > 2 * entries.size() + 16) {
+            clock.removeIf(entry -> entry.removed);
+        }
+    }
+
+    private void remove(Entry<K, V> entry) {
+        if (entries.remove(entry.key, entry)) {
+            untag(entry);
+            weight -= entry.weight;
+        }
+        entry.removed = true;
+    }
+
+    private void untag(Entry<K, V> entry) {
+        for (long tag : entry.tags) {
+            Set<Entry<K, V>> tagged = entriesByTag.get(tag);
+            if (tagged != null && tagged.remove(entry) && tagged.isEmpty()) {
+                entriesByTag.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * A cached value. {@code accessed} is the reference bit of the CLOCK algorithm.
+     */
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final long[] tags;
+        private final int weight;
+        private final long loadedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile boolean accessed;
+        private volatile boolean removed;
+
+        private Entry(K key, V value, long[] tags, int weight, long loadedAt) {
+            this.key = key;
+            this.value = value;
+            this.tags = tags;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
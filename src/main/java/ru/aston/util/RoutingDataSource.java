@@ -0,0 +1,307 @@
+package ru.aston.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Data source splitting reads and writes between a primary database and its streaming replicas.
+ * {@link #getConnection()} always returns a primary connection; once work that wrote is committed the primary's
+ * WAL position is issued as a {@link ConsistencyToken}. Connections that only read issue no token.
+ * {@link #getReadConnection()} returns a replica connection, skipping replicas that have not yet replayed the
+ * token of the current thread, and falling back to the primary when none has. The position each replica was
+ * last seen to have replayed is remembered, so a replica is only asked again once a read requires a later
+ * position.
+ */
+public class RoutingDataSource implements DataSource {
+    private static final Logger LOGGER = LogManager.getLogger(RoutingDataSource.class);
+    private static final String CURRENT_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+    private static final String REPLAY_CAUGHT_UP_QUERY =
+            "SELECT COALESCE(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), false)";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLongArray replayed;
+
+    /**
+     * Constructs a RoutingDataSource.
+     *
+     * @param primary  The data source of the primary database, used for writes.
+     * @param replicas The data sources of the replicas, used for reads. May be empty.
+     */
+    public RoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.replayed = new AtomicLongArray(replicas.size());
+    }
+
+    /**
+     * Returns the data source of the primary database.
+     *
+     * @return The primary data source.
+     */
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Returns the data sources of the replicas.
+     *
+     * @return The replica data sources.
+     */
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Returns a connection to the primary database for read-write work.
+     *
+     * @return A primary connection.
+     * @throws SQLException If a connection cannot be obtained.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = primary.getConnection();
+        return replicas.isEmpty() ? connection : trackWrites(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = primary.getConnection(username, password);
+        return replicas.isEmpty() ? connection : trackWrites(connection);
+    }
+
+    /**
+     * Returns a connection suitable for read-only work, preferring replicas in round-robin order.
+     *
+     * @return A replica connection, or a primary connection if no replica is usable.
+     * @throws SQLException If a primary connection cannot be obtained.
+     */
+    public Connection getReadConnection() throws SQLException {
+        int size = replicas.size();
+        if (size == 0) {
+            return primary.getConnection();
+        }
+        String requiredLsn = ConsistencyToken.getRequired();
+        long required = requiredLsn == null ? 0 : parseLsn(requiredLsn);
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            Connection connection;
+            try {
+                connection = replicas.get(index).getConnection();
+            } catch (SQLException e) {
+                continue;
+            }
+            if (requiredLsn == null || (required > 0 && replayed.get(index) >= required)) {
+                return connection;
+            }
+            if (hasReplayed(connection, requiredLsn)) {
+                if (required > 0) {
+                    replayed.accumulateAndGet(index, required, Math::max);
+                }
+                return connection;
+            }
+            connection.close();
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Parses a WAL position written as two hexadecimal numbers, e.g. {@code 16/B374D848}.
+     *
+     * @param lsn The WAL position, may be null.
+     * @return The position as a number, or -1 if it is malformed.
+     */
+    public static long parseLsn(String lsn) {
+        int slash = lsn == null ? -1 : lsn.indexOf('/');
+        if (slash < 1 || slash == lsn.length() - 1 || lsn.length() - slash > 9 || slash > 8) {
+            return -1;
+        }
+        try {
+            return (Long.parseLong(lsn.substring(0, slash), 16) << 32)
+                    | Long.parseLong(lsn.substring(slash + 1), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes a WAL position the way PostgreSQL does.
+     *
+     * @param lsn The position as a number.
+     * @return The position as two hexadecimal numbers.
+     */
+    public static String formatLsn(long lsn) {
+        return Long.toHexString(lsn >>> 32).toUpperCase(Locale.ROOT) + "/"
+                + Long.toHexString(lsn & 0xffffffffL).toUpperCase(Locale.ROOT);
+    }
+
+    private boolean hasReplayed(Connection connection, String lsn) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(REPLAY_CAUGHT_UP_QUERY)) {
+            preparedStatement.setString(1, lsn);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection trackWrites(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new WriteTracker(connection));
+    }
+
+    /**
+     * Tells whether a statement may change data. Only statements starting with SELECT, SHOW or VALUES
+     * are taken as reads; anything else, including CTEs which may contain DML, counts as a write.
+     *
+     * @param sql The SQL of the statement, may be null.
+     * @return true unless the statement only reads.
+     */
+    static boolean isWrite(String sql) {
+        if (sql == null) {
+            return true;
+        }
+        String statement = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return !(statement.startsWith("SELECT") || statement.startsWith("SHOW") || statement.startsWith("VALUES"));
+    }
+
+    private void issueToken(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(CURRENT_LSN_QUERY)) {
+            if (resultSet.next()) {
+                ConsistencyToken.issue(resultSet.getString(1));
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to read WAL position: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Issues a token when a primary connection commits work that wrote, or is closed after writing in
+     * auto-commit mode. Statements prepared with writing SQL, statements created without SQL that execute
+     * writing SQL and direct driver access, e.g. COPY, mark the connection as having written.
+     */
+    private final class WriteTracker implements InvocationHandler {
+        private final Connection connection;
+        private boolean wrote;
+
+        WriteTracker(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && wrote && !connection.isClosed() && connection.getAutoCommit()) {
+                issueToken(connection);
+                wrote = false;
+            }
+            Object result = invokeOn(connection, method, args);
+            switch (name) {
+                case "prepareStatement":
+                case "prepareCall":
+                    wrote |= isWrite((String) args[0]);
+                    break;
+                case "createStatement":
+                    return result == null ? null : trackStatement((Statement) result);
+                case "unwrap":
+                    wrote = true;
+                    break;
+                case "commit":
+                    if (wrote) {
+                        issueToken(connection);
+                        wrote = false;
+                    }
+                    break;
+                case "rollback":
+                    if (args == null) {
+                        wrote = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return result;
+        }
+
+        private Statement trackStatement(Statement statement) {
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                        if ((method.getName().startsWith("execute") || method.getName().equals("addBatch"))
+                                && args != null && args.length > 0 && args[0] instanceof String) {
+                            wrote |= isWrite((String) args[0]);
+                        }
+                        if (method.getName().equals("getConnection")) {
+                            return connection;
+                        }
+                        return invokeOn(statement, method, args);
+                    });
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,144 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs statements whose execution and result drain time exceed a threshold.
+ * Each entry is a JSON line with the SQL, its bound parameters and, if enabled, the plan
+ * captured asynchronously. SELECTs are re-run with {@code EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)};
+ * other statements are only planned with {@code EXPLAIN (FORMAT JSON)}, since executing them again would take
+ * row locks, fire triggers and advance sequences.
+ * Entries are written by the {@code ru.aston.slowquery} logger, which log4j2.xml routes to a rolling file.
+ */
+public class SlowQueryLog {
+    private static final Logger LOGGER = LogManager.getLogger("ru.aston.slowquery");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final ThreadPoolExecutor explainExecutor;
+
+    /**
+     * Constructs a SlowQueryLog.
+     *
+     * @param thresholdMillis Minimal total duration of a statement to be logged.
+     * @param explain         Whether to capture execution plans of logged statements.
+     */
+    public SlowQueryLog(long thresholdMillis, boolean explain) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explain = explain;
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Creates a SlowQueryLog configured by the {@code slowQuery.*} properties.
+     *
+     * @param properties Database properties.
+     * @return The configured log, or null if slow query logging is disabled.
+     */
+    public static SlowQueryLog fromProperties(Properties properties) {
+        if (!PropertiesLoader.getBoolean(properties, "slowQuery.enabled", false)) {
+            return null;
+        }
+        return new SlowQueryLog(PropertiesLoader.getLong(properties, "slowQuery.thresholdMillis", 200),
+                PropertiesLoader.getBoolean(properties, "slowQuery.explain", false));
+    }
+
+    /**
+     * Reports a completed statement execution, logging it if it exceeded the threshold.
+     *
+     * @param dataSource  The data source the statement ran against, used to capture the plan.
+     * @param sql         The executed SQL.
+     * @param parameters  The bound parameters in index order.
+     * @param execNanos   Time spent executing the statement.
+     * @param drainNanos  Time spent reading the result set.
+     * @param rows        Number of rows read from the result set.
+     */
+    public void report(DataSource dataSource, String sql, List<Object> parameters,
+                       long execNanos, long drainNanos, long rows) {
+        if (execNanos + drainNanos < thresholdNanos) {
+            return;
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("timestamp", System.currentTimeMillis());
+        entry.put("totalMillis", (execNanos + drainNanos) / 1_000_000.0);
+        entry.put("execMillis", execNanos / 1_000_000.0);
+        entry.put("drainMillis", drainNanos / 1_000_000.0);
+        entry.put("rows", rows);
+        entry.put("sql", sql);
+        entry.put("parameters", parameters);
+
+        if (!explain) {
+            write(entry);
+            return;
+        }
+        try {
+            explainExecutor.execute(() -> {
+                entry.put("plan", capturePlan(dataSource, sql, parameters));
+                write(entry);
+            });
+        } catch (RejectedExecutionException e) {
+            entry.put("plan", "skipped: explain queue is full");
+            write(entry);
+        }
+    }
+
+    /**
+     * Stops capturing plans. Pending entries are discarded.
+     */
+    public void close() {
+        explainExecutor.shutdownNow();
+    }
+
+    private Object capturePlan(DataSource dataSource, String sql, List<Object> parameters) {
+        String explainPrefix = RoutingDataSource.isWrite(sql)
+                ? "EXPLAIN (FORMAT JSON) " : "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) ";
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(explainPrefix + sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    preparedStatement.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() ? MAPPER.readTree(resultSet.getString(1)) : null;
+                }
+            } finally {
+                // EXPLAIN ANALYZE executes the SELECT, e.g. its function calls, so nothing may be committed.
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            return "unavailable: " + e.getMessage();
+        }
+    }
+
+    private void write(Map<String, Object> entry) {
+        try {
+            LOGGER.warn(MAPPER.writeValueAsString(entry));
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("{} ms: {}", entry.get("totalMillis"), entry.get("sql"));
+        }
+    }
+}
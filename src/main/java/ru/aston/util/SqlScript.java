@@ -0,0 +1,125 @@
+package ru.aston.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits SQL scripts into statements. Semicolons inside string literals, quoted identifiers, comments
+ * and dollar-quoted bodies do not end a statement.
+ */
+public final class SqlScript {
+
+    private SqlScript() {
+    }
+
+    /**
+     * Splits a script into its statements.
+     *
+     * @param script The SQL script.
+     * @return The statements without their terminating semicolons; statements holding only comments are left out.
+     */
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        int length = script.length();
+        int start = 0;
+        boolean hasCode = false;
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '-' && i + 1 < length && script.charAt(i + 1) == '-') {
+                int end = script.indexOf('\n', i);
+                i = end == -1 ? length : end + 1;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                i = skipBlockComment(script, i);
+                continue;
+            }
+            if (c == ';') {
+                if (hasCode) {
+                    statements.add(script.substring(start, i).trim());
+                }
+                start = i + 1;
+                hasCode = false;
+                i++;
+                continue;
+            }
+            if (!Character.isWhitespace(c)) {
+                hasCode = true;
+            }
+            if (c == '\'') {
+                boolean escapes = i > 0 && (script.charAt(i - 1) == 'E' || script.charAt(i - 1) == 'e');
+                i = skipQuoted(script, i, '\'', escapes);
+            } else if (c == '"') {
+                i = skipQuoted(script, i, '"', false);
+            } else if (c == '$') {
+                i = skipDollarQuoted(script, i);
+            } else {
+                i++;
+            }
+        }
+        if (hasCode) {
+            statements.add(script.substring(start).trim());
+        }
+        return statements;
+    }
+
+    private static int skipQuoted(String script, int open, char quote, boolean backslashEscapes) {
+        int i = open + 1;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(String script, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < script.length()) {
+            if (script.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else if (script.startsWith("*/", i)) {
+                depth--;
+                i += 2;
+                if (depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Skips a dollar-quoted body such as {@code $$ ... $$} or {@code $body$ ... $body$}.
+     * A dollar sign that does not open a tag, e.g. a positional parameter {@code $1}, is skipped alone.
+     */
+    private static int skipDollarQuoted(String script, int open) {
+        int i = open + 1;
+        if (i < script.length() && Character.isDigit(script.charAt(i))) {
+            return i;
+        }
+        while (i < script.length() && (Character.isLetterOrDigit(script.charAt(i)) || script.charAt(i) == '_')) {
+            i++;
+        }
+        if (i >= script.length() || script.charAt(i) != '$') {
+            return open + 1;
+        }
+        String tag = script.substring(open, i + 1);
+        int close = script.indexOf(tag, i + 1);
+        return close == -1 ? script.length() : close + tag.length();
+    }
+}
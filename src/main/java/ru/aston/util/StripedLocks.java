@@ -0,0 +1,35 @@
+package ru.aston.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by many keys. Updates of the same key are serialized while updates of keys
+ * mapped to different stripes proceed in parallel, without allocating a lock per key.
+ */
+public final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    /**
+     * Constructs StripedLocks.
+     *
+     * @param stripes The minimal number of stripes; it is rounded up to a power of two.
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the lock of the key's stripe.
+     *
+     * @param key The key.
+     * @return The lock.
+     */
+    public ReentrantLock get(int key) {
+        int hash = key * 0x9E3779B9;
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+}
@@ -3,11 +3,6 @@ package ru.aston.util;
 import org.apache.commons.dbcp2.BasicDataSource;
 
 import javax.sql.DataSource;
-import java.io.IOException;
-import java.io.InputStream;
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.Statement;
 
 /**
  * TestConnectionManager class provides methods for setting up and initializing a test database schema.
@@ -28,27 +23,18 @@ public class TestConnectionManager {
         dataSource.setUsername(username);
         dataSource.setPassword(password);
         dataSource.setDriverClassName("org.postgresql.Driver"); // Set the JDBC driver class name
+        dataSource.addConnectionProperty("reWriteBatchedInserts", "true");
 
         return dataSource;
     }
 
     /**
-     * Initializes the database schema using the provided DataSource.
+     * Initializes the database schema using the provided DataSource by applying the migrations
+     * the application runs at startup.
      *
      * @param dataSource the DataSource object representing the database connection
      */
     public static void initializeDatabaseSchema(DataSource dataSource) {
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-            InputStream inputStream = TestConnectionManager.class.getResourceAsStream("/schema.sql");
-            if (inputStream != null) {
-                String schemaSql = new String(inputStream.readAllBytes());
-                statement.executeUpdate(schemaSql);
-            } else {
-                throw new IOException("Unable to load schema SQL file.");
-            }
-        } catch (IOException | SQLException e) {
-            e.printStackTrace();
-        }
+        new MigrationRunner(dataSource).migrate();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package ru.aston.util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Data source wrapper that times every statement execution and every result set drain
+ * and reports them, together with the bound parameters, to a {@link SlowQueryLog}.
+ */
+public class TimingDataSource implements DataSource {
+    private final DataSource target;
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * Constructs a TimingDataSource.
+     *
+     * @param target       The data source to time.
+     * @param slowQueryLog The log receiving timed executions.
+     */
+    public TimingDataSource(DataSource target, SlowQueryLog slowQueryLog) {
+        this.target = target;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(target.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(target.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement && method.getName().startsWith("prepare")) {
+                        return wrapStatement((Statement) result, (String) args[0]);
+                    }
+                    if (result instanceof Statement && method.getName().equals("createStatement")) {
+                        return wrapStatement((Statement) result, null);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, String preparedSql) {
+        ExecutionTracker tracker = new ExecutionTracker(preparedSql);
+        Class<?> iface = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{iface}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        tracker.parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    } else if (name.equals("clearParameters")) {
+                        tracker.parameters.clear();
+                    } else if (name.equals("close")) {
+                        tracker.flush();
+                    }
+                    if (!name.startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+
+                    tracker.flush();
+                    tracker.begin(args != null && args.length > 0 && args[0] instanceof String
+                            ? (String) args[0] : preparedSql);
+                    long start = System.nanoTime();
+                    Object result;
+                    try {
+                        result = invoke(statement, method, args);
+                    } finally {
+                        tracker.execNanos = System.nanoTime() - start;
+                    }
+                    if (result instanceof ResultSet) {
+                        return wrapResultSet((ResultSet) result, tracker);
+                    }
+                    tracker.flush();
+                    return result;
+                });
+    }
+
+    private ResultSet wrapResultSet(ResultSet resultSet, ExecutionTracker tracker) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("next")) {
+                        long start = System.nanoTime();
+                        boolean hasRow = (Boolean) invoke(resultSet, method, args);
+                        tracker.drainNanos += System.nanoTime() - start;
+                        if (hasRow) {
+                            tracker.rows++;
+                        } else {
+                            tracker.flush();
+                        }
+                        return hasRow;
+                    }
+                    if (name.equals("close")) {
+                        tracker.flush();
+                    }
+                    return invoke(resultSet, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Accumulates timing of the current execution of a statement until it is reported.
+     */
+    private class ExecutionTracker {
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private final String preparedSql;
+        private String sql;
+        private long execNanos;
+        private long drainNanos;
+        private long rows;
+
+        private ExecutionTracker(String preparedSql) {
+            this.preparedSql = preparedSql;
+        }
+
+        private void begin(String executedSql) {
+            sql = executedSql != null ? executedSql : preparedSql;
+            execNanos = 0;
+            drainNanos = 0;
+            rows = 0;
+        }
+
+        private void flush() {
+            if (sql == null) {
+                return;
+            }
+            slowQueryLog.report(target, sql, new ArrayList<>(parameters.values()), execNanos, drainNanos, rows);
+            sql = null;
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,17 @@
+-- migration: no-transaction
+-- Indexes on the foreign key columns, built without blocking writes. Besides serving the FK checks of
+-- deletes, each index carries the columns the DAO joins read, so those joins can be answered from the index.
+-- A concurrent build that fails leaves an invalid index behind, so every index is dropped first
+-- and the migration can simply be rerun.
+
+DROP INDEX CONCURRENTLY IF EXISTS books_author_id_idx;
+CREATE INDEX CONCURRENTLY books_author_id_idx ON books (author_id) INCLUDE (book_id, book_title);
+
+DROP INDEX CONCURRENTLY IF EXISTS comments_book_id_idx;
+CREATE INDEX CONCURRENTLY comments_book_id_idx ON comments (book_id) INCLUDE (comment_id, user_id);
+
+DROP INDEX CONCURRENTLY IF EXISTS comments_user_id_idx;
+CREATE INDEX CONCURRENTLY comments_user_id_idx ON comments (user_id) INCLUDE (comment_id, book_id);
+
+DROP INDEX CONCURRENTLY IF EXISTS user_books_book_id_idx;
+CREATE INDEX CONCURRENTLY user_books_book_id_idx ON user_books (book_id);
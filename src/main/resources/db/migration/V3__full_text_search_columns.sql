@@ -0,0 +1,6 @@
+-- Search vectors of book titles and comment texts, kept up to date by PostgreSQL on every insert and update.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS title_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', book_title)) STORED;
+
+ALTER TABLE comments ADD COLUMN IF NOT EXISTS text_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', text)) STORED;
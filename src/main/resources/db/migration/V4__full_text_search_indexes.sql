@@ -0,0 +1,8 @@
+-- migration: no-transaction
+-- GIN indexes answering @@ matches on the search vectors.
+
+DROP INDEX CONCURRENTLY IF EXISTS books_title_tsv_idx;
+CREATE INDEX CONCURRENTLY books_title_tsv_idx ON books USING gin (title_tsv);
+
+DROP INDEX CONCURRENTLY IF EXISTS comments_text_tsv_idx;
+CREATE INDEX CONCURRENTLY comments_text_tsv_idx ON comments USING gin (text_tsv);
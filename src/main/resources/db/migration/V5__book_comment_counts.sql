@@ -0,0 +1,38 @@
+-- Number of comments per book, kept exact by statement-level triggers on comments. The triggers update each
+-- affected book once per statement, so a bulk import of comments costs one update per book, not per comment.
+-- Comment writers are blocked while the counts are backfilled, so no change is counted twice or lost.
+LOCK TABLE comments IN SHARE MODE;
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS comment_count integer NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION books_count_comments() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        UPDATE books b SET comment_count = b.comment_count + n.count
+        FROM (SELECT book_id, count(*) AS count FROM new_comments GROUP BY book_id) n
+        WHERE b.book_id = n.book_id;
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        UPDATE books b SET comment_count = b.comment_count - o.count
+        FROM (SELECT book_id, count(*) AS count FROM old_comments GROUP BY book_id) o
+        WHERE b.book_id = o.book_id;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER comments_count_inserted AFTER INSERT ON comments
+    REFERENCING NEW TABLE AS new_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION books_count_comments();
+
+CREATE TRIGGER comments_count_deleted AFTER DELETE ON comments
+    REFERENCING OLD TABLE AS old_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION books_count_comments();
+
+CREATE TRIGGER comments_count_updated AFTER UPDATE ON comments
+    REFERENCING OLD TABLE AS old_comments NEW TABLE AS new_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION books_count_comments();
+
+UPDATE books b SET comment_count = c.count
+FROM (SELECT book_id, count(*) AS count FROM comments GROUP BY book_id) c
+WHERE b.book_id = c.book_id;
@@ -0,0 +1,5 @@
+-- migration: no-transaction
+-- Serves /books?sort=mostCommented: books by comment count descending, ties by ID, as a keyset range scan.
+
+DROP INDEX CONCURRENTLY IF EXISTS books_comment_count_idx;
+CREATE INDEX CONCURRENTLY books_comment_count_idx ON books (comment_count DESC, book_id);
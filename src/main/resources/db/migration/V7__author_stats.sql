@@ -0,0 +1,24 @@
+-- Books and comments per author for dashboards, refreshed in the background by AuthorStatsRefresher.
+-- Comment totals add up the denormalized books.comment_count, so the refresh does not scan comments.
+-- The unique index is required by REFRESH MATERIALIZED VIEW CONCURRENTLY, which keeps the view readable
+-- while it is refreshed; the other indexes serve the keyset pages of /authors/stats.
+CREATE MATERIALIZED VIEW author_stats AS
+SELECT a.author_id, a.author_name,
+       count(b.book_id)::int AS book_count,
+       coalesce(sum(b.comment_count), 0)::int AS comment_count
+FROM authors a
+LEFT JOIN books b ON b.author_id = a.author_id
+GROUP BY a.author_id, a.author_name;
+
+CREATE UNIQUE INDEX author_stats_author_id_idx ON author_stats (author_id);
+CREATE INDEX author_stats_book_count_idx ON author_stats (book_count DESC, author_id);
+CREATE INDEX author_stats_comment_count_idx ON author_stats (comment_count DESC, author_id);
+
+-- When each materialized view was last refreshed by any node, so nodes sharing the database
+-- refresh a view once per interval instead of once per node.
+CREATE TABLE materialized_view_refreshes (
+    view_name    varchar(63) PRIMARY KEY,
+    refreshed_at timestamptz NOT NULL
+);
+
+INSERT INTO materialized_view_refreshes (view_name, refreshed_at) VALUES ('author_stats', now());
@@ -0,0 +1,70 @@
+-- Versions of the book and author representations, the source of their ETags. A version is bumped by every
+-- update of its row; changes to embedded rows update the parent row, so they bump the parent's version too:
+-- comments change books.comment_count (see the comment count migration), books touch their authors and
+-- renamed authors touch their books. Adding the columns with a constant default does not rewrite the tables.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 1;
+ALTER TABLE authors ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 1;
+
+CREATE OR REPLACE FUNCTION bump_version() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER books_bump_version BEFORE UPDATE ON books
+    FOR EACH ROW EXECUTE FUNCTION bump_version();
+
+CREATE TRIGGER authors_bump_version BEFORE UPDATE ON authors
+    FOR EACH ROW EXECUTE FUNCTION bump_version();
+
+-- Authors embed the titles and comment counts of their books: touch each affected author once per statement.
+-- Statement triggers also fire for statements changing no rows, so the touches are skipped when nothing changed;
+-- otherwise the two touch triggers would keep firing each other.
+CREATE OR REPLACE FUNCTION authors_touch_for_books() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    author_ids integer[] := '{}';
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        author_ids := author_ids || ARRAY(SELECT author_id FROM new_books WHERE author_id IS NOT NULL);
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        author_ids := author_ids || ARRAY(SELECT author_id FROM old_books WHERE author_id IS NOT NULL);
+    END IF;
+    IF cardinality(author_ids) > 0 THEN
+        UPDATE authors SET version = version WHERE author_id = ANY(author_ids);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER books_touch_authors_inserted AFTER INSERT ON books
+    REFERENCING NEW TABLE AS new_books
+    FOR EACH STATEMENT EXECUTE FUNCTION authors_touch_for_books();
+
+CREATE TRIGGER books_touch_authors_deleted AFTER DELETE ON books
+    REFERENCING OLD TABLE AS old_books
+    FOR EACH STATEMENT EXECUTE FUNCTION authors_touch_for_books();
+
+CREATE TRIGGER books_touch_authors_updated AFTER UPDATE ON books
+    REFERENCING OLD TABLE AS old_books NEW TABLE AS new_books
+    FOR EACH STATEMENT EXECUTE FUNCTION authors_touch_for_books();
+
+-- Books embed the name of their author: touch the books of renamed authors. Touching an author for its books
+-- does not change its name, so touching stops there.
+CREATE OR REPLACE FUNCTION books_touch_for_authors() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    author_ids integer[];
+BEGIN
+    author_ids := ARRAY(SELECT n.author_id FROM new_authors n JOIN old_authors o ON o.author_id = n.author_id
+                        WHERE n.author_name IS DISTINCT FROM o.author_name);
+    IF cardinality(author_ids) > 0 THEN
+        UPDATE books SET version = version WHERE author_id = ANY(author_ids);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER authors_touch_books_updated AFTER UPDATE ON authors
+    REFERENCING OLD TABLE AS old_authors NEW TABLE AS new_authors
+    FOR EACH STATEMENT EXECUTE FUNCTION books_touch_for_authors();
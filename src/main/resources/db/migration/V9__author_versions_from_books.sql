@@ -0,0 +1,40 @@
+-- Every comment updates books.comment_count, and touching the book's author for it serialized all comment
+-- writes on the books of one author on the author row and bloated authors. An author's representation now
+-- has the version of the author plus the versions of their books (see AuthorDaoImpl), which every change of
+-- a book already bumps, so authors are only touched when they lose books: by the version of the lost book
+-- plus one, so the sum still grows with every change however concurrent writes commit.
+CREATE OR REPLACE FUNCTION bump_version() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.version := greatest(NEW.version, OLD.version) + 1;
+    RETURN NEW;
+END
+$$;
+
+-- Statement triggers also fire for statements changing no rows, so the touch is skipped when no author
+-- lost a book; otherwise every comment would still fire the author triggers.
+CREATE OR REPLACE FUNCTION authors_touch_for_books() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    author_ids integer[];
+    lost_versions numeric[];
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        SELECT array_agg(author_id), array_agg(versions) INTO author_ids, lost_versions
+        FROM (SELECT author_id, sum(version) AS versions FROM old_books
+              WHERE author_id IS NOT NULL GROUP BY author_id) lost;
+    ELSE
+        SELECT array_agg(author_id), array_agg(versions) INTO author_ids, lost_versions
+        FROM (SELECT o.author_id, sum(o.version) AS versions
+              FROM old_books o JOIN new_books n ON n.book_id = o.book_id
+              WHERE o.author_id IS NOT NULL AND o.author_id IS DISTINCT FROM n.author_id
+              GROUP BY o.author_id) lost;
+    END IF;
+    IF author_ids IS NOT NULL THEN
+        UPDATE authors a SET version = a.version + lost.versions
+        FROM unnest(author_ids, lost_versions) AS lost(author_id, versions)
+        WHERE a.author_id = lost.author_id;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS books_touch_authors_inserted ON books;
@@ -0,0 +1,118 @@
+package ru.aston.codegen;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.BookDto.BookDtoJsonSerializer;
+import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.CommentDto.CommentDto;
+import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.UserDto.UserDto;
+import ru.aston.util.JsonCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the JSON code generated by JsonCodegenProcessor, which has to read and write
+ * exactly what Jackson reads and writes.
+ */
+public class GeneratedJsonTest {
+    private static ObjectMapper jackson;
+    private static ObjectMapper generated;
+
+    @BeforeAll
+    public static void setUp() {
+        Module module = JsonCodec.generatedModule();
+        assertNotNull(module);
+        jackson = new ObjectMapper();
+        generated = new ObjectMapper().registerModule(module);
+    }
+
+    /**
+     * Tests that the generated code is used and writes nested DTOs, lists, nulls and escapes as Jackson does.
+     */
+    @Test
+    public void testWritesAsJackson() throws Exception {
+        assertSame(BookDtoJsonSerializer.INSTANCE,
+                generated.getSerializerProviderInstance().findValueSerializer(BookDto.class));
+
+        AuthorDto author = new AuthorDto();
+        author.setAuthorId(7);
+        author.setAuthorName("Stephen \"King\"\n\u00e9\u0416");
+        BookDto listed = new BookDto();
+        listed.setBookId(2);
+        author.getBooks().add(listed);
+        author.getBooks().add(null);
+        UserDto user = new UserDto();
+        user.setUserId(3);
+        user.setReviewedBooks(null);
+        CommentDto comment = new CommentDto();
+        comment.setCommentId(4);
+        comment.setUser(user);
+        comment.setText(null);
+        BookDto book = new BookDto();
+        book.setBookId(1);
+        book.setBookTitle("The Mist \u2014 \\ </script>");
+        book.setCommentCount(Integer.MIN_VALUE);
+        book.setAuthor(author);
+        book.setComments(new ArrayList<>(Arrays.asList(comment, null)));
+        ImportResultDto result = new ImportResultDto();
+        result.setRejectedRecords(List.of(1L, Long.MAX_VALUE));
+
+        for (Object value : List.of(book, author, user, comment, result, new BookDto(),
+                new SuggestionDto(SuggestionDto.BOOK, 5, "It", 42L),
+                new PageDto<>(List.of(book, listed), "token"))) {
+            assertEquals(jackson.writeValueAsString(value), generated.writeValueAsString(value));
+            assertArrayEquals(jackson.writeValueAsBytes(value), generated.writeValueAsBytes(value));
+        }
+    }
+
+    /**
+     * Tests that the generated code reads what Jackson reads, including coercions, nulls and nested lists.
+     */
+    @Test
+    public void testReadsAsJackson() throws Exception {
+        String book = "{\"bookTitle\":\"It\",\"bookId\":\"12\",\"commentCount\":null,"
+                + "\"author\":{\"authorId\":7,\"books\":[{\"bookId\":8,\"comments\":null},null]},"
+                + "\"comments\":[{\"commentId\":1,\"text\":\"\\u0416\",\"user\":{\"userId\":2}}]}";
+        assertEquals(jackson.writeValueAsString(jackson.readValue(book, BookDto.class)),
+                jackson.writeValueAsString(generated.readValue(book, BookDto.class)));
+        assertEquals(jackson.writeValueAsString(jackson.readValue("{}", CommentShortDto.class)),
+                jackson.writeValueAsString(generated.readValue("{}", CommentShortDto.class)));
+        assertNull(generated.readValue("null", BookShortDto.class));
+
+        String batch = "[{\"bookTitle\":\"A\",\"authorId\":1},{\"bookTitle\":null,\"authorId\":2}]";
+        TypeReference<List<BookShortDto>> listType = new TypeReference<List<BookShortDto>>() {
+        };
+        assertEquals(jackson.writeValueAsString(jackson.readValue(batch, listType)),
+                jackson.writeValueAsString(generated.readValue(batch, listType)));
+    }
+
+    /**
+     * Tests that the generated code rejects what Jackson rejects and honors the configuration of the mapper.
+     */
+    @Test
+    public void testRejectsAsJackson() throws Exception {
+        for (String json : List.of("{\"isbn\":\"x\"}", "[1]", "{\"bookId\":\"twelve\"}", "{\"bookId\":{}}")) {
+            Exception expected = assertThrows(Exception.class, () -> jackson.readValue(json, BookShortDto.class));
+            Exception actual = assertThrows(Exception.class, () -> generated.readValue(json, BookShortDto.class));
+            assertEquals(expected.getClass(), actual.getClass(), json);
+        }
+
+        ObjectMapper lenient = generated.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        BookShortDto book = lenient.readValue("{\"isbn\":{\"a\":[1]},\"authorId\":3}", BookShortDto.class);
+        assertEquals(3, book.getAuthorId());
+    }
+}
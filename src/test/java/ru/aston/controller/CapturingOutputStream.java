@@ -0,0 +1,50 @@
+package ru.aston.controller;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Servlet output stream keeping the bytes written to a mocked response, so tests can assert on the body.
+ */
+public class CapturingOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+    }
+
+    @Override
+    public void write(int b) {
+        body.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        body.write(b, off, len);
+    }
+
+    public byte[] toByteArray() {
+        return body.toByteArray();
+    }
+
+    public int size() {
+        return body.size();
+    }
+
+    /**
+     * Returns the written bytes decoded as UTF-8.
+     *
+     * @return The body.
+     */
+    @Override
+    public String toString() {
+        return body.toString(StandardCharsets.UTF_8);
+    }
+}
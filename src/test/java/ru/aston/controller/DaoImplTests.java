@@ -3,27 +3,66 @@ package ru.aston.controller;
 import org.junit.jupiter.api.*;
 import org.testcontainers.containers.PostgreSQLContainer;
 import ru.aston.dao.authorDao.AuthorDaoImpl;
+import ru.aston.dao.authorStatsDao.AuthorStatsDaoImpl;
+import ru.aston.dao.autocompleteDao.AutocompleteDaoImpl;
+import ru.aston.dao.ChangeNotifications;
 import ru.aston.dao.bookDao.BookDaoImpl;
 import ru.aston.dao.commentDao.CommentDaoImpl;
+import ru.aston.dao.exportDao.ExportDaoImpl;
+import ru.aston.dao.exportDao.ExportFormat;
+import ru.aston.dao.exportDao.ExportTarget;
+import ru.aston.dao.importDao.ImportDaoImpl;
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dao.shelfDao.ShelfDaoImpl;
 import ru.aston.dao.userDao.UserDaoImpl;
 import ru.aston.dto.AuthorDto.AuthorDto;
 import ru.aston.dto.AuthorDto.AuthorDtoShort;
+import ru.aston.dto.AuthorDto.AuthorStatsDto;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 import ru.aston.dto.UserDto.UserDto;
 import ru.aston.dto.UserDto.UserDtoShort;
 import ru.aston.service.authorService.AuthorServiceImpl;
+import ru.aston.service.authorStatsService.AuthorStatsServiceImpl;
+import ru.aston.service.autocompleteService.AutocompleteIndex;
+import ru.aston.service.autocompleteService.AutocompleteServiceImpl;
 import ru.aston.service.bookService.BookServiceImpl;
+import ru.aston.service.cacheService.InvalidationListener;
 import ru.aston.service.commentService.CommentServiceImpl;
+import ru.aston.service.exportService.ExportServiceImpl;
+import ru.aston.service.importService.ImportServiceImpl;
+import ru.aston.service.shelfService.ShelfServiceImpl;
 import ru.aston.service.userService.UserServiceImpl;
+import ru.aston.util.MigrationRunner;
+import ru.aston.util.PageToken;
 import ru.aston.util.TestConnectionManager;
 
 import javax.sql.DataSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -39,6 +78,9 @@ public class DaoImplTests {
     private static CommentServiceImpl commentServiceImpl;
     private static AuthorServiceImpl authorServiceImpl;
     private static BookServiceImpl bookServiceImpl;
+    private static ImportServiceImpl importServiceImpl;
+    private static ExportServiceImpl exportServiceImpl;
+    private static DataSource dataSource;
 
     // PostgresSQL container for testing
     private static final PostgreSQLContainer<?> postgresContainer =
@@ -58,7 +100,7 @@ public class DaoImplTests {
         String jdbcUrl = postgresContainer.getJdbcUrl();
         String username = postgresContainer.getUsername();
         String password = postgresContainer.getPassword();
-        DataSource dataSource = TestConnectionManager.getDataSource(jdbcUrl, username, password);
+        dataSource = TestConnectionManager.getDataSource(jdbcUrl, username, password);
 
         TestConnectionManager.initializeDatabaseSchema(dataSource);
 
@@ -66,6 +108,8 @@ public class DaoImplTests {
         authorServiceImpl = new AuthorServiceImpl(new AuthorDaoImpl(dataSource));
         bookServiceImpl = new BookServiceImpl(new BookDaoImpl(dataSource));
         commentServiceImpl = new CommentServiceImpl(new CommentDaoImpl(dataSource));
+        importServiceImpl = new ImportServiceImpl(new ImportDaoImpl(dataSource));
+        exportServiceImpl = new ExportServiceImpl(new ExportDaoImpl(dataSource));
     }
 
     /**
@@ -100,6 +144,13 @@ public class DaoImplTests {
         return book1;
     }
 
+    BookShortDto giveBookWithMissingAuthor() {
+        BookShortDto book = new BookShortDto();
+        book.setBookTitle("No author");
+        book.setAuthorId(999);
+        return book;
+    }
+
     BookShortDto giveBook2WithAuthor2() {
         BookShortDto book2 = new BookShortDto();
         book2.setBookTitle("Book 2");
@@ -552,4 +603,603 @@ public class DaoImplTests {
         assertEquals(giveBook2WithAuthor2().getBookTitle(), commentsList.get(1).getBook().getBookTitle());
         assertEquals(giveComment2FromUser2ToBook2().getText(), commentsList.get(1).getText());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests paging through books with keyset pagination.
+     * Order: 26
+     */
+    @Test
+    @Order(26)
+    public void testGetBooksPage() {
+        PageDto<BookDto> firstPage = bookServiceImpl.getBooksPage(0, 1);
+
+        assertEquals(1, firstPage.getItems().size());
+        assertEquals(1, firstPage.getItems().get(0).getBookId());
+        assertEquals(1, firstPage.getItems().get(0).getComments().size());
+        assertNotNull(firstPage.getNextPageToken());
+
+        int afterId = PageToken.decode(firstPage.getNextPageToken(), 1)[0];
+        PageDto<BookDto> secondPage = bookServiceImpl.getBooksPage(afterId, 1);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals(giveBook2WithAuthor2().getBookTitle(), secondPage.getItems().get(0).getBookTitle());
+        assertNull(secondPage.getNextPageToken());
+    }
+
+    /**
+     * Tests paging through comments with keyset pagination.
+     * Order: 27
+     */
+    @Test
+    @Order(27)
+    public void testGetCommentsPage() {
+        PageDto<CommentDto> page = commentServiceImpl.getCommentsPage(1, 10);
+
+        assertEquals(1, page.getItems().size());
+        assertEquals(2, page.getItems().get(0).getCommentId());
+        assertNull(page.getNextPageToken());
+    }
+
+    /**
+     * Tests streaming all users through a database cursor.
+     * Order: 28
+     */
+    @Test
+    @Order(28)
+    public void testStreamAllUsers() {
+        List<UserDto> users = new ArrayList<>();
+        userServiceImpl.streamAllUsers(users::add);
+
+        assertEquals(2, users.size());
+        assertEquals(giveUser1().getName(), users.get(0).getUserName());
+        assertEquals(1, users.get(0).getComments().size());
+        assertEquals(giveUser2().getName(), users.get(1).getUserName());
+    }
+
+    /**
+     * Tests that a book reviewed several times by a user is listed once in the user's reviewed books.
+     * Order: 29
+     */
+    @Test
+    @Order(29)
+    public void testGetUserByIdDeduplicatesReviewedBooks() {
+        commentServiceImpl.createComment(giveComment2FromUser2ToBook2());
+
+        UserDto user = userServiceImpl.getUserById(2);
+
+        assertEquals(2, user.getComments().size());
+        assertEquals(1, user.getReviewedBooks().size());
+        assertEquals(giveBook2WithAuthor2().getBookTitle(), user.getReviewedBooks().get(0).getBookTitle());
+    }
+
+    /**
+     * Tests retrieving a book without the comments join.
+     * Order: 30
+     */
+    @Test
+    @Order(30)
+    public void testGetBookByIdWithoutComments() {
+        BookDto bookDto = bookServiceImpl.getBookById(2, false);
+
+        assertEquals(giveBook2WithAuthor2().getBookTitle(), bookDto.getBookTitle());
+        assertEquals(giveAuthor2().getAuthorName(), bookDto.getAuthor().getAuthorName());
+        assertEquals(0, bookDto.getComments().size());
+    }
+
+    /**
+     * Tests creating a batch of authors in one transaction.
+     * Order: 31
+     */
+    @Test
+    @Order(31)
+    public void testCreateAuthorsBatch() {
+        List<AuthorDtoShort> authors = List.of(new AuthorDtoShort("Batch author 1"), new AuthorDtoShort("Batch author 2"));
+
+        BatchResultDto result = authorServiceImpl.createAuthors(authors, new BatchResultDto(2), false);
+
+        assertFalse(result.hasErrors());
+        assertEquals("Batch author 1", authorServiceImpl.getAuthorById(result.getIds().get(0)).getAuthorName());
+        assertEquals("Batch author 2", authorServiceImpl.getAuthorById(result.getIds().get(1)).getAuthorName());
+    }
+
+    /**
+     * Tests that a lenient batch reports a failing book and creates the others.
+     * Order: 32
+     */
+    @Test
+    @Order(32)
+    public void testCreateBooksLenientBatch() {
+        List<BookShortDto> books = List.of(giveBook1WithAuthor1(), giveBookWithMissingAuthor(), giveBook2WithAuthor2());
+
+        BatchResultDto result = bookServiceImpl.createBooks(books, new BatchResultDto(3), true);
+
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertNotNull(result.getIds().get(0));
+        assertNull(result.getIds().get(1));
+        assertNotNull(result.getIds().get(2));
+    }
+
+    /**
+     * Tests that a strict batch with a failing book is rolled back.
+     * Order: 33
+     */
+    @Test
+    @Order(33)
+    public void testCreateBooksStrictBatchRollsBack() {
+        int booksBefore = bookServiceImpl.getAllBooks().size();
+        List<BookShortDto> books = List.of(giveBook1WithAuthor1(), giveBookWithMissingAuthor());
+
+        assertThrows(RuntimeException.class, () -> bookServiceImpl.createBooks(books, new BatchResultDto(2), false));
+        assertEquals(booksBefore, bookServiceImpl.getAllBooks().size());
+    }
+
+    /**
+     * Tests importing authors from CSV, rejecting a record with a blank name.
+     * Order: 34
+     */
+    @Test
+    @Order(34)
+    public void testImportAuthorsFromCsv() {
+        String csv = "author_name\nImported author 1\n\" \"\nImported author 2\n";
+
+        ImportResultDto result = importServiceImpl.importFrom(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportTarget.AUTHORS, ImportFormat.CSV);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of(2L), result.getRejectedRecords());
+        assertTrue(authorServiceImpl.getAllAuthors().stream()
+                .anyMatch(author -> author.getAuthorName().equals("Imported author 2")));
+    }
+
+    /**
+     * Tests importing books from NDJSON, creating their missing author and rejecting a malformed record.
+     * Order: 35
+     */
+    @Test
+    @Order(35)
+    public void testImportBooksFromNdjson() {
+        String ndjson = "{\"bookTitle\": \"Imported book\", \"authorName\": \"New imported author\"}\n" +
+                "not json\n" +
+                "{\"bookTitle\": \"Another imported book\", \"authorName\": \"New imported author\"}";
+
+        ImportResultDto result = importServiceImpl.importFrom(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ImportTarget.BOOKS, ImportFormat.NDJSON);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L), result.getRejectedRecords());
+        List<BookDto> imported = bookServiceImpl.getAllBooks(false).stream()
+                .filter(book -> book.getBookTitle().endsWith("mported book"))
+                .collect(Collectors.toList());
+        assertEquals(2, imported.size());
+        assertEquals(imported.get(0).getAuthor().getAuthorId(), imported.get(1).getAuthor().getAuthorId());
+    }
+
+    /**
+     * Tests exporting all authors as CSV.
+     * Order: 36
+     */
+    @Test
+    @Order(36)
+    public void testExportAuthorsAsCsv() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exportServiceImpl.export(ExportTarget.AUTHORS, ExportFormat.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("author_id,author_name", lines[0]);
+        assertEquals(authorServiceImpl.getAllAuthors().size(), rows);
+        assertEquals(rows + 1, lines.length);
+    }
+
+    /**
+     * Tests that migrations are recorded, are not applied twice and created the foreign key indexes.
+     * Order: 37
+     */
+    @Test
+    @Order(37)
+    public void testMigrationsAreAppliedOnce() throws SQLException {
+        assertEquals(0, new MigrationRunner(dataSource).migrate());
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM pg_indexes " +
+                     "WHERE indexname IN ('books_author_id_idx', 'comments_book_id_idx', " +
+                     "'comments_user_id_idx', 'user_books_book_id_idx')")) {
+            assertTrue(resultSet.next());
+            assertEquals(4, resultSet.getInt(1));
+        }
+    }
+
+    /**
+     * Tests searching book titles page by page, best matches first.
+     * Order: 38
+     */
+    @Test
+    @Order(38)
+    public void testSearchBooks() {
+        PageDto<SearchHitDto<BookDto>> firstPage = bookServiceImpl.searchBooks("imported books", new int[0], 1);
+
+        assertEquals(1, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextPageToken());
+        assertTrue(firstPage.getItems().get(0).getSnippet().contains("<mark>"));
+
+        PageDto<SearchHitDto<BookDto>> secondPage = bookServiceImpl.searchBooks("imported books",
+                PageToken.decode(firstPage.getNextPageToken(), 2), 1);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertNull(secondPage.getNextPageToken());
+        assertNotEquals(firstPage.getItems().get(0).getItem().getBookId(),
+                secondPage.getItems().get(0).getItem().getBookId());
+        assertTrue(firstPage.getItems().get(0).getRank() >= secondPage.getItems().get(0).getRank());
+    }
+
+    /**
+     * Tests that the autocomplete index is loaded from the database and follows created and deleted books.
+     * Order: 39
+     */
+    @Test
+    @Order(39)
+    public void testAutocomplete() {
+        AutocompleteServiceImpl autocompleteServiceImpl =
+                new AutocompleteServiceImpl(new AutocompleteDaoImpl(dataSource));
+        autocompleteServiceImpl.load();
+
+        List<SuggestionDto> suggestions = autocompleteServiceImpl.complete("IMPORTED  a", 10);
+
+        assertEquals(List.of("Imported author 1", "Imported author 2"),
+                suggestions.stream().map(SuggestionDto::getText).sorted().collect(Collectors.toList()));
+        assertTrue(suggestions.stream().allMatch(suggestion -> suggestion.getType().equals(SuggestionDto.AUTHOR)));
+
+        BookShortDto book = new BookShortDto();
+        book.setBookTitle("Autocompleted book");
+        book.setAuthorId(suggestions.get(0).getId());
+        BookShortDto created = bookServiceImpl.createBook(book);
+
+        assertEquals(created.getBookId(), autocompleteServiceImpl.complete("autoc", 10).get(0).getId());
+
+        bookServiceImpl.deleteBook(created.getBookId());
+
+        assertTrue(autocompleteServiceImpl.complete("autoc", 10).isEmpty());
+    }
+
+    /**
+     * Tests putting books on a shelf, paging through it and counting readers.
+     * Order: 40
+     */
+    @Test
+    @Order(40)
+    public void testShelf() {
+        ShelfServiceImpl shelfServiceImpl = new ShelfServiceImpl(new ShelfDaoImpl(dataSource));
+        int userId = userServiceImpl.getAllUsers().get(0).getUserId();
+        List<BookDto> books = bookServiceImpl.getAllBooks(false);
+        int firstBookId = books.get(0).getBookId();
+        int secondBookId = books.get(1).getBookId();
+
+        assertTrue(shelfServiceImpl.addBook(userId, firstBookId));
+        assertTrue(shelfServiceImpl.addBook(userId, secondBookId));
+        assertFalse(shelfServiceImpl.addBook(userId, firstBookId));
+        assertThrows(RuntimeException.class, () -> shelfServiceImpl.addBook(userId, 999_999));
+        assertTrue(shelfServiceImpl.isOnShelf(userId, secondBookId));
+
+        PageDto<BookDto> firstPage = shelfServiceImpl.getShelfPage(userId, 0, 1);
+        PageDto<BookDto> secondPage = shelfServiceImpl.getShelfPage(userId,
+                PageToken.decode(firstPage.getNextPageToken(), 1)[0], 1);
+
+        assertEquals(Math.min(firstBookId, secondBookId), firstPage.getItems().get(0).getBookId());
+        assertEquals(Math.max(firstBookId, secondBookId), secondPage.getItems().get(0).getBookId());
+        assertNull(secondPage.getNextPageToken());
+        assertEquals(1L, shelfServiceImpl.countReaders(new int[]{firstBookId, 999_999}).get(firstBookId));
+        assertEquals(0L, shelfServiceImpl.countReaders(new int[]{firstBookId, 999_999}).get(999_999));
+
+        assertTrue(shelfServiceImpl.removeBook(userId, firstBookId));
+        assertTrue(shelfServiceImpl.removeBook(userId, secondBookId));
+        assertFalse(shelfServiceImpl.removeBook(userId, secondBookId));
+        assertFalse(shelfServiceImpl.isOnShelf(userId, firstBookId));
+
+        // A row the cached shelf does not know about, e.g. written before a lost notification, is still removed
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO user_books (user_id, book_id) VALUES (" + userId + ", "
+                    + firstBookId + ")");
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        assertTrue(shelfServiceImpl.removeBook(userId, firstBookId));
+        assertFalse(shelfServiceImpl.isOnShelf(userId, firstBookId));
+    }
+
+    /**
+     * Tests that the comment count of a book follows inserted and deleted comments
+     * and that the most commented books are paged in descending order of their counts.
+     * Order: 41
+     */
+    @Test
+    @Order(41)
+    public void testCommentCounts() {
+        int userId = userServiceImpl.getAllUsers().get(0).getUserId();
+        BookDto book = bookServiceImpl.getAllBooks(false).get(0);
+        int count = bookServiceImpl.getBookById(book.getBookId()).getCommentCount();
+        CommentShortDto comment = new CommentShortDto();
+        comment.setUserId(userId);
+        comment.setBookId(book.getBookId());
+        comment.setText("Counted");
+
+        CommentShortDto createdComment = commentServiceImpl.createComment(comment);
+
+        assertEquals(count + 1, bookServiceImpl.getBookById(book.getBookId()).getCommentCount());
+
+        PageDto<BookDto> firstPage = bookServiceImpl.getMostCommentedBooksPage(new int[0], 1, false);
+        PageDto<BookDto> secondPage = bookServiceImpl.getMostCommentedBooksPage(
+                PageToken.decode(firstPage.getNextPageToken(), 2), 1, false);
+        BookDto first = firstPage.getItems().get(0);
+        BookDto second = secondPage.getItems().get(0);
+
+        assertTrue(first.getCommentCount() > second.getCommentCount()
+                || first.getCommentCount().equals(second.getCommentCount()) && first.getBookId() < second.getBookId());
+
+        commentServiceImpl.deleteComment(createdComment.getCommentId());
+
+        assertEquals(count, bookServiceImpl.getBookById(book.getBookId()).getCommentCount());
+    }
+
+    /**
+     * Tests refreshing the author statistics and paging through them by book count.
+     * Order: 42
+     */
+    @Test
+    @Order(42)
+    public void testAuthorStats() {
+        AuthorStatsServiceImpl authorStatsServiceImpl = new AuthorStatsServiceImpl(new AuthorStatsDaoImpl(dataSource));
+        AuthorDtoShort authorDtoShort = new AuthorDtoShort();
+        authorDtoShort.setAuthorName("Counted author");
+        AuthorDto author = authorServiceImpl.createAuthor(authorDtoShort);
+        BookShortDto book = new BookShortDto();
+        book.setBookTitle("Counted book");
+        book.setAuthorId(author.getAuthorId());
+        BookShortDto createdBook = bookServiceImpl.createBook(book);
+
+        assertTrue(authorStatsServiceImpl.refresh(0));
+        assertFalse(authorStatsServiceImpl.refresh(3_600_000));
+
+        AuthorStatsDto stats = authorStatsServiceImpl.getStatsPage(AuthorStatsServiceImpl.SORT_AUTHOR_ID,
+                new int[]{author.getAuthorId() - 1}, 1).getItems().get(0);
+
+        assertEquals(author.getAuthorId(), stats.getAuthorId());
+        assertEquals(1, stats.getBookCount());
+        assertEquals(0, stats.getCommentCount());
+
+        PageDto<AuthorStatsDto> firstPage = authorStatsServiceImpl.getStatsPage(
+                AuthorStatsServiceImpl.SORT_BOOK_COUNT, new int[0], 1);
+        AuthorStatsDto second = authorStatsServiceImpl.getStatsPage(AuthorStatsServiceImpl.SORT_BOOK_COUNT,
+                PageToken.decode(firstPage.getNextPageToken(), 2), 1).getItems().get(0);
+        AuthorStatsDto first = firstPage.getItems().get(0);
+
+        assertTrue(first.getBookCount() > second.getBookCount()
+                || first.getBookCount() == second.getBookCount() && first.getAuthorId() < second.getAuthorId());
+
+        bookServiceImpl.deleteBook(createdBook.getBookId());
+        authorServiceImpl.deleteAuthor(author.getAuthorId());
+    }
+
+    /**
+     * Tests that book and author versions change with the book, its comments and the author's books,
+     * and that comments leave the author row untouched.
+     * Order: 43
+     */
+    @Test
+    @Order(43)
+    public void testVersions() throws SQLException {
+        AuthorDtoShort authorDtoShort = new AuthorDtoShort();
+        authorDtoShort.setAuthorName("Versioned author");
+        AuthorDto author = authorServiceImpl.createAuthor(authorDtoShort);
+        long authorVersion = authorServiceImpl.getAuthorVersion(author.getAuthorId());
+        BookShortDto book = new BookShortDto();
+        book.setBookTitle("Versioned book");
+        book.setAuthorId(author.getAuthorId());
+        BookShortDto createdBook = bookServiceImpl.createBook(book);
+        long bookVersion = bookServiceImpl.getBookVersion(createdBook.getBookId());
+
+        assertTrue(authorServiceImpl.getAuthorVersion(author.getAuthorId()) > authorVersion);
+        authorVersion = authorServiceImpl.getAuthorVersion(author.getAuthorId());
+
+        CommentShortDto comment = new CommentShortDto();
+        comment.setUserId(userServiceImpl.getAllUsers().get(0).getUserId());
+        comment.setBookId(createdBook.getBookId());
+        comment.setText("Versioned");
+        long authorRowVersion = getAuthorRowVersion(author.getAuthorId());
+        CommentShortDto createdComment = commentServiceImpl.createComment(comment);
+
+        assertTrue(bookServiceImpl.getBookVersion(createdBook.getBookId()) > bookVersion);
+        assertTrue(authorServiceImpl.getAuthorVersion(author.getAuthorId()) > authorVersion);
+        assertEquals(authorRowVersion, getAuthorRowVersion(author.getAuthorId()));
+        assertNull(bookServiceImpl.getBookVersion(999_999));
+
+        long[] loadedVersion = new long[1];
+        BookDto loaded = new BookDaoImpl(dataSource).getBookById(createdBook.getBookId(), false, v -> loadedVersion[0] = v);
+        assertEquals(1, loaded.getCommentCount());
+        assertEquals(bookServiceImpl.getBookVersion(createdBook.getBookId()), loadedVersion[0]);
+        new AuthorDaoImpl(dataSource).getAuthorById(author.getAuthorId(), true, v -> loadedVersion[0] = v);
+        assertEquals(authorServiceImpl.getAuthorVersion(author.getAuthorId()), loadedVersion[0]);
+
+        authorVersion = authorServiceImpl.getAuthorVersion(author.getAuthorId());
+        commentServiceImpl.deleteComment(createdComment.getCommentId());
+        bookServiceImpl.deleteBook(createdBook.getBookId());
+        assertTrue(authorServiceImpl.getAuthorVersion(author.getAuthorId()) > authorVersion);
+
+        authorServiceImpl.deleteAuthor(author.getAuthorId());
+    }
+
+    long getAuthorRowVersion(int authorId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM authors WHERE author_id = " + authorId)) {
+            assertTrue(resultSet.next());
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Tests that cached books, authors and users are evicted when a comment on the book is posted and deleted.
+     * Order: 44
+     */
+    @Test
+    @Order(44)
+    public void testCacheInvalidation() {
+        AuthorDtoShort authorDtoShort = new AuthorDtoShort();
+        authorDtoShort.setAuthorName("Cached author");
+        AuthorDto author = authorServiceImpl.createAuthor(authorDtoShort);
+        BookShortDto book = new BookShortDto();
+        book.setBookTitle("Cached book");
+        book.setAuthorId(author.getAuthorId());
+        int bookId = bookServiceImpl.createBook(book).getBookId();
+        int userId = userServiceImpl.getAllUsers().get(0).getUserId();
+
+        assertEquals(1, authorServiceImpl.getAuthorById(author.getAuthorId(), true).getBooks().size());
+        assertEquals(0, bookServiceImpl.getBookById(bookId, true).getCommentCount());
+        int reviewed = userServiceImpl.getUserById(userId, true, true).getComments().size();
+
+        CommentShortDto comment = new CommentShortDto();
+        comment.setUserId(userId);
+        comment.setBookId(bookId);
+        comment.setText("Evicts the cached book");
+        int commentId = commentServiceImpl.createComment(comment).getCommentId();
+
+        BookDto commented = bookServiceImpl.getBookById(bookId, true);
+        assertEquals(1, commented.getCommentCount());
+        assertEquals(1, commented.getComments().size());
+        assertEquals(1, authorServiceImpl.getAuthorById(author.getAuthorId(), true).getBooks().get(0)
+                .getCommentCount());
+        assertEquals(reviewed + 1, userServiceImpl.getUserById(userId, true, true).getComments().size());
+
+        commentServiceImpl.deleteComment(commentId);
+
+        assertEquals(0, bookServiceImpl.getBookById(bookId, true).getCommentCount());
+        assertEquals(reviewed, userServiceImpl.getUserById(userId, true, true).getComments().size());
+        bookServiceImpl.deleteBook(bookId);
+        assertThrows(RuntimeException.class, () -> bookServiceImpl.getBookById(bookId, true));
+        assertTrue(authorServiceImpl.getAuthorById(author.getAuthorId(), true).getBooks().isEmpty());
+        authorServiceImpl.deleteAuthor(author.getAuthorId());
+        assertNull(authorServiceImpl.getAuthorById(author.getAuthorId(), true));
+    }
+
+    /**
+     * Tests that a book changed by another node is evicted when the other node's notification arrives,
+     * and reloaded at the WAL position of the change.
+     * Order: 45
+     */
+    @Test
+    @Order(45)
+    public void testInvalidationListener() throws Exception {
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("user", postgresContainer.getUsername());
+        connectionProperties.setProperty("password", postgresContainer.getPassword());
+        InvalidationListener.start(postgresContainer.getJdbcUrl(), connectionProperties, 100);
+        try {
+            BookShortDto book = new BookShortDto();
+            book.setBookTitle("Cached on this node");
+            book.setAuthorId(authorServiceImpl.getAllAuthors(false).get(0).getAuthorId());
+            int bookId = bookServiceImpl.createBook(book).getBookId();
+            assertTrue(poll(InvalidationListener::isListening));
+            assertEquals("Cached on this node", bookServiceImpl.getBookById(bookId, false).getBookTitle());
+
+            String lsn;
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE books SET book_title = 'Renamed on another node' " +
+                        "WHERE book_id = " + bookId);
+                try (ResultSet resultSet = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+                    assertTrue(resultSet.next());
+                    lsn = resultSet.getString(1);
+                }
+                statement.execute("SELECT pg_notify('" + ChangeNotifications.CHANNEL + "', " +
+                        "'another-node " + ChangeNotifications.BOOK + " " + bookId + " " + lsn + "')");
+            }
+
+            assertTrue(poll(() -> "Renamed on another node".equals(
+                    bookServiceImpl.getBookById(bookId, false).getBookTitle())));
+            bookServiceImpl.deleteBook(bookId);
+        } finally {
+            InvalidationListener.stop();
+        }
+    }
+
+    /**
+     * Tests that runners started together apply a pending CONCURRENTLY migration once, without deadlocking
+     * on the snapshot of a runner waiting for the lock.
+     * Order: 46
+     */
+    @Test
+    @Order(46)
+    public void testConcurrentMigrations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM schema_migrations WHERE version = 2");
+            statement.execute("SELECT pg_advisory_lock(" + MigrationRunner.LOCK_KEY + ")");
+            List<Future<Integer>> runs = new ArrayList<>();
+            try {
+                for (int i = 0; i < 2; i++) {
+                    runs.add(executor.submit(() -> new MigrationRunner(dataSource).migrate()));
+                }
+                Thread.sleep(500);
+            } finally {
+                statement.execute("SELECT pg_advisory_unlock(" + MigrationRunner.LOCK_KEY + ")");
+            }
+
+            int applied = 0;
+            for (Future<Integer> run : runs) {
+                applied += run.get(1, TimeUnit.MINUTES);
+            }
+            assertEquals(1, applied);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, new MigrationRunner(dataSource).migrate());
+    }
+
+    /**
+     * Tests that the autocomplete index picks up books created and deleted on another node when refreshed.
+     * Order: 47
+     */
+    @Test
+    @Order(47)
+    public void testAutocompleteRefresh() throws Exception {
+        AutocompleteServiceImpl autocompleteServiceImpl =
+                new AutocompleteServiceImpl(new AutocompleteDaoImpl(dataSource));
+        autocompleteServiceImpl.load();
+        int authorId = authorServiceImpl.getAllAuthors(false).get(0).getAuthorId();
+
+        int bookId;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("INSERT INTO books (book_title, author_id) " +
+                     "VALUES ('Written on another node', " + authorId + ") RETURNING book_id")) {
+            assertTrue(resultSet.next());
+            bookId = resultSet.getInt(1);
+        }
+        AutocompleteIndex.refreshAsync(SuggestionDto.BOOK, bookId, null);
+        assertTrue(poll(() -> !autocompleteServiceImpl.complete("written on another", 10).isEmpty()));
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM books WHERE book_id = " + bookId);
+        }
+        AutocompleteIndex.refreshAsync(SuggestionDto.BOOK, bookId, null);
+        assertTrue(poll(() -> autocompleteServiceImpl.complete("written on another", 10).isEmpty()));
+    }
+
+    boolean poll(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
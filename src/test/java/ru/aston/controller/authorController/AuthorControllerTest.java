@@ -5,19 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
 import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
+import ru.aston.dto.PageDto.PageDto;
 import ru.aston.service.authorService.AuthorServiceImpl;
+import ru.aston.service.authorStatsService.AuthorStatsServiceImpl;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.util.PageToken;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
-import java.io.PrintWriter;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verify;
 
@@ -35,6 +42,9 @@ public class AuthorControllerTest {
     @Mock
     private AuthorServiceImpl mockAuthorServiceImpl;
 
+    @Mock
+    private AuthorStatsServiceImpl mockAuthorStatsServiceImpl;
+
     private AuthorController authorController;
 
     /**
@@ -42,7 +52,8 @@ public class AuthorControllerTest {
      */
     @BeforeEach
     public void setUp() {
-        authorController = new AuthorController(mockAuthorServiceImpl);
+        EntityCaches.clear();
+        authorController = new AuthorController(mockAuthorServiceImpl, mockAuthorStatsServiceImpl);
     }
 
     /**
@@ -57,10 +68,9 @@ public class AuthorControllerTest {
 
         String requestBody = "{\"authorName\": \"Steven King\"}";
         BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        PrintWriter writer = new PrintWriter(new StringWriter());
 
         when(mockRequest.getReader()).thenReturn(reader);
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
         when(mockAuthorServiceImpl.createAuthor(any())).thenReturn(authorDto);
 
         authorController.doPost(mockRequest, mockResponse);
@@ -107,6 +117,29 @@ public class AuthorControllerTest {
         verifyNoInteractions(mockAuthorServiceImpl);
     }
 
+    /**
+     * Tests the doPost method for creating a batch of authors.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_Batch() throws Exception {
+        String requestBody = "[{\"authorName\": \"Author 1\"}, {\"authorName\": \"Author 2\"}]";
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/batch");
+        when(mockRequest.getReader()).thenReturn(new BufferedReader(new StringReader(requestBody)));
+        when(mockRequest.getParameter("lenient")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        BatchResultDto result = new BatchResultDto(2);
+        result.setId(0, 7);
+        result.setId(1, 8);
+        when(mockAuthorServiceImpl.createAuthors(any(), any(), eq(false))).thenReturn(result);
+
+        authorController.doPost(mockRequest, mockResponse);
+
+        assertEquals("{\"ids\":[7,8],\"errors\":[]}", body.toString());
+    }
+
     /**
      * Tests the doDelete method with a valid author.
      * @throws Exception if an exception occurs during test execution
@@ -154,17 +187,16 @@ public class AuthorControllerTest {
     @Test
     public void testDoGet_GetAllUsers() throws Exception {
         when(mockRequest.getPathInfo()).thenReturn("/");
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         List<AuthorDto> authorList = new ArrayList<>();
         authorList.add(new AuthorDto());
         authorList.add(new AuthorDto());
-        when(mockAuthorServiceImpl.getAllAuthors()).thenReturn(authorList);
+        when(mockAuthorServiceImpl.getAllAuthors(true)).thenReturn(authorList);
 
         authorController.doGet(mockRequest, mockResponse);
 
-        verify(mockAuthorServiceImpl).getAllAuthors();
+        verify(mockAuthorServiceImpl).getAllAuthors(true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -175,17 +207,39 @@ public class AuthorControllerTest {
     @Test
     public void testDoGet_GetAuthorById() throws Exception {
         int authorId = 123;
+        CapturingOutputStream body = new CapturingOutputStream();
         when(mockRequest.getPathInfo()).thenReturn("/" + authorId);
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        when(mockAuthorServiceImpl.getAuthorVersion(authorId)).thenReturn(3L);
 
         AuthorDto author = new AuthorDto();
-        when(mockAuthorServiceImpl.getAuthorById(authorId)).thenReturn(author);
+        when(mockAuthorServiceImpl.getAuthorById(authorId, true, 3L)).thenReturn(new EntityCaches.Versioned<>(author, 3));
 
         authorController.doGet(mockRequest, mockResponse);
 
-        verify(mockAuthorServiceImpl).getAuthorById(authorId);
+        verify(mockAuthorServiceImpl).getAuthorById(authorId, true, 3L);
+        verify(mockResponse).setHeader("ETag", "\"3\"");
         verify(mockResponse).setContentType("application/json");
+        verify(mockResponse).setContentLength(body.size());
+    }
+
+    /**
+     * Tests the doGet method for answering 304 without loading an unchanged author.
+     * @throws Exception if an exception occurs during test execution
+     */
+    @Test
+    public void testDoGet_GetAuthorByIdNotModified() throws Exception {
+        int authorId = 123;
+        when(mockRequest.getPathInfo()).thenReturn("/" + authorId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn("W/\"7\", \"8\"");
+        when(mockAuthorServiceImpl.getAuthorVersion(authorId)).thenReturn(8L);
+
+        authorController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setHeader("ETag", "\"8\"");
+        verify(mockResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(mockAuthorServiceImpl, never()).getAuthorById(anyInt(), anyBoolean(), anyLong());
     }
 
     /**
@@ -196,12 +250,69 @@ public class AuthorControllerTest {
     public void testDoGet_AuthorNotFound() throws Exception {
         int authorId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + authorId);
+        when(mockAuthorServiceImpl.getAuthorVersion(authorId)).thenReturn(null);
 
-        when(mockAuthorServiceImpl.getAuthorById(authorId)).thenReturn(null);
+        when(mockAuthorServiceImpl.getAuthorById(authorId, true, 0)).thenReturn(null);
 
         authorController.doGet(mockRequest, mockResponse);
 
-        verify(mockAuthorServiceImpl).getAuthorById(authorId);
+        verify(mockAuthorServiceImpl).getAuthorById(authorId, true, 0);
         verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "Author not found");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the doGet method for retrieving a page of authors.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetAuthorsPage() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("limit")).thenReturn("2");
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(10));
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockAuthorServiceImpl.getAuthorsPage(10, 2, true)).thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        authorController.doGet(mockRequest, mockResponse);
+
+        verify(mockAuthorServiceImpl).getAuthorsPage(10, 2, true);
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests the doGet method for retrieving the next page of author statistics sorted by book count.
+     * @throws Exception if an exception occurs during test execution
+     */
+    @Test
+    public void testDoGet_GetStatsPageByBookCount() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/stats");
+        when(mockRequest.getParameter("sort")).thenReturn("bookCount");
+        when(mockRequest.getParameter("limit")).thenReturn(null);
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(3, 7));
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockAuthorStatsServiceImpl.getStatsPage(eq("bookCount"), aryEq(new int[]{3, 7}), eq(50)))
+                .thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        authorController.doGet(mockRequest, mockResponse);
+
+        verify(mockAuthorStatsServiceImpl).getStatsPage(eq("bookCount"), aryEq(new int[]{3, 7}), eq(50));
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests the doGet method for handling an unknown sort order of author statistics.
+     * @throws Exception if an exception occurs during test execution
+     */
+    @Test
+    public void testDoGet_StatsUnknownSort() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/stats");
+        when(mockRequest.getParameter("sort")).thenReturn("authorName");
+
+        authorController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown sort authorName");
+        verifyNoInteractions(mockAuthorStatsServiceImpl);
+    }
+}
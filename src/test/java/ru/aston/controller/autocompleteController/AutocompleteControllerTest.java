@@ -0,0 +1,94 @@
+package ru.aston.controller.autocompleteController;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
+import ru.aston.dto.AutocompleteDto.SuggestionDto;
+import ru.aston.service.autocompleteService.AutocompleteServiceImpl;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the AutocompleteController class, which serves title and name suggestions.
+ */
+@ExtendWith(MockitoExtension.class)
+public class AutocompleteControllerTest {
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Mock
+    private HttpServletResponse mockResponse;
+
+    @Mock
+    private AutocompleteServiceImpl mockAutocompleteServiceImpl;
+
+    private AutocompleteController autocompleteController;
+
+    /**
+     * Sets up the test environment before each test method is run.
+     */
+    @BeforeEach
+    public void setUp() {
+        autocompleteController = new AutocompleteController(mockAutocompleteServiceImpl);
+    }
+
+    /**
+     * Tests retrieving suggestions for a prefix.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_Complete() throws Exception {
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getParameter("prefix")).thenReturn("Ste");
+        when(mockRequest.getParameter("limit")).thenReturn("2");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        when(mockAutocompleteServiceImpl.complete("Ste", 2))
+                .thenReturn(List.of(new SuggestionDto(SuggestionDto.AUTHOR, 1, "Stephen King", 3)));
+
+        autocompleteController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setContentType("application/json");
+        assertEquals("[{\"type\":\"author\",\"id\":1,\"text\":\"Stephen King\",\"popularity\":3}]",
+                body.toString());
+    }
+
+    /**
+     * Tests that a blank prefix is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_BlankPrefix() throws Exception {
+        when(mockRequest.getParameter("prefix")).thenReturn(" ");
+
+        autocompleteController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Prefix must not be blank");
+        verifyNoInteractions(mockAutocompleteServiceImpl);
+    }
+
+    /**
+     * Tests that a limit above the maximum is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_LimitTooLarge() throws Exception {
+        when(mockRequest.getParameter("prefix")).thenReturn("Ste");
+        when(mockRequest.getParameter("limit")).thenReturn("100");
+
+        autocompleteController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Limit must be between 1 and 20");
+        verifyNoInteractions(mockAutocompleteServiceImpl);
+    }
+}
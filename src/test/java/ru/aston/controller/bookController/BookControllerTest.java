@@ -5,20 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BatchDto.BatchResultDto;
 import ru.aston.dto.BookDto.BookDto;
 import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 import ru.aston.service.bookService.BookServiceImpl;
+import ru.aston.service.cacheService.EntityCaches;
+import ru.aston.service.shelfService.ShelfServiceImpl;
+import ru.aston.util.PageToken;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
-import java.io.PrintWriter;
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verify;
 
@@ -36,6 +52,9 @@ public class BookControllerTest {
     @Mock
     private BookServiceImpl mockBookServiceImpl;
 
+    @Mock
+    private ShelfServiceImpl mockShelfServiceImpl;
+
     private BookController bookController;
 
     /**
@@ -43,7 +62,8 @@ public class BookControllerTest {
      */
     @BeforeEach
     public void setUp() {
-        bookController = new BookController(mockBookServiceImpl);
+        EntityCaches.clear();
+        bookController = new BookController(mockBookServiceImpl, mockShelfServiceImpl);
     }
 
     /**
@@ -60,10 +80,9 @@ public class BookControllerTest {
 
         String requestBody = "{\"bookTitle\": \"Scary fog\", \"authorId\": 1}";
         BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        PrintWriter writer = new PrintWriter(new StringWriter());
 
         when(mockRequest.getReader()).thenReturn(reader);
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
         when(mockBookServiceImpl.createBook(any())).thenReturn(bookShortDto);
 
         bookController.doPost(mockRequest, mockResponse);
@@ -112,6 +131,91 @@ public class BookControllerTest {
         verifyNoInteractions(mockBookServiceImpl);
     }
 
+    /**
+     * Tests the doPost method for rejecting a batch with an invalid book.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_BatchWithInvalidBook() throws Exception {
+        String requestBody = "[{\"bookTitle\": \"Scary fog\", \"authorId\": 1}, {\"bookTitle\": \"\", \"authorId\": 1}]";
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/batch");
+        when(mockRequest.getReader()).thenReturn(new BufferedReader(new StringReader(requestBody)));
+        when(mockRequest.getParameter("lenient")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        bookController.doPost(mockRequest, mockResponse);
+
+        verify(mockResponse).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals("{\"ids\":[null,null],\"errors\":[{\"index\":1,"
+                + "\"message\":\"Book must have non-null bookTitle and positive authorId\"}]}", body.toString());
+        verifyNoInteractions(mockBookServiceImpl);
+    }
+
+    /**
+     * Tests the doPost method for creating the valid books of a lenient batch.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_LenientBatch() throws Exception {
+        String requestBody = "[{\"bookTitle\": \"\", \"authorId\": 1}, {\"bookTitle\": \"Scary fog\", \"authorId\": 1}]";
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/batch");
+        when(mockRequest.getReader()).thenReturn(new BufferedReader(new StringReader(requestBody)));
+        when(mockRequest.getParameter("lenient")).thenReturn("true");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        when(mockBookServiceImpl.createBooks(any(), any(), eq(true))).thenAnswer(invocation -> {
+            BatchResultDto result = invocation.getArgument(1);
+            assertTrue(result.isFailed(0));
+            result.setId(1, 42);
+            return result;
+        });
+
+        bookController.doPost(mockRequest, mockResponse);
+
+        assertTrue(body.toString().startsWith("{\"ids\":[null,42],\"errors\":[{\"index\":0,"));
+    }
+
+    /**
+     * Tests counting the readers of several books at once.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_CountReaders() throws Exception {
+        CapturingOutputStream stringWriter = new CapturingOutputStream();
+        Map<Integer, Long> readers = new LinkedHashMap<>();
+        readers.put(2, 3L);
+        readers.put(1, 0L);
+        when(mockRequest.getPathInfo()).thenReturn("/readers/count");
+        when(mockRequest.getParameter("ids")).thenReturn("2,1");
+        when(mockResponse.getOutputStream()).thenReturn(stringWriter);
+        when(mockShelfServiceImpl.countReaders(aryEq(new int[]{2, 1}))).thenReturn(readers);
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        assertEquals("{\"2\":3,\"1\":0}", stringWriter.toString());
+    }
+
+    /**
+     * Tests that counting readers with malformed book IDs responds with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_CountReadersInvalidIds() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/readers/count");
+        when(mockRequest.getParameter("ids")).thenReturn("1,x");
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST,
+                "Book ids must be a comma-separated list of numbers");
+        verifyNoInteractions(mockShelfServiceImpl);
+    }
+
     /**
      * Tests the doDelete method for deleting a valid book.
      *
@@ -163,17 +267,16 @@ public class BookControllerTest {
     @Test
     public void testDoGet_GetAllBooks() throws Exception {
         when(mockRequest.getPathInfo()).thenReturn("/");
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         List<BookDto> bookList = new ArrayList<>();
         bookList.add(new BookDto());
         bookList.add(new BookDto());
-        when(mockBookServiceImpl.getAllBooks()).thenReturn(bookList);
+        when(mockBookServiceImpl.getAllBooks(true)).thenReturn(bookList);
 
         bookController.doGet(mockRequest, mockResponse);
 
-        verify(mockBookServiceImpl).getAllBooks();
+        verify(mockBookServiceImpl).getAllBooks(true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -186,18 +289,147 @@ public class BookControllerTest {
     public void testDoGet_GetBookById() throws Exception {
         int bookId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(null);
 
         BookDto book = new BookDto();
-        when(mockBookServiceImpl.getBookById(bookId)).thenReturn(book);
+        when(mockBookServiceImpl.getBookById(bookId, true, 0)).thenReturn(new EntityCaches.Versioned<>(book, 1));
 
         bookController.doGet(mockRequest, mockResponse);
 
-        verify(mockBookServiceImpl).getBookById(bookId);
+        verify(mockBookServiceImpl).getBookById(bookId, true, 0);
+        verify(mockResponse).setHeader("ETag", "\"1\"");
         verify(mockResponse).setContentType("application/json");
     }
 
+    /**
+     * Tests the doGet method for sending the ETag of a book together with the book,
+     * whose encoded response is cached for later requests of the same version.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdSetsETag() throws Exception {
+        int bookId = 123;
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn("\"4\"");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(5L);
+        BookDto book = new BookDto();
+        book.setBookId(bookId);
+        book.setBookTitle("Cached");
+        when(mockBookServiceImpl.getBookById(bookId, true, 5L)).thenReturn(new EntityCaches.Versioned<>(book, 5));
+
+        bookController.doGet(mockRequest, mockResponse);
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse, times(2)).setHeader("ETag", "\"5\"");
+        verify(mockResponse, times(2)).setContentType("application/json");
+        verify(mockBookServiceImpl).getBookById(bookId, true, 5L);
+        String json = body.toString();
+        assertEquals(json.length(), 2 * json.indexOf("}{") + 2);
+        verify(mockResponse, times(2)).setContentLength(json.length() / 2);
+    }
+
+    /**
+     * Tests the doGet method for sending a book read at an older version than the version lookup returned,
+     * as from a lagging replica, with the ETag of its own version and without caching it under the newer one.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdOlderThanVersion() throws Exception {
+        int bookId = 125;
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(7L);
+        BookDto book = new BookDto();
+        book.setBookId(bookId);
+        EntityCaches.Versioned<BookDto> older = new EntityCaches.Versioned<>(book, 6);
+        when(mockBookServiceImpl.getBookById(bookId, true, 7L)).thenReturn(older);
+        when(mockBookServiceImpl.getBookById(bookId, true, 0)).thenReturn(older);
+
+        bookController.doGet(mockRequest, mockResponse);
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse, times(2)).setHeader("ETag", "\"7\"");
+        verify(mockResponse, times(2)).setHeader("ETag", "\"6\"");
+        verify(mockBookServiceImpl, times(2)).getBookById(bookId, true, 7L);
+    }
+
+    /**
+     * Tests the doGet method for sending the cached gzip-compressed response to a client accepting gzip.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdGzip() throws Exception {
+        int bookId = 124;
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn(null);
+        when(mockRequest.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(2L);
+        BookDto book = new BookDto();
+        book.setBookId(bookId);
+        book.setBookTitle("Fog ".repeat(200));
+        when(mockBookServiceImpl.getBookById(bookId, true, 2L)).thenReturn(new EntityCaches.Versioned<>(book, 2));
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setHeader("Content-Encoding", "gzip");
+        verify(mockResponse).setHeader("ETag", "\"2-gzip\"");
+        verify(mockResponse).setContentLength(body.size());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertTrue(new String(gzip.readAllBytes(), StandardCharsets.UTF_8).contains("Fog Fog"));
+        }
+    }
+
+    /**
+     * Tests the doGet method for answering 304 without loading an unchanged book.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdNotModified() throws Exception {
+        int bookId = 123;
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn("\"5\"");
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(5L);
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(mockBookServiceImpl, never()).getBookById(anyInt(), anyBoolean(), anyLong());
+        verify(mockResponse, never()).getOutputStream();
+    }
+
+    /**
+     * Tests the doGet method for answering 304 to a client holding the gzip-compressed book
+     * with the ETag of the compressed body it revalidates.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdNotModifiedGzip() throws Exception {
+        int bookId = 123;
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn("\"5-gzip\"");
+        when(mockRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(5L);
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setHeader("ETag", "\"5-gzip\"");
+        verify(mockResponse).setHeader("Vary", "Accept-Encoding");
+        verify(mockResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(mockResponse, never()).getOutputStream();
+    }
+
     /**
      * Tests the doGet method for handling a book not found scenario.
      *
@@ -207,12 +439,216 @@ public class BookControllerTest {
     public void testDoGet_bookNotFound() throws Exception {
         int bookId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockBookServiceImpl.getBookVersion(bookId)).thenReturn(null);
 
-        when(mockBookServiceImpl.getBookById(bookId)).thenReturn(null);
+        when(mockBookServiceImpl.getBookById(bookId, true, 0)).thenReturn(null);
 
         bookController.doGet(mockRequest, mockResponse);
 
-        verify(mockBookServiceImpl).getBookById(bookId);
+        verify(mockBookServiceImpl).getBookById(bookId, true, 0);
         verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "Book not found");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the doGet method for retrieving a page of books.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBooksPage() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("sort")).thenReturn(null);
+        when(mockRequest.getParameter("limit")).thenReturn("2");
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(10));
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockBookServiceImpl.getBooksPage(10, 2, true)).thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockBookServiceImpl).getBooksPage(10, 2, true);
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests the doGet method for retrieving the first page of the most commented books.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetMostCommentedBooksPage() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("sort")).thenReturn("mostCommented");
+        when(mockRequest.getParameter("limit")).thenReturn("5");
+        when(mockRequest.getParameter("after")).thenReturn(null);
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn("author");
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockBookServiceImpl.getMostCommentedBooksPage(aryEq(new int[0]), eq(5), eq(false)))
+                .thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockBookServiceImpl).getMostCommentedBooksPage(aryEq(new int[0]), eq(5), eq(false));
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests the doGet method for handling an unknown sort order.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_UnknownSort() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("sort")).thenReturn("title");
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown sort title");
+        verifyNoInteractions(mockBookServiceImpl);
+    }
+
+    /**
+     * Tests the doGet method for handling a malformed page token.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_InvalidPageToken() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("sort")).thenReturn(null);
+        when(mockRequest.getParameter("limit")).thenReturn(null);
+        when(mockRequest.getParameter("after")).thenReturn("not-a-token");
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid page token");
+        verifyNoInteractions(mockBookServiceImpl);
+    }
+
+    /**
+     * Tests the doGet method for streaming all books as a JSON array.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_StreamAllBooks() throws Exception {
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("sort")).thenReturn(null);
+        when(mockRequest.getParameter("limit")).thenReturn(null);
+        when(mockRequest.getParameter("after")).thenReturn(null);
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockRequest.getParameter("stream")).thenReturn("true");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+        doAnswer(invocation -> {
+            Consumer<BookDto> consumer = invocation.getArgument(0);
+            BookDto book = new BookDto();
+            book.setBookId(1);
+            book.setBookTitle("Scary fog");
+            consumer.accept(book);
+            consumer.accept(new BookDto());
+            return null;
+        }).when(mockBookServiceImpl).streamAllBooks(any(), eq(true));
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setContentType("application/json");
+        assertTrue(body.toString().startsWith("[{\"bookId\":1,\"bookTitle\":\"Scary fog\""));
+        assertTrue(body.toString().endsWith("}]"));
+    }
+
+    /**
+     * Tests the doGet method for retrieving only the selected fields of a book without its comments.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetBookByIdWithFields() throws Exception {
+        int bookId = 123;
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/" + bookId);
+        when(mockRequest.getParameter("fields")).thenReturn("bookTitle,author");
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        AuthorDto author = new AuthorDto();
+        author.setAuthorId(7);
+        author.setAuthorName("Stephen King");
+        BookDto book = new BookDto();
+        book.setBookId(bookId);
+        book.setBookTitle("The Mist");
+        book.setAuthor(author);
+        when(mockBookServiceImpl.getBookById(bookId, false, 0)).thenReturn(new EntityCaches.Versioned<>(book, 1));
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        assertEquals("{\"bookTitle\":\"The Mist\",\"author\":{\"authorId\":7,\"authorName\":\"Stephen King\","
+                + "\"books\":[]}}", body.toString());
+    }
+
+    /**
+     * Tests the doGet method for handling an expand of an unknown relation.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_InvalidExpand() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/1");
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn("reviewers");
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Cannot expand reviewers");
+        verifyNoInteractions(mockBookServiceImpl);
+    }
+
+    /**
+     * Tests searching book titles, the hits are sent with their snippets and the next page token.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_SearchBooks() throws Exception {
+        BookDto book = new BookDto();
+        book.setBookId(3);
+        book.setBookTitle("Scary fog");
+        String nextPageToken = PageToken.encode(Float.floatToIntBits(0.06f), 3);
+        PageDto<SearchHitDto<BookDto>> page =
+                new PageDto<>(List.of(new SearchHitDto<>(book, 0.06f, "Scary <mark>fog</mark>")), nextPageToken);
+        CapturingOutputStream stringWriter = new CapturingOutputStream();
+
+        when(mockRequest.getPathInfo()).thenReturn("/search");
+        when(mockRequest.getParameter("q")).thenReturn("fog");
+        when(mockRequest.getParameter("limit")).thenReturn("1");
+        when(mockRequest.getParameter("after")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(stringWriter);
+        when(mockBookServiceImpl.searchBooks(eq("fog"), eq(new int[0]), eq(1))).thenReturn(page);
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        String json = stringWriter.toString();
+        assertTrue(json.contains("\"snippet\":\"Scary <mark>fog</mark>\""));
+        assertTrue(json.contains(nextPageToken));
+    }
+
+    /**
+     * Tests that a search without text is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_SearchWithoutText() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/search");
+        when(mockRequest.getParameter("q")).thenReturn(" ");
+
+        bookController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Search text q must not be blank");
+        verifyNoInteractions(mockBookServiceImpl);
+    }
+}
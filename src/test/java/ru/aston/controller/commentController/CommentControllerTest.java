@@ -5,20 +5,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
 import ru.aston.dto.CommentDto.CommentDto;
 import ru.aston.dto.CommentDto.CommentShortDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.dto.SearchDto.SearchHitDto;
 import ru.aston.service.commentService.CommentServiceImpl;
+import ru.aston.util.PageRequest;
+import ru.aston.util.PageToken;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
-import java.io.PrintWriter;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verify;
 
@@ -60,10 +64,9 @@ public class CommentControllerTest {
 
         String requestBody = "{\"text\": \"Nice book\", \"bookId\": 1,  \"userId\": 1}";
         BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        PrintWriter writer = new PrintWriter(new StringWriter());
 
         when(mockRequest.getReader()).thenReturn(reader);
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
         when(mockCommentServiceImpl.createComment(any())).thenReturn(commentShortDto);
 
         commentController.doPost(mockRequest, mockResponse);
@@ -163,17 +166,16 @@ public class CommentControllerTest {
     @Test
     public void testDoGet_GetAllComments() throws Exception {
         when(mockRequest.getPathInfo()).thenReturn("/");
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         List<CommentDto> commentList = new ArrayList<>();
         commentList.add(new CommentDto());
         commentList.add(new CommentDto());
-        when(mockCommentServiceImpl.getAllComments()).thenReturn(commentList);
+        when(mockCommentServiceImpl.getAllComments(true)).thenReturn(commentList);
 
         commentController.doGet(mockRequest, mockResponse);
 
-        verify(mockCommentServiceImpl).getAllComments();
+        verify(mockCommentServiceImpl).getAllComments(true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -186,15 +188,14 @@ public class CommentControllerTest {
     public void testDoGet_GetCommentById() throws Exception {
         int commentId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + commentId);
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         CommentDto comment = new CommentDto();
-        when(mockCommentServiceImpl.getCommentById(commentId)).thenReturn(comment);
+        when(mockCommentServiceImpl.getCommentById(commentId, true)).thenReturn(comment);
 
         commentController.doGet(mockRequest, mockResponse);
 
-        verify(mockCommentServiceImpl).getCommentById(commentId);
+        verify(mockCommentServiceImpl).getCommentById(commentId, true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -208,11 +209,59 @@ public class CommentControllerTest {
         int commentId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + commentId);
 
-        when(mockCommentServiceImpl.getCommentById(commentId)).thenReturn(null);
+        when(mockCommentServiceImpl.getCommentById(commentId, true)).thenReturn(null);
 
         commentController.doGet(mockRequest, mockResponse);
 
-        verify(mockCommentServiceImpl).getCommentById(commentId);
+        verify(mockCommentServiceImpl).getCommentById(commentId, true);
         verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "Comment not found");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the doGet method for retrieving a page of comments.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetCommentsPage() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("limit")).thenReturn("2");
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(10));
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockCommentServiceImpl.getCommentsPage(10, 2, true)).thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        commentController.doGet(mockRequest, mockResponse);
+
+        verify(mockCommentServiceImpl).getCommentsPage(10, 2, true);
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests searching comment texts from the position of a page token.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_SearchComments() throws Exception {
+        CommentDto comment = new CommentDto();
+        comment.setCommentId(8);
+        comment.setText("Nice book");
+        int[] after = {Float.floatToIntBits(0.1f), 7};
+        PageDto<SearchHitDto<CommentDto>> page =
+                new PageDto<>(List.of(new SearchHitDto<>(comment, 0.09f, "<mark>Nice</mark> book")), null);
+
+        when(mockRequest.getPathInfo()).thenReturn("/search");
+        when(mockRequest.getParameter("q")).thenReturn("nice");
+        when(mockRequest.getParameter("limit")).thenReturn(null);
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(after));
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockCommentServiceImpl.searchComments(eq("nice"), eq(after), eq(PageRequest.DEFAULT_LIMIT)))
+                .thenReturn(page);
+
+        commentController.doGet(mockRequest, mockResponse);
+
+        verify(mockCommentServiceImpl).searchComments(eq("nice"), eq(after), eq(PageRequest.DEFAULT_LIMIT));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.aston.controller.exportController;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.dao.exportDao.ExportFormat;
+import ru.aston.dao.exportDao.ExportTarget;
+import ru.aston.service.exportService.ExportServiceImpl;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the ExportController class, which handles table export requests.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ExportControllerTest {
+    private static final String CSV = "author_id,author_name\n1,Stephen King\n";
+
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Mock
+    private HttpServletResponse mockResponse;
+
+    @Mock
+    private ExportServiceImpl mockExportServiceImpl;
+
+    private ExportController exportController;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    /**
+     * Sets up the test environment before each test method is run.
+     */
+    @BeforeEach
+    public void setUp() {
+        exportController = new ExportController(mockExportServiceImpl);
+    }
+
+    /**
+     * Tests exporting a table as CSV.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_ExportCsv() throws Exception {
+        stubExport(null);
+
+        exportController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setContentType("text/csv; charset=UTF-8");
+        verify(mockResponse, never()).setHeader(eq("Content-Encoding"), any());
+        assertEquals(CSV, body.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that the export is gzip-compressed when the client accepts it.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_ExportGzip() throws Exception {
+        stubExport("gzip, deflate");
+
+        exportController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setHeader("Content-Encoding", "gzip");
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertEquals(CSV, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Tests that an unknown table is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_UnknownTarget() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/user_books");
+
+        exportController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
+        verifyNoInteractions(mockExportServiceImpl);
+    }
+
+    private void stubExport(String acceptEncoding) throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/authors");
+        when(mockRequest.getParameter("format")).thenReturn(null);
+        when(mockRequest.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        when(mockResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        when(mockExportServiceImpl.export(eq(ExportTarget.AUTHORS), eq(ExportFormat.CSV), any()))
+                .thenAnswer(invocation -> {
+                    OutputStream output = invocation.getArgument(2);
+                    output.write(CSV.getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+    }
+}
@@ -0,0 +1,170 @@
+package ru.aston.controller.importController;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
+import ru.aston.dao.importDao.ImportFormat;
+import ru.aston.dao.importDao.ImportSession;
+import ru.aston.dao.importDao.ImportTarget;
+import ru.aston.dto.ImportDto.ImportResultDto;
+import ru.aston.service.importService.ImportServiceImpl;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the ImportController class, which handles bulk import requests.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ImportControllerTest {
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Mock
+    private HttpServletResponse mockResponse;
+
+    @Mock
+    private AsyncContext mockAsyncContext;
+
+    @Mock
+    private ImportSession mockImportSession;
+
+    @Mock
+    private ImportServiceImpl mockImportServiceImpl;
+
+    private ImportController importController;
+
+    /**
+     * Sets up the test environment before each test method is run.
+     */
+    @BeforeEach
+    public void setUp() {
+        importController = new ImportController(mockImportServiceImpl);
+    }
+
+    /**
+     * Tests that the body is fed to the import as it becomes available
+     * and the result is sent once it has been read.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_ImportBooks() throws Exception {
+        byte[] body = "book_title,author_name\nScary fog,Stephen King\n".getBytes(StandardCharsets.UTF_8);
+        CallbackInputStream input = new CallbackInputStream(body);
+        ImportResultDto result = new ImportResultDto();
+        result.setTarget("books");
+        result.setReceived(1);
+        result.setImported(1);
+        CapturingOutputStream stringWriter = new CapturingOutputStream();
+
+        when(mockRequest.getPathInfo()).thenReturn("/books");
+        when(mockRequest.getParameter("format")).thenReturn(null);
+        when(mockRequest.getContentType()).thenReturn("text/csv");
+        when(mockRequest.startAsync()).thenReturn(mockAsyncContext);
+        when(mockRequest.getInputStream()).thenReturn(input);
+        when(mockImportServiceImpl.openSession(ImportTarget.BOOKS, ImportFormat.CSV)).thenReturn(mockImportSession);
+        when(mockImportServiceImpl.finish(mockImportSession)).thenReturn(result);
+        when(mockResponse.getOutputStream()).thenReturn(stringWriter);
+
+        importController.doPost(mockRequest, mockResponse);
+        input.listener.onDataAvailable();
+        input.listener.onAllDataRead();
+
+        verify(mockImportSession).write(any(), eq(0), eq(body.length));
+        verify(mockResponse).setContentType("application/json");
+        verify(mockAsyncContext).complete();
+        assertTrue(stringWriter.toString().contains("\"imported\":1"));
+    }
+
+    /**
+     * Tests that a failing import is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_ImportRejected() throws Exception {
+        CallbackInputStream input = new CallbackInputStream("{\"authorName\":\n".getBytes(StandardCharsets.UTF_8));
+
+        when(mockRequest.getPathInfo()).thenReturn("/authors");
+        when(mockRequest.getParameter("format")).thenReturn("ndjson");
+        when(mockRequest.startAsync()).thenReturn(mockAsyncContext);
+        when(mockRequest.getInputStream()).thenReturn(input);
+        when(mockImportServiceImpl.openSession(ImportTarget.AUTHORS, ImportFormat.NDJSON))
+                .thenReturn(mockImportSession);
+        when(mockImportServiceImpl.finish(mockImportSession)).thenThrow(new RuntimeException("COPY failed"));
+
+        importController.doPost(mockRequest, mockResponse);
+        input.listener.onDataAvailable();
+        input.listener.onAllDataRead();
+
+        verify(mockResponse).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(mockAsyncContext).complete();
+    }
+
+    /**
+     * Tests that an unknown import target is rejected with 400.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPost_UnknownTarget() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/users");
+
+        importController.doPost(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
+        verifyNoInteractions(mockImportServiceImpl);
+    }
+
+    /**
+     * Servlet input stream over a byte array that records the read listener registered on it.
+     */
+    private static class CallbackInputStream extends ServletInputStream {
+        private final ByteArrayInputStream bytes;
+        private ReadListener listener;
+
+        private CallbackInputStream(byte[] body) {
+            this.bytes = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return bytes.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.listener = readListener;
+        }
+
+        @Override
+        public int read() {
+            return bytes.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return bytes.read(b, off, len);
+        }
+    }
+}
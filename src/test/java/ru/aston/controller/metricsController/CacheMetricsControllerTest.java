@@ -0,0 +1,49 @@
+package ru.aston.controller.metricsController;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
+import ru.aston.util.ReadThroughCache;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the CacheMetricsController class, which exposes cache metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CacheMetricsControllerTest {
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Mock
+    private HttpServletResponse mockResponse;
+
+    /**
+     * Tests the doGet method for reporting a hit and a miss of a cache.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_ReportsCacheMetrics() throws Exception {
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 60_000, 60_000, value -> new long[0]);
+        cache.get(1, key -> "one");
+        cache.get(1, key -> "one");
+        CacheMetricsController controller = new CacheMetricsController(Map.of("test", cache));
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        controller.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setContentType("application/json");
+        assertEquals("{\"test\":{\"size\":1,\"weight\":1,\"maxWeight\":10,\"hits\":1,\"misses\":1,\"hitRate\":0.5,"
+                + "\"loadFailures\":0,\"refreshes\":0,\"evictions\":0,\"invalidations\":0}}", body.toString());
+    }
+}
@@ -0,0 +1,50 @@
+package ru.aston.controller.metricsController;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
+import ru.aston.util.ConnectionPoolMetrics;
+import ru.aston.util.InstrumentedDataSource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the PoolMetricsController class, which exposes connection pool metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+public class PoolMetricsControllerTest {
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Mock
+    private HttpServletResponse mockResponse;
+
+    /**
+     * Tests the doGet method for reporting the metrics of a pool that has not been used yet.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_ReportsPoolMetrics() throws Exception {
+        InstrumentedDataSource pool = new InstrumentedDataSource("test");
+        PoolMetricsController controller =
+                new PoolMetricsController(Map.of("test", new ConnectionPoolMetrics(pool)));
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        controller.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setContentType("application/json");
+        assertTrue(body.toString().startsWith("{\"test\":{\"numActive\":0"));
+        assertTrue(body.toString().contains("\"borrowTimeouts\":0"));
+        assertTrue(body.toString().contains("\"le_1ms\":0"));
+    }
+}
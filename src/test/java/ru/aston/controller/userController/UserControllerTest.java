@@ -5,17 +5,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.aston.controller.CapturingOutputStream;
 import ru.aston.dto.UserDto.UserDto;
+import ru.aston.dto.PageDto.PageDto;
+import ru.aston.service.shelfService.ShelfServiceImpl;
 import ru.aston.service.userService.UserServiceImpl;
+import ru.aston.util.PageToken;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
-import java.io.PrintWriter;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -34,6 +37,9 @@ public class UserControllerTest {
     @Mock
     private UserServiceImpl mockUserServiceImpl;
 
+    @Mock
+    private ShelfServiceImpl mockShelfServiceImpl;
+
     private UserController userController;
 
     /**
@@ -41,7 +47,7 @@ public class UserControllerTest {
      */
     @BeforeEach
     public void setUp() {
-        userController = new UserController(mockUserServiceImpl);
+        userController = new UserController(mockUserServiceImpl, mockShelfServiceImpl);
     }
 
     /**
@@ -57,10 +63,9 @@ public class UserControllerTest {
 
         String requestBody = "{\"name\": \"Jameson\"}";
         BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        PrintWriter writer = new PrintWriter(new StringWriter());
 
         when(mockRequest.getReader()).thenReturn(reader);
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
         when(mockUserServiceImpl.createUser(any())).thenReturn(userDto);
 
         userController.doPost(mockRequest, mockResponse);
@@ -138,6 +143,86 @@ public class UserControllerTest {
         verify(mockResponse).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URL");
     }
 
+    /**
+     * Tests putting a book on the shelf of a user.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPut_AddBookToShelf() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/1/books/7");
+        when(mockShelfServiceImpl.addBook(1, 7)).thenReturn(true);
+
+        userController.doPut(mockRequest, mockResponse);
+
+        verify(mockResponse).setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    /**
+     * Tests that putting a missing book on a shelf responds with 404.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoPut_MissingBook() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/1/books/999");
+        when(mockShelfServiceImpl.addBook(1, 999)).thenThrow(new RuntimeException("foreign key violation"));
+
+        userController.doPut(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "User or book not found");
+    }
+
+    /**
+     * Tests that taking a book off a shelf it is not on responds with 404.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoDelete_BookNotOnShelf() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/1/books/7");
+        when(mockShelfServiceImpl.removeBook(1, 7)).thenReturn(false);
+
+        userController.doDelete(mockRequest, mockResponse);
+
+        verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "Book not on shelf");
+        verifyNoInteractions(mockUserServiceImpl);
+    }
+
+    /**
+     * Tests checking whether a book is on the shelf of a user.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_BookOnShelf() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/1/books/7");
+        when(mockShelfServiceImpl.isOnShelf(1, 7)).thenReturn(true);
+
+        userController.doGet(mockRequest, mockResponse);
+
+        verify(mockResponse).setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    /**
+     * Tests retrieving the first page of the shelf of a user.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_ShelfPage() throws Exception {
+        CapturingOutputStream stringWriter = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/1/books");
+        when(mockRequest.getParameter("limit")).thenReturn(null);
+        when(mockRequest.getParameter("after")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(stringWriter);
+        when(mockShelfServiceImpl.getShelfPage(1, 0, 50)).thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        userController.doGet(mockRequest, mockResponse);
+
+        assertEquals("{\"items\":[],\"nextPageToken\":null}", stringWriter.toString());
+    }
+
     /**
      * Tests the doGet method for handling an invalid URL.
      *
@@ -160,17 +245,16 @@ public class UserControllerTest {
     @Test
     public void testDoGet_GetAllUsers() throws Exception {
         when(mockRequest.getPathInfo()).thenReturn("/");
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         List<UserDto> userList = new ArrayList<>();
         userList.add(new UserDto());
         userList.add(new UserDto());
-        when(mockUserServiceImpl.getAllUsers()).thenReturn(userList);
+        when(mockUserServiceImpl.getAllUsers(true, true)).thenReturn(userList);
 
         userController.doGet(mockRequest, mockResponse);
 
-        verify(mockUserServiceImpl).getAllUsers();
+        verify(mockUserServiceImpl).getAllUsers(true, true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -183,15 +267,14 @@ public class UserControllerTest {
     public void testDoGet_GetUserById() throws Exception {
         int userId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + userId);
-        PrintWriter writer = new PrintWriter(new StringWriter());
-        when(mockResponse.getWriter()).thenReturn(writer);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
 
         UserDto user = new UserDto();
-        when(mockUserServiceImpl.getUserById(userId)).thenReturn(user);
+        when(mockUserServiceImpl.getUserById(userId, true, true)).thenReturn(user);
 
         userController.doGet(mockRequest, mockResponse);
 
-        verify(mockUserServiceImpl).getUserById(userId);
+        verify(mockUserServiceImpl).getUserById(userId, true, true);
         verify(mockResponse).setContentType("application/json");
     }
 
@@ -204,11 +287,60 @@ public class UserControllerTest {
     public void testDoGet_UserNotFound() throws Exception {
         int userId = 123;
         when(mockRequest.getPathInfo()).thenReturn("/" + userId);
-        when(mockUserServiceImpl.getUserById(userId)).thenReturn(null);
+        when(mockUserServiceImpl.getUserById(userId, true, true)).thenReturn(null);
 
         userController.doGet(mockRequest, mockResponse);
 
-        verify(mockUserServiceImpl).getUserById(userId);
+        verify(mockUserServiceImpl).getUserById(userId, true, true);
         verify(mockResponse).sendError(HttpServletResponse.SC_NOT_FOUND, "User not found");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the doGet method for retrieving a page of users.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetUsersPage() throws Exception {
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("limit")).thenReturn("2");
+        when(mockRequest.getParameter("after")).thenReturn(PageToken.encode(10));
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn(null);
+        when(mockResponse.getOutputStream()).thenReturn(new CapturingOutputStream());
+        when(mockUserServiceImpl.getUsersPage(10, 2, true, true)).thenReturn(new PageDto<>(new ArrayList<>(), null));
+
+        userController.doGet(mockRequest, mockResponse);
+
+        verify(mockUserServiceImpl).getUsersPage(10, 2, true, true);
+        verify(mockResponse).setContentType("application/json");
+    }
+
+    /**
+     * Tests the doGet method for retrieving a page of users with only their comments expanded.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void testDoGet_GetUsersPageWithExpand() throws Exception {
+        CapturingOutputStream body = new CapturingOutputStream();
+        when(mockRequest.getPathInfo()).thenReturn("/");
+        when(mockRequest.getParameter("limit")).thenReturn("1");
+        when(mockRequest.getParameter("after")).thenReturn(null);
+        when(mockRequest.getParameter("fields")).thenReturn(null);
+        when(mockRequest.getParameter("expand")).thenReturn("comments");
+        when(mockResponse.getOutputStream()).thenReturn(body);
+
+        UserDto user = new UserDto();
+        user.setUserId(1);
+        user.setUserName("John");
+        List<UserDto> users = new ArrayList<>();
+        users.add(user);
+        when(mockUserServiceImpl.getUsersPage(0, 1, true, false)).thenReturn(new PageDto<>(users, "next"));
+
+        userController.doGet(mockRequest, mockResponse);
+
+        assertEquals("{\"items\":[{\"userId\":1,\"userName\":\"John\",\"comments\":[]}],\"nextPageToken\":\"next\"}",
+                body.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package ru.aston.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.CommentDto.CommentDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares assembling books from joined rows with AggregateAssembler against the former
+ * linear scan of already assembled books. Time per operation of the assembler grows linearly
+ * with the number of books, the scan quadratically.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ru.aston.dao.AggregateAssemblerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregateAssemblerBenchmark {
+    private static final List<String> COLUMNS = List.of("book_id", "book_title", "comment_id", "text");
+
+    @Param({"1000", "4000", "16000"})
+    private int books;
+
+    private List<Object[]> rows;
+
+    private final AggregateAssembler<BookDto> assembler = new AggregateAssembler<>("book_id",
+            AggregateAssemblerBenchmark::mapBook, AggregateAssemblerBenchmark::collectComment);
+
+    /**
+     * Generates two joined rows, each carrying a comment, per book.
+     */
+    @Setup
+    public void setUp() {
+        rows = new ArrayList<>(books * 2);
+        int commentId = 1;
+        for (int bookId = 1; bookId <= books; bookId++) {
+            rows.add(new Object[]{bookId, "Book " + bookId, commentId++, "Comment"});
+            rows.add(new Object[]{bookId, "Book " + bookId, commentId++, "Comment"});
+        }
+    }
+
+    @Benchmark
+    public List<BookDto> assembler() throws SQLException {
+        return assembler.assemble(InMemoryResultSet.of(COLUMNS, rows));
+    }
+
+    @Benchmark
+    public List<BookDto> linearScan() throws SQLException {
+        List<BookDto> result = new ArrayList<>();
+        ResultSet resultSet = InMemoryResultSet.of(COLUMNS, rows);
+        while (resultSet.next()) {
+            int currentBookId = resultSet.getInt("book_id");
+            BookDto bookDto = null;
+            for (BookDto book : result) {
+                if (book.getBookId() == currentBookId) {
+                    bookDto = book;
+                    break;
+                }
+            }
+            if (bookDto == null) {
+                bookDto = mapBook(resultSet);
+                result.add(bookDto);
+            }
+            collectComment(bookDto, resultSet);
+        }
+        return result;
+    }
+
+    private static BookDto mapBook(ResultSet resultSet) throws SQLException {
+        BookDto bookDto = new BookDto();
+        bookDto.setBookId(resultSet.getInt("book_id"));
+        bookDto.setBookTitle(resultSet.getString("book_title"));
+        return bookDto;
+    }
+
+    private static void collectComment(BookDto bookDto, ResultSet resultSet) throws SQLException {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setCommentId(resultSet.getInt("comment_id"));
+        commentDto.setText(resultSet.getString("text"));
+        bookDto.getComments().add(commentDto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AggregateAssemblerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
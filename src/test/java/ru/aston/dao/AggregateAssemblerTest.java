@@ -0,0 +1,63 @@
+package ru.aston.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BookDto.BookDto;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for the AggregateAssembler class, which groups joined rows into aggregates.
+ */
+public class AggregateAssemblerTest {
+    private final AggregateAssembler<AuthorDto> assembler = new AggregateAssembler<>("author_id",
+            resultSet -> {
+                AuthorDto authorDto = new AuthorDto();
+                authorDto.setAuthorId(resultSet.getInt("author_id"));
+                authorDto.setAuthorName(resultSet.getString("author_name"));
+                return authorDto;
+            },
+            (authorDto, resultSet) -> {
+                if (resultSet.getInt("book_id") != 0) {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setBookId(resultSet.getInt("book_id"));
+                    authorDto.getBooks().add(bookDto);
+                }
+            });
+
+    /**
+     * Tests that rows are grouped by key in order of first appearance, including interleaved keys.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testGroupsRowsInOrderOfFirstAppearance() throws SQLException {
+        List<AuthorDto> authors = assembler.assemble(InMemoryResultSet.of(
+                List.of("author_id", "author_name", "book_id"),
+                List.of(new Object[]{7, "Author 7", 1},
+                        new Object[]{3, "Author 3", null},
+                        new Object[]{7, "Author 7", 2})));
+
+        assertEquals(2, authors.size());
+        assertEquals(7, authors.get(0).getAuthorId());
+        assertEquals(2, authors.get(0).getBooks().size());
+        assertEquals(3, authors.get(1).getAuthorId());
+        assertEquals(0, authors.get(1).getBooks().size());
+    }
+
+    /**
+     * Tests that an empty result set produces no aggregates.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testEmptyResultSet() throws SQLException {
+        List<AuthorDto> authors = assembler.assemble(InMemoryResultSet.of(
+                List.of("author_id", "author_name", "book_id"), List.of()));
+
+        assertEquals(0, authors.size());
+    }
+}
@@ -0,0 +1,66 @@
+package ru.aston.dao;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Creates read-only, forward-only result sets over in-memory rows for tests and benchmarks.
+ */
+public final class InMemoryResultSet {
+
+    private InMemoryResultSet() {
+    }
+
+    /**
+     * Creates a result set over the given rows.
+     * Supports {@code next}, {@code findColumn}, {@code getInt}, {@code getString}, {@code wasNull} and {@code close}.
+     *
+     * @param columns The column names.
+     * @param rows    The rows; each row holds one value per column, null for SQL NULL.
+     * @return The result set positioned before the first row.
+     */
+    public static ResultSet of(List<String> columns, List<Object[]> rows) {
+        int[] cursor = {-1};
+        boolean[] lastWasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "findColumn":
+                            return indexOf(columns, (String) args[0]);
+                        case "getInt": {
+                            Object value = value(columns, rows.get(cursor[0]), args[0]);
+                            lastWasNull[0] = value == null;
+                            return value == null ? 0 : ((Number) value).intValue();
+                        }
+                        case "getString": {
+                            Object value = value(columns, rows.get(cursor[0]), args[0]);
+                            lastWasNull[0] = value == null;
+                            return value == null ? null : value.toString();
+                        }
+                        case "wasNull":
+                            return lastWasNull[0];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static Object value(List<String> columns, Object[] row, Object column) throws SQLException {
+        int index = column instanceof Integer ? (Integer) column : indexOf(columns, (String) column);
+        return row[index - 1];
+    }
+
+    private static int indexOf(List<String> columns, String column) throws SQLException {
+        int index = columns.indexOf(column);
+        if (index < 0) {
+            throw new SQLException("Unknown column " + column);
+        }
+        return index + 1;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.aston.service.cacheService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.aston.dto.UserDto.UserDto;
+import ru.aston.util.ConsistencyToken;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the EntityCaches class, checking that cached values keep the writes of clients readable.
+ */
+public class EntityCachesTest {
+
+    /**
+     * Clears the caches, the positions their loads have to observe and the consistency state of the thread.
+     */
+    @AfterEach
+    public void tearDown() {
+        ConsistencyToken.clear();
+        EntityCaches.clear();
+        EntityCaches.clearRequirements();
+    }
+
+    /**
+     * Tests that a user evicted after a write of this node is reloaded at the token the write issued.
+     */
+    @Test
+    public void testLocalWriteRequiresItsTokenForReloads() {
+        ConsistencyToken.issue("0/3000060");
+        EntityCaches.userChanged(8001);
+        ConsistencyToken.clear();
+
+        UserDto user = user(8001);
+        EntityCaches.getUser(8001, false, false, key -> {
+            assertEquals("0/3000060", ConsistencyToken.getRequired());
+            return user;
+        });
+        assertNull(ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Tests that a request carrying a token beyond the evicted changes bypasses the cached user
+     * until the changes up to the token are known to be evicted.
+     */
+    @Test
+    public void testTokenBeyondEvictedChangesBypassesCache() {
+        AtomicInteger loads = new AtomicInteger();
+        UserDto user = user(8002);
+        EntityCaches.changesSeenThrough("0/2000000");
+        EntityCaches.getUser(8002, false, false, key -> {
+            loads.incrementAndGet();
+            return user;
+        });
+
+        ConsistencyToken.begin("0/3000060", null);
+        EntityCaches.getUser(8002, false, false, key -> {
+            loads.incrementAndGet();
+            return user;
+        });
+        assertEquals(2, loads.get());
+
+        EntityCaches.changesSeenThrough("0/3000060");
+        assertSame(user, EntityCaches.getUser(8002, false, false, key -> {
+            loads.incrementAndGet();
+            return user;
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    private static UserDto user(int userId) {
+        UserDto user = new UserDto();
+        user.setUserId(userId);
+        return user;
+    }
+}
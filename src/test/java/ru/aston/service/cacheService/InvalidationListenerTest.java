@@ -0,0 +1,95 @@
+package ru.aston.service.cacheService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.aston.dao.ChangeNotifications;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.util.ConsistencyToken;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the InvalidationListener class, applying the change notifications of other nodes.
+ */
+public class InvalidationListenerTest {
+
+    /**
+     * Clears the caches filled by the tests and the positions their loads have to observe.
+     */
+    @AfterEach
+    public void tearDown() {
+        EntityCaches.clear();
+        EntityCaches.clearRequirements();
+    }
+
+    /**
+     * Tests that a change of another node evicts its book, whose reload, and only that, has to observe the
+     * WAL position of the change.
+     */
+    @Test
+    public void testAppliesChangesOfOtherNodesWithTheirPositions() {
+        BookDto book = new BookDto();
+        book.setBookId(7001);
+        EntityCaches.getBook(7001, false, 0, key -> new EntityCaches.Versioned<>(book, 1));
+
+        Set<String> payloads = new LinkedHashSet<>();
+        payloads.add(ChangeNotifications.NODE_ID + " " + ChangeNotifications.BOOK + " 7002 0/5000000");
+        payloads.add("another-node " + ChangeNotifications.BOOK + " 7001 0/3000060");
+        payloads.add("older-node " + ChangeNotifications.BOOK + " 7003");
+        InvalidationListener.apply(payloads);
+
+        EntityCaches.Versioned<BookDto> reloaded = EntityCaches.getBook(7001, false, 0, key -> {
+            assertEquals("0/3000060", ConsistencyToken.getRequired());
+            return new EntityCaches.Versioned<>(book, 2);
+        });
+        assertEquals(2, reloaded.getVersion());
+        assertNull(ConsistencyToken.getRequired());
+
+        BookDto unrelated = new BookDto();
+        unrelated.setBookId(7004);
+        EntityCaches.getBook(7004, false, 0, key -> {
+            assertNull(ConsistencyToken.getRequired());
+            return new EntityCaches.Versioned<>(unrelated, 1);
+        });
+    }
+
+    /**
+     * Tests that a burst flushing the caches makes every reload observe the latest position of its changes.
+     */
+    @Test
+    public void testBurstRequiresLatestPosition() {
+        Set<String> payloads = new LinkedHashSet<>();
+        for (int i = 0; i <= InvalidationListener.MAX_BURST; i++) {
+            payloads.add("another-node " + ChangeNotifications.BOOK + " " + i + " 0/" + Integer.toHexString(i + 1));
+        }
+
+        InvalidationListener.apply(payloads);
+
+        BookDto book = new BookDto();
+        book.setBookId(7005);
+        EntityCaches.getBook(7005, false, 0, key -> {
+            assertEquals("0/" + Integer.toHexString(InvalidationListener.MAX_BURST + 1).toUpperCase(),
+                    ConsistencyToken.getRequired());
+            return new EntityCaches.Versioned<>(book, 1);
+        });
+    }
+
+    /**
+     * Tests that a bulk change of another node flushes the caches.
+     */
+    @Test
+    public void testBulkChangeFlushesCaches() {
+        BookDto book = new BookDto();
+        book.setBookId(7001);
+        EntityCaches.getBook(7001, false, 0, key -> new EntityCaches.Versioned<>(book, 1));
+
+        InvalidationListener.apply(Set.of("another-node " + ChangeNotifications.ALL + " 0 0/3000060"));
+
+        EntityCaches.Versioned<BookDto> reloaded =
+                EntityCaches.getBook(7001, false, 0, key -> new EntityCaches.Versioned<>(book, 2));
+        assertEquals(2, reloaded.getVersion());
+    }
+}
@@ -0,0 +1,40 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the CachedResponse class, an encoded response body kept as is and gzip-compressed.
+ */
+public class CachedResponseTest {
+
+    /**
+     * Tests that only bodies that are long enough are compressed, and that the weight counts both bodies.
+     */
+    @Test
+    public void testCompression() {
+        CachedResponse small = CachedResponse.of("{\"bookId\":1}".getBytes(StandardCharsets.UTF_8), new long[]{1});
+        byte[] large = ("{\"bookTitle\":\"" + "fog ".repeat(500) + "\"}").getBytes(StandardCharsets.UTF_8);
+        CachedResponse compressed = CachedResponse.of(large, new long[0]);
+
+        assertEquals(64 + 12 + 8, small.weight());
+        assertTrue(compressed.weight() > 64 + large.length);
+        assertTrue(compressed.weight() < 64 + large.length + large.length / 10);
+        assertArrayEquals(new long[]{1}, small.getTags());
+    }
+
+    /**
+     * Tests parsing of Accept-Encoding headers.
+     */
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(CachedResponse.acceptsGzip("gzip"));
+        assertTrue(CachedResponse.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(CachedResponse.acceptsGzip("gzip;q=0"));
+        assertFalse(CachedResponse.acceptsGzip("br, deflate"));
+        assertFalse(CachedResponse.acceptsGzip(null));
+    }
+}
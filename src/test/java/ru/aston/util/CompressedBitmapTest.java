@@ -0,0 +1,80 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the CompressedBitmap class, an immutable compressed set of ints.
+ */
+public class CompressedBitmapTest {
+
+    /**
+     * Tests membership of sparse values spread over several groups.
+     */
+    @Test
+    public void testContains() {
+        CompressedBitmap bitmap = CompressedBitmap.of(5, 70_000, 3, 5, 1 << 20);
+
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(70_000));
+        assertTrue(bitmap.contains(1 << 20));
+        assertFalse(bitmap.contains(4));
+        assertFalse(bitmap.contains(70_001 - (1 << 16)));
+    }
+
+    /**
+     * Tests that a group switches to a bitmap when it grows beyond the array limit and back when it shrinks,
+     * without changing earlier versions.
+     */
+    @Test
+    public void testGroupConversion() {
+        CompressedBitmap bitmap = CompressedBitmap.EMPTY;
+        for (int i = 0; i < CompressedBitmap.ARRAY_MAX_SIZE; i++) {
+            bitmap = bitmap.with(i * 2);
+        }
+        CompressedBitmap dense = bitmap.with(1);
+        CompressedBitmap sparse = dense.without(1);
+
+        assertEquals(CompressedBitmap.ARRAY_MAX_SIZE + 1, dense.cardinality());
+        assertEquals(14 + 8192, dense.sizeInBytes());
+        assertEquals(14 + 2 * CompressedBitmap.ARRAY_MAX_SIZE, sparse.sizeInBytes());
+        assertTrue(dense.contains(1));
+        assertFalse(sparse.contains(1));
+        assertFalse(bitmap.contains(1));
+        assertSame(sparse, sparse.without(1));
+        assertSame(sparse, sparse.with(2));
+    }
+
+    /**
+     * Tests random additions and removals against a TreeSet.
+     */
+    @Test
+    public void testMatchesTreeSet() {
+        Random random = new Random(7);
+        TreeSet<Integer> expected = new TreeSet<>();
+        CompressedBitmap bitmap = CompressedBitmap.EMPTY;
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(3 << 16);
+            if (random.nextInt(4) == 0) {
+                expected.remove(value);
+                bitmap = bitmap.without(value);
+            } else {
+                expected.add(value);
+                bitmap = bitmap.with(value);
+            }
+        }
+        CompressedBitmap built = CompressedBitmap.of(expected.stream().mapToInt(Integer::intValue).toArray());
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertEquals(expected.size(), built.cardinality());
+        for (int value = 0; value < 3 << 16; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value));
+            assertEquals(expected.contains(value), built.contains(value));
+        }
+    }
+}
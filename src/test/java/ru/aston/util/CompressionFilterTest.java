@@ -0,0 +1,132 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.aston.controller.CapturingOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the CompressionFilter class, which compresses response bodies while they are written.
+ */
+public class CompressionFilterTest {
+    private static final byte[] LONG_BODY =
+            ("[" + "{\"bookTitle\":\"The Mist\",\"authorId\":7},".repeat(200) + "{}]").getBytes(StandardCharsets.UTF_8);
+
+    private final CompressionFilter filter = new CompressionFilter(1024, new DeflaterPool(Deflater.BEST_SPEED, 2));
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private CapturingOutputStream out;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        out = new CapturingOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getOutputStream()).thenReturn(out);
+        when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+    }
+
+    /**
+     * Tests that a long body is gzip-compressed in chunks, without its Content-Length and with a distinct ETag.
+     */
+    @Test
+    public void testCompressesLongBodyWithGzip() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        filter.doFilter(request, response, (req, resp) -> {
+            HttpServletResponse httpResponse = (HttpServletResponse) resp;
+            httpResponse.setHeader("ETag", "\"5\"");
+            httpResponse.setContentLength(LONG_BODY.length);
+            ServletOutputStream stream = httpResponse.getOutputStream();
+            stream.write(LONG_BODY, 0, 100);
+            stream.flush();
+            stream.write(LONG_BODY, 100, LONG_BODY.length - 100);
+        });
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).setHeader("Vary", "Accept-Encoding");
+        verify(response).setHeader("ETag", "\"5-gzip\"");
+        verify(response, never()).setContentLength(anyInt());
+        verify(response, never()).setContentLengthLong(anyLong());
+        assertTrue(out.size() < LONG_BODY.length / 10);
+        assertArrayEquals(LONG_BODY, new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes());
+    }
+
+    /**
+     * Tests that deflate is used when the client prefers it, also for bodies written as characters.
+     */
+    @Test
+    public void testCompressesWithDeflate() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0.5, deflate");
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+
+        filter.doFilter(request, response, (req, resp) ->
+                resp.getWriter().write(new String(LONG_BODY, StandardCharsets.UTF_8)));
+
+        verify(response).setHeader("Content-Encoding", "deflate");
+        assertArrayEquals(LONG_BODY, new InflaterInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes());
+    }
+
+    /**
+     * Tests that a body below the threshold is sent as is with its length.
+     */
+    @Test
+    public void testShortBodyPassesThrough() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        byte[] body = "{\"bookId\":1}".getBytes(StandardCharsets.UTF_8);
+
+        filter.doFilter(request, response, (req, resp) -> resp.getOutputStream().write(body));
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(response).setContentLengthLong(body.length);
+        assertArrayEquals(body, out.toByteArray());
+    }
+
+    /**
+     * Tests that a pre-compressed cached body is sent as is instead of being compressed twice.
+     */
+    @Test
+    public void testEncodedBodyPassesThrough() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        CachedResponse cached = CachedResponse.of(LONG_BODY, new long[0]);
+
+        filter.doFilter(request, response, (req, resp) ->
+                cached.writeTo((HttpServletRequest) req, (HttpServletResponse) resp, "\"2\""));
+
+        verify(response, times(1)).setHeader("Content-Encoding", "gzip");
+        verify(response).setHeader("ETag", "\"2-gzip\"");
+        verify(response).setContentLengthLong(out.size());
+        assertArrayEquals(LONG_BODY, new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes());
+    }
+
+    /**
+     * Tests that the response is not wrapped when the client accepts no compression or the body is not sent.
+     */
+    @Test
+    public void testUncompressedRequestsAreNotWrapped() throws Exception {
+        FilterChain chain = (req, resp) -> assertSame(response, resp);
+        when(request.getHeader("Accept-Encoding")).thenReturn("identity");
+        filter.doFilter(request, response, chain);
+
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(request.getMethod()).thenReturn("HEAD");
+        filter.doFilter(request, response, chain);
+
+        assertFalse(CompressionFilter.isCompressible("image/png"));
+        assertTrue(CompressionFilter.isCompressible("text/csv; charset=UTF-8"));
+    }
+}
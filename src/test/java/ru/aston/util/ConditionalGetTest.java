@@ -0,0 +1,54 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ConditionalGet class, which answers conditional GET requests from resource versions.
+ */
+public class ConditionalGetTest {
+
+    /**
+     * Tests that the ETag depends on the version and on the selected representation.
+     */
+    @Test
+    public void testETagIdentifiesRepresentation() {
+        assertEquals("\"3\"", ConditionalGet.eTag(3, null, null));
+        assertNotEquals(ConditionalGet.eTag(3, null, null), ConditionalGet.eTag(4, null, null));
+        assertNotEquals(ConditionalGet.eTag(3, null, null), ConditionalGet.eTag(3, "bookId", null));
+        assertNotEquals(ConditionalGet.eTag(3, "author", null), ConditionalGet.eTag(3, null, "author"));
+        assertEquals(ConditionalGet.eTag(3, "bookId", "author"), ConditionalGet.eTag(3, "bookId", "author"));
+        assertTrue(ConditionalGet.eTag(3, "bookId, \"title\"", "author").matches("\"3\\.[\\w-]+\""));
+    }
+
+    /**
+     * Tests that If-None-Match matches lists, wildcards and weak ETags.
+     */
+    @Test
+    public void testMatchesIfNoneMatch() {
+        assertEquals("\"3\"", ConditionalGet.match("\"3\"", "\"3\"", null));
+        assertEquals("\"3\"", ConditionalGet.match("\"1\", W/\"3\"", "\"3\"", null));
+        assertEquals("\"3\"", ConditionalGet.match("*", "\"3\"", null));
+        assertNull(ConditionalGet.match("\"30\"", "\"3\"", null));
+        assertNull(ConditionalGet.match(null, "\"3\"", null));
+    }
+
+    /**
+     * Tests that a compressed body matches only with the coding the client would get now,
+     * and that the 304 then carries the ETag of the compressed body.
+     */
+    @Test
+    public void testMatchesCompressedBody() {
+        assertEquals("\"3-gzip\"",
+                ConditionalGet.match(ConditionalGet.gzipETag("\"3\""), "\"3\"", ContentCoding.GZIP));
+        assertEquals("\"3-gzip\"", ConditionalGet.match("W/\"3-gzip\"", "\"3\"", ContentCoding.GZIP));
+        assertEquals("\"3-gzip\"", ConditionalGet.match("*", "\"3\"", ContentCoding.GZIP));
+        assertEquals("\"3\"", ConditionalGet.match("\"3\"", "\"3\"", ContentCoding.GZIP));
+        assertNull(ConditionalGet.match("\"3-gzip\"", "\"4\"", ContentCoding.GZIP));
+        assertNull(ConditionalGet.match("\"3-gzip\"", "\"3\"", ContentCoding.DEFLATE));
+        assertNull(ConditionalGet.match("\"3-deflate\"", "\"3\"", null));
+        assertEquals("\"3-deflate\"", ConditionalGet.match(ContentCoding.DEFLATE.eTag("\"3\""), "\"3\"",
+                ContentCoding.DEFLATE));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ContentCoding enum and the DeflaterPool whose raw deflate data it frames.
+ */
+public class ContentCodingTest {
+
+    /**
+     * Tests choosing the coding from Accept-Encoding headers.
+     */
+    @Test
+    public void testNegotiate() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("br, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0, *"));
+        assertNull(ContentCoding.negotiate("gzip;q=0, deflate;q=0.0"));
+        assertNull(ContentCoding.negotiate("identity"));
+        assertNull(ContentCoding.negotiate(null));
+    }
+
+    /**
+     * Tests that the same raw deflate data framed by either coding is read back by the JDK's decoders.
+     */
+    @Test
+    public void testFraming() throws IOException {
+        byte[] body = ("[" + "{\"bookTitle\":\"The Mist\"},".repeat(100) + "{}]").getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, 1).deflate(body);
+
+        for (ContentCoding coding : ContentCoding.values()) {
+            Checksum checksum = coding.newChecksum();
+            checksum.update(body, 0, body.length);
+            ByteArrayOutputStream framed = new ByteArrayOutputStream();
+            coding.writeHeader(framed);
+            framed.write(deflated);
+            coding.writeTrailer(framed, checksum.getValue(), body.length);
+            assertEquals(deflated.length + coding.framingLength(), framed.size());
+
+            InputStream in = coding == ContentCoding.GZIP
+                    ? new GZIPInputStream(new ByteArrayInputStream(framed.toByteArray()))
+                    : new InflaterInputStream(new ByteArrayInputStream(framed.toByteArray()));
+            assertArrayEquals(body, in.readAllBytes(), coding.getName());
+        }
+    }
+
+    /**
+     * Tests that returned Deflaters are reused up to the size of the pool.
+     */
+    @Test
+    public void testPoolReusesDeflaters() {
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, 1);
+        Deflater first = pool.borrow();
+        Deflater second = pool.borrow();
+        assertNotSame(first, second);
+
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(first, pool.borrow());
+        assertNotSame(second, pool.borrow());
+    }
+}
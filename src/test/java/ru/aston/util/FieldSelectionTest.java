@@ -0,0 +1,92 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BookDto.BookDto;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the FieldSelection class, which parses {@code ?fields=&expand=} and projects responses.
+ */
+public class FieldSelectionTest {
+
+    /**
+     * Tests that a request without parameters selects everything.
+     */
+    @Test
+    public void testNoParametersSelectsAll() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        FieldSelection selection = FieldSelection.from(request, "author", "comments");
+
+        assertSame(FieldSelection.ALL, selection);
+        assertTrue(selection.includes("comments"));
+    }
+
+    /**
+     * Tests that a relation is loaded only if it is both expanded and among the requested fields.
+     */
+    @Test
+    public void testIncludesRequiresExpandAndFields() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("fields")).thenReturn("bookTitle,author");
+        when(request.getParameter("expand")).thenReturn("author,comments");
+
+        FieldSelection selection = FieldSelection.from(request, "author", "comments");
+
+        assertTrue(selection.includes("author"));
+        assertFalse(selection.includes("comments"));
+    }
+
+    /**
+     * Tests that expanding an unknown relation is rejected.
+     */
+    @Test
+    public void testUnknownExpandIsRejected() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("expand")).thenReturn("reviewers");
+
+        assertThrows(IllegalArgumentException.class, () -> FieldSelection.from(request, "author", "comments"));
+    }
+
+    /**
+     * Tests that only the top-level elements of a list are projected and nested objects are written in full.
+     *
+     * @throws IOException never, the output is written to memory
+     */
+    @Test
+    public void testWriteProjectsTopLevelElementsOnly() throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("fields")).thenReturn("bookId,author");
+        when(request.getParameter("expand")).thenReturn(null);
+        AuthorDto author = new AuthorDto();
+        author.setAuthorId(3);
+        author.setAuthorName("Author");
+        BookDto nested = new BookDto();
+        nested.setBookId(9);
+        nested.setBookTitle("Nested");
+        nested.setCommentCount(0);
+        author.getBooks().add(nested);
+        BookDto book = new BookDto();
+        book.setBookId(1);
+        book.setBookTitle("Title");
+        book.setAuthor(author);
+        List<BookDto> books = new ArrayList<>();
+        books.add(book);
+        StringWriter out = new StringWriter();
+
+        FieldSelection.from(request, "author", "comments").write(out, books);
+
+        assertEquals("[{\"bookId\":1,\"author\":{\"authorId\":3,\"authorName\":\"Author\",\"books\":"
+                + "[{\"bookId\":9,\"bookTitle\":\"Nested\",\"commentCount\":0,\"author\":null,\"comments\":[]}]}}]", out.toString());
+    }
+}
@@ -0,0 +1,118 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.aston.dto.AuthorDto.AuthorDto;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.BookDto.BookShortDto;
+import ru.aston.dto.CommentDto.CommentDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared JsonCodec against the former ObjectMapper constructed per request, writing a book
+ * with its comments through a character writer as the controllers did. Creating the mapper per request
+ * repeats the introspection of the DTOs and the warmup of the serializer caches on every call.
+ * The codec variants use the JSON code generated at compile time, the reflection variants a codec without it.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ru.aston.util.JsonCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+    private static final String REQUEST_BODY = "{\"bookId\":0,\"bookTitle\":\"The Mist\",\"authorId\":7}";
+
+    @Param({"1", "50"})
+    private int comments;
+
+    private BookDto book;
+
+    private final JsonCodec codec = new JsonCodec(new ObjectMapper(), JsonCodec.generatedModule());
+
+    private final JsonCodec reflectionCodec = new JsonCodec(new ObjectMapper());
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /**
+     * Builds a book with its author and the given number of comments.
+     */
+    @Setup
+    public void setUp() {
+        AuthorDto author = new AuthorDto();
+        author.setAuthorId(7);
+        author.setAuthorName("Stephen King");
+        book = new BookDto();
+        book.setBookId(1);
+        book.setBookTitle("The Mist");
+        book.setAuthor(author);
+        for (int i = 1; i <= comments; i++) {
+            CommentDto comment = new CommentDto();
+            comment.setCommentId(i);
+            comment.setText("Comment " + i);
+            book.getComments().add(comment);
+        }
+    }
+
+    @Benchmark
+    public int writeWithNewMapper() throws IOException {
+        out.reset();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        new ObjectMapper().writeValue(writer, book);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeWithCodec() throws IOException {
+        out.reset();
+        codec.write(out, book);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeWithReflection() throws IOException {
+        out.reset();
+        reflectionCodec.write(out, book);
+        return out.size();
+    }
+
+    @Benchmark
+    public BookShortDto readWithNewMapper() throws IOException {
+        return new ObjectMapper().readValue(new StringReader(REQUEST_BODY), BookShortDto.class);
+    }
+
+    @Benchmark
+    public BookShortDto readWithCodec() throws IOException {
+        return codec.read(new StringReader(REQUEST_BODY), BookShortDto.class);
+    }
+
+    @Benchmark
+    public BookShortDto readWithReflection() throws IOException {
+        return reflectionCodec.read(new StringReader(REQUEST_BODY), BookShortDto.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.aston.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+import ru.aston.dto.BookDto.BookDto;
+import ru.aston.dto.BookDto.BookShortDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the JsonCodec class, the shared JSON reader and writer.
+ */
+public class JsonCodecTest {
+
+    /**
+     * Tests that readers and writers are built once per type and that values are written as UTF-8 bytes.
+     */
+    @Test
+    public void testReadAndWrite() throws Exception {
+        JsonCodec codec = JsonCodec.fromProperties(new Properties());
+        BookDto book = new BookDto();
+        book.setBookId(1);
+        book.setBookTitle("Ночной дозор");
+        book.setCommentCount(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        codec.write(out, book);
+
+        assertEquals("{\"bookId\":1,\"bookTitle\":\"Ночной дозор\",\"commentCount\":0,\"author\":null,"
+                + "\"comments\":[]}", out.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(out.toByteArray(), codec.writeAsBytes(book));
+        assertSame(codec.writerFor(BookDto.class), codec.writerFor(BookDto.class));
+        assertSame(codec.readerFor(BookShortDto.class), codec.readerFor(BookShortDto.class));
+        assertSame(codec.readerFor(new TypeReference<List<BookShortDto>>() {
+        }), codec.readerFor(new TypeReference<List<BookShortDto>>() {
+        }));
+        List<BookShortDto> books = codec.read(new StringReader("[{\"bookTitle\":\"It\",\"authorId\":2}]"),
+                new TypeReference<List<BookShortDto>>() {
+                });
+        assertEquals("It", books.get(0).getBookTitle());
+        assertEquals(2, books.get(0).getAuthorId());
+    }
+
+    /**
+     * Tests that the inclusion of properties and the handling of unknown properties are configurable.
+     */
+    @Test
+    public void testConfiguration() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("json.inclusion", "NON_EMPTY");
+        properties.setProperty("json.failOnUnknownProperties", "false");
+        JsonCodec codec = JsonCodec.fromProperties(properties);
+        BookDto book = new BookDto();
+        book.setBookId(1);
+        book.setCommentCount(0);
+
+        assertEquals("{\"bookId\":1,\"commentCount\":0}",
+                new String(codec.writeAsBytes(book), StandardCharsets.UTF_8));
+        assertEquals(3, codec.read(new StringReader("{\"authorId\":3,\"isbn\":\"x\"}"), BookShortDto.class)
+                .getAuthorId());
+        assertThrows(UnrecognizedPropertyException.class, () -> JsonCodec.fromProperties(new Properties())
+                .read(new StringReader("{\"isbn\":\"x\"}"), BookShortDto.class));
+        assertEquals("null", new String(codec.writeAsBytes(null), StandardCharsets.UTF_8));
+    }
+}
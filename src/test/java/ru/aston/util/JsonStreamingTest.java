@@ -0,0 +1,54 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+import ru.aston.controller.CapturingOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the JsonStreaming class, which writes JSON arrays element by element.
+ */
+public class JsonStreamingTest {
+
+    /**
+     * Tests that the elements are written as a complete array.
+     */
+    @Test
+    public void testWritesArray() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        CapturingOutputStream out = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+
+        JsonStreaming.<Integer>writeArray(response, sink -> {
+            sink.accept(1);
+            sink.accept(2);
+        });
+
+        assertEquals("[1,2]", out.toString());
+    }
+
+    /**
+     * Tests that a stream failing midway is left as invalid JSON instead of being closed into a shorter array.
+     */
+    @Test
+    public void testFailedStreamIsNotCompleted() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        CapturingOutputStream out = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+        Consumer<Consumer<Integer>> failing = sink -> {
+            sink.accept(1);
+            throw new UncheckedIOException(new IOException("cursor lost"));
+        };
+
+        assertThrows(IOException.class, () -> JsonStreaming.writeArray(response, failing));
+
+        assertEquals("[1", out.toString());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the RadixTrie class, which answers top-k prefix queries.
+ */
+public class RadixTrieTest {
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    /**
+     * Tests that a lookup returns the best values below the prefix, also for prefixes ending inside an edge.
+     */
+    @Test
+    public void testCompleteReturnsBestValues() {
+        RadixTrie<Integer> trie = RadixTrie.<Integer>empty(DESCENDING, 3)
+                .with("the shining", 5)
+                .with("the stand", 9)
+                .with("the", 1)
+                .with("it", 7)
+                .with("the shining", 2);
+
+        assertEquals(List.of(9, 5, 2), trie.complete("th", 3));
+        assertEquals(List.of(5, 2), trie.complete("the sh", 5));
+        assertEquals(List.of(9), trie.complete("the s", 1));
+        assertEquals(List.of(), trie.complete("ther", 3));
+        assertEquals(List.of(), trie.complete("x", 3));
+        assertEquals(List.of(9, 7, 5), trie.complete("", 3));
+        assertEquals(5, trie.size());
+    }
+
+    /**
+     * Tests that removing values leaves earlier versions unchanged and recomputes the best values.
+     */
+    @Test
+    public void testWithoutKeepsPreviousVersion() {
+        RadixTrie<Integer> trie = RadixTrie.<Integer>empty(DESCENDING, 2)
+                .with("carrie", 4)
+                .with("cujo", 6)
+                .with("car", 3);
+
+        RadixTrie<Integer> removed = trie.without("cujo", value -> value == 6);
+
+        assertEquals(List.of(6, 4), trie.complete("c", 2));
+        assertEquals(List.of(4, 3), removed.complete("c", 2));
+        assertEquals(2, removed.size());
+        assertSame(removed, removed.without("cujo", value -> true));
+        assertEquals(List.of(), removed.without("car", value -> true).without("carrie", value -> true)
+                .complete("", 2));
+    }
+
+    /**
+     * Tests that bulk building, incremental changes and a brute-force scan give the same answers.
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(randomKey(random), i));
+        }
+        RadixTrie<Integer> built = RadixTrie.build(entries, DESCENDING, 5);
+        RadixTrie<Integer> incremental = RadixTrie.empty(DESCENDING, 5);
+        for (Map.Entry<String, Integer> entry : entries) {
+            incremental = incremental.with(entry.getKey(), entry.getValue());
+        }
+        for (int i = 0; i < 500; i += 2) {
+            Map.Entry<String, Integer> entry = entries.get(i);
+            built = built.without(entry.getKey(), value -> value.equals(entry.getValue()));
+            incremental = incremental.without(entry.getKey(), value -> value.equals(entry.getValue()));
+        }
+        List<Map.Entry<String, Integer>> remaining = new ArrayList<>(entries);
+        remaining.removeIf(entry -> entry.getValue() < 500 && entry.getValue() % 2 == 0);
+
+        assertEquals(remaining.size(), built.size());
+        for (int i = 0; i < 300; i++) {
+            String prefix = randomKey(random).substring(0, 1 + random.nextInt(3));
+            List<Integer> expected = remaining.stream()
+                    .filter(entry -> entry.getKey().startsWith(prefix))
+                    .map(Map.Entry::getValue)
+                    .sorted(DESCENDING)
+                    .limit(5)
+                    .collect(Collectors.toList());
+            assertEquals(expected, built.complete(prefix, 5), prefix);
+            assertEquals(expected, incremental.complete(prefix, 5), prefix);
+        }
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 3 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            key.append("abc ".charAt(random.nextInt(4)));
+        }
+        return key.toString();
+    }
+}
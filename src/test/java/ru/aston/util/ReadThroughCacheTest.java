@@ -0,0 +1,130 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ReadThroughCache class, a bounded cache loading missing values on demand.
+ */
+public class ReadThroughCacheTest {
+
+    /**
+     * Tests that concurrent misses of a key wait for a single load.
+     */
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 60_000, 60_000, value -> new long[0]);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get(1, key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "one";
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("one", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that invalidating a tag evicts exactly the values filed under it.
+     */
+    @Test
+    public void testInvalidateTag() {
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 60_000, 60_000,
+                value -> value.equals("both") ? new long[]{1, 2} : new long[]{2});
+        cache.get(1, key -> "both");
+        cache.get(2, key -> "two");
+
+        cache.invalidateTag(1);
+
+        assertEquals(1, cache.size());
+        assertEquals("reloaded", cache.get(1, key -> "reloaded"));
+        assertEquals("two", cache.get(2, key -> "unexpected"));
+        cache.invalidateTag(2);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a value loaded while one of its tags is invalidated is returned but not cached.
+     */
+    @Test
+    public void testLoadOverlappingInvalidationIsNotCached() {
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 60_000, 60_000, value -> new long[]{7});
+
+        String value = cache.get(1, key -> {
+            cache.invalidateTag(7);
+            return "stale";
+        });
+
+        assertEquals("stale", value);
+        assertEquals(0, cache.size());
+        assertEquals("fresh", cache.get(1, key -> "fresh"));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that the cache keeps its size and that values read since the clock hand passed them survive.
+     */
+    @Test
+    public void testEvictsBeyondMaxSize() {
+        ReadThroughCache<Integer, Integer> cache = new ReadThroughCache<>(3, 60_000, 60_000, value -> new long[0]);
+        for (int i = 0; i < 3; i++) {
+            cache.get(i, key -> key);
+        }
+        cache.get(0, key -> -1);
+
+        cache.get(3, key -> key);
+
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.snapshot().get("evictions"));
+        assertEquals(0, cache.get(0, key -> -1));
+        assertEquals(-1, cache.get(1, key -> -1));
+    }
+
+    /**
+     * Tests that values expire and that a cache without capacity loads on every read.
+     */
+    @Test
+    public void testExpiryAndPassThrough() throws Exception {
+        ReadThroughCache<Integer, String> expiring = new ReadThroughCache<>(10, 1, 1, value -> new long[0]);
+        expiring.get(1, key -> "old");
+        Thread.sleep(5);
+        assertEquals("new", expiring.get(1, key -> "new"));
+
+        ReadThroughCache<Integer, String> disabled = new ReadThroughCache<>(0, 60_000, 60_000, value -> new long[0]);
+        disabled.get(1, key -> "first");
+        assertEquals("second", disabled.get(1, key -> "second"));
+        assertEquals(0, disabled.size());
+    }
+}
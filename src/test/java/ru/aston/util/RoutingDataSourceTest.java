@@ -0,0 +1,216 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the RoutingDataSource class, using in-process stand-ins for the primary and the replica.
+ */
+public class RoutingDataSourceTest {
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ResultSet replayResult;
+
+    /**
+     * Sets up a primary reporting WAL position 0/3000060 and a replica answering replay checks.
+     *
+     * @throws SQLException never, required by the mocked JDBC signatures
+     */
+    @BeforeEach
+    public void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+
+        Statement lsnStatement = mock(Statement.class);
+        ResultSet lsnResult = mock(ResultSet.class);
+        when(primaryConnection.getAutoCommit()).thenReturn(true);
+        when(primaryConnection.createStatement()).thenReturn(lsnStatement);
+        when(lsnStatement.executeQuery(anyString())).thenReturn(lsnResult);
+        when(lsnResult.next()).thenReturn(true);
+        when(lsnResult.getString(1)).thenReturn("0/3000060");
+
+        PreparedStatement replayStatement = mock(PreparedStatement.class);
+        replayResult = mock(ResultSet.class);
+        when(replicaConnection.prepareStatement(anyString())).thenReturn(replayStatement);
+        when(replayStatement.executeQuery()).thenReturn(replayResult);
+        when(replayResult.next()).thenReturn(true);
+    }
+
+    /**
+     * Clears the consistency state bound to the test thread.
+     */
+    @AfterEach
+    public void tearDown() {
+        ConsistencyToken.clear();
+    }
+
+    /**
+     * Tests that reads go to the replica and writes go to the primary.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testReadsGoToReplicaAndWritesToPrimary() throws SQLException {
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        try (Connection connection = routingDataSource.getReadConnection()) {
+            assertSame(replicaConnection, connection);
+        }
+        try (Connection connection = routingDataSource.getConnection()) {
+            assertNotSame(replicaConnection, connection);
+        }
+
+        verify(primary).getConnection();
+        verify(replica).getConnection();
+        verify(primaryConnection).close();
+    }
+
+    /**
+     * Tests that a write issues the primary's WAL position as a consistency token.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testWriteIssuesToken() throws SQLException {
+        List<String> issued = new ArrayList<>();
+        ConsistencyToken.begin(null, issued::add);
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        try (Connection connection = routingDataSource.getConnection()) {
+            connection.prepareStatement("UPDATE books SET book_title = ? WHERE id = ?");
+        }
+
+        assertEquals(List.of("0/3000060"), issued);
+        assertEquals("0/3000060", ConsistencyToken.getRequired());
+    }
+
+    /**
+     * Tests that a primary connection used only for reading issues no token and reads no WAL position.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testReadOnlyUseIssuesNoToken() throws SQLException {
+        List<String> issued = new ArrayList<>();
+        ConsistencyToken.begin(null, issued::add);
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        try (Connection connection = routingDataSource.getConnection()) {
+            connection.prepareStatement("SELECT version FROM books WHERE id = ?");
+            connection.createStatement().executeQuery("SELECT 1");
+        }
+
+        assertTrue(issued.isEmpty());
+        assertNull(ConsistencyToken.getRequired());
+        assertTrue(RoutingDataSource.isWrite(" WITH moved AS (DELETE FROM user_books RETURNING *) SELECT 1"));
+        assertFalse(RoutingDataSource.isWrite("\n select 1"));
+    }
+
+    /**
+     * Tests that a read carrying a token falls back to the primary while the replica lags behind.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testLaggingReplicaIsSkipped() throws SQLException {
+        when(replayResult.getBoolean(1)).thenReturn(false);
+        ConsistencyToken.begin("0/3000060", null);
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        Connection connection = routingDataSource.getReadConnection();
+
+        assertSame(primaryConnection, connection);
+        verify(replicaConnection).close();
+    }
+
+    /**
+     * Tests that a read carrying a token is served by a replica that has caught up.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testCaughtUpReplicaServesRead() throws SQLException {
+        when(replayResult.getBoolean(1)).thenReturn(true);
+        ConsistencyToken.begin("0/3000060", null);
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        Connection connection = routingDataSource.getReadConnection();
+
+        assertSame(replicaConnection, connection);
+        verify(primary, never()).getConnection();
+    }
+
+    /**
+     * Tests that a position required for a single action keeps only its reads off a lagging replica,
+     * and that a replica seen to have replayed it is not asked again.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testObservingPosition() throws SQLException {
+        when(replayResult.getBoolean(1)).thenReturn(false, true);
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of(replica));
+
+        assertSame(primaryConnection, ConsistencyToken.observing("0/3000060", () -> read(routingDataSource)));
+        assertSame(replicaConnection, ConsistencyToken.observing("0/3000060", () -> read(routingDataSource)));
+        assertSame(replicaConnection, ConsistencyToken.observing("0/2000000", () -> read(routingDataSource)));
+        assertNull(ConsistencyToken.getRequired());
+        assertSame(replicaConnection, routingDataSource.getReadConnection());
+
+        verify(replicaConnection, times(2)).prepareStatement(anyString());
+    }
+
+    /**
+     * Tests parsing and writing WAL positions.
+     */
+    @Test
+    public void testLsn() {
+        assertEquals(0x16B374D848L, RoutingDataSource.parseLsn("16/B374D848"));
+        assertEquals("16/B374D848", RoutingDataSource.formatLsn(0x16B374D848L));
+        assertEquals(-1, RoutingDataSource.parseLsn("16/"));
+        assertEquals(-1, RoutingDataSource.parseLsn("x/1"));
+        assertEquals(-1, RoutingDataSource.parseLsn(null));
+    }
+
+    /**
+     * Tests that without replicas both reads and writes use the primary.
+     *
+     * @throws SQLException never
+     */
+    @Test
+    public void testWithoutReplicasEverythingGoesToPrimary() throws SQLException {
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, List.of());
+
+        assertSame(primaryConnection, routingDataSource.getReadConnection());
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        verifyNoInteractions(replica);
+    }
+
+    private static Connection read(RoutingDataSource routingDataSource) {
+        try {
+            return routingDataSource.getReadConnection();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the SqlScript class, which splits migration scripts into statements.
+ */
+public class SqlScriptTest {
+
+    /**
+     * Tests that statements are split on semicolons and comment-only parts are left out.
+     */
+    @Test
+    public void testSplitsStatements() {
+        String script = "-- migration: no-transaction\n" +
+                "CREATE INDEX a ON t (x);\n" +
+                "/* block; comment */\n" +
+                "CREATE INDEX b ON t (y);\n" +
+                "-- trailing comment;\n";
+
+        List<String> statements = SqlScript.split(script);
+
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(0).endsWith("CREATE INDEX a ON t (x)"));
+        assertTrue(statements.get(1).endsWith("CREATE INDEX b ON t (y)"));
+    }
+
+    /**
+     * Tests that semicolons inside literals, quoted identifiers and dollar-quoted bodies do not split.
+     */
+    @Test
+    public void testIgnoresQuotedSemicolons() {
+        String script = "INSERT INTO t VALUES ('a;b', E'c\\';d');\n" +
+                "CREATE TABLE \"x;y\" (id int);\n" +
+                "CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql;\n" +
+                "DO $$ BEGIN PERFORM 1; END $$";
+
+        List<String> statements = SqlScript.split(script);
+
+        assertEquals(4, statements.size());
+        assertEquals("INSERT INTO t VALUES ('a;b', E'c\\';d')", statements.get(0));
+        assertEquals("CREATE TABLE \"x;y\" (id int)", statements.get(1));
+        assertTrue(statements.get(2).endsWith("LANGUAGE plpgsql"));
+        assertEquals("DO $$ BEGIN PERFORM 1; END $$", statements.get(3));
+    }
+
+    /**
+     * Tests that positional parameters are not taken for dollar quotes.
+     */
+    @Test
+    public void testPositionalParameters() {
+        List<String> statements = SqlScript.split("PREPARE p AS SELECT $1; EXECUTE p(1)");
+
+        assertEquals(List.of("PREPARE p AS SELECT $1", "EXECUTE p(1)"), statements);
+    }
+}
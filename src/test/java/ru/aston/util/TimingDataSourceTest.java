@@ -0,0 +1,82 @@
+package ru.aston.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the TimingDataSource class, which reports statement executions to the slow query log.
+ */
+public class TimingDataSourceTest {
+
+    /**
+     * Tests that a query is reported once its result set is drained, with SQL, parameters and row count.
+     *
+     * @throws SQLException never, required by the mocked JDBC signatures
+     */
+    @Test
+    public void testQueryIsReportedAfterDrain() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        SlowQueryLog slowQueryLog = mock(SlowQueryLog.class);
+        String sql = "SELECT book_title FROM books WHERE book_id = ?";
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("Book 1");
+
+        TimingDataSource timingDataSource = new TimingDataSource(target, slowQueryLog);
+        try (Connection timedConnection = timingDataSource.getConnection();
+             PreparedStatement timedStatement = timedConnection.prepareStatement(sql)) {
+            timedStatement.setInt(1, 42);
+            try (ResultSet timedResultSet = timedStatement.executeQuery()) {
+                while (timedResultSet.next()) {
+                    assertEquals("Book 1", timedResultSet.getString(1));
+                }
+            }
+        }
+
+        verify(slowQueryLog, times(1)).report(eq(target), eq(sql), eq(List.of(42)), anyLong(), anyLong(), eq(2L));
+        verify(preparedStatement).setInt(1, 42);
+        verify(connection).close();
+    }
+
+    /**
+     * Tests that an update is reported as soon as it completes.
+     *
+     * @throws SQLException never, required by the mocked JDBC signatures
+     */
+    @Test
+    public void testUpdateIsReported() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        SlowQueryLog slowQueryLog = mock(SlowQueryLog.class);
+        String sql = "DELETE FROM books WHERE book_id = ?";
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        TimingDataSource timingDataSource = new TimingDataSource(target, slowQueryLog);
+        try (Connection timedConnection = timingDataSource.getConnection();
+             PreparedStatement timedStatement = timedConnection.prepareStatement(sql)) {
+            timedStatement.setInt(1, 7);
+            assertEquals(1, timedStatement.executeUpdate());
+        }
+
+        verify(slowQueryLog, times(1)).report(eq(target), eq(sql), eq(List.of(7)), anyLong(), eq(0L), eq(0L));
+    }
+}